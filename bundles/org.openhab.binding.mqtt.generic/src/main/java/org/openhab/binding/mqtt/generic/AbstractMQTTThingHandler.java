@@ -27,6 +27,7 @@ import java.util.stream.Collectors;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.library.types.OnOffType;
 import org.eclipse.smarthome.core.thing.Bridge;
 import org.eclipse.smarthome.core.thing.ChannelGroupUID;
@@ -42,6 +43,7 @@ import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
 import org.eclipse.smarthome.core.util.UIDUtils;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.openhab.binding.mqtt.generic.tools.TimerWheel;
 import org.openhab.binding.mqtt.generic.utils.FutureCollector;
 import org.openhab.binding.mqtt.generic.values.OnOffValue;
 import org.openhab.binding.mqtt.generic.values.Value;
@@ -77,6 +79,10 @@ import org.slf4j.LoggerFactory;
 @NonNullByDefault
 public abstract class AbstractMQTTThingHandler extends BaseThingHandler
         implements ChannelStateUpdateListener, AvailabilityTracker {
+    /** Passes coalesced channel states of all MQTT things */
+    private static final TimerWheel UPDATE_TIMER_WHEEL = new TimerWheel(
+            ThreadPoolManager.getScheduledPool("thingHandler"), 50, 64);
+
     private final Logger logger = LoggerFactory.getLogger(AbstractMQTTThingHandler.class);
     // Timeout for the entire tree parsing and subscription
     private final int subscribeTimeout;
@@ -85,6 +91,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
 
     private AtomicBoolean messageReceived = new AtomicBoolean(false);
     private Map<String, @Nullable ChannelState> availabilityStates = new ConcurrentHashMap<>();
+    private final Map<ChannelUID, ChannelStateUpdateLimiter> updateLimiters = new ConcurrentHashMap<>();
 
     public AbstractMQTTThingHandler(Thing thing, int subscribeTimeout) {
         super(thing);
@@ -255,6 +262,8 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
     @Override
     public void dispose() {
         stop();
+        updateLimiters.values().forEach(ChannelStateUpdateLimiter::reset);
+        updateLimiters.clear();
         try {
             unsubscribeAll().get(500, TimeUnit.MILLISECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
@@ -271,12 +280,28 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler
      */
     public abstract CompletableFuture<Void> unsubscribeAll();
 
+    /**
+     * Updates the channel state, limited according to the channel configuration. See
+     * {@link ChannelStateUpdateLimiter}.
+     */
     @Override
     public void updateChannelState(ChannelUID channelUID, State value) {
         if (messageReceived.compareAndSet(false, true)) {
             calculateThingStatus();
         }
-        super.updateState(channelUID, value);
+        ChannelStateUpdateLimiter limiter = updateLimiters.get(channelUID);
+        if (limiter == null) {
+            final ChannelState channelState = getChannelState(channelUID);
+            if (channelState != null && ChannelStateUpdateLimiter.isLimited(channelState.config)) {
+                limiter = updateLimiters.computeIfAbsent(channelUID, uid -> new ChannelStateUpdateLimiter(
+                        channelState.config, UPDATE_TIMER_WHEEL, state -> super.updateState(uid, state)));
+            }
+        }
+        if (limiter != null) {
+            limiter.update(value);
+        } else {
+            super.updateState(channelUID, value);
+        }
     }
 
     @Override
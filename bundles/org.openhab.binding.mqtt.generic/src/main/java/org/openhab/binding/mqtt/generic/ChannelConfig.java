@@ -43,6 +43,13 @@ public class ChannelConfig {
     public boolean trigger = false;
     public String unit = "";
 
+    /** Minimum time in milliseconds between two state updates. 0 updates the state on every message. */
+    public int updateInterval = 0;
+    /** If true, the last state received within {@link #updateInterval} is applied when it elapses. */
+    public boolean coalesceUpdates = true;
+    /** Numeric states differing less than this from the last state update are dropped. */
+    public @Nullable BigDecimal updateDeadband;
+
     public String transformationPattern = "";
     public String transformationPatternOut = "";
     public String formatBeforePublish = "%s";
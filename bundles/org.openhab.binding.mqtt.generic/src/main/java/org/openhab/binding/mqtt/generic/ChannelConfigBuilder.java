@@ -12,6 +12,8 @@
  */
 package org.openhab.binding.mqtt.generic;
 
+import java.math.BigDecimal;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -73,4 +75,11 @@ public class ChannelConfigBuilder {
         config.trigger = trigger;
         return this;
     }
+
+    public ChannelConfigBuilder withUpdateLimit(int interval, boolean coalesce, @Nullable BigDecimal deadband) {
+        config.updateInterval = interval;
+        config.coalesceUpdates = coalesce;
+        config.updateDeadband = deadband;
+        return this;
+    }
 }
@@ -29,9 +29,12 @@ import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.TypeParser;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
-import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
 import org.openhab.binding.mqtt.generic.values.TextValue;
 import org.openhab.binding.mqtt.generic.values.Value;
+import org.openhab.binding.mqtt.generic.values.Value.PayloadUpdate;
+import org.openhab.binding.mqtt.handler.MqttPublishQueue;
+import org.openhab.binding.mqtt.handler.MqttTextMessageSubscriber;
+import org.openhab.binding.mqtt.handler.MqttTopicDispatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,7 +45,7 @@ import org.slf4j.LoggerFactory;
  * @author David Graeff - Initial contribution
  */
 @NonNullByDefault
-public class ChannelState implements MqttMessageSubscriber {
+public class ChannelState implements MqttTextMessageSubscriber {
     private final Logger logger = LoggerFactory.getLogger(ChannelState.class);
 
     // Immutable channel configuration
@@ -139,6 +142,24 @@ public class ChannelState implements MqttMessageSubscriber {
      */
     @Override
     public void processMessage(String topic, byte[] payload) {
+        process(topic, payload, null);
+    }
+
+    /**
+     * Incoming message from the {@link MqttTopicDispatcher}, which decodes the text once for all channels of the
+     * topic. Passing the same string to the transformations allows them to recognize the shared source cheaply, e.g.
+     * to parse a JSON document once for several JSONPATH channels.
+     *
+     * @param topic The topic. Is the same as the field stateTopic.
+     * @param payload The byte payload. Must be UTF8 encoded text or binary data.
+     * @param text The payload decoded as UTF8 text
+     */
+    @Override
+    public void processMessage(String topic, byte[] payload, String text) {
+        process(topic, payload, text);
+    }
+
+    private void process(String topic, byte[] payload, @Nullable String text) {
         final ChannelStateUpdateListener channelStateUpdateListener = this.channelStateUpdateListener;
         if (channelStateUpdateListener == null) {
             logger.warn("MQTT message received for topic {}, but MessageSubscriber object hasn't been started!", topic);
@@ -152,8 +173,22 @@ public class ChannelState implements MqttMessageSubscriber {
             return;
         }
 
+        // Fast path for values parsing the payload themselves, like plain numbers: Skip decoding and command parsing
+        if (transformationsIn.isEmpty() && !config.trigger) {
+            PayloadUpdate update = cachedValue.updateFromText(payload);
+            if (update != PayloadUpdate.UNSUPPORTED) {
+                if (config.postCommand) {
+                    channelStateUpdateListener.postChannelCommand(channelUID, (Command) cachedValue.getChannelState());
+                } else if (update == PayloadUpdate.UPDATED) {
+                    channelStateUpdateListener.updateChannelState(channelUID, cachedValue.getChannelState());
+                }
+                receivedOrTimeout();
+                return;
+            }
+        }
+
         // String value: Apply transformations
-        String strValue = new String(payload, StandardCharsets.UTF_8);
+        String strValue = text != null ? text : new String(payload, StandardCharsets.UTF_8);
         for (ChannelStateTransformation t : transformationsIn) {
             String transformedValue = t.processValue(strValue);
             if (transformedValue != null) {
@@ -242,7 +277,7 @@ public class ChannelState implements MqttMessageSubscriber {
     public CompletableFuture<@Nullable Void> stop() {
         final MqttBrokerConnection connection = this.connection;
         if (connection != null && StringUtils.isNotBlank(config.stateTopic)) {
-            return connection.unsubscribe(config.stateTopic, this).thenRun(this::internalStop);
+            return MqttTopicDispatcher.unsubscribe(connection, config.stateTopic, this).thenRun(this::internalStop);
         } else {
             internalStop();
             return CompletableFuture.completedFuture(null);
@@ -301,7 +336,7 @@ public class ChannelState implements MqttMessageSubscriber {
         }
 
         this.future = new CompletableFuture<>();
-        connection.subscribe(config.stateTopic, this).thenRun(() -> {
+        MqttTopicDispatcher.subscribe(connection, config.stateTopic, this).thenRun(() -> {
             hasSubscribed = true;
             logger.debug("Subscribed channel {} to topic: {}", this.channelUID, config.stateTopic);
             if (timeout > 0 && !future.isDone()) {
@@ -381,7 +416,8 @@ public class ChannelState implements MqttMessageSubscriber {
 
         int qos = (config.qos != null) ? config.qos : connection.getQos();
 
-        return connection.publish(config.commandTopic, commandString.getBytes(), qos, config.retained);
+        return MqttPublishQueue.publish(connection, config.commandTopic, commandString.getBytes(), qos,
+                config.retained);
     }
 
     /**
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic;
+
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.QuantityType;
+import org.eclipse.smarthome.core.types.State;
+import org.openhab.binding.mqtt.generic.tools.TimerWheel;
+
+/**
+ * Limits the state updates of a channel according to its {@link ChannelConfig}.
+ *
+ * <ul>
+ * <li>Numeric states differing less than {@link ChannelConfig#updateDeadband} from the last passed state are
+ * dropped.</li>
+ * <li>Within {@link ChannelConfig#updateInterval} after a passed state, further states are held back. If
+ * {@link ChannelConfig#coalesceUpdates} is set, the last state held back is passed when the interval has elapsed,
+ * otherwise it is dropped.</li>
+ * </ul>
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class ChannelStateUpdateLimiter {
+    private final long interval;
+    private final boolean coalesce;
+    private final @Nullable BigDecimal deadband;
+    private final TimerWheel timerWheel;
+    private final Consumer<State> consumer;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private @Nullable State lastState;
+    private long lastUpdateMillis;
+    private @Nullable State pendingState;
+    private TimerWheel.@Nullable Timeout timeout;
+
+    /**
+     * Creates a {@link ChannelStateUpdateLimiter}.
+     *
+     * @param config The channel configuration
+     * @param timerWheel A timer wheel for passing coalesced states
+     * @param consumer The consumer of the passed states
+     */
+    public ChannelStateUpdateLimiter(ChannelConfig config, TimerWheel timerWheel, Consumer<State> consumer) {
+        this(config, timerWheel, consumer, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a {@link ChannelStateUpdateLimiter} measuring the interval with the given clock.
+     *
+     * @param clock A clock returning the current time in milliseconds
+     */
+    ChannelStateUpdateLimiter(ChannelConfig config, TimerWheel timerWheel, Consumer<State> consumer,
+            LongSupplier clock) {
+        this.clock = clock;
+        this.interval = Math.max(0, config.updateInterval);
+        this.coalesce = config.coalesceUpdates;
+        BigDecimal deadband = config.updateDeadband;
+        this.deadband = deadband == null || deadband.signum() <= 0 ? null : deadband;
+        this.timerWheel = timerWheel;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Return true if the channel configuration limits the state updates
+     */
+    public static boolean isLimited(ChannelConfig config) {
+        BigDecimal deadband = config.updateDeadband;
+        return config.updateInterval > 0 || (deadband != null && deadband.signum() > 0);
+    }
+
+    /**
+     * Pass the state to the consumer, now or later, or drop it.
+     *
+     * @param state A new channel state
+     */
+    public void update(State state) {
+        synchronized (this) {
+            if (isWithinDeadband(state)) {
+                // The newer state replaces a held back one
+                pendingState = null;
+                return;
+            }
+            long now = clock.getAsLong();
+            long remaining = lastUpdateMillis + interval - now;
+            if (interval > 0 && remaining > 0) {
+                if (coalesce) {
+                    pendingState = state;
+                    if (timeout == null) {
+                        timeout = timerWheel.schedule(this::flush, remaining);
+                    }
+                }
+                return;
+            }
+            lastState = state;
+            lastUpdateMillis = now;
+            pendingState = null;
+        }
+        consumer.accept(state);
+    }
+
+    /**
+     * Drop a held back state and forget the last passed state
+     */
+    public synchronized void reset() {
+        final TimerWheel.Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+            this.timeout = null;
+        }
+        pendingState = null;
+        lastState = null;
+        lastUpdateMillis = 0;
+    }
+
+    private void flush() {
+        final State state;
+        synchronized (this) {
+            timeout = null;
+            state = pendingState;
+            if (state == null) {
+                return;
+            }
+            pendingState = null;
+            lastState = state;
+            lastUpdateMillis = clock.getAsLong();
+        }
+        consumer.accept(state);
+    }
+
+    private boolean isWithinDeadband(State state) {
+        final BigDecimal deadband = this.deadband;
+        final State lastState = this.lastState;
+        if (deadband == null || lastState == null) {
+            return false;
+        }
+        BigDecimal last = toBigDecimal(lastState);
+        BigDecimal current = toBigDecimal(state);
+        return last != null && current != null && current.subtract(last).abs().compareTo(deadband) < 0;
+    }
+
+    private static @Nullable BigDecimal toBigDecimal(State state) {
+        if (state instanceof DecimalType) {
+            return ((DecimalType) state).toBigDecimal();
+        } else if (state instanceof QuantityType<?>) {
+            return ((QuantityType<?>) state).toBigDecimal();
+        }
+        return null;
+    }
+}
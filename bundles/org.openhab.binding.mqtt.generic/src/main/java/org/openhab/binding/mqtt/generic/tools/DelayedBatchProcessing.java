@@ -13,11 +13,15 @@
 package org.openhab.binding.mqtt.generic.tools;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -27,6 +31,12 @@ import org.eclipse.jdt.annotation.Nullable;
  * Collects objects over time until a specified delay passed by.
  * Then call the user back with a list of accumulated objects and start over again.
  *
+ * <p>
+ * Adding objects does not lock: Objects are added to a lock-free queue, and only the first object of a batch arms
+ * the delay timer. If a maximum batch size is given, no batch is larger, and reaching it delivers full batches
+ * without waiting for the delay. The user is never called back concurrently.
+ * </p>
+ *
  * @author David Graeff - Initial contribution
  *
  * @param <T> Any object
@@ -34,10 +44,16 @@ import org.eclipse.jdt.annotation.Nullable;
 @NonNullByDefault
 public class DelayedBatchProcessing<T> implements Consumer<T> {
     private final int delay;
+    private final int maxBatchSize;
     private final Consumer<List<T>> consumer;
-    private final List<T> queue = Collections.synchronizedList(new ArrayList<>());
+    private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean armed = new AtomicBoolean();
+    /** Held while delivering batches, so that the user is never called back concurrently */
+    private final ReentrantLock processing = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
     private final ScheduledExecutorService executor;
-    protected @Nullable ScheduledFuture<?> future;
+    protected volatile @Nullable ScheduledFuture<?> future;
 
     /**
      * Creates a {@link DelayedBatchProcessing}.
@@ -47,12 +63,30 @@ public class DelayedBatchProcessing<T> implements Consumer<T> {
      * @param executor A scheduled executor service
      */
     public DelayedBatchProcessing(int delay, Consumer<List<T>> consumer, ScheduledExecutorService executor) {
+        this(delay, 0, consumer, executor);
+    }
+
+    /**
+     * Creates a {@link DelayedBatchProcessing}.
+     *
+     * @param delay A delay in milliseconds
+     * @param maxBatchSize Maximum number of objects per batch. Full batches are delivered without waiting for the
+     *            delay. 0 for no limit.
+     * @param consumer A consumer of the list of collected objects
+     * @param executor A scheduled executor service
+     */
+    public DelayedBatchProcessing(int delay, int maxBatchSize, Consumer<List<T>> consumer,
+            ScheduledExecutorService executor) {
         this.delay = delay;
+        this.maxBatchSize = maxBatchSize;
         this.consumer = consumer;
         this.executor = executor;
         if (delay <= 0) {
             throw new IllegalArgumentException("Delay need to be greater than 0!");
         }
+        if (maxBatchSize < 0) {
+            throw new IllegalArgumentException("Maximum batch size must not be negative!");
+        }
     }
 
     /**
@@ -64,9 +98,11 @@ public class DelayedBatchProcessing<T> implements Consumer<T> {
     @Override
     public void accept(T t) {
         queue.add(t);
-        final ScheduledFuture<?> scheduledFuture = this.future;
-        if (scheduledFuture == null || scheduledFuture.isDone()) {
-            this.future = executor.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        int count = size.incrementAndGet();
+        if (maxBatchSize > 0 && count >= maxBatchSize) {
+            scheduleFlush();
+        } else {
+            arm();
         }
     }
 
@@ -76,46 +112,109 @@ public class DelayedBatchProcessing<T> implements Consumer<T> {
      * @return A list of accumulated objects
      */
     public List<T> join() {
-        ScheduledFuture<?> scheduledFuture = this.future;
-        if (scheduledFuture != null && !scheduledFuture.isDone()) {
-            scheduledFuture.cancel(false);
-        }
-        List<T> lqueue = new ArrayList<>();
-        synchronized (queue) {
-            lqueue.addAll(queue);
-            queue.clear();
-        }
-        return lqueue;
+        disarm();
+        return drain(0);
     }
 
     /**
      * Return true if there is a delayed processing going on.
      */
     public boolean isArmed() {
-        ScheduledFuture<?> scheduledFuture = this.future;
-        return scheduledFuture != null && !scheduledFuture.isDone();
+        return armed.get();
     }
 
     /**
-     * Deliver queued items now to the target consumer.
+     * Deliver queued items now to the target consumer. If another thread is delivering a batch right now, wait for it
+     * to finish first. All items queued before the call are delivered when this method returns.
      */
     public void forceProcessNow() {
+        disarm();
+        process(true, true);
+    }
+
+    private void arm() {
+        if (armed.compareAndSet(false, true)) {
+            future = executor.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Deliver the full batches, the remaining objects wait for the delay
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        process(false, false);
+    }
+
+    private void disarm() {
         ScheduledFuture<?> scheduledFuture = this.future;
         if (scheduledFuture != null && !scheduledFuture.isDone()) {
             scheduledFuture.cancel(false);
         }
-        run();
+        armed.set(false);
     }
 
     private void run() {
-        List<T> lqueue = new ArrayList<>();
-        synchronized (queue) {
-            lqueue.addAll(queue);
-            queue.clear();
+        // Objects added from now on arm the timer again
+        armed.set(false);
+        process(true, false);
+    }
+
+    /**
+     * Deliver the queued objects in batches of at most the maximum size
+     *
+     * @param all Whether to deliver all objects queued by now, including a last partial batch
+     * @param wait Whether to wait for a batch delivered by another thread, instead of delivering later
+     */
+    private void process(boolean all, boolean wait) {
+        if (wait) {
+            processing.lock();
+        } else if (!processing.tryLock()) {
+            // Another thread delivers a batch right now. Deliver the remaining objects later.
+            arm();
+            return;
+        }
+        try {
+            // Objects added meanwhile are left to the next run, so that steady producers cannot keep this thread
+            int pending = size.get();
+            int minimum = all ? 1 : maxBatchSize;
+            while (pending >= minimum) {
+                List<T> batch = drain(maxBatchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                pending -= batch.size();
+                consumer.accept(batch);
+            }
+        } finally {
+            processing.unlock();
         }
+        if (maxBatchSize > 0 && size.get() >= maxBatchSize) {
+            scheduleFlush();
+        } else if (!queue.isEmpty()) {
+            arm();
+        }
+    }
 
-        if (!lqueue.isEmpty()) {
-            consumer.accept(lqueue);
+    /**
+     * Take the queued objects. The returned list is handed over to the caller.
+     *
+     * @param limit Maximum number of objects to take, 0 for all
+     */
+    private List<T> drain(int limit) {
+        int count = size.get();
+        List<T> batch = new ArrayList<>(Math.max(limit > 0 ? Math.min(count, limit) : count, 1));
+        T t;
+        while ((limit == 0 || batch.size() < limit) && (t = queue.poll()) != null) {
+            batch.add(t);
+            size.decrementAndGet();
         }
+        return batch;
     }
 }
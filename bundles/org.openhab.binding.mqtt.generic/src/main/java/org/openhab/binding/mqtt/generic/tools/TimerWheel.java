@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.tools;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timer wheel for many short, coarse grained timeouts.
+ *
+ * Timeouts are put into the slot of the tick they expire in. A single task on the executor advances the wheel
+ * every tick and runs the expired timeouts, instead of one scheduled future per timeout. The task only runs while
+ * timeouts are pending. Timeouts run up to one tick late.
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class TimerWheel {
+    private final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final ScheduledExecutorService executor;
+    private final long tickMillis;
+    /** Timeouts by slot. Guarded by this. */
+    private final List<List<Timeout>> slots;
+    private long tick;
+    private int pending;
+    private @Nullable ScheduledFuture<?> future;
+
+    /**
+     * A scheduled task, which can be cancelled
+     */
+    public class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the task. Does nothing if the task already ran.
+         */
+        public void cancel() {
+            synchronized (TimerWheel.this) {
+                cancelled = true;
+            }
+        }
+    }
+
+    /**
+     * Creates a {@link TimerWheel}.
+     *
+     * @param executor The executor advancing the wheel and running the tasks
+     * @param tickMillis The resolution in milliseconds
+     * @param slotCount The number of slots. Timeouts longer than one revolution stay in their slot for more rounds.
+     */
+    public TimerWheel(ScheduledExecutorService executor, long tickMillis, int slotCount) {
+        if (tickMillis <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("Tick and slot count need to be greater than 0!");
+        }
+        this.executor = executor;
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Run a task after the given delay.
+     *
+     * @param task The task
+     * @param delayMillis The delay in milliseconds. Rounded up to full ticks, at least one tick.
+     * @return A timeout for cancelling the task
+     */
+    public synchronized Timeout schedule(Runnable task, long delayMillis) {
+        long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        Timeout timeout = new Timeout(task, tick + ticks);
+        slots.get((int) (timeout.deadline % slots.size())).add(timeout);
+        pending++;
+        if (future == null) {
+            future = executor.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+        return timeout;
+    }
+
+    /**
+     * Return the number of pending, including cancelled, timeouts
+     */
+    public synchronized int size() {
+        return pending;
+    }
+
+    private void advance() {
+        List<Runnable> expired = new ArrayList<>();
+        synchronized (this) {
+            tick++;
+            Iterator<Timeout> it = slots.get((int) (tick % slots.size())).iterator();
+            while (it.hasNext()) {
+                Timeout timeout = it.next();
+                if (timeout.cancelled || timeout.deadline <= tick) {
+                    it.remove();
+                    pending--;
+                    if (!timeout.cancelled) {
+                        expired.add(timeout.task);
+                    }
+                }
+            }
+            final ScheduledFuture<?> future = this.future;
+            if (pending == 0 && future != null) {
+                future.cancel(false);
+                this.future = null;
+            }
+        }
+        for (Runnable task : expired) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.warn("Timer wheel task failed", e);
+            }
+        }
+    }
+}
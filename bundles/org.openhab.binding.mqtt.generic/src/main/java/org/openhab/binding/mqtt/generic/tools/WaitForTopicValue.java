@@ -22,6 +22,7 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+import org.openhab.binding.mqtt.handler.MqttTopicDispatcher;
 
 /**
  * Waits for a topic value to appear on a MQTT topic. One-time useable only per instance.
@@ -47,10 +48,10 @@ public class WaitForTopicValue {
             future.complete(new String(payload));
         };
         future = future.whenComplete((r, e) -> {
-            connection.unsubscribe(topic, mqttMessageSubscriber);
+            MqttTopicDispatcher.unsubscribe(connection, topic, mqttMessageSubscriber);
         });
 
-        subscripeFuture = connection.subscribe(topic, mqttMessageSubscriber);
+        subscripeFuture = MqttTopicDispatcher.subscribe(connection, topic, mqttMessageSubscriber);
     }
 
     /**
@@ -132,6 +132,27 @@ public class NumberValue extends Value {
         }
     }
 
+    /**
+     * Updates the value from a plain decimal number payload. Other payloads, for example numbers with a unit, are
+     * not supported.
+     */
+    @Override
+    public PayloadUpdate updateFromText(byte[] payload) {
+        BigDecimal newValue = parseDecimal(payload);
+        if (newValue == null) {
+            return PayloadUpdate.UNSUPPORTED;
+        }
+        if (state instanceof DecimalType && ((DecimalType) state).toBigDecimal().compareTo(newValue) == 0) {
+            return PayloadUpdate.UNCHANGED;
+        }
+        DecimalType oldvalue = (state == UnDefType.UNDEF) ? new DecimalType() : (DecimalType) state;
+        if (!checkConditions(newValue, oldvalue)) {
+            return PayloadUpdate.UNCHANGED;
+        }
+        state = new DecimalType(newValue);
+        return PayloadUpdate.UPDATED;
+    }
+
     @Override
     public StateDescriptionFragmentBuilder createStateDescription(boolean readOnly) {
         StateDescriptionFragmentBuilder builder = super.createStateDescription(readOnly);
@@ -12,6 +12,8 @@
  */
 package org.openhab.binding.mqtt.generic.values;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,10 +31,15 @@ import org.eclipse.smarthome.core.types.Command;
  */
 @NonNullByDefault
 public class OnOffValue extends Value {
+    private static final byte[] ON_PAYLOAD = OnOffType.ON.name().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OFF_PAYLOAD = OnOffType.OFF.name().getBytes(StandardCharsets.UTF_8);
+
     private final String onState;
     private final String offState;
     private final String onCommand;
     private final String offCommand;
+    private final byte[] onStatePayload;
+    private final byte[] offStatePayload;
 
     /**
      * Creates a switch On/Off type, that accepts "ON", "1" for on and "OFF","0" for off.
@@ -68,6 +75,8 @@ public class OnOffValue extends Value {
         this.offState = offState == null ? OnOffType.OFF.name() : offState;
         this.onCommand = onCommand == null ? OnOffType.ON.name() : onCommand;
         this.offCommand = offCommand == null ? OnOffType.OFF.name() : offCommand;
+        this.onStatePayload = this.onState.getBytes(StandardCharsets.UTF_8);
+        this.offStatePayload = this.offState.getBytes(StandardCharsets.UTF_8);
     }
 
     @Override
@@ -86,6 +95,30 @@ public class OnOffValue extends Value {
         }
     }
 
+    /**
+     * Updates the value from a payload equal to "ON", "OFF" or the ON/OFF value strings.
+     */
+    @Override
+    public PayloadUpdate updateFromText(byte[] payload) {
+        final OnOffType newState;
+        if (Arrays.equals(ON_PAYLOAD, payload)) {
+            newState = OnOffType.ON;
+        } else if (Arrays.equals(OFF_PAYLOAD, payload)) {
+            newState = OnOffType.OFF;
+        } else if (Arrays.equals(onStatePayload, payload)) {
+            newState = OnOffType.ON;
+        } else if (Arrays.equals(offStatePayload, payload)) {
+            newState = OnOffType.OFF;
+        } else {
+            return PayloadUpdate.UNSUPPORTED;
+        }
+        if (state == newState) {
+            return PayloadUpdate.UNCHANGED;
+        }
+        state = newState;
+        return PayloadUpdate.UPDATED;
+    }
+
     @Override
     public String getMQTTpublishValue(@Nullable String pattern) {
         String formatPattern = pattern;
@@ -134,6 +134,24 @@ public class PercentageValue extends Value {
         }
     }
 
+    /**
+     * Updates the value from a plain decimal number payload, which is converted according to the min/max values.
+     * Other payloads, and numbers outside of the min/max values, are not supported.
+     */
+    @Override
+    public PayloadUpdate updateFromText(byte[] payload) {
+        BigDecimal v = parseDecimal(payload);
+        if (v == null || v.compareTo(min) < 0 || v.compareTo(max) > 0) {
+            return PayloadUpdate.UNSUPPORTED;
+        }
+        v = v.subtract(min).multiply(HUNDRED).divide(span, MathContext.DECIMAL128);
+        if (state instanceof PercentType && ((PercentType) state).toBigDecimal().compareTo(v) == 0) {
+            return PayloadUpdate.UNCHANGED;
+        }
+        state = new PercentType(v);
+        return PayloadUpdate.UPDATED;
+    }
+
     @Override
     public String getMQTTpublishValue(@Nullable String pattern) {
         if (state == UnDefType.UNDEF) {
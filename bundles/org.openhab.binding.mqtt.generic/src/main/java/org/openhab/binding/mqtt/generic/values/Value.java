@@ -14,6 +14,7 @@ package org.openhab.binding.mqtt.generic.values;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.net.URLConnection;
 import java.util.List;
 
@@ -50,6 +51,21 @@ import org.eclipse.smarthome.core.types.UnDefType;
  */
 @NonNullByDefault
 public abstract class Value {
+    /**
+     * Result of {@link Value#updateFromText(byte[])}
+     */
+    public enum PayloadUpdate {
+        /** The payload must be parsed into a command and passed to {@link Value#update(Command)} instead */
+        UNSUPPORTED,
+        /** The payload was accepted, but the value state has not changed */
+        UNCHANGED,
+        /** The value state was updated */
+        UPDATED
+    }
+
+    /** Maximum number of digits of a number parsed by {@link #parseDecimal(byte[])}, fitting into a long */
+    private static final int MAX_DECIMAL_DIGITS = 18;
+
     protected State state = UnDefType.UNDEF;
     protected final List<Class<? extends Command>> commandTypes;
     private final String itemType;
@@ -160,6 +176,58 @@ public abstract class Value {
         state = new RawType(data, mimeType == null ? RawType.DEFAULT_MIME_TYPE : mimeType);
     }
 
+    /**
+     * Updates the internal value state directly from a UTF-8 encoded text payload, without decoding the payload
+     * and parsing it into a command first.
+     *
+     * <p>
+     * Values override this for their common payloads, for example plain numbers. The base implementation supports
+     * no payload.
+     * </p>
+     *
+     * @param payload The text payload
+     * @return Whether the payload was supported and changed the value state
+     */
+    public PayloadUpdate updateFromText(byte[] payload) {
+        return PayloadUpdate.UNSUPPORTED;
+    }
+
+    /**
+     * Parses a plain decimal number like "-12.50" from a UTF-8 encoded payload.
+     *
+     * @param payload The text payload
+     * @return The number with the scale given by the payload, or null if the payload is not a plain decimal number
+     *         with up to 18 digits
+     */
+    protected static @Nullable BigDecimal parseDecimal(byte[] payload) {
+        int length = payload.length;
+        int i = length > 0 && payload[0] == '-' ? 1 : 0;
+        boolean negative = i == 1;
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < length; i++) {
+            byte b = payload[i];
+            if (b >= '0' && b <= '9') {
+                if (++digits > MAX_DECIMAL_DIGITS) {
+                    return null;
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0 && digits > 0) {
+                scale = 0;
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0 || scale == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
     /**
      * Return the state description fragment builder for this value state.
      *
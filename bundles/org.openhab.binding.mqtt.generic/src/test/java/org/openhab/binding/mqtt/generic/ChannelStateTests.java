@@ -186,6 +186,20 @@ public class ChannelStateTests {
         assertThat(value.getChannelState().toString(), is("16.0"));
     }
 
+    @Test
+    public void receiveUnchangedDecimalTest() {
+        NumberValue value = new NumberValue(null, null, null, null);
+        ChannelState c = spy(new ChannelState(config, channelUID, value, channelStateUpdateListener));
+        c.start(connection, mock(ScheduledExecutorService.class), 100);
+
+        c.processMessage("state", "21.5".getBytes());
+        c.processMessage("state", "21.5".getBytes());
+        c.processMessage("state", "22".getBytes());
+
+        assertThat(value.getChannelState().toString(), is("22"));
+        verify(channelStateUpdateListener, times(2)).updateChannelState(eq(channelUID), any());
+    }
+
     @Test
     public void receivePercentageTest() {
         PercentageValue value = new PercentageValue(new BigDecimal(-100), new BigDecimal(100), new BigDecimal(10), null,
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.mqtt.generic.tools.TimerWheel;
+
+/**
+ * Tests the {@link ChannelStateUpdateLimiter} and the {@link TimerWheel} it uses.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class ChannelStateUpdateLimiterTests {
+    private static final int TICK_MILLIS = 10;
+
+    private final AtomicLong clock = new AtomicLong(1000);
+    /** The tasks advancing the timer wheel, run by {@link #elapse(long)} instead of an executor */
+    private final List<Runnable> tickTasks = new ArrayList<>();
+    private final List<State> states = new ArrayList<>();
+    private TimerWheel timerWheel;
+
+    @Before
+    public void setUp() {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            Runnable task = invocation.getArgument(0);
+            tickTasks.add(task);
+            ScheduledFuture<?> future = mock(ScheduledFuture.class);
+            doAnswer(cancel -> tickTasks.remove(task)).when(future).cancel(anyBoolean());
+            return future;
+        }).when(executor).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+        timerWheel = new TimerWheel(executor, TICK_MILLIS, 8);
+    }
+
+    private ChannelStateUpdateLimiter limiter(int interval, boolean coalesce, BigDecimal deadband) {
+        ChannelConfig config = ChannelConfigBuilder.create().withUpdateLimit(interval, coalesce, deadband).build();
+        assertTrue(ChannelStateUpdateLimiter.isLimited(config));
+        return new ChannelStateUpdateLimiter(config, timerWheel, states::add, clock::get);
+    }
+
+    /**
+     * Advance the clock and the timer wheel tick by tick
+     */
+    private void elapse(long millis) {
+        for (long elapsed = 0; elapsed < millis; elapsed += TICK_MILLIS) {
+            clock.addAndGet(TICK_MILLIS);
+            new ArrayList<>(tickTasks).forEach(Runnable::run);
+        }
+    }
+
+    @Test
+    public void deadband() {
+        ChannelStateUpdateLimiter limiter = limiter(0, true, new BigDecimal("0.5"));
+
+        limiter.update(new DecimalType(20));
+        limiter.update(new DecimalType(20.4));
+        limiter.update(new DecimalType(19.6));
+        limiter.update(new DecimalType(20.5));
+
+        assertThat(states, is(Arrays.asList(new DecimalType(20), new DecimalType(20.5))));
+    }
+
+    @Test
+    public void intervalCoalescesToLastValue() {
+        ChannelStateUpdateLimiter limiter = limiter(100, true, null);
+
+        limiter.update(new DecimalType(1));
+        limiter.update(new DecimalType(2));
+        limiter.update(new DecimalType(3));
+        assertThat(states, is(Arrays.asList(new DecimalType(1))));
+
+        elapse(90);
+        assertThat(states, is(Arrays.asList(new DecimalType(1))));
+        elapse(10);
+        assertThat(states, is(Arrays.asList(new DecimalType(1), new DecimalType(3))));
+        assertThat(timerWheel.size(), is(0));
+    }
+
+    @Test
+    public void intervalWithoutCoalescingDropsValues() {
+        ChannelStateUpdateLimiter limiter = limiter(100, false, null);
+
+        limiter.update(new DecimalType(1));
+        limiter.update(new DecimalType(2));
+        elapse(100);
+        limiter.update(new DecimalType(3));
+
+        assertThat(states, is(Arrays.asList(new DecimalType(1), new DecimalType(3))));
+    }
+
+    @Test
+    public void resetDropsHeldBackValue() {
+        ChannelStateUpdateLimiter limiter = limiter(100, true, null);
+
+        limiter.update(new DecimalType(1));
+        limiter.update(new DecimalType(2));
+        limiter.reset();
+        elapse(100);
+
+        assertThat(states, is(Arrays.asList(new DecimalType(1))));
+    }
+
+    @Test
+    public void notLimitedByDefault() {
+        assertFalse(ChannelStateUpdateLimiter.isLimited(new ChannelConfig()));
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.tools;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link DelayedBatchProcessing}.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class DelayedBatchProcessingTests {
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(4);
+    private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+
+    // Tasks passed to the manual executor, run by the test
+    private final List<Runnable> scheduledTasks = new ArrayList<>();
+    private final List<Runnable> executedTasks = new ArrayList<>();
+    private final ScheduledExecutorService manualExecutor = mock(ScheduledExecutorService.class);
+
+    @Before
+    public void setUp() {
+        doAnswer(invocation -> {
+            scheduledTasks.add(invocation.getArgument(0));
+            return mock(ScheduledFuture.class);
+        }).when(manualExecutor).schedule(any(Runnable.class), anyLong(), any());
+        doAnswer(invocation -> executedTasks.add(invocation.getArgument(0))).when(manualExecutor).execute(any());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static void runAll(List<Runnable> tasks) {
+        List<Runnable> copy = new ArrayList<>(tasks);
+        tasks.clear();
+        copy.forEach(Runnable::run);
+    }
+
+    @Test
+    public void batchIsDeliveredAfterDelay() {
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(50, batches::add, manualExecutor);
+
+        processing.accept(1);
+        processing.accept(2);
+        assertTrue(processing.isArmed());
+        assertTrue(batches.isEmpty());
+        verify(manualExecutor).schedule(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+
+        runAll(scheduledTasks);
+        assertThat(batches, is(Arrays.asList(Arrays.asList(1, 2))));
+        assertFalse(processing.isArmed());
+    }
+
+    @Test
+    public void maxBatchSizeDeliversEarly() {
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(10000, 3, batches::add,
+                manualExecutor);
+
+        for (int i = 1; i <= 7; i++) {
+            processing.accept(i);
+        }
+        assertTrue(batches.isEmpty());
+
+        // Full batches are delivered without waiting for the delay
+        runAll(executedTasks);
+        assertThat(batches, is(Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(4, 5, 6))));
+
+        runAll(scheduledTasks);
+        assertThat(batches.get(2), is(Arrays.asList(7)));
+    }
+
+    @Test
+    public void forceProcessNowWaitsForRunningBatch() throws InterruptedException {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(10000, batch -> {
+            batches.add(batch);
+            if (batches.size() == 1) {
+                firstBatchStarted.countDown();
+                try {
+                    releaseFirstBatch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, manualExecutor);
+
+        processing.accept(1);
+        Thread firstBatch = new Thread(processing::forceProcessNow);
+        firstBatch.start();
+        assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+
+        processing.accept(2);
+        Thread forced = new Thread(processing::forceProcessNow);
+        forced.start();
+        // Wait until the forced delivery blocks on the running batch
+        for (int i = 0; i < 1000 && forced.getState() != Thread.State.WAITING; i++) {
+            Thread.yield();
+            Thread.sleep(1);
+        }
+        assertThat(forced.getState(), is(Thread.State.WAITING));
+        assertThat(batches.size(), is(1));
+
+        releaseFirstBatch.countDown();
+        forced.join(10000);
+        firstBatch.join(10000);
+        assertFalse(forced.isAlive());
+        assertThat(batches, is(Arrays.asList(Arrays.asList(1), Arrays.asList(2))));
+    }
+
+    @Test
+    public void delayedBatchIsSplitByMaxBatchSize() {
+        // Neither early nor delayed delivery is run by the mocked executor
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(10000, 2, batches::add,
+                mock(ScheduledExecutorService.class));
+
+        for (int i = 1; i <= 5; i++) {
+            processing.accept(i);
+        }
+        processing.forceProcessNow();
+
+        assertThat(batches, is(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5))));
+    }
+
+    @Test
+    public void joinReturnsWithoutDelivering() {
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(10000, batches::add, executor);
+
+        processing.accept(1);
+
+        assertThat(processing.join(), is(Arrays.asList(1)));
+        assertFalse(processing.isArmed());
+        processing.forceProcessNow();
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void concurrentProducersLoseNothing() throws InterruptedException {
+        final int producers = 8;
+        final int perProducer = 10000;
+        AtomicInteger received = new AtomicInteger();
+        AtomicInteger concurrentCallbacks = new AtomicInteger();
+        AtomicInteger maxConcurrentCallbacks = new AtomicInteger();
+        AtomicInteger maxBatchSize = new AtomicInteger();
+        DelayedBatchProcessing<Integer> processing = new DelayedBatchProcessing<>(5, 500, batch -> {
+            maxConcurrentCallbacks.accumulateAndGet(concurrentCallbacks.incrementAndGet(), Math::max);
+            received.addAndGet(batch.size());
+            maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+            concurrentCallbacks.decrementAndGet();
+        }, executor);
+
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    processing.accept(i);
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 100 && received.get() < producers * perProducer; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(received.get(), is(producers * perProducer));
+        assertThat(maxConcurrentCallbacks.get(), is(1));
+        assertTrue(maxBatchSize.get() <= 500);
+    }
+}
@@ -315,4 +315,39 @@ public class ValueTests {
                 null);
         v.update(new DecimalType(9.0));
     }
+
+    @Test
+    public void parseDecimal() {
+        assertThat(Value.parseDecimal("-12.50".getBytes()), is(new BigDecimal("-12.50")));
+        assertThat(Value.parseDecimal("0".getBytes()), is(BigDecimal.ZERO));
+        assertNull(Value.parseDecimal("".getBytes()));
+        assertNull(Value.parseDecimal("-".getBytes()));
+        assertNull(Value.parseDecimal("1.".getBytes()));
+        assertNull(Value.parseDecimal(".5".getBytes()));
+        assertNull(Value.parseDecimal("1.2.3".getBytes()));
+        assertNull(Value.parseDecimal("21 °C".getBytes()));
+        assertNull(Value.parseDecimal("1234567890123456789".getBytes()));
+    }
+
+    @Test
+    public void updateFromText() {
+        NumberValue number = new NumberValue(null, new BigDecimal(100), null, null);
+        assertThat(number.updateFromText("21.5".getBytes()), is(Value.PayloadUpdate.UPDATED));
+        assertThat(number.getChannelState(), is(new DecimalType("21.5")));
+        assertThat(number.updateFromText("21.50".getBytes()), is(Value.PayloadUpdate.UNCHANGED));
+        assertThat(number.updateFromText("101".getBytes()), is(Value.PayloadUpdate.UNCHANGED));
+        assertThat(number.updateFromText("21.5 °C".getBytes()), is(Value.PayloadUpdate.UNSUPPORTED));
+
+        PercentageValue percent = new PercentageValue(new BigDecimal(-100), new BigDecimal(100), null, null, null);
+        assertThat(percent.updateFromText("0".getBytes()), is(Value.PayloadUpdate.UPDATED));
+        assertThat(percent.getChannelState(), is(new PercentType(50)));
+        assertThat(percent.updateFromText("200".getBytes()), is(Value.PayloadUpdate.UNSUPPORTED));
+
+        OnOffValue onOff = new OnOffValue("open", "closed");
+        assertThat(onOff.updateFromText("open".getBytes()), is(Value.PayloadUpdate.UPDATED));
+        assertThat(onOff.getChannelState(), is(OnOffType.ON));
+        assertThat(onOff.updateFromText("ON".getBytes()), is(Value.PayloadUpdate.UNCHANGED));
+        assertThat(onOff.updateFromText("OFF".getBytes()), is(Value.PayloadUpdate.UPDATED));
+        assertThat(onOff.updateFromText("ajar".getBytes()), is(Value.PayloadUpdate.UNSUPPORTED));
+    }
 }
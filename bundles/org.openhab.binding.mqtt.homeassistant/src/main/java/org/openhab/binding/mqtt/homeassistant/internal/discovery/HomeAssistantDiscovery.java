@@ -32,6 +32,8 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.discovery.DiscoveryResult;
 import org.eclipse.smarthome.config.discovery.DiscoveryResultBuilder;
 import org.eclipse.smarthome.config.discovery.DiscoveryService;
+import org.eclipse.smarthome.core.storage.Storage;
+import org.eclipse.smarthome.core.storage.StorageService;
 import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.ThingUID;
 import org.eclipse.smarthome.core.thing.type.ThingType;
@@ -46,6 +48,7 @@ import org.openhab.binding.mqtt.homeassistant.internal.HaID;
 import org.openhab.binding.mqtt.homeassistant.internal.HandlerConfiguration;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +69,32 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
     protected final Map<String, Set<HaID>> componentsPerThingID = new TreeMap<>();
     protected final Map<String, ThingUID> thingIDPerTopic = new TreeMap<>();
     protected final Map<String, DiscoveryResult> results = new TreeMap<>();
+    /** Fingerprints of the config payloads processed since the start, by {@link #indexKey(ThingUID, String)} */
+    protected final Map<String, Long> fingerprints = new HashMap<>();
+
+    /**
+     * A component of the persistent index, which keeps the discovered components across restarts
+     */
+    public static class KnownComponent {
+        public String thingUID = "";
+        public long fingerprint;
+
+        public KnownComponent() {
+        }
+
+        public KnownComponent(String thingUID, long fingerprint) {
+            this.thingUID = thingUID;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private @Nullable Storage<KnownComponent> index;
+    /** Whether components restored from the index are checked for being stale. Guarded by results. */
+    private boolean checkStale;
+    /** Pending stale checks, by broker. Guarded by results. */
+    protected final Map<ThingUID, ScheduledFuture<?>> staleChecks = new HashMap<>();
+    /** Brokers whose components have been checked for being stale since the start. Guarded by results. */
+    protected final Set<ThingUID> checkedBrokers = new HashSet<>();
 
     private @Nullable ScheduledFuture<?> future;
     private final Gson gson;
@@ -86,6 +115,12 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
 
     static final String BASE_TOPIC = "homeassistant";
 
+    /**
+     * Seconds without config messages from a broker until its components not received again are removed. The
+     * retained configs are delivered in a burst after subscribing, but may be delayed by a busy broker.
+     */
+    static final int STALE_CHECK_DELAY_SECONDS = 30;
+
     @NonNullByDefault({})
     protected MqttChannelTypeProvider typeProvider;
 
@@ -112,6 +147,15 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         return mqttTopicDiscovery;
     }
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    protected void setStorageService(StorageService storageService) {
+        index = storageService.getStorage(HomeAssistantDiscovery.class.getName(), getClass().getClassLoader());
+    }
+
+    protected void unsetStorageService(StorageService storageService) {
+        index = null;
+    }
+
     @Reference
     protected void setTypeProvider(MqttChannelTypeProvider provider) {
         this.typeProvider = provider;
@@ -139,13 +183,34 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
             return;
         }
 
-        // Reset the found-component timer.
-        // We will collect components for the thing label description for another 2 seconds.
-        final ScheduledFuture<?> future = this.future;
-        if (future != null) {
-            future.cancel(false);
+        // Skip components whose config has not changed since it was processed, also before a restart
+        final String key = indexKey(connectionBridge, topic);
+        final long fingerprint = fingerprint(payload);
+        final Storage<KnownComponent> index = this.index;
+        ThingUID restoredThingUID = null;
+        synchronized (results) {
+            scheduleStaleCheck(connectionBridge);
+            Long processed = fingerprints.get(key);
+            if (processed != null && processed == fingerprint) {
+                return;
+            }
+            KnownComponent known = processed == null && index != null ? index.get(key) : null;
+            if (known != null && known.fingerprint == fingerprint) {
+                // The discovery result restored after the restart is still valid
+                ThingUID thingUID = new ThingUID(known.thingUID);
+                fingerprints.put(key, fingerprint);
+                thingIDPerTopic.put(topic, thingUID);
+                componentsPerThingID.computeIfAbsent(thingUID.getId(), k -> new HashSet<>()).add(new HaID(topic));
+                restoredThingUID = thingUID;
+            }
+        }
+        if (restoredThingUID != null) {
+            // The dynamic thing type is not persisted, but needed to accept the restored result from the inbox
+            registerThingType(restoredThingUID.getThingTypeUID());
+            return;
         }
-        this.future = scheduler.schedule(this::publishResults, 2, TimeUnit.SECONDS);
+
+        schedulePublishResults();
 
         BaseChannelConfiguration config = BaseChannelConfiguration
                 .fromString(new String(payload, StandardCharsets.UTF_8), gson);
@@ -162,11 +227,19 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
 
         final ThingUID thingUID = new ThingUID(typeID, connectionBridge, thingID);
 
-        thingIDPerTopic.put(topic, thingUID);
+        final Set<HaID> components;
+        synchronized (results) {
+            thingIDPerTopic.put(topic, thingUID);
+            fingerprints.put(key, fingerprint);
+            if (index != null) {
+                index.put(key, new KnownComponent(thingUID.getAsString(), fingerprint));
+            }
 
-        // We need to keep track of already found component topics for a specific thing
-        Set<HaID> components = componentsPerThingID.computeIfAbsent(thingID, key -> new HashSet<>());
-        components.add(haID);
+            // We need to keep track of already found component topics for a specific thing
+            components = new HashSet<>(componentsPerThingID.computeIfAbsent(thingID, k -> new HashSet<>()));
+            components.add(haID);
+            componentsPerThingID.put(thingID, components);
+        }
 
         final String componentNames = components.stream().map(id -> id.component)
                 .map(c -> HA_COMP_TO_NAME.getOrDefault(c, c)).collect(Collectors.joining(", "));
@@ -187,20 +260,45 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         }
     }
 
+    /**
+     * Reset the found-component timer.
+     * We will collect components for the thing label description for another 2 seconds.
+     */
+    private void schedulePublishResults() {
+        synchronized (results) {
+            final ScheduledFuture<?> future = this.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+            this.future = scheduler.schedule(this::publishResults, 2, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Publish the discovery results of the new and changed components.
+     *
+     * The known components are kept, so that results of changed components list all components of their thing.
+     */
     protected void publishResults() {
         Collection<DiscoveryResult> localResults;
 
         synchronized (results) {
             localResults = new ArrayList<>(results.values());
             results.clear();
-            componentsPerThingID.clear();
         }
         for (DiscoveryResult result : localResults) {
-            final ThingTypeUID typeID = result.getThingTypeUID();
+            registerThingType(result.getThingTypeUID());
+            thingDiscovered(result);
+        }
+    }
+
+    /**
+     * Register the thing type of a discovered thing, derived from the generic Home Assistant thing type
+     */
+    private void registerThingType(ThingTypeUID typeID) {
+        if (typeProvider.getThingType(typeID, null) == null) {
             ThingType type = typeProvider.derive(typeID, MqttBindingConstants.HOMEASSISTANT_MQTT_THING).build();
             typeProvider.setThingTypeIfAbsent(typeID, type);
-
-            thingDiscovered(result);
         }
     }
 
@@ -209,18 +307,126 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         if (!topic.endsWith("/config")) {
             return;
         }
-        if (thingIDPerTopic.containsKey(topic)) {
-            ThingUID thingUID = thingIDPerTopic.remove(topic);
-            final String thingID = thingUID.getId();
+        final String key = indexKey(connectionBridge, topic);
+        final Storage<KnownComponent> index = this.index;
+        final ThingUID thingUID;
+        final boolean lastComponent;
+        synchronized (results) {
+            fingerprints.remove(key);
+            if (index != null) {
+                index.remove(key);
+            }
+            thingUID = thingIDPerTopic.remove(topic);
+            if (thingUID == null) {
+                return;
+            }
+            Set<HaID> components = componentsPerThingID.getOrDefault(thingUID.getId(), Collections.emptySet());
+            components.remove(new HaID(topic));
+            lastComponent = components.isEmpty();
+        }
+        if (lastComponent) {
+            thingRemoved(thingUID);
+        }
+    }
 
-            HaID haID = new HaID(topic);
+    /**
+     * Keeps the discovery results restored after a restart if a persistent index of the known components is
+     * available. Components of a broker which were not received again are removed once the broker did not deliver
+     * config messages for {@link #STALE_CHECK_DELAY_SECONDS}.
+     */
+    @Override
+    protected void startBackgroundDiscovery() {
+        if (index == null) {
+            // The results are removed, so all components need to be processed again
+            synchronized (results) {
+                fingerprints.clear();
+            }
+            super.startBackgroundDiscovery();
+            return;
+        }
+        synchronized (results) {
+            checkStale = true;
+        }
+        getDiscoveryService().subscribe(this, subscribeTopic);
+    }
 
-            Set<HaID> components = componentsPerThingID.getOrDefault(thingID, Collections.emptySet());
-            components.remove(haID);
-            if (components.isEmpty()) {
-                thingRemoved(thingUID);
+    @Override
+    protected void stopBackgroundDiscovery() {
+        synchronized (results) {
+            // Brokers not checked yet are checked after their next message
+            staleChecks.values().forEach(check -> check.cancel(false));
+            staleChecks.clear();
+        }
+        super.stopBackgroundDiscovery();
+    }
+
+    /**
+     * Schedule the stale check of a broker, or postpone it while the broker delivers config messages. Must be
+     * called with the results lock held.
+     */
+    private void scheduleStaleCheck(ThingUID connectionBridge) {
+        if (!checkStale || checkedBrokers.contains(connectionBridge)) {
+            return;
+        }
+        ScheduledFuture<?> check = staleChecks.get(connectionBridge);
+        if (check != null) {
+            check.cancel(false);
+        }
+        staleChecks.put(connectionBridge, scheduler.schedule(() -> removeStaleComponents(connectionBridge),
+                STALE_CHECK_DELAY_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Remove the components of a broker from the index which have not been received again since the start. Brokers
+     * are checked after delivering config messages only, the others may not be connected yet.
+     */
+    void removeStaleComponents(ThingUID connectionBridge) {
+        final Storage<KnownComponent> index = this.index;
+        if (index == null) {
+            return;
+        }
+        Set<ThingUID> staleThings = new HashSet<>();
+        Set<ThingUID> activeThings = new HashSet<>();
+        synchronized (results) {
+            staleChecks.remove(connectionBridge);
+            if (!checkedBrokers.add(connectionBridge)) {
+                return;
+            }
+            String prefix = indexKey(connectionBridge, "");
+            for (String key : new ArrayList<>(index.getKeys())) {
+                KnownComponent known = index.get(key);
+                if (known == null || !key.startsWith(prefix)) {
+                    continue;
+                }
+                ThingUID thingUID = new ThingUID(known.thingUID);
+                if (fingerprints.containsKey(key)) {
+                    activeThings.add(thingUID);
+                } else {
+                    index.remove(key);
+                    staleThings.add(thingUID);
+                }
             }
         }
+        staleThings.removeAll(activeThings);
+        staleThings.forEach(this::thingRemoved);
     }
 
+    /**
+     * Return the key of a component in the index, unique across brokers
+     */
+    static String indexKey(ThingUID connectionBridge, String topic) {
+        return connectionBridge.getAsString() + "#" + topic;
+    }
+
+    /**
+     * Return the 64 bit FNV-1a hash of a config payload
+     */
+    static long fingerprint(byte[] payload) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : payload) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
 }
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.homeassistant.internal.discovery;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.storage.Storage;
+import org.eclipse.smarthome.core.storage.StorageService;
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.eclipse.smarthome.core.thing.type.ThingTypeBuilder;
+import org.eclipse.smarthome.core.thing.type.ThingTypeRegistry;
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.mqtt.discovery.MQTTTopicDiscoveryService;
+import org.openhab.binding.mqtt.generic.MqttChannelTypeProvider;
+import org.openhab.binding.mqtt.homeassistant.generic.internal.MqttBindingConstants;
+import org.openhab.binding.mqtt.homeassistant.internal.discovery.HomeAssistantDiscovery.KnownComponent;
+
+/**
+ * Tests the config payload fingerprinting and the stale check of the {@link HomeAssistantDiscovery}.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class HomeAssistantDiscoveryTests {
+    private static final ThingUID BRIDGE = new ThingUID("mqtt:broker:local");
+    private static final String TOPIC = "homeassistant/switch/kitchen/config";
+    private static final byte[] CONFIG = "{\"name\":\"Kitchen\",\"state_topic\":\"kitchen/state\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final MemoryStorage storage = new MemoryStorage();
+    private final MqttBrokerConnection connection = mock(MqttBrokerConnection.class);
+    private MqttChannelTypeProvider typeProvider;
+    private HomeAssistantDiscovery discovery;
+
+    @NonNullByDefault
+    private static class MemoryStorage implements Storage<KnownComponent> {
+        final Map<String, KnownComponent> map = new HashMap<>();
+
+        @Override
+        public @Nullable KnownComponent put(String key, @Nullable KnownComponent value) {
+            return map.put(key, value);
+        }
+
+        @Override
+        public @Nullable KnownComponent remove(String key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public boolean containsKey(String key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public @Nullable KnownComponent get(String key) {
+            return map.get(key);
+        }
+
+        @Override
+        public Collection<String> getKeys() {
+            return map.keySet();
+        }
+
+        @Override
+        public Collection<@Nullable KnownComponent> getValues() {
+            return map.values();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+        StorageService storageService = mock(StorageService.class);
+        doReturn(storage).when(storageService).getStorage(anyString(), any());
+        ThingTypeRegistry thingTypeRegistry = mock(ThingTypeRegistry.class);
+        doReturn(ThingTypeBuilder.instance(MqttBindingConstants.HOMEASSISTANT_MQTT_THING, "Home Assistant").build())
+                .when(thingTypeRegistry).getThingType(MqttBindingConstants.HOMEASSISTANT_MQTT_THING);
+        typeProvider = new MqttChannelTypeProvider(thingTypeRegistry);
+        discovery = new HomeAssistantDiscovery();
+        discovery.setStorageService(storageService);
+        discovery.setTypeProvider(typeProvider);
+    }
+
+    @Test
+    public void unchangedConfigIsSkipped() {
+        discovery.receivedMessage(BRIDGE, connection, TOPIC, CONFIG);
+        assertThat(discovery.results.size(), is(1));
+        KnownComponent known = storage.get(HomeAssistantDiscovery.indexKey(BRIDGE, TOPIC));
+        assertThat(known.fingerprint, is(HomeAssistantDiscovery.fingerprint(CONFIG)));
+
+        discovery.results.clear();
+        discovery.receivedMessage(BRIDGE, connection, TOPIC, CONFIG);
+        assertTrue(discovery.results.isEmpty());
+    }
+
+    @Test
+    public void changedConfigIsProcessed() {
+        discovery.receivedMessage(BRIDGE, connection, TOPIC, CONFIG);
+        discovery.results.clear();
+
+        byte[] changed = "{\"name\":\"Kitchen light\",\"state_topic\":\"kitchen/state\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        discovery.receivedMessage(BRIDGE, connection, TOPIC, changed);
+        assertThat(discovery.results.size(), is(1));
+        assertThat(discovery.results.values().iterator().next().getLabel(), containsString("Kitchen light"));
+        assertThat(storage.get(HomeAssistantDiscovery.indexKey(BRIDGE, TOPIC)).fingerprint,
+                is(HomeAssistantDiscovery.fingerprint(changed)));
+    }
+
+    @Test
+    public void indexedConfigIsRestoredWithoutParsing() {
+        ThingUID thingUID = new ThingUID("mqtt:homeassistant_kitchen:local:kitchen");
+        storage.put(HomeAssistantDiscovery.indexKey(BRIDGE, TOPIC),
+                new KnownComponent(thingUID.getAsString(), HomeAssistantDiscovery.fingerprint(CONFIG)));
+
+        discovery.receivedMessage(BRIDGE, connection, TOPIC, CONFIG);
+
+        assertTrue(discovery.results.isEmpty());
+        assertThat(discovery.thingIDPerTopic.get(TOPIC), is(thingUID));
+        assertThat(discovery.componentsPerThingID.get("kitchen").size(), is(1));
+        assertThat(typeProvider.getThingType(thingUID.getThingTypeUID(), null), is(notNullValue()));
+    }
+
+    @Test
+    public void vanishedConfigIsRemovedFromIndex() {
+        discovery.receivedMessage(BRIDGE, connection, TOPIC, CONFIG);
+        discovery.topicVanished(BRIDGE, connection, TOPIC);
+
+        assertFalse(storage.containsKey(HomeAssistantDiscovery.indexKey(BRIDGE, TOPIC)));
+        discovery.results.clear();
+        discovery.receivedMessage(BRIDGE, connection, TOPIC, CONFIG);
+        assertThat(discovery.results.size(), is(1));
+    }
+
+    @Test
+    public void staleComponentsAreRemovedPerBroker() {
+        ThingUID otherBridge = new ThingUID("mqtt:broker:remote");
+        String otherTopic = "homeassistant/switch/hall/config";
+        long fingerprint = HomeAssistantDiscovery.fingerprint(CONFIG);
+        storage.put(HomeAssistantDiscovery.indexKey(BRIDGE, TOPIC),
+                new KnownComponent("mqtt:homeassistant_kitchen:local:kitchen", fingerprint));
+        storage.put(HomeAssistantDiscovery.indexKey(BRIDGE, otherTopic),
+                new KnownComponent("mqtt:homeassistant_hall:local:hall", fingerprint));
+        storage.put(HomeAssistantDiscovery.indexKey(otherBridge, otherTopic),
+                new KnownComponent("mqtt:homeassistant_hall:remote:hall", fingerprint));
+        discovery.setMQTTTopicDiscoveryService(mock(MQTTTopicDiscoveryService.class));
+        discovery.startBackgroundDiscovery();
+
+        discovery.receivedMessage(BRIDGE, connection, TOPIC, CONFIG);
+        assertTrue(discovery.staleChecks.containsKey(BRIDGE));
+        assertFalse(discovery.staleChecks.containsKey(otherBridge));
+
+        discovery.removeStaleComponents(BRIDGE);
+        assertTrue(storage.containsKey(HomeAssistantDiscovery.indexKey(BRIDGE, TOPIC)));
+        assertFalse(storage.containsKey(HomeAssistantDiscovery.indexKey(BRIDGE, otherTopic)));
+        assertTrue(storage.containsKey(HomeAssistantDiscovery.indexKey(otherBridge, otherTopic)));
+
+        // Checked brokers are not checked again, brokers connecting later get their own check
+        discovery.receivedMessage(BRIDGE, connection, TOPIC, CONFIG);
+        assertFalse(discovery.staleChecks.containsKey(BRIDGE));
+        discovery.receivedMessage(otherBridge, connection, TOPIC, CONFIG);
+        assertTrue(discovery.staleChecks.containsKey(otherBridge));
+        discovery.stopBackgroundDiscovery();
+        assertTrue(discovery.staleChecks.isEmpty());
+    }
+}
@@ -30,6 +30,7 @@ import org.openhab.binding.mqtt.generic.AbstractMQTTThingHandler;
 import org.openhab.binding.mqtt.generic.ChannelState;
 import org.openhab.binding.mqtt.generic.MqttChannelTypeProvider;
 import org.openhab.binding.mqtt.generic.tools.DelayedBatchProcessing;
+import org.openhab.binding.mqtt.handler.MqttTopicDispatcher;
 import org.openhab.binding.mqtt.homie.generic.internal.MqttBindingConstants;
 import org.openhab.binding.mqtt.homie.internal.homie300.Device;
 import org.openhab.binding.mqtt.homie.internal.homie300.DeviceAttributes;
@@ -49,6 +50,9 @@ import org.slf4j.LoggerFactory;
  */
 @NonNullByDefault
 public class HomieThingHandler extends AbstractMQTTThingHandler implements DeviceCallback, Consumer<List<Object>> {
+    /** Maximum number of device changes collected into one channel update, each of which rebuilds the channels */
+    private static final int MAX_BATCH_SIZE = 500;
+
     private final Logger logger = LoggerFactory.getLogger(HomieThingHandler.class);
     protected Device device;
     protected final MqttChannelTypeProvider channelTypeProvider;
@@ -76,7 +80,7 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
         this.channelTypeProvider = channelTypeProvider;
         this.subscribeTimeout = subscribeTimeout;
         this.attributeReceiveTimeout = attributeReceiveTimeout;
-        this.delayedProcessing = new DelayedBatchProcessing<>(subscribeTimeout, this, scheduler);
+        this.delayedProcessing = new DelayedBatchProcessing<>(subscribeTimeout, MAX_BATCH_SIZE, this, scheduler);
         this.device = new Device(this.thing.getUID(), this, new DeviceAttributes());
     }
 
@@ -122,6 +126,8 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
                     "Homie devices require QoS 1 but Qos 0/2 is configured. Using override. Please check the configuration");
             connection.setQos(1);
         }
+        // One broker subscription for the whole device, the attribute and property topics are dispatched locally
+        MqttTopicDispatcher.addBaseTopic(connection, deviceBaseTopic());
         return device.subscribe(connection, scheduler, attributeReceiveTimeout).thenCompose((Void v) -> {
             return device.startChannels(connection, scheduler, attributeReceiveTimeout, this);
         }).thenRun(() -> {
@@ -138,7 +144,15 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
             this.heartBeatTimer = null;
         }
         delayedProcessing.join();
-        device.stop();
+        final MqttBrokerConnection connection = this.connection;
+        CompletableFuture<@Nullable Void> stopped = device.stop();
+        if (connection != null) {
+            stopped.thenRun(() -> MqttTopicDispatcher.removeBaseTopic(connection, deviceBaseTopic()));
+        }
+    }
+
+    private String deviceBaseTopic() {
+        return config.basetopic + "/" + config.deviceid + "/#";
     }
 
     @Override
@@ -52,6 +52,8 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
 
     protected @Nullable MqttBrokerConnection connection;
     protected CompletableFuture<MqttBrokerConnection> connectionFuture = new CompletableFuture<>();
+    private @Nullable MqttTopicDispatcher topicDispatcher;
+    private @Nullable MqttPublishQueue publishQueue;
 
     public AbstractBrokerHandler(Bridge thing) {
         super(thing);
@@ -77,6 +79,20 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
         return connection;
     }
 
+    /**
+     * Returns the {@link MqttTopicDispatcher} shared by all handlers using the connection of this broker.
+     */
+    public @Nullable MqttTopicDispatcher getTopicDispatcher() {
+        return topicDispatcher;
+    }
+
+    /**
+     * Returns the {@link MqttPublishQueue} shared by all handlers using the connection of this broker.
+     */
+    public @Nullable MqttPublishQueue getPublishQueue() {
+        return publishQueue;
+    }
+
     /**
      * Does nothing in the base implementation.
      */
@@ -95,6 +111,8 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
             logger.warn("Trying to initialize {} but connection is null. This is most likely a bug.", thing.getUID());
             return;
         }
+        topicDispatcher = new MqttTopicDispatcher(connection, scheduler);
+        publishQueue = new MqttPublishQueue(connection, scheduler);
         for (Channel channel : thing.getChannels()) {
             final PublishTriggerChannelConfig channelConfig = channel.getConfiguration()
                     .as(PublishTriggerChannelConfig.class);
@@ -136,6 +154,11 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
 
     @Override
     public void connectionStateChanged(MqttConnectionState state, @Nullable Throwable error) {
+        final MqttPublishQueue publishQueue = this.publishQueue;
+        if (publishQueue != null) {
+            logger.debug("Connection of {} changed to {}, {}", thing.getUID(), state, publishQueue);
+            publishQueue.connectionStateChanged(state, error);
+        }
         if (state == MqttConnectionState.CONNECTED) {
             updateStatus(ThingStatus.ONLINE);
             channelStateByChannelUID.values().forEach(PublishTriggerChannel::start);
@@ -169,6 +192,17 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
             });
         });
 
+        final MqttTopicDispatcher topicDispatcher = this.topicDispatcher;
+        if (topicDispatcher != null) {
+            topicDispatcher.dispose();
+            this.topicDispatcher = null;
+        }
+        final MqttPublishQueue publishQueue = this.publishQueue;
+        if (publishQueue != null) {
+            publishQueue.dispose();
+            this.publishQueue = null;
+        }
+
         if (connection != null) {
             connection.removeConnectionObserver(this);
         } else {
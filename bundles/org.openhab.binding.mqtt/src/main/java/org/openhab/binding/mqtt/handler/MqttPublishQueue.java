@@ -0,0 +1,342 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.eclipse.smarthome.io.transport.mqtt.MqttConnectionObserver;
+import org.eclipse.smarthome.io.transport.mqtt.MqttConnectionState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Outbound queue for the publishes of all handlers using one broker connection.
+ *
+ * <ul>
+ * <li>Publishes are sent in batches from an executor, not from the thread handing them in. At most
+ * {@link #MAX_IN_FLIGHT} publishes are unacknowledged by the broker at a time, further publishes stay queued.</li>
+ * <li>While the connection is not established, publishes are buffered and sent after (re)connecting. QoS 1 and 2
+ * publishes failing because the connection was lost are queued again in their original order, or merged with a
+ * queued publish to the topic.</li>
+ * <li>A publish to a topic that is still queued with QoS 0 or 1 and the same retain flag replaces the queued one.
+ * Both futures complete with the result of the sent publish. QoS 2 publishes are never replaced.</li>
+ * <li>At most {@link #MAX_QUEUED} publishes are queued. If full, the oldest QoS 0 publish is dropped, or the new
+ * publish fails if there is none.</li>
+ * </ul>
+ *
+ * Use the static {@link #publish(MqttBrokerConnection, String, byte[], int, boolean)}, which falls back to
+ * publishing directly for connections without a queue.
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class MqttPublishQueue implements MqttConnectionObserver {
+    public static final int MAX_IN_FLIGHT = 20;
+    public static final int MAX_QUEUED = 1000;
+
+    private static final Map<MqttBrokerConnection, MqttPublishQueue> QUEUES = new ConcurrentHashMap<>();
+
+    private final Logger logger = LoggerFactory.getLogger(MqttPublishQueue.class);
+
+    private final MqttBrokerConnection connection;
+    private final Executor executor;
+
+    // Guarded by this. The queue is ordered by sequence number.
+    private final ArrayDeque<Publish> queue = new ArrayDeque<>();
+    private final Map<String, Publish> replaceable = new HashMap<>();
+    private int inFlight;
+    private long nextSequence;
+    private boolean drainScheduled;
+    private boolean disposed;
+    private long published;
+    private long coalesced;
+    private long dropped;
+    private long totalLatencyMillis;
+    private long maxLatencyMillis;
+
+    private static class Publish {
+        final long sequence;
+        final String topic;
+        final int qos;
+        final boolean retain;
+        final long queuedMillis = System.currentTimeMillis();
+        byte[] payload;
+        final List<CompletableFuture<Boolean>> futures = new ArrayList<>(1);
+
+        Publish(long sequence, String topic, byte[] payload, int qos, boolean retain) {
+            this.sequence = sequence;
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retain = retain;
+        }
+
+        void complete(@Nullable Boolean result, @Nullable Throwable error) {
+            for (CompletableFuture<Boolean> future : futures) {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create queue for the connection and register it for the static methods. The queue needs to be informed about
+     * connection changes, either by registering it as observer of the connection or by the owner of the connection.
+     *
+     * @param connection The broker connection
+     * @param executor Executor sending the publishes
+     */
+    public MqttPublishQueue(MqttBrokerConnection connection, Executor executor) {
+        this.connection = connection;
+        this.executor = executor;
+        QUEUES.put(connection, this);
+    }
+
+    /**
+     * Get the publish queue of a connection
+     *
+     * @param connection The broker connection
+     * @return The queue, or null if none is registered for the connection
+     */
+    public static @Nullable MqttPublishQueue of(MqttBrokerConnection connection) {
+        return QUEUES.get(connection);
+    }
+
+    /**
+     * Publish via the queue of the connection, or directly if there is none
+     *
+     * @see #publish(String, byte[], int, boolean)
+     */
+    public static CompletableFuture<Boolean> publish(MqttBrokerConnection connection, String topic, byte[] payload,
+            int qos, boolean retain) {
+        MqttPublishQueue queue = of(connection);
+        return queue == null ? connection.publish(topic, payload, qos, retain)
+                : queue.publish(topic, payload, qos, retain);
+    }
+
+    /**
+     * Queue a publish
+     *
+     * @param topic The topic
+     * @param payload The payload
+     * @param qos The QoS of the publish
+     * @param retain Whether the broker should retain the message
+     * @return A future that completes with the result of the publish, as returned by the connection
+     */
+    public CompletableFuture<Boolean> publish(String topic, byte[] payload, int qos, boolean retain) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (disposed) {
+                future.completeExceptionally(new IllegalStateException("Publish queue is disposed"));
+                return future;
+            }
+            Publish publish = qos < 2 ? replaceable.get(topic) : null;
+            if (publish != null && publish.qos == qos && publish.retain == retain) {
+                publish.payload = payload;
+                publish.futures.add(future);
+                coalesced++;
+                return future;
+            }
+            if (queue.size() >= MAX_QUEUED && !dropOldestQos0()) {
+                future.completeExceptionally(new IllegalStateException("Publish queue is full"));
+                return future;
+            }
+            publish = new Publish(nextSequence++, topic, payload, qos, retain);
+            publish.futures.add(future);
+            queue.add(publish);
+            if (qos < 2) {
+                replaceable.put(topic, publish);
+            }
+            scheduleDrain();
+        }
+        return future;
+    }
+
+    /**
+     * Return the number of queued publishes, not yet handed to the connection
+     */
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Return the number of publishes handed to the connection but not yet acknowledged
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Return the average time in milliseconds from queueing a publish until the connection completed it
+     */
+    public synchronized long getAverageLatencyMillis() {
+        return published == 0 ? 0 : totalLatencyMillis / published;
+    }
+
+    /**
+     * Return the maximum time in milliseconds from queueing a publish until the connection completed it
+     */
+    public synchronized long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("MqttPublishQueue[queued=%d, inFlight=%d, published=%d, coalesced=%d, dropped=%d, "
+                + "avgLatencyMillis=%d, maxLatencyMillis=%d]", queue.size(), inFlight, published, coalesced, dropped,
+                getAverageLatencyMillis(), maxLatencyMillis);
+    }
+
+    @Override
+    public void connectionStateChanged(MqttConnectionState state, @Nullable Throwable error) {
+        if (state == MqttConnectionState.CONNECTED) {
+            synchronized (this) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /**
+     * Unregister the queue. Queued publishes fail.
+     */
+    public void dispose() {
+        List<Publish> remaining;
+        synchronized (this) {
+            disposed = true;
+            remaining = new ArrayList<>(queue);
+            queue.clear();
+            replaceable.clear();
+        }
+        QUEUES.remove(connection, this);
+        IllegalStateException error = new IllegalStateException("Publish queue is disposed");
+        remaining.forEach(p -> p.complete(null, error));
+    }
+
+    /**
+     * Queue a publish again that failed because the connection was lost. It is merged with a queued publish to the
+     * same topic, keeping the newer payload, or else inserted at its original position.
+     *
+     * @return false if the queue is full
+     */
+    private boolean requeue(Publish publish) {
+        Publish queued = publish.qos < 2 ? replaceable.get(publish.topic) : null;
+        if (queued != null && queued.qos == publish.qos && queued.retain == publish.retain) {
+            if (queued.sequence < publish.sequence) {
+                queued.payload = publish.payload;
+            }
+            queued.futures.addAll(publish.futures);
+            coalesced++;
+            return true;
+        }
+        if (queue.size() >= MAX_QUEUED && !dropOldestQos0()) {
+            return false;
+        }
+        // Only publishes queued again before this one can precede it
+        List<Publish> older = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peekFirst().sequence < publish.sequence) {
+            older.add(queue.pollFirst());
+        }
+        queue.addFirst(publish);
+        for (int i = older.size() - 1; i >= 0; i--) {
+            queue.addFirst(older.get(i));
+        }
+        if (publish.qos < 2) {
+            replaceable.putIfAbsent(publish.topic, publish);
+        }
+        return true;
+    }
+
+    private boolean dropOldestQos0() {
+        Iterator<Publish> it = queue.iterator();
+        while (it.hasNext()) {
+            Publish publish = it.next();
+            if (publish.qos == 0) {
+                it.remove();
+                replaceable.remove(publish.topic, publish);
+                dropped++;
+                logger.debug("Publish queue full, dropping QoS 0 publish to {}", publish.topic);
+                publish.complete(false, null);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled && !queue.isEmpty() && inFlight < MAX_IN_FLIGHT) {
+            drainScheduled = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Hand queued publishes to the connection, as many as allowed in flight
+     */
+    private void drain() {
+        List<Publish> batch = new ArrayList<>();
+        synchronized (this) {
+            drainScheduled = false;
+            if (connection.connectionState() != MqttConnectionState.CONNECTED) {
+                logger.trace("Holding {} publishes until the broker connection is established", queue.size());
+                return;
+            }
+            while (inFlight < MAX_IN_FLIGHT && !queue.isEmpty()) {
+                Publish publish = queue.poll();
+                replaceable.remove(publish.topic, publish);
+                batch.add(publish);
+                inFlight++;
+            }
+        }
+        for (Publish publish : batch) {
+            connection.publish(publish.topic, publish.payload, publish.qos, publish.retain)
+                    .whenComplete((result, error) -> completed(publish, result, error));
+        }
+    }
+
+    private void completed(Publish publish, @Nullable Boolean result, @Nullable Throwable error) {
+        long latency = System.currentTimeMillis() - publish.queuedMillis;
+        synchronized (this) {
+            inFlight--;
+            if (error != null && publish.qos > 0 && !disposed
+                    && connection.connectionState() != MqttConnectionState.CONNECTED) {
+                // Lost the connection while publishing: Send again after reconnecting
+                if (requeue(publish)) {
+                    scheduleDrain();
+                    return;
+                }
+                error = new IllegalStateException("Publish queue is full");
+            }
+            published++;
+            totalLatencyMillis += latency;
+            maxLatencyMillis = Math.max(maxLatencyMillis, latency);
+            if (!disposed) {
+                scheduleDrain();
+            }
+        }
+        publish.complete(result, error);
+    }
+}
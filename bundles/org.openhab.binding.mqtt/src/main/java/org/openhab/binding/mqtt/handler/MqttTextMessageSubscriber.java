@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+
+/**
+ * Subscriber that also receives the payload decoded as UTF-8 text. The {@link MqttTopicDispatcher} decodes each
+ * message once and passes the same string to all text subscribers of the message.
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public interface MqttTextMessageSubscriber extends MqttMessageSubscriber {
+    /**
+     * Process a received message
+     *
+     * @param topic The topic of the message
+     * @param payload The byte payload
+     * @param text The payload decoded as UTF-8 text, shared by all text subscribers of the message
+     */
+    void processMessage(String topic, byte[] payload, String text);
+}
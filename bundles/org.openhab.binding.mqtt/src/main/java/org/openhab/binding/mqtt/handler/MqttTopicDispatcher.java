@@ -0,0 +1,486 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local demultiplexer for the subscriptions of all handlers using one broker connection.
+ *
+ * Topic filters registered as base topics, e.g. <code>homie/device/#</code> for a Homie device, are subscribed at
+ * the broker once. Subscriptions to topics below a base topic are kept locally in a topic trie, and received
+ * messages are routed to the matching subscribers in time proportional to the topic depth. Other subscriptions are
+ * subscribed at the broker individually, once per topic filter.
+ *
+ * Since the broker delivers retained messages only when subscribing, the last message received for each topic below
+ * a base topic is kept, and passed to subscribers added later before any newer message. Empty retained messages
+ * delete the kept message of their topic.
+ *
+ * Text subscribers ({@link MqttTextMessageSubscriber}) receive the payload decoded once per message, so that
+ * transformations of several channels can recognize the shared string cheaply.
+ *
+ * Use the static methods with a broker connection, which fall back to subscribing at the broker directly for
+ * connections without a dispatcher.
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class MqttTopicDispatcher {
+    private static final Map<MqttBrokerConnection, MqttTopicDispatcher> DISPATCHERS = new ConcurrentHashMap<>();
+
+    private final Logger logger = LoggerFactory.getLogger(MqttTopicDispatcher.class);
+
+    private final MqttBrokerConnection connection;
+    private final Executor executor;
+    /** Local subscriptions by topic level. Guarded by this. */
+    private final TopicNode root = new TopicNode();
+    /** Broker subscriptions by topic filter. Guarded by this. */
+    private final Map<String, BrokerSubscription> brokerSubscriptions = new HashMap<>();
+    /** Broker subscriptions of the base topics, by topic filter. Guarded by this. */
+    private final Map<String, BrokerSubscription> baseTopics = new LinkedHashMap<>();
+    /**
+     * Messages waiting for subscribers whose kept messages are being replayed, in delivery order. Live messages are
+     * queued behind the replay, so that they are not overwritten by older kept messages. Guarded by this.
+     */
+    private final Map<MqttMessageSubscriber, Deque<Map.Entry<String, byte[]>>> replaying = new HashMap<>();
+
+    /**
+     * Subscription at the broker, carrying the messages of one or more local subscriptions
+     */
+    private class BrokerSubscription implements MqttMessageSubscriber {
+        private final String filter;
+        private final boolean base;
+        private final CompletableFuture<Boolean> future;
+        /** Last message of each topic, kept for base topics only. Guarded by the dispatcher. */
+        private final Map<String, byte[]> lastMessages = new HashMap<>();
+        private int localSubscriptions;
+
+        BrokerSubscription(String filter, boolean base) {
+            this.filter = filter;
+            this.base = base;
+            this.future = connection.subscribe(filter, this);
+        }
+
+        @Override
+        public void processMessage(String topic, byte[] payload) {
+            List<MqttMessageSubscriber> subscribers = new ArrayList<>();
+            synchronized (MqttTopicDispatcher.this) {
+                if (base) {
+                    // an empty retained message deletes the topic
+                    if (payload.length == 0) {
+                        lastMessages.remove(topic);
+                    } else {
+                        lastMessages.put(topic, payload);
+                    }
+                }
+                root.collect(topic.split("/", -1), 0, this, subscribers);
+                for (Iterator<MqttMessageSubscriber> it = subscribers.iterator(); it.hasNext();) {
+                    Deque<Map.Entry<String, byte[]>> queue = replaying.get(it.next());
+                    if (queue != null) {
+                        queue.add(new HashMap.SimpleImmutableEntry<>(topic, payload));
+                        it.remove();
+                    }
+                }
+            }
+            String text = null;
+            for (MqttMessageSubscriber subscriber : subscribers) {
+                if (subscriber instanceof MqttTextMessageSubscriber && text == null) {
+                    text = new String(payload, StandardCharsets.UTF_8);
+                }
+                deliver(subscriber, topic, payload, text);
+            }
+        }
+    }
+
+    /**
+     * Node of the topic trie. Each node holds the subscriptions of the topic filter leading to it.
+     */
+    private static class TopicNode {
+        final Map<String, TopicNode> children = new HashMap<>();
+        final Map<MqttMessageSubscriber, BrokerSubscription> subscriptions = new LinkedHashMap<>();
+
+        /**
+         * Collect subscribers of the given broker subscription whose filters match the topic
+         */
+        void collect(String[] levels, int depth, BrokerSubscription carrier, List<MqttMessageSubscriber> result) {
+            TopicNode multiLevel = children.get("#");
+            if (multiLevel != null) {
+                multiLevel.collectOwn(carrier, result);
+            }
+            if (depth == levels.length) {
+                collectOwn(carrier, result);
+                return;
+            }
+            TopicNode child = children.get(levels[depth]);
+            if (child != null) {
+                child.collect(levels, depth + 1, carrier, result);
+            }
+            TopicNode singleLevel = children.get("+");
+            if (singleLevel != null) {
+                singleLevel.collect(levels, depth + 1, carrier, result);
+            }
+        }
+
+        private void collectOwn(BrokerSubscription carrier, List<MqttMessageSubscriber> result) {
+            subscriptions.forEach((subscriber, subscriptionCarrier) -> {
+                if (subscriptionCarrier == carrier) {
+                    result.add(subscriber);
+                }
+            });
+        }
+
+        boolean isEmpty() {
+            return children.isEmpty() && subscriptions.isEmpty();
+        }
+    }
+
+    /**
+     * Create dispatcher for the connection and register it for the static methods
+     *
+     * @param connection The broker connection
+     * @param executor Executor for passing kept messages to new subscribers
+     */
+    public MqttTopicDispatcher(MqttBrokerConnection connection, Executor executor) {
+        this.connection = connection;
+        this.executor = executor;
+        DISPATCHERS.put(connection, this);
+    }
+
+    /**
+     * Get the dispatcher of a connection
+     *
+     * @param connection The broker connection
+     * @return The dispatcher, or null if none is registered for the connection
+     */
+    public static @Nullable MqttTopicDispatcher of(MqttBrokerConnection connection) {
+        return DISPATCHERS.get(connection);
+    }
+
+    /**
+     * Subscribe to a topic via the dispatcher of the connection, or directly at the broker if there is none
+     *
+     * @see #subscribe(String, MqttMessageSubscriber)
+     */
+    public static CompletableFuture<Boolean> subscribe(MqttBrokerConnection connection, String topic,
+            MqttMessageSubscriber subscriber) {
+        MqttTopicDispatcher dispatcher = of(connection);
+        return dispatcher == null ? connection.subscribe(topic, subscriber) : dispatcher.subscribe(topic, subscriber);
+    }
+
+    /**
+     * Unsubscribe from a topic via the dispatcher of the connection, or directly at the broker if there is none
+     *
+     * @see #unsubscribe(String, MqttMessageSubscriber)
+     */
+    public static CompletableFuture<Boolean> unsubscribe(MqttBrokerConnection connection, String topic,
+            MqttMessageSubscriber subscriber) {
+        MqttTopicDispatcher dispatcher = of(connection);
+        return dispatcher == null ? connection.unsubscribe(topic, subscriber)
+                : dispatcher.unsubscribe(topic, subscriber);
+    }
+
+    /**
+     * Register a base topic via the dispatcher of the connection. Does nothing if the connection has no dispatcher.
+     *
+     * @see #addBaseTopic(String)
+     */
+    public static CompletableFuture<Boolean> addBaseTopic(MqttBrokerConnection connection, String filter) {
+        MqttTopicDispatcher dispatcher = of(connection);
+        return dispatcher == null ? CompletableFuture.completedFuture(true) : dispatcher.addBaseTopic(filter);
+    }
+
+    /**
+     * Remove a base topic via the dispatcher of the connection. Does nothing if the connection has no dispatcher.
+     *
+     * @see #removeBaseTopic(String)
+     */
+    public static CompletableFuture<Boolean> removeBaseTopic(MqttBrokerConnection connection, String filter) {
+        MqttTopicDispatcher dispatcher = of(connection);
+        return dispatcher == null ? CompletableFuture.completedFuture(true) : dispatcher.removeBaseTopic(filter);
+    }
+
+    /**
+     * Subscribe to the broker once for all topics matching the filter. Later subscriptions to topics below the base
+     * topic are served from this broker subscription.
+     *
+     * @param filter A topic filter ending with <code>/#</code>
+     * @return A future that completes when the broker subscription is done
+     */
+    public synchronized CompletableFuture<Boolean> addBaseTopic(String filter) {
+        if (!filter.endsWith("/#")) {
+            throw new IllegalArgumentException("Base topic must end with /#: " + filter);
+        }
+        BrokerSubscription subscription = baseTopics.get(filter);
+        if (subscription == null) {
+            subscription = new BrokerSubscription(filter, true);
+            baseTopics.put(filter, subscription);
+            logger.trace("Added base topic {}", filter);
+        }
+        return subscription.future;
+    }
+
+    /**
+     * Remove a base topic. Remaining subscriptions below the base topic are subscribed at the broker individually.
+     *
+     * @param filter A topic filter given to {@link #addBaseTopic(String)}
+     * @return A future that completes when the broker subscription is removed
+     */
+    public synchronized CompletableFuture<Boolean> removeBaseTopic(String filter) {
+        BrokerSubscription subscription = baseTopics.remove(filter);
+        if (subscription == null) {
+            return CompletableFuture.completedFuture(true);
+        }
+        if (subscription.localSubscriptions > 0) {
+            reattach(root, new ArrayList<>(), subscription);
+        }
+        logger.trace("Removed base topic {}", filter);
+        return connection.unsubscribe(filter, subscription);
+    }
+
+    /**
+     * Subscribe to a topic
+     *
+     * @param topic A topic filter, wildcards are supported
+     * @param subscriber The subscriber
+     * @return A future that completes when the broker subscription carrying the messages is done
+     */
+    public synchronized CompletableFuture<Boolean> subscribe(String topic, MqttMessageSubscriber subscriber) {
+        String[] levels = topic.split("/", -1);
+        TopicNode node = root;
+        for (String level : levels) {
+            node = node.children.computeIfAbsent(level, l -> new TopicNode());
+        }
+        BrokerSubscription carrier = node.subscriptions.get(subscriber);
+        if (carrier != null) {
+            return carrier.future;
+        }
+        carrier = baseTopicOf(levels);
+        if (carrier == null) {
+            carrier = brokerSubscriptions.get(topic);
+            if (carrier == null) {
+                carrier = new BrokerSubscription(topic, false);
+                brokerSubscriptions.put(topic, carrier);
+            }
+        } else {
+            replay(carrier, levels, topic, subscriber);
+        }
+        carrier.localSubscriptions++;
+        node.subscriptions.put(subscriber, carrier);
+        return carrier.future;
+    }
+
+    /**
+     * Unsubscribe from a topic
+     *
+     * @param topic A topic filter given to {@link #subscribe(String, MqttMessageSubscriber)}
+     * @param subscriber The subscriber
+     * @return A future that completes when the subscription is removed, also at the broker if it was the last
+     *         subscription carried by a broker subscription
+     */
+    public synchronized CompletableFuture<Boolean> unsubscribe(String topic, MqttMessageSubscriber subscriber) {
+        String[] levels = topic.split("/", -1);
+        BrokerSubscription carrier = remove(root, levels, 0, subscriber);
+        if (carrier == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        carrier.localSubscriptions--;
+        if (!carrier.base && carrier.localSubscriptions == 0) {
+            brokerSubscriptions.remove(carrier.filter);
+            return connection.unsubscribe(carrier.filter, carrier);
+        }
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Unregister the dispatcher and remove all broker subscriptions
+     */
+    public synchronized void dispose() {
+        DISPATCHERS.remove(connection, this);
+        baseTopics.values().forEach(s -> connection.unsubscribe(s.filter, s));
+        brokerSubscriptions.values().forEach(s -> connection.unsubscribe(s.filter, s));
+        baseTopics.clear();
+        brokerSubscriptions.clear();
+        root.children.clear();
+        root.subscriptions.clear();
+        replaying.clear();
+    }
+
+    /**
+     * Get the base topic covering every topic matched by the filter, if any
+     */
+    private @Nullable BrokerSubscription baseTopicOf(String[] levels) {
+        for (BrokerSubscription base : baseTopics.values()) {
+            String[] baseLevels = base.filter.split("/", -1);
+            int prefixLength = baseLevels.length - 1;
+            if (levels.length < prefixLength) {
+                continue;
+            }
+            boolean covered = true;
+            for (int i = 0; i < prefixLength && covered; i++) {
+                covered = baseLevels[i].equals(levels[i]) && !"+".equals(levels[i]) && !"#".equals(levels[i]);
+            }
+            if (covered) {
+                return base;
+            }
+        }
+        return null;
+    }
+
+    private @Nullable BrokerSubscription remove(TopicNode node, String[] levels, int depth,
+            MqttMessageSubscriber subscriber) {
+        if (depth == levels.length) {
+            return node.subscriptions.remove(subscriber);
+        }
+        TopicNode child = node.children.get(levels[depth]);
+        if (child == null) {
+            return null;
+        }
+        BrokerSubscription carrier = remove(child, levels, depth + 1, subscriber);
+        if (child.isEmpty()) {
+            node.children.remove(levels[depth]);
+        }
+        return carrier;
+    }
+
+    /**
+     * Move the subscriptions carried by a removed base topic to individual broker subscriptions
+     */
+    private void reattach(TopicNode node, List<String> path, BrokerSubscription removed) {
+        node.subscriptions.replaceAll((subscriber, carrier) -> {
+            if (carrier != removed) {
+                return carrier;
+            }
+            String topic = String.join("/", path);
+            BrokerSubscription replacement = brokerSubscriptions.get(topic);
+            if (replacement == null) {
+                replacement = new BrokerSubscription(topic, false);
+                brokerSubscriptions.put(topic, replacement);
+            }
+            replacement.localSubscriptions++;
+            return replacement;
+        });
+        node.children.forEach((level, child) -> {
+            path.add(level);
+            reattach(child, path, removed);
+            path.remove(path.size() - 1);
+        });
+    }
+
+    /**
+     * Pass the kept messages matching the topic filter to a new subscriber. Messages received meanwhile are passed
+     * after the kept messages.
+     */
+    private void replay(BrokerSubscription base, String[] levels, String topic, MqttMessageSubscriber subscriber) {
+        List<Map.Entry<String, byte[]>> messages = new ArrayList<>();
+        if (!topic.contains("+") && !topic.contains("#")) {
+            byte[] payload = base.lastMessages.get(topic);
+            if (payload != null) {
+                messages.add(new HashMap.SimpleImmutableEntry<>(topic, payload));
+            }
+        } else {
+            base.lastMessages.forEach((messageTopic, payload) -> {
+                if (matches(levels, messageTopic.split("/", -1))) {
+                    messages.add(new HashMap.SimpleImmutableEntry<>(messageTopic, payload));
+                }
+            });
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        Deque<Map.Entry<String, byte[]>> queue = replaying.get(subscriber);
+        if (queue != null) {
+            // a replay for another topic filter of the subscriber is running and takes these as well
+            queue.addAll(messages);
+            return;
+        }
+        replaying.put(subscriber, new ArrayDeque<>(messages));
+        try {
+            executor.execute(() -> drainReplay(subscriber));
+        } catch (RejectedExecutionException e) {
+            replaying.remove(subscriber);
+            logger.debug("Could not pass kept messages to subscriber {}: {}", subscriber, e.getMessage());
+        }
+    }
+
+    /**
+     * Pass the queued messages to a subscriber, until the queue is empty and messages can be passed directly
+     */
+    private void drainReplay(MqttMessageSubscriber subscriber) {
+        while (true) {
+            Map.Entry<String, byte[]> message;
+            synchronized (this) {
+                Deque<Map.Entry<String, byte[]>> queue = replaying.get(subscriber);
+                message = queue == null ? null : queue.poll();
+                if (message == null) {
+                    replaying.remove(subscriber);
+                    return;
+                }
+            }
+            deliver(subscriber, message.getKey(), message.getValue(), null);
+        }
+    }
+
+    /**
+     * Pass a message to a subscriber, with the text decoded for text subscribers unless given
+     */
+    private void deliver(MqttMessageSubscriber subscriber, String topic, byte[] payload, @Nullable String text) {
+        try {
+            if (subscriber instanceof MqttTextMessageSubscriber) {
+                ((MqttTextMessageSubscriber) subscriber).processMessage(topic, payload,
+                        text != null ? text : new String(payload, StandardCharsets.UTF_8));
+            } else {
+                subscriber.processMessage(topic, payload);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Subscriber {} failed to process message of topic {}", subscriber, topic, e);
+        }
+    }
+
+    /**
+     * Check whether a topic matches a topic filter
+     *
+     * @param filterLevels Levels of the topic filter, wildcards are supported
+     * @param topicLevels Levels of the topic
+     * @return true if the topic matches
+     */
+    static boolean matches(String[] filterLevels, String[] topicLevels) {
+        for (int i = 0; i < filterLevels.length; i++) {
+            if ("#".equals(filterLevels[i])) {
+                return true;
+            }
+            if (i >= topicLevels.length || !("+".equals(filterLevels[i]) || filterLevels[i].equals(topicLevels[i]))) {
+                return false;
+            }
+        }
+        return filterLevels.length == topicLevels.length;
+    }
+}
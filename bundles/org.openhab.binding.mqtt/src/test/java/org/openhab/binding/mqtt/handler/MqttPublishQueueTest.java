@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.eclipse.smarthome.io.transport.mqtt.MqttConnectionState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+/**
+ * Tests cases for {@link MqttPublishQueue}.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class MqttPublishQueueTest {
+    private MqttBrokerConnection connection;
+    private MqttPublishQueue queue;
+    private final List<CompletableFuture<Boolean>> brokerFutures = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        connection = mock(MqttBrokerConnection.class);
+        doReturn(MqttConnectionState.CONNECTED).when(connection).connectionState();
+        doAnswer(invocation -> {
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            brokerFutures.add(future);
+            return future;
+        }).when(connection).publish(any(), any(), anyInt(), anyBoolean());
+        queue = new MqttPublishQueue(connection, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        queue.dispose();
+    }
+
+    @Test
+    public void publishesAreSentAndCompleted() {
+        CompletableFuture<Boolean> future = MqttPublishQueue.publish(connection, "light/1/set", "ON".getBytes(), 1,
+                false);
+
+        verify(connection).publish("light/1/set", "ON".getBytes(), 1, false);
+        assertThat(queue.getInFlight(), is(1));
+        brokerFutures.get(0).complete(true);
+        assertThat(future.getNow(false), is(true));
+        assertThat(queue.getInFlight(), is(0));
+    }
+
+    @Test
+    public void publishesAreBufferedWhileDisconnected() {
+        doReturn(MqttConnectionState.CONNECTING).when(connection).connectionState();
+
+        CompletableFuture<Boolean> first = queue.publish("light/1/set", "ON".getBytes(), 1, false);
+        CompletableFuture<Boolean> second = queue.publish("light/1/set", "OFF".getBytes(), 1, false);
+        queue.publish("light/2/set", "ON".getBytes(), 2, false);
+        queue.publish("light/2/set", "OFF".getBytes(), 2, false);
+
+        verify(connection, never()).publish(any(), any(), anyInt(), anyBoolean());
+        assertThat(queue.getQueueDepth(), is(3));
+
+        doReturn(MqttConnectionState.CONNECTED).when(connection).connectionState();
+        queue.connectionStateChanged(MqttConnectionState.CONNECTED, null);
+
+        verify(connection).publish("light/1/set", "OFF".getBytes(), 1, false);
+        verify(connection, times(2)).publish(eq("light/2/set"), any(), eq(2), eq(false));
+        brokerFutures.get(0).complete(true);
+        assertThat(first.getNow(false), is(true));
+        assertThat(second.getNow(false), is(true));
+    }
+
+    @Test
+    public void inFlightPublishesAreLimited() {
+        for (int i = 0; i < MqttPublishQueue.MAX_IN_FLIGHT + 5; i++) {
+            queue.publish("light/" + i + "/set", "ON".getBytes(), 0, false);
+        }
+
+        assertThat(brokerFutures.size(), is(MqttPublishQueue.MAX_IN_FLIGHT));
+        assertThat(queue.getQueueDepth(), is(5));
+
+        brokerFutures.get(0).complete(true);
+        assertThat(brokerFutures.size(), is(MqttPublishQueue.MAX_IN_FLIGHT + 1));
+        assertThat(queue.getQueueDepth(), is(4));
+    }
+
+    @Test
+    public void failedPublishIsQueuedAgainAfterConnectionLoss() {
+        queue.publish("light/1/set", "ON".getBytes(), 1, false);
+        doReturn(MqttConnectionState.DISCONNECTED).when(connection).connectionState();
+        brokerFutures.get(0).completeExceptionally(new IllegalStateException("Connection lost"));
+
+        assertThat(queue.getQueueDepth(), is(1));
+
+        doReturn(MqttConnectionState.CONNECTED).when(connection).connectionState();
+        queue.connectionStateChanged(MqttConnectionState.CONNECTED, null);
+        verify(connection, times(2)).publish("light/1/set", "ON".getBytes(), 1, false);
+    }
+
+    @Test
+    public void failedPublishesAreQueuedAgainInOriginalOrder() {
+        queue.publish("light/1/set", "v1".getBytes(), 2, false);
+        queue.publish("light/1/set", "v2".getBytes(), 2, false);
+        queue.publish("light/2/set", "v3".getBytes(), 2, false);
+        doReturn(MqttConnectionState.DISCONNECTED).when(connection).connectionState();
+        brokerFutures.get(0).completeExceptionally(new IllegalStateException("Connection lost"));
+        brokerFutures.get(2).completeExceptionally(new IllegalStateException("Connection lost"));
+        brokerFutures.get(1).completeExceptionally(new IllegalStateException("Connection lost"));
+
+        assertThat(queue.getQueueDepth(), is(3));
+
+        doReturn(MqttConnectionState.CONNECTED).when(connection).connectionState();
+        queue.connectionStateChanged(MqttConnectionState.CONNECTED, null);
+        InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).publish("light/1/set", "v1".getBytes(), 2, false);
+        inOrder.verify(connection).publish("light/1/set", "v2".getBytes(), 2, false);
+        inOrder.verify(connection).publish("light/2/set", "v3".getBytes(), 2, false);
+        inOrder.verify(connection).publish("light/1/set", "v1".getBytes(), 2, false);
+        inOrder.verify(connection).publish("light/1/set", "v2".getBytes(), 2, false);
+        inOrder.verify(connection).publish("light/2/set", "v3".getBytes(), 2, false);
+    }
+
+    @Test
+    public void failedPublishIsMergedWithNewerQueuedPublish() {
+        CompletableFuture<Boolean> first = queue.publish("light/1/set", "ON".getBytes(), 1, false);
+        doReturn(MqttConnectionState.DISCONNECTED).when(connection).connectionState();
+        CompletableFuture<Boolean> second = queue.publish("light/1/set", "OFF".getBytes(), 1, false);
+        brokerFutures.get(0).completeExceptionally(new IllegalStateException("Connection lost"));
+
+        assertThat(queue.getQueueDepth(), is(1));
+
+        doReturn(MqttConnectionState.CONNECTED).when(connection).connectionState();
+        queue.connectionStateChanged(MqttConnectionState.CONNECTED, null);
+        verify(connection).publish("light/1/set", "OFF".getBytes(), 1, false);
+        brokerFutures.get(1).complete(true);
+        assertThat(first.getNow(false), is(true));
+        assertThat(second.getNow(false), is(true));
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Tests cases for {@link MqttTopicDispatcher}.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class MqttTopicDispatcherTest {
+    private MqttBrokerConnection connection;
+    private MqttTopicDispatcher dispatcher;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        connection = mock(MqttBrokerConnection.class);
+        doReturn(CompletableFuture.completedFuture(true)).when(connection).subscribe(any(), any());
+        doReturn(CompletableFuture.completedFuture(true)).when(connection).unsubscribe(any(), any());
+        dispatcher = new MqttTopicDispatcher(connection, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.dispose();
+    }
+
+    private MqttMessageSubscriber subscriber(String name) {
+        return (topic, payload) -> received.add(name + ":" + topic + "=" + new String(payload, StandardCharsets.UTF_8));
+    }
+
+    private MqttMessageSubscriber brokerSubscriber(String filter) {
+        ArgumentCaptor<MqttMessageSubscriber> captor = ArgumentCaptor.forClass(MqttMessageSubscriber.class);
+        verify(connection).subscribe(eq(filter), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    public void matches() {
+        assertTrue(MqttTopicDispatcher.matches("a/+/c".split("/"), "a/b/c".split("/")));
+        assertTrue(MqttTopicDispatcher.matches("a/#".split("/"), "a/b/c".split("/")));
+        assertTrue(MqttTopicDispatcher.matches("a/#".split("/"), "a".split("/")));
+        assertFalse(MqttTopicDispatcher.matches("a/+".split("/"), "a/b/c".split("/")));
+        assertFalse(MqttTopicDispatcher.matches("a/b/c".split("/"), "a/b".split("/")));
+    }
+
+    @Test
+    public void subscriptionsBelowBaseTopicAreDispatchedLocally() {
+        dispatcher.addBaseTopic("homie/dev/#");
+        MqttTopicDispatcher.subscribe(connection, "homie/dev/$name", subscriber("name"));
+        MqttTopicDispatcher.subscribe(connection, "homie/dev/node/+", subscriber("node"));
+        MqttTopicDispatcher.subscribe(connection, "homie/dev/#", subscriber("all"));
+
+        verify(connection, times(1)).subscribe(any(), any());
+        MqttMessageSubscriber base = brokerSubscriber("homie/dev/#");
+        base.processMessage("homie/dev/$name", "Device".getBytes(StandardCharsets.UTF_8));
+        base.processMessage("homie/dev/node/prop", "1".getBytes(StandardCharsets.UTF_8));
+        base.processMessage("homie/dev/node/prop/set", "2".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(received, hasItems("name:homie/dev/$name=Device", "all:homie/dev/$name=Device",
+                "node:homie/dev/node/prop=1", "all:homie/dev/node/prop=1", "all:homie/dev/node/prop/set=2"));
+        assertThat(received.size(), is(5));
+    }
+
+    @Test
+    public void lastMessagesArePassedToNewSubscribers() {
+        dispatcher.addBaseTopic("homie/dev/#");
+        brokerSubscriber("homie/dev/#").processMessage("homie/dev/$state",
+                "ready".getBytes(StandardCharsets.UTF_8));
+
+        MqttTopicDispatcher.subscribe(connection, "homie/dev/$state", subscriber("state"));
+
+        assertThat(received, is(Collections.singletonList("state:homie/dev/$state=ready")));
+    }
+
+    @Test
+    public void textSubscribersShareTheDecodedPayload() {
+        List<String> texts = new CopyOnWriteArrayList<>();
+        MqttTextMessageSubscriber first = textSubscriber(texts);
+        MqttTextMessageSubscriber second = textSubscriber(texts);
+        MqttTopicDispatcher.subscribe(connection, "some/topic", first);
+        MqttTopicDispatcher.subscribe(connection, "some/topic", second);
+
+        brokerSubscriber("some/topic").processMessage("some/topic", "{\"a\": 1}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(texts.size(), is(2));
+        assertThat(texts.get(0), is("{\"a\": 1}"));
+        assertThat(texts.get(1), is(sameInstance(texts.get(0))));
+    }
+
+    private MqttTextMessageSubscriber textSubscriber(List<String> texts) {
+        return new MqttTextMessageSubscriber() {
+            @Override
+            public void processMessage(String topic, byte[] payload) {
+                fail("Text subscribers should receive the decoded payload");
+            }
+
+            @Override
+            public void processMessage(String topic, byte[] payload, String text) {
+                texts.add(text);
+            }
+        };
+    }
+
+    @Test
+    public void liveMessagesArePassedAfterTheKeptMessages() {
+        List<Runnable> tasks = new ArrayList<>();
+        dispatcher.dispose();
+        dispatcher = new MqttTopicDispatcher(connection, tasks::add);
+        dispatcher.addBaseTopic("homie/dev/#");
+        MqttMessageSubscriber base = brokerSubscriber("homie/dev/#");
+        base.processMessage("homie/dev/$state", "init".getBytes(StandardCharsets.UTF_8));
+
+        MqttTopicDispatcher.subscribe(connection, "homie/dev/$state", subscriber("state"));
+        base.processMessage("homie/dev/$state", "ready".getBytes(StandardCharsets.UTF_8));
+        assertThat(received, is(Collections.emptyList()));
+
+        tasks.forEach(Runnable::run);
+        base.processMessage("homie/dev/$state", "lost".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(received, is(Arrays.asList("state:homie/dev/$state=init", "state:homie/dev/$state=ready",
+                "state:homie/dev/$state=lost")));
+    }
+
+    @Test
+    public void deletedTopicsAreNotPassedToNewSubscribers() {
+        dispatcher.addBaseTopic("homie/dev/#");
+        MqttMessageSubscriber base = brokerSubscriber("homie/dev/#");
+        base.processMessage("homie/dev/node/$name", "Node".getBytes(StandardCharsets.UTF_8));
+        base.processMessage("homie/dev/node/$name", new byte[0]);
+
+        MqttTopicDispatcher.subscribe(connection, "homie/dev/#", subscriber("all"));
+
+        assertThat(received, is(Collections.emptyList()));
+    }
+
+    @Test
+    public void otherSubscriptionsShareOneBrokerSubscription() {
+        MqttMessageSubscriber first = subscriber("first");
+        MqttMessageSubscriber second = subscriber("second");
+        MqttTopicDispatcher.subscribe(connection, "some/topic", first);
+        MqttTopicDispatcher.subscribe(connection, "some/topic", second);
+
+        MqttMessageSubscriber broker = brokerSubscriber("some/topic");
+        broker.processMessage("some/topic", "x".getBytes(StandardCharsets.UTF_8));
+        assertThat(received, hasItems("first:some/topic=x", "second:some/topic=x"));
+
+        MqttTopicDispatcher.unsubscribe(connection, "some/topic", first);
+        verify(connection, never()).unsubscribe(any(), any());
+        MqttTopicDispatcher.unsubscribe(connection, "some/topic", second);
+        verify(connection).unsubscribe("some/topic", broker);
+    }
+
+    @Test
+    public void subscriptionsMoveToBrokerWhenBaseTopicIsRemoved() {
+        dispatcher.addBaseTopic("homie/dev/#");
+        MqttTopicDispatcher.subscribe(connection, "homie/dev/$name", subscriber("name"));
+
+        dispatcher.removeBaseTopic("homie/dev/#");
+
+        brokerSubscriber("homie/dev/$name").processMessage("homie/dev/$name",
+                "Device".getBytes(StandardCharsets.UTF_8));
+        assertThat(received, is(Collections.singletonList("name:homie/dev/$name=Device")));
+    }
+
+    @Test
+    public void connectionWithoutDispatcherIsUsedDirectly() {
+        MqttBrokerConnection other = mock(MqttBrokerConnection.class);
+        MqttMessageSubscriber subscriber = subscriber("direct");
+
+        MqttTopicDispatcher.subscribe(other, "a/b", subscriber);
+
+        verify(other).subscribe("a/b", subscriber);
+    }
+}
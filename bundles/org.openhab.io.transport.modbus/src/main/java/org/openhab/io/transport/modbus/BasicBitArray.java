@@ -21,12 +21,16 @@ import org.eclipse.jdt.annotation.Nullable;
  * Class that implements a collection for
  * bits
  *
+ * Slices share the data with the original array, and changes to the bits of a slice are visible in the original
+ * array, and vice versa.
+ *
  * @author Sami Salonen - Initial contribution
  */
 @NonNullByDefault
 public class BasicBitArray implements BitArray {
 
     private BitSet wrapped;
+    private int offset;
     private int length;
 
     public BasicBitArray(int nbits) {
@@ -38,7 +42,12 @@ public class BasicBitArray implements BitArray {
     }
 
     public BasicBitArray(BitSet wrapped, int length) {
+        this(wrapped, 0, length);
+    }
+
+    private BasicBitArray(BitSet wrapped, int offset, int length) {
         this.wrapped = wrapped;
+        this.offset = offset;
         this.length = length;
     }
 
@@ -53,18 +62,29 @@ public class BasicBitArray implements BitArray {
 
     @Override
     public boolean getBit(int index) {
-        if (index >= size()) {
+        if (index < 0 || index >= size()) {
             throw new IndexOutOfBoundsException();
         }
-        return this.wrapped.get(index);
+        return this.wrapped.get(offset + index);
     }
 
     public void setBit(int index, boolean value) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException();
+        }
         if (value) {
-            this.wrapped.set(index);
+            this.wrapped.set(offset + index);
         } else {
-            this.wrapped.clear(index);
+            this.wrapped.clear(offset + index);
+        }
+    }
+
+    @Override
+    public BasicBitArray slice(int index, int length) {
+        if (index < 0 || length < 0 || index + length > size()) {
+            throw new IndexOutOfBoundsException();
         }
+        return new BasicBitArray(wrapped, offset + index, length);
     }
 
     @Override
@@ -14,8 +14,6 @@ package org.openhab.io.transport.modbus;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 
-import net.wimpi.modbus.procimg.SimpleInputRegister;
-
 /**
  * Basic {@link ModbusRegister} implementation
  *
@@ -24,7 +22,10 @@ import net.wimpi.modbus.procimg.SimpleInputRegister;
 @NonNullByDefault
 public class BasicModbusRegister implements ModbusRegister {
 
-    private SimpleInputRegister wrapped;
+    /**
+     * Register data as unsigned 16 bit integer
+     */
+    private final int value;
 
     /**
      * Constructs a new instance for bytes
@@ -33,7 +34,7 @@ public class BasicModbusRegister implements ModbusRegister {
      * @param b2 the second (low) byte of the word.
      */
     public BasicModbusRegister(byte b1, byte b2) {
-        wrapped = new SimpleInputRegister(b1, b2);
+        value = ((b1 & 0xff) << 8) | (b2 & 0xff);
     }
 
     /**
@@ -42,22 +43,22 @@ public class BasicModbusRegister implements ModbusRegister {
      * @param val value representing register data. The <code>int</code> will be downcasted to <code>short</code>.
      */
     public BasicModbusRegister(int val) {
-        wrapped = new SimpleInputRegister(val);
+        value = val & 0xffff;
     }
 
     @Override
     public byte[] getBytes() {
-        return wrapped.toBytes();
+        return new byte[] { (byte) (value >> 8), (byte) value };
     }
 
     @Override
     public int getValue() {
-        return wrapped.getValue();
+        return value;
     }
 
     @Override
     public int toUnsignedShort() {
-        return wrapped.toUnsignedShort();
+        return value;
     }
 
     @Override
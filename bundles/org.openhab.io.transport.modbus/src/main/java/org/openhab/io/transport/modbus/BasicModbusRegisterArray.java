@@ -17,12 +17,17 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 /**
  * Immutable {@link ModbusRegisterArray} implementation
  *
+ * Register data is stored in a single byte array, high byte of each register first. Slices share the data with the
+ * original array.
+ *
  * @author Sami Salonen - Initial contribution
  */
 @NonNullByDefault
 public class BasicModbusRegisterArray implements ModbusRegisterArray {
 
-    private ModbusRegister[] registers;
+    private final byte[] bytes;
+    private final int byteOffset;
+    private final int size;
 
     /**
      * Construct plain <code>ModbusRegister[]</code> array from register values
@@ -44,7 +49,12 @@ public class BasicModbusRegisterArray implements ModbusRegisterArray {
      * @param registers
      */
     public BasicModbusRegisterArray(ModbusRegister[] registers) {
-        this.registers = registers;
+        this(new byte[registers.length * 2]);
+        for (int i = 0; i < registers.length; i++) {
+            int value = registers[i].toUnsignedShort();
+            bytes[2 * i] = (byte) (value >> 8);
+            bytes[2 * i + 1] = (byte) value;
+        }
     }
 
     /**
@@ -54,25 +64,89 @@ public class BasicModbusRegisterArray implements ModbusRegisterArray {
      * @return
      */
     public BasicModbusRegisterArray(int... registerValues) {
-        this(registersFromValues(registerValues));
+        this(new byte[registerValues.length * 2]);
+        for (int i = 0; i < registerValues.length; i++) {
+            bytes[2 * i] = (byte) (registerValues[i] >> 8);
+            bytes[2 * i + 1] = (byte) registerValues[i];
+        }
+    }
+
+    /**
+     * Construct register array using the given register data, without copying it
+     *
+     * @param bytes register data, high byte of each register first. The data must not be modified afterwards.
+     */
+    public BasicModbusRegisterArray(byte[] bytes) {
+        this(bytes, 0, bytes.length / 2);
+    }
+
+    /**
+     * Construct register array using part of the given register data, without copying it
+     *
+     * @param bytes register data, high byte of each register first. The data must not be modified afterwards.
+     * @param index index of the first register in the data
+     * @param size number of registers
+     * @throws IndexOutOfBoundsException when the registers are out of bounds of the data
+     */
+    public BasicModbusRegisterArray(byte[] bytes, int index, int size) {
+        if (index < 0 || size < 0 || 2 * (index + size) > bytes.length) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "Registers %d..%d out of bounds given data of %d bytes", index, index + size, bytes.length));
+        }
+        this.bytes = bytes;
+        this.byteOffset = 2 * index;
+        this.size = size;
     }
 
     @Override
     public ModbusRegister getRegister(int index) {
-        return registers[index];
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new BasicModbusRegister(bytes[byteOffset + 2 * index], bytes[byteOffset + 2 * index + 1]);
     }
 
     @Override
     public int size() {
-        return registers.length;
+        return size;
+    }
+
+    /**
+     * Get a view to a range of the registers, sharing the data with this array
+     */
+    @Override
+    public ModbusRegisterArray slice(int index, int length) {
+        if (index < 0 || length < 0 || index + length > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new BasicModbusRegisterArray(bytes, byteOffset / 2 + index, length);
+    }
+
+    @Override
+    public void getBytes(byte[] dest, int destOffset) {
+        System.arraycopy(bytes, byteOffset, dest, destOffset, size * 2);
+    }
+
+    /**
+     * Backing data, which must not be modified
+     */
+    byte[] array() {
+        return bytes;
+    }
+
+    /**
+     * Index of the first byte of this array in the backing data
+     */
+    int arrayOffset() {
+        return byteOffset;
     }
 
     @Override
     public String toString() {
-        if (registers.length == 0) {
+        if (size == 0) {
             return "ModbusRegisterArrayImpl(<empty>)";
         }
-        StringBuffer buffer = new StringBuffer(registers.length * 2).append("ModbusRegisterArrayImpl(");
+        StringBuffer buffer = new StringBuffer(size * 2).append("ModbusRegisterArrayImpl(");
         return appendHexString(buffer).append(')').toString();
     }
 
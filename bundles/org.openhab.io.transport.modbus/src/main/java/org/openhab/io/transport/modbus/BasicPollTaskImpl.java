@@ -42,6 +42,7 @@ public class BasicPollTaskImpl implements PollTask {
     private ModbusSlaveEndpoint endpoint;
     private BasicModbusReadRequestBlueprint request;
     private @Nullable ModbusReadCallback callback;
+    private long changeOnlyRefreshMillis;
 
     public BasicPollTaskImpl(ModbusSlaveEndpoint endpoint, BasicModbusReadRequestBlueprint request) {
         this(endpoint, request, null);
@@ -49,9 +50,24 @@ public class BasicPollTaskImpl implements PollTask {
 
     public BasicPollTaskImpl(ModbusSlaveEndpoint endpoint, BasicModbusReadRequestBlueprint request,
             @Nullable ModbusReadCallback callback) {
+        this(endpoint, request, callback, -1);
+    }
+
+    /**
+     * Construct poll task
+     *
+     * @param endpoint endpoint to poll
+     * @param request request to send
+     * @param callback callback for the responses
+     * @param changeOnlyRefreshMillis interval for passing unchanged data to the callback, see
+     *            {@link PollTask#getChangeOnlyRefreshMillis()}
+     */
+    public BasicPollTaskImpl(ModbusSlaveEndpoint endpoint, BasicModbusReadRequestBlueprint request,
+            @Nullable ModbusReadCallback callback, long changeOnlyRefreshMillis) {
         this.endpoint = endpoint;
         this.request = request;
         this.callback = callback;
+        this.changeOnlyRefreshMillis = changeOnlyRefreshMillis;
     }
 
     @Override
@@ -69,15 +85,22 @@ public class BasicPollTaskImpl implements PollTask {
         return callback;
     }
 
+    @Override
+    public long getChangeOnlyRefreshMillis() {
+        return changeOnlyRefreshMillis;
+    }
+
     @Override
     public int hashCode() {
-        return new HashCodeBuilder(69, 5).append(request).append(getEndpoint()).append(getCallback()).toHashCode();
+        return new HashCodeBuilder(69, 5).append(request).append(getEndpoint()).append(getCallback())
+                .append(changeOnlyRefreshMillis).toHashCode();
     }
 
     @Override
     public String toString() {
         return new ToStringBuilder(this, toStringStyle).append("request", request).append("endpoint", endpoint)
-                .append("callback", getCallback()).toString();
+                .append("callback", getCallback()).append("changeOnlyRefreshMillis", changeOnlyRefreshMillis)
+                .toString();
     }
 
     @Override
@@ -93,7 +116,8 @@ public class BasicPollTaskImpl implements PollTask {
         }
         BasicPollTaskImpl rhs = (BasicPollTaskImpl) obj;
         return new EqualsBuilder().append(request, rhs.request).append(endpoint, rhs.endpoint)
-                .append(getCallback(), rhs.getCallback()).isEquals();
+                .append(getCallback(), rhs.getCallback())
+                .append(changeOnlyRefreshMillis, rhs.changeOnlyRefreshMillis).isEquals();
     }
 
 }
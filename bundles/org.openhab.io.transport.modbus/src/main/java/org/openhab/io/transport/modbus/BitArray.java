@@ -46,6 +46,27 @@ public interface BitArray extends Iterable<Boolean> {
      */
     public int size();
 
+    /**
+     * Get a range of the bits
+     *
+     * {@link BasicBitArray} returns a view sharing the data instead of a copy.
+     *
+     * @param index index of the first bit of the range
+     * @param length number of bits in the range
+     * @return bits of the range
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public default BitArray slice(int index, int length) {
+        if (index < 0 || length < 0 || index + length > size()) {
+            throw new IndexOutOfBoundsException();
+        }
+        BasicBitArray slice = new BasicBitArray(length);
+        for (int i = 0; i < length; i++) {
+            slice.setBit(i, getBit(index + i));
+        }
+        return slice;
+    }
+
     @Override
     public default Iterator<Boolean> iterator() {
         return IntStream.range(0, size()).mapToObj(i -> getBit(i)).iterator();
@@ -13,9 +13,6 @@
 package org.openhab.io.transport.modbus;
 
 import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.Optional;
 
@@ -101,117 +98,267 @@ public class ModbusBitUtilities {
      */
     public static Optional<DecimalType> extractStateFromRegisters(ModbusRegisterArray registers, int index,
             ModbusConstants.ValueType type) {
-        int endBitIndex = (type.getBits() >= 16 ? 16 * index : type.getBits() * index) + type.getBits() - 1;
-        // each register has 16 bits
-        int lastValidIndex = registers.size() * 16 - 1;
-        if (endBitIndex > lastValidIndex || index < 0) {
-            throw new IllegalArgumentException(
-                    String.format("Index=%d with type=%s is out-of-bounds given registers of size %d", index, type,
-                            registers.size()));
+        return rawValueToState(extractRawValue(registers, index, type), type);
+    }
+
+    /**
+     * Read data from registers without converting it to {@link DecimalType}
+     *
+     * Interpretation of <tt>index</tt> and <tt>type</tt> is the same as with
+     * {@link #extractStateFromRegisters(ModbusRegisterArray, int, ModbusConstants.ValueType)}. Same raw value
+     * always converts to the same state, allowing callers to skip the conversion when the raw value has not changed.
+     *
+     * @param registers list of registers, each register represent 16bit of data
+     * @param index zero based item index
+     * @param type item type
+     * @return raw value. Signed types are sign extended, and unsigned types (except UINT64) are zero extended. UINT64
+     *         values are returned as the signed long with the same 64 bits. Floating point values are returned as the
+     *         bits of the float, see {@link Float#floatToRawIntBits(float)}.
+     * @throws IllegalArgumentException when <tt>index</tt> is out of bounds of registers
+     */
+    public static long extractRawValue(ModbusRegisterArray registers, int index, ModbusConstants.ValueType type) {
+        if (registers instanceof BasicModbusRegisterArray) {
+            // read directly from the backing data
+            BasicModbusRegisterArray flat = (BasicModbusRegisterArray) registers;
+            return extractRawValue(flat.array(), flat.arrayOffset(), flat.size(), index, type);
         }
+        checkBounds(registers.size(), index, type);
         switch (type) {
             case BIT:
-                return Optional
-                        .of(new DecimalType((registers.getRegister(index / 16).toUnsignedShort() >> (index % 16)) & 1));
+                return (registers.getRegister(index / 16).toUnsignedShort() >> (index % 16)) & 1;
             case INT8:
-                return Optional.of(new DecimalType(registers.getRegister(index / 2).getBytes()[1 - (index % 2)]));
+                return (byte) (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2)));
             case UINT8:
-                return Optional.of(new DecimalType(
-                        (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2))) & 0xff));
-            case INT16: {
-                ByteBuffer buff = ByteBuffer.allocate(2);
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getShort(0)));
-            }
+                return (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2))) & 0xff;
+            case INT16:
+                return (short) registers.getRegister(index).toUnsignedShort();
             case UINT16:
-                return Optional.of(new DecimalType(registers.getRegister(index).toUnsignedShort()));
-            case INT32: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0)));
-            }
-            case UINT32: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.position(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case FLOAT32: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                try {
-                    return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0)));
-                } catch (NumberFormatException e) {
-                    // floating point NaN or infinity encountered
-                    return Optional.empty();
-                }
-            }
-            case INT64: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 3).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case UINT64: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 3).getBytes());
-                return Optional.of(
-                        new DecimalType(new BigDecimal(new BigInteger(1, buff.order(ByteOrder.BIG_ENDIAN).array()))));
-            }
-            case INT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0)));
-            }
-            case UINT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.position(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
+                return registers.getRegister(index).toUnsignedShort();
+            case INT32:
+            case FLOAT32:
+                return (int) words(registers, index, 2, false);
+            case INT32_SWAP:
+            case FLOAT32_SWAP:
+                return (int) words(registers, index, 2, true);
+            case UINT32:
+                return words(registers, index, 2, false);
+            case UINT32_SWAP:
+                return words(registers, index, 2, true);
+            case INT64:
+            case UINT64:
+                return words(registers, index, 4, false);
+            case INT64_SWAP:
+            case UINT64_SWAP:
+                return words(registers, index, 4, true);
+            default:
+                throw new IllegalArgumentException(type.getConfigValue());
+        }
+    }
+
+    /**
+     * Read data from raw register data without converting it to {@link DecimalType}
+     *
+     * Same as {@link #extractRawValue(ModbusRegisterArray, int, ModbusConstants.ValueType)} but reading directly from
+     * the bytes of the registers, high byte of each register first, as they are transferred on the wire.
+     *
+     * @param bytes register data, two bytes per register
+     * @param index zero based item index
+     * @param type item type
+     * @return raw value
+     * @throws IllegalArgumentException when <tt>index</tt> is out of bounds of the data
+     */
+    public static long extractRawValue(byte[] bytes, int index, ModbusConstants.ValueType type) {
+        return extractRawValue(bytes, 0, bytes.length / 2, index, type);
+    }
+
+    private static long extractRawValue(byte[] bytes, int byteOffset, int registerCount, int index,
+            ModbusConstants.ValueType type) {
+        checkBounds(registerCount, index, type);
+        switch (type) {
+            case BIT:
+                return extractBit(bytes, byteOffset + 2 * (index / 16), index % 16);
+            case INT8:
+                return bytes[byteOffset + 2 * (index / 2) + 1 - (index % 2)];
+            case UINT8:
+                return bytes[byteOffset + 2 * (index / 2) + 1 - (index % 2)] & 0xff;
+            case INT16:
+                return extractSInt16(bytes, byteOffset + 2 * index);
+            case UINT16:
+                return extractUInt16(bytes, byteOffset + 2 * index);
+            case INT32:
+            case FLOAT32:
+                return extractSInt32(bytes, byteOffset + 2 * index, false);
+            case INT32_SWAP:
+            case FLOAT32_SWAP:
+                return extractSInt32(bytes, byteOffset + 2 * index, true);
+            case UINT32:
+                return extractUInt32(bytes, byteOffset + 2 * index, false);
+            case UINT32_SWAP:
+                return extractUInt32(bytes, byteOffset + 2 * index, true);
+            case INT64:
+            case UINT64:
+                return extractSInt64(bytes, byteOffset + 2 * index, false);
+            case INT64_SWAP:
+            case UINT64_SWAP:
+                return extractSInt64(bytes, byteOffset + 2 * index, true);
+            default:
+                throw new IllegalArgumentException(type.getConfigValue());
+        }
+    }
+
+    /**
+     * Convert raw value to DecimalType
+     *
+     * @param rawValue raw value as returned by
+     *            {@link #extractRawValue(ModbusRegisterArray, int, ModbusConstants.ValueType)}
+     * @param type item type
+     * @return number representation of the value. Empty optional is returned with NaN and infinity floating point
+     *         values
+     */
+    public static Optional<DecimalType> rawValueToState(long rawValue, ModbusConstants.ValueType type) {
+        switch (type) {
+            case FLOAT32:
             case FLOAT32_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(4);
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                try {
-                    return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0)));
-                } catch (NumberFormatException e) {
-                    // floating point NaN or infinity encountered
+                float value = Float.intBitsToFloat((int) rawValue);
+                if (Float.isNaN(value) || Float.isInfinite(value)) {
                     return Optional.empty();
                 }
+                return Optional.of(new DecimalType(value));
             }
-            case INT64_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index + 3).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0)));
-            }
-            case UINT64_SWAP: {
-                ByteBuffer buff = ByteBuffer.allocate(8);
-                buff.put(registers.getRegister(index + 3).getBytes());
-                buff.put(registers.getRegister(index + 2).getBytes());
-                buff.put(registers.getRegister(index + 1).getBytes());
-                buff.put(registers.getRegister(index).getBytes());
-                return Optional.of(
-                        new DecimalType(new BigDecimal(new BigInteger(1, buff.order(ByteOrder.BIG_ENDIAN).array()))));
-            }
+            case UINT64:
+            case UINT64_SWAP:
+                if (rawValue < 0) {
+                    // out of range of signed long
+                    return Optional.of(new DecimalType(new BigDecimal(Long.toUnsignedString(rawValue))));
+                }
+                return Optional.of(new DecimalType(rawValue));
             default:
-                throw new IllegalArgumentException(type.getConfigValue());
+                return Optional.of(new DecimalType(rawValue));
+        }
+    }
+
+    /**
+     * Read a single bit of a register
+     *
+     * @param bytes register data, high byte of each register first
+     * @param byteIndex index of the first byte of the register
+     * @param bitIndex index of the bit, 0 being the least significant bit of the register
+     * @return value of the bit, 0 or 1
+     */
+    public static int extractBit(byte[] bytes, int byteIndex, int bitIndex) {
+        return (extractUInt16(bytes, byteIndex) >> bitIndex) & 1;
+    }
+
+    /**
+     * Read register as signed 16 bit integer
+     *
+     * @param bytes register data, high byte of each register first
+     * @param byteIndex index of the first byte of the register
+     * @return value of the register
+     */
+    public static short extractSInt16(byte[] bytes, int byteIndex) {
+        return (short) extractUInt16(bytes, byteIndex);
+    }
+
+    /**
+     * Read register as unsigned 16 bit integer
+     *
+     * @param bytes register data, high byte of each register first
+     * @param byteIndex index of the first byte of the register
+     * @return value of the register
+     */
+    public static int extractUInt16(byte[] bytes, int byteIndex) {
+        return ((bytes[byteIndex] & 0xff) << 8) | (bytes[byteIndex + 1] & 0xff);
+    }
+
+    /**
+     * Read two registers as signed 32 bit integer
+     *
+     * @param bytes register data, high byte of each register first
+     * @param byteIndex index of the first byte of the first register
+     * @param swapWords false when the first register contains the most significant 16 bits, true when the registers
+     *            are swapped
+     * @return value of the registers
+     */
+    public static int extractSInt32(byte[] bytes, int byteIndex, boolean swapWords) {
+        return (int) words(bytes, byteIndex, 2, swapWords);
+    }
+
+    /**
+     * Read two registers as unsigned 32 bit integer
+     *
+     * @param bytes register data, high byte of each register first
+     * @param byteIndex index of the first byte of the first register
+     * @param swapWords false when the first register contains the most significant 16 bits, true when the registers
+     *            are swapped
+     * @return value of the registers
+     */
+    public static long extractUInt32(byte[] bytes, int byteIndex, boolean swapWords) {
+        return words(bytes, byteIndex, 2, swapWords);
+    }
+
+    /**
+     * Read two registers as 32 bit floating point number
+     *
+     * @param bytes register data, high byte of each register first
+     * @param byteIndex index of the first byte of the first register
+     * @param swapWords false when the first register contains the most significant 16 bits, true when the registers
+     *            are swapped
+     * @return value of the registers, possibly NaN or infinity
+     */
+    public static float extractFloat32(byte[] bytes, int byteIndex, boolean swapWords) {
+        return Float.intBitsToFloat(extractSInt32(bytes, byteIndex, swapWords));
+    }
+
+    /**
+     * Read four registers as signed 64 bit integer
+     *
+     * Unsigned 64 bit integers are read with the same method, and interpreted with the unsigned methods of
+     * {@link Long}, e.g. {@link Long#toUnsignedString(long)}.
+     *
+     * @param bytes register data, high byte of each register first
+     * @param byteIndex index of the first byte of the first register
+     * @param swapWords false when the first register contains the most significant 16 bits, true when the order of
+     *            the registers is reversed
+     * @return value of the registers
+     */
+    public static long extractSInt64(byte[] bytes, int byteIndex, boolean swapWords) {
+        return words(bytes, byteIndex, 4, swapWords);
+    }
+
+    private static void checkBounds(int registerCount, int index, ModbusConstants.ValueType type) {
+        int endBitIndex = (type.getBits() >= 16 ? 16 * index : type.getBits() * index) + type.getBits() - 1;
+        // each register has 16 bits
+        int lastValidIndex = registerCount * 16 - 1;
+        if (endBitIndex > lastValidIndex || index < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Index=%d with type=%s is out-of-bounds given registers of size %d", index, type,
+                            registerCount));
         }
     }
 
+    /**
+     * Combine consecutive registers, most significant register first unless reversed
+     */
+    private static long words(ModbusRegisterArray registers, int index, int count, boolean reverse) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = (value << 16) | registers.getRegister(index + (reverse ? count - 1 - i : i)).toUnsignedShort();
+        }
+        return value;
+    }
+
+    /**
+     * Combine consecutive registers, most significant register first unless reversed
+     */
+    private static long words(byte[] bytes, int byteIndex, int count, boolean reverse) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = (value << 16) | extractUInt16(bytes, byteIndex + 2 * (reverse ? count - 1 - i : i));
+        }
+        return value;
+    }
+
     /**
      * Read data from registers and convert the result to StringType
      * Strings should start the the first byte of a register, but could
@@ -289,101 +436,46 @@ public class ModbusBitUtilities {
         }
         switch (type) {
             case INT16:
-            case UINT16: {
-                short shortValue = numericCommand.shortValue();
-                // big endian byte ordering
-                byte b1 = (byte) (shortValue >> 8);
-                byte b2 = (byte) shortValue;
-
-                ModbusRegister register = new BasicModbusRegister(b1, b2);
-                return new BasicModbusRegisterArray(new ModbusRegister[] { register });
-            }
+            case UINT16:
+                return new BasicModbusRegisterArray(numericCommand.shortValue());
             case INT32:
-            case UINT32: {
-                int intValue = numericCommand.intValue();
-                // big endian byte ordering
-                byte b1 = (byte) (intValue >> 24);
-                byte b2 = (byte) (intValue >> 16);
-                byte b3 = (byte) (intValue >> 8);
-                byte b4 = (byte) intValue;
-                ModbusRegister register = new BasicModbusRegister(b1, b2);
-                ModbusRegister register2 = new BasicModbusRegister(b3, b4);
-                return new BasicModbusRegisterArray(new ModbusRegister[] { register, register2 });
-            }
+            case UINT32:
+                return intToRegisters(numericCommand.intValue(), false);
             case INT32_SWAP:
-            case UINT32_SWAP: {
-                int intValue = numericCommand.intValue();
-                // big endian byte ordering
-                byte b1 = (byte) (intValue >> 24);
-                byte b2 = (byte) (intValue >> 16);
-                byte b3 = (byte) (intValue >> 8);
-                byte b4 = (byte) intValue;
-                ModbusRegister register = new BasicModbusRegister(b3, b4);
-                ModbusRegister register2 = new BasicModbusRegister(b1, b2);
-                return new BasicModbusRegisterArray(new ModbusRegister[] { register, register2 });
-            }
-            case FLOAT32: {
-                float floatValue = numericCommand.floatValue();
-                int intBits = Float.floatToIntBits(floatValue);
-                // big endian byte ordering
-                byte b1 = (byte) (intBits >> 24);
-                byte b2 = (byte) (intBits >> 16);
-                byte b3 = (byte) (intBits >> 8);
-                byte b4 = (byte) intBits;
-                ModbusRegister register = new BasicModbusRegister(b1, b2);
-                ModbusRegister register2 = new BasicModbusRegister(b3, b4);
-                return new BasicModbusRegisterArray(new ModbusRegister[] { register, register2 });
-            }
-            case FLOAT32_SWAP: {
-                float floatValue = numericCommand.floatValue();
-                int intBits = Float.floatToIntBits(floatValue);
-                // big endian byte ordering
-                byte b1 = (byte) (intBits >> 24);
-                byte b2 = (byte) (intBits >> 16);
-                byte b3 = (byte) (intBits >> 8);
-                byte b4 = (byte) intBits;
-                ModbusRegister register = new BasicModbusRegister(b3, b4);
-                ModbusRegister register2 = new BasicModbusRegister(b1, b2);
-                return new BasicModbusRegisterArray(new ModbusRegister[] { register, register2 });
-            }
+            case UINT32_SWAP:
+                return intToRegisters(numericCommand.intValue(), true);
+            case FLOAT32:
+                return intToRegisters(Float.floatToIntBits(numericCommand.floatValue()), false);
+            case FLOAT32_SWAP:
+                return intToRegisters(Float.floatToIntBits(numericCommand.floatValue()), true);
             case INT64:
-            case UINT64: {
-                long longValue = numericCommand.longValue();
-                // big endian byte ordering
-                byte b1 = (byte) (longValue >> 56);
-                byte b2 = (byte) (longValue >> 48);
-                byte b3 = (byte) (longValue >> 40);
-                byte b4 = (byte) (longValue >> 32);
-                byte b5 = (byte) (longValue >> 24);
-                byte b6 = (byte) (longValue >> 16);
-                byte b7 = (byte) (longValue >> 8);
-                byte b8 = (byte) longValue;
-                return new BasicModbusRegisterArray(
-                        new ModbusRegister[] { new BasicModbusRegister(b1, b2), new BasicModbusRegister(b3, b4),
-                                new BasicModbusRegister(b5, b6), new BasicModbusRegister(b7, b8) });
-            }
+            case UINT64:
+                return longToRegisters(numericCommand.longValue(), false);
             case INT64_SWAP:
-            case UINT64_SWAP: {
-                long longValue = numericCommand.longValue();
-                // big endian byte ordering
-                byte b1 = (byte) (longValue >> 56);
-                byte b2 = (byte) (longValue >> 48);
-                byte b3 = (byte) (longValue >> 40);
-                byte b4 = (byte) (longValue >> 32);
-                byte b5 = (byte) (longValue >> 24);
-                byte b6 = (byte) (longValue >> 16);
-                byte b7 = (byte) (longValue >> 8);
-                byte b8 = (byte) longValue;
-                return new BasicModbusRegisterArray(
-                        new ModbusRegister[] { new BasicModbusRegister(b7, b8), new BasicModbusRegister(b5, b6),
-                                new BasicModbusRegister(b3, b4), new BasicModbusRegister(b1, b2) });
-            }
+            case UINT64_SWAP:
+                return longToRegisters(numericCommand.longValue(), true);
             default:
                 throw new NotImplementedException(
                         String.format("Illegal type=%s. Missing implementation for this type", type));
         }
     }
 
+    private static ModbusRegisterArray intToRegisters(int value, boolean swapWords) {
+        // big endian byte ordering within each register
+        int high = value >>> 16;
+        int low = value & 0xffff;
+        return swapWords ? new BasicModbusRegisterArray(low, high) : new BasicModbusRegisterArray(high, low);
+    }
+
+    private static ModbusRegisterArray longToRegisters(long value, boolean swapWords) {
+        // big endian byte ordering within each register
+        int w1 = (int) (value >>> 48) & 0xffff;
+        int w2 = (int) (value >>> 32) & 0xffff;
+        int w3 = (int) (value >>> 16) & 0xffff;
+        int w4 = (int) value & 0xffff;
+        return swapWords ? new BasicModbusRegisterArray(w4, w3, w2, w1) : new BasicModbusRegisterArray(w1, w2, w3, w4);
+    }
+
     /**
      * Converts command to a boolean
      *
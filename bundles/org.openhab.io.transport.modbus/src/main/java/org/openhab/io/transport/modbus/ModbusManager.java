@@ -41,8 +41,14 @@ public interface ModbusManager {
      * Register regularly polled task. The method returns immediately, and the execution of the poll task will happen in
      * the background.
      *
+     * With polls coalescing enabled, the task is executed together with the other tasks of the same endpoint
+     * registered with the same period and initial delay. If such a group is already running, the task is first
+     * executed with the next run of the group rather than after its own initial delay. Tasks registered with
+     * different initial delays are never coalesced, so staggering polls with the initial delay keeps working.
+     *
      * @param task
-     * @return
+     * @param pollPeriodMillis poll period in milliseconds
+     * @param initialDelayMillis delay of the first poll in milliseconds
      */
     public void registerRegularPoll(PollTask task, long pollPeriodMillis, long initialDelayMillis);
 
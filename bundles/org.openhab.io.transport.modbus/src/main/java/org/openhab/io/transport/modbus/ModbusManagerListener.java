@@ -15,6 +15,7 @@ package org.openhab.io.transport.modbus;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.EndpointQueueStatistics;
 import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
 
 /**
@@ -34,4 +35,15 @@ public interface ModbusManagerListener {
     public void onEndpointPoolConfigurationSet(ModbusSlaveEndpoint endpoint,
             @Nullable EndpointPoolConfiguration configuration);
 
+    /**
+     * Called when a task of the endpoint gets its turn to execute, or is dropped as stale
+     *
+     * Called in the thread executing the task, and should therefore return quickly.
+     *
+     * @param endpoint endpoint of the task
+     * @param statistics queue statistics of the endpoint
+     */
+    public default void onEndpointQueueStatistics(ModbusSlaveEndpoint endpoint, EndpointQueueStatistics statistics) {
+    }
+
 }
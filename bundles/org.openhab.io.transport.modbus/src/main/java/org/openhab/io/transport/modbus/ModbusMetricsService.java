@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus;
+
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.endpoint.EndpointMetrics;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+
+/**
+ * Service for querying timing and error metrics of the endpoints
+ *
+ * Metrics allow finding the slaves slowing down a shared bus, without enabling trace logging.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@NonNullByDefault
+public interface ModbusMetricsService {
+
+    /**
+     * Get metrics of all endpoints with operations since the last reset
+     *
+     * @return metrics of each endpoint
+     */
+    public Map<ModbusSlaveEndpoint, EndpointMetrics> getEndpointMetrics();
+
+    /**
+     * Get metrics of a single endpoint
+     *
+     * @param endpoint endpoint to query
+     * @return metrics of the endpoint, or null if there has been no operations with the endpoint since the last reset
+     */
+    public @Nullable EndpointMetrics getEndpointMetrics(ModbusSlaveEndpoint endpoint);
+
+    /**
+     * Reset metrics of all endpoints
+     */
+    public void resetMetrics();
+}
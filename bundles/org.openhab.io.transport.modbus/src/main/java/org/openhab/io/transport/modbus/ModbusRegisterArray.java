@@ -42,6 +42,51 @@ public interface ModbusRegisterArray extends Iterable<ModbusRegister> {
      */
     int size();
 
+    /**
+     * Get a range of the registers
+     *
+     * Implementations backed by a single array, like {@link BasicModbusRegisterArray}, return a view sharing the
+     * data instead of a copy.
+     *
+     * @param index index of the first register of the range
+     * @param length number of registers in the range
+     * @return registers of the range
+     * @throws IndexOutOfBoundsException if the range is out of bounds.
+     */
+    default ModbusRegisterArray slice(int index, int length) {
+        if (index < 0 || length < 0 || index + length > size()) {
+            throw new IndexOutOfBoundsException();
+        }
+        byte[] bytes = new byte[length * 2];
+        for (int i = 0; i < length; i++) {
+            int value = getRegister(index + i).toUnsignedShort();
+            bytes[2 * i] = (byte) (value >> 8);
+            bytes[2 * i + 1] = (byte) value;
+        }
+        return new BasicModbusRegisterArray(bytes);
+    }
+
+    /**
+     * Copy the data of all registers, high byte of each register first
+     *
+     * Implementations backed by a single array, like {@link BasicModbusRegisterArray}, copy the data in bulk without
+     * creating {@link ModbusRegister} instances.
+     *
+     * @param dest array to copy the data to, two bytes per register
+     * @param destOffset index in the array to copy the first byte to
+     * @throws IndexOutOfBoundsException if the data does not fit into the array
+     */
+    default void getBytes(byte[] dest, int destOffset) {
+        if (destOffset < 0 || destOffset + size() * 2 > dest.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (int i = 0; i < size(); i++) {
+            int value = getRegister(i).toUnsignedShort();
+            dest[destOffset + 2 * i] = (byte) (value >> 8);
+            dest[destOffset + 2 * i + 1] = (byte) value;
+        }
+    }
+
     /**
      * Iterator over all the registers
      */
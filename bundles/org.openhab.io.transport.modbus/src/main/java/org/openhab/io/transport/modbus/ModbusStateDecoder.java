@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus;
+
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+
+/**
+ * Decodes the same value from each poll response
+ *
+ * New {@link DecimalType} is created only when the raw value changes, the previous state is returned otherwise.
+ *
+ * Instances are not thread-safe. Use one instance per polled value, e.g. per channel.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusStateDecoder {
+
+    private final int index;
+    private final ModbusConstants.ValueType type;
+    private long lastRawValue;
+    private Optional<DecimalType> lastState = Optional.empty();
+    private boolean decoded;
+
+    /**
+     * Construct decoder
+     *
+     * @param index zero based item index, see
+     *            {@link ModbusBitUtilities#extractStateFromRegisters}
+     * @param type item type
+     */
+    public ModbusStateDecoder(int index, ModbusConstants.ValueType type) {
+        this.index = index;
+        this.type = type;
+    }
+
+    /**
+     * Decode value from registers
+     *
+     * @param registers registers of the poll response
+     * @return number representation of the value. Empty optional is returned with NaN and infinity floating point
+     *         values
+     * @throws IllegalArgumentException when index is out of bounds of registers
+     */
+    public Optional<DecimalType> decode(ModbusRegisterArray registers) {
+        return update(ModbusBitUtilities.extractRawValue(registers, index, type));
+    }
+
+    /**
+     * Decode value from raw register data
+     *
+     * @param bytes register data, high byte of each register first
+     * @return number representation of the value. Empty optional is returned with NaN and infinity floating point
+     *         values
+     * @throws IllegalArgumentException when index is out of bounds of the data
+     */
+    public Optional<DecimalType> decode(byte[] bytes) {
+        return update(ModbusBitUtilities.extractRawValue(bytes, index, type));
+    }
+
+    private Optional<DecimalType> update(long rawValue) {
+        if (!decoded || rawValue != lastRawValue) {
+            lastState = ModbusBitUtilities.rawValueToState(rawValue, type);
+            lastRawValue = rawValue;
+            decoded = true;
+        }
+        return lastState;
+    }
+}
@@ -30,4 +30,19 @@ public interface PollTask extends TaskWithEndpoint<ModbusReadRequestBlueprint, M
     default int getMaxTries() {
         return getRequest().getMaxTries();
     }
+
+    /**
+     * Get the interval for passing unchanged data to the callback of a regular poll
+     *
+     * With a non-negative interval, the manager keeps the data last passed to the callback, and calls
+     * {@link ModbusReadCallback#onRegisters} or {@link ModbusReadCallback#onBits} only when the polled data has
+     * changed, or when the interval has passed since the last call. Errors are always passed to the callback, and the
+     * data following an error is passed even if unchanged. One-time polls are not affected.
+     *
+     * @return interval in milliseconds, 0 to pass data only when changed, or negative to pass the data of every
+     *         response (default)
+     */
+    default long getChangeOnlyRefreshMillis() {
+        return -1;
+    }
 }
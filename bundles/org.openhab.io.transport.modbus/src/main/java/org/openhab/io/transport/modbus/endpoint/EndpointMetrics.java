@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.endpoint;
+
+import org.apache.commons.lang.builder.StandardToStringStyle;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Snapshot of the metrics of a single endpoint
+ *
+ * Durations and counters accumulate since the first operation with the endpoint, or since the metrics were reset.
+ * Connection counts reflect the state of the connection pool at the time of the snapshot.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class EndpointMetrics {
+
+    private static StandardToStringStyle toStringStyle = new StandardToStringStyle();
+
+    static {
+        toStringStyle.setUseShortClassName(true);
+    }
+
+    private final TimingHistogram borrowWait;
+    private final TimingHistogram connect;
+    private final TimingHistogram transaction;
+    private final TimingHistogram callback;
+    private final long operations;
+    private final long retries;
+    private final long failures;
+    private final long timeouts;
+    private final long transactionIdMismatches;
+    private final long connectFailures;
+    private final long disconnects;
+    private final int idleConnections;
+    private final int activeConnections;
+
+    public EndpointMetrics(TimingHistogram borrowWait, TimingHistogram connect, TimingHistogram transaction,
+            TimingHistogram callback, long operations, long retries, long failures, long timeouts,
+            long transactionIdMismatches, long connectFailures, long disconnects, int idleConnections,
+            int activeConnections) {
+        this.borrowWait = borrowWait;
+        this.connect = connect;
+        this.transaction = transaction;
+        this.callback = callback;
+        this.operations = operations;
+        this.retries = retries;
+        this.failures = failures;
+        this.timeouts = timeouts;
+        this.transactionIdMismatches = transactionIdMismatches;
+        this.connectFailures = connectFailures;
+        this.disconnects = disconnects;
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+    }
+
+    /**
+     * Get time waited for a connection, including the time to connect
+     */
+    public TimingHistogram getBorrowWait() {
+        return borrowWait;
+    }
+
+    /**
+     * Get time to establish connections
+     */
+    public TimingHistogram getConnect() {
+        return connect;
+    }
+
+    /**
+     * Get time of the transactions with the slave, from sending the request until the response is received
+     */
+    public TimingHistogram getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Get time spent in the callbacks
+     */
+    public TimingHistogram getCallback() {
+        return callback;
+    }
+
+    /**
+     * Get number of executed reads and writes
+     */
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * Get number of retried transactions
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * Get number of operations that failed after all tries
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Get number of transactions that timed out
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Get number of responses with a transaction id not matching the request
+     */
+    public long getTransactionIdMismatches() {
+        return transactionIdMismatches;
+    }
+
+    /**
+     * Get number of connections established. Together with {@link #getDisconnects()}, this tells the connection
+     * churn.
+     */
+    public long getConnects() {
+        return connect.getCount();
+    }
+
+    /**
+     * Get number of failed connection attempts, after all connect tries
+     */
+    public long getConnectFailures() {
+        return connectFailures;
+    }
+
+    /**
+     * Get number of connections closed, either due to errors or due to the reconnectAfterMillis limit
+     */
+    public long getDisconnects() {
+        return disconnects;
+    }
+
+    /**
+     * Get number of idle connections in the pool
+     */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * Get number of connections borrowed from the pool
+     */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, toStringStyle).append("operations", operations).append("retries", retries)
+                .append("failures", failures).append("timeouts", timeouts)
+                .append("transactionIdMismatches", transactionIdMismatches).append("connectFailures", connectFailures)
+                .append("disconnects", disconnects).append("idleConnections", idleConnections)
+                .append("activeConnections", activeConnections).append("borrowWait", borrowWait)
+                .append("connect", connect).append("transaction", transaction).append("callback", callback)
+                .toString();
+    }
+}
@@ -61,6 +61,48 @@ public class EndpointPoolConfiguration {
      */
     private int connectTimeoutMillis;
 
+    /**
+     * How many transactions can be in flight on the same connection at the same time. Responses are matched to the
+     * requests using the transaction id. Only supported with TCP endpoints. Default of 1 means that transactions are
+     * executed one at a time.
+     */
+    private int maxInFlightTransactions = 1;
+
+    /**
+     * How often the idle connection is checked in the background, in milliseconds. Disconnected connections are
+     * connected, and connections about to exceed reconnectAfterMillis are replaced, so that transactions do not need
+     * to wait for connecting. Only applies to endpoints with regular polls, and when connections are kept open
+     * between transactions, i.e. reconnectAfterMillis is not 0. Default of 0 disables the keep-alive.
+     */
+    private long keepAliveIntervalMillis;
+
+    /**
+     * Whether the inter-transaction delay and response timeout are adapted to the observed response latency and error
+     * rate, within the bounds below. The inter-transaction delay configured above is used as the initial delay.
+     */
+    private boolean adaptiveTiming;
+
+    /**
+     * Lower bound of the adaptive inter-transaction delay. In milliseconds.
+     */
+    private long minInterTransactionDelayMillis;
+
+    /**
+     * Upper bound of the adaptive inter-transaction delay. In milliseconds.
+     */
+    private long maxInterTransactionDelayMillis = 1000;
+
+    /**
+     * Lower bound of the adaptive response timeout. In milliseconds.
+     */
+    private int minResponseTimeoutMillis = 100;
+
+    /**
+     * Upper bound of the adaptive response timeout. In milliseconds. Default equals the fixed response timeout used
+     * when adaptive timing is disabled.
+     */
+    private int maxResponseTimeoutMillis = 3000;
+
     private static StandardToStringStyle toStringStyle = new StandardToStringStyle();
 
     static {
@@ -107,10 +149,69 @@ public class EndpointPoolConfiguration {
         this.connectTimeoutMillis = connectTimeoutMillis;
     }
 
+    public int getMaxInFlightTransactions() {
+        return maxInFlightTransactions;
+    }
+
+    public void setMaxInFlightTransactions(int maxInFlightTransactions) {
+        this.maxInFlightTransactions = maxInFlightTransactions;
+    }
+
+    public long getKeepAliveIntervalMillis() {
+        return keepAliveIntervalMillis;
+    }
+
+    public void setKeepAliveIntervalMillis(long keepAliveIntervalMillis) {
+        this.keepAliveIntervalMillis = keepAliveIntervalMillis;
+    }
+
+    public boolean isAdaptiveTiming() {
+        return adaptiveTiming;
+    }
+
+    public void setAdaptiveTiming(boolean adaptiveTiming) {
+        this.adaptiveTiming = adaptiveTiming;
+    }
+
+    public long getMinInterTransactionDelayMillis() {
+        return minInterTransactionDelayMillis;
+    }
+
+    public void setMinInterTransactionDelayMillis(long minInterTransactionDelayMillis) {
+        this.minInterTransactionDelayMillis = minInterTransactionDelayMillis;
+    }
+
+    public long getMaxInterTransactionDelayMillis() {
+        return maxInterTransactionDelayMillis;
+    }
+
+    public void setMaxInterTransactionDelayMillis(long maxInterTransactionDelayMillis) {
+        this.maxInterTransactionDelayMillis = maxInterTransactionDelayMillis;
+    }
+
+    public int getMinResponseTimeoutMillis() {
+        return minResponseTimeoutMillis;
+    }
+
+    public void setMinResponseTimeoutMillis(int minResponseTimeoutMillis) {
+        this.minResponseTimeoutMillis = minResponseTimeoutMillis;
+    }
+
+    public int getMaxResponseTimeoutMillis() {
+        return maxResponseTimeoutMillis;
+    }
+
+    public void setMaxResponseTimeoutMillis(int maxResponseTimeoutMillis) {
+        this.maxResponseTimeoutMillis = maxResponseTimeoutMillis;
+    }
+
     @Override
     public int hashCode() {
         return new HashCodeBuilder(2149, 3117).append(interTransactionDelayMillis).append(interConnectDelayMillis)
-                .append(connectMaxTries).append(reconnectAfterMillis).append(connectTimeoutMillis).toHashCode();
+                .append(connectMaxTries).append(reconnectAfterMillis).append(connectTimeoutMillis)
+                .append(maxInFlightTransactions).append(keepAliveIntervalMillis).append(adaptiveTiming)
+                .append(minInterTransactionDelayMillis).append(maxInterTransactionDelayMillis)
+                .append(minResponseTimeoutMillis).append(maxResponseTimeoutMillis).toHashCode();
     }
 
     @Override
@@ -119,7 +220,13 @@ public class EndpointPoolConfiguration {
                 .append("interTransactionDelayMillis", interTransactionDelayMillis)
                 .append("interConnectDelayMillis", interConnectDelayMillis).append("connectMaxTries", connectMaxTries)
                 .append("reconnectAfterMillis", reconnectAfterMillis)
-                .append("connectTimeoutMillis", connectTimeoutMillis).toString();
+                .append("connectTimeoutMillis", connectTimeoutMillis)
+                .append("maxInFlightTransactions", maxInFlightTransactions)
+                .append("keepAliveIntervalMillis", keepAliveIntervalMillis).append("adaptiveTiming", adaptiveTiming)
+                .append("minInterTransactionDelayMillis", minInterTransactionDelayMillis)
+                .append("maxInterTransactionDelayMillis", maxInterTransactionDelayMillis)
+                .append("minResponseTimeoutMillis", minResponseTimeoutMillis)
+                .append("maxResponseTimeoutMillis", maxResponseTimeoutMillis).toString();
     }
 
     @Override
@@ -137,7 +244,14 @@ public class EndpointPoolConfiguration {
         return new EqualsBuilder().append(interTransactionDelayMillis, rhs.interTransactionDelayMillis)
                 .append(interConnectDelayMillis, rhs.interConnectDelayMillis)
                 .append(connectMaxTries, rhs.connectMaxTries).append(reconnectAfterMillis, rhs.reconnectAfterMillis)
-                .append(connectTimeoutMillis, rhs.connectTimeoutMillis).isEquals();
+                .append(connectTimeoutMillis, rhs.connectTimeoutMillis)
+                .append(maxInFlightTransactions, rhs.maxInFlightTransactions)
+                .append(keepAliveIntervalMillis, rhs.keepAliveIntervalMillis)
+                .append(adaptiveTiming, rhs.adaptiveTiming)
+                .append(minInterTransactionDelayMillis, rhs.minInterTransactionDelayMillis)
+                .append(maxInterTransactionDelayMillis, rhs.maxInterTransactionDelayMillis)
+                .append(minResponseTimeoutMillis, rhs.minResponseTimeoutMillis)
+                .append(maxResponseTimeoutMillis, rhs.maxResponseTimeoutMillis).isEquals();
     }
 
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.endpoint;
+
+import org.apache.commons.lang.builder.StandardToStringStyle;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Snapshot of the task queue of a single endpoint
+ *
+ * Writes and one-off polls are queued with high priority, and they are executed before regular polls.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class EndpointQueueStatistics {
+
+    private static StandardToStringStyle toStringStyle = new StandardToStringStyle();
+
+    static {
+        toStringStyle.setUseShortClassName(true);
+    }
+
+    private final int highPriorityQueueDepth;
+    private final int lowPriorityQueueDepth;
+    private final long waitTimeMillis;
+    private final long droppedPolls;
+
+    public EndpointQueueStatistics(int highPriorityQueueDepth, int lowPriorityQueueDepth, long waitTimeMillis,
+            long droppedPolls) {
+        this.highPriorityQueueDepth = highPriorityQueueDepth;
+        this.lowPriorityQueueDepth = lowPriorityQueueDepth;
+        this.waitTimeMillis = waitTimeMillis;
+        this.droppedPolls = droppedPolls;
+    }
+
+    /**
+     * Get number of writes and one-off polls waiting for their turn
+     */
+    public int getHighPriorityQueueDepth() {
+        return highPriorityQueueDepth;
+    }
+
+    /**
+     * Get number of regular polls waiting for their turn
+     */
+    public int getLowPriorityQueueDepth() {
+        return lowPriorityQueueDepth;
+    }
+
+    /**
+     * Get time the latest dequeued task waited for its turn, in milliseconds
+     */
+    public long getWaitTimeMillis() {
+        return waitTimeMillis;
+    }
+
+    /**
+     * Get total number of regular polls dropped since they waited longer than their poll period
+     */
+    public long getDroppedPolls() {
+        return droppedPolls;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, toStringStyle).append("highPriorityQueueDepth", highPriorityQueueDepth)
+                .append("lowPriorityQueueDepth", lowPriorityQueueDepth).append("waitTimeMillis", waitTimeMillis)
+                .append("droppedPolls", droppedPolls).toString();
+    }
+}
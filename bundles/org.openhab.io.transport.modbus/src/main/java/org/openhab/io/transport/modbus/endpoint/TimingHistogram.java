@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.endpoint;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Snapshot of the distribution of durations of a single phase of Modbus operations, e.g. transactions
+ *
+ * Durations are counted in buckets with fixed upper bounds. The last bucket counts the durations above the highest
+ * bound.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class TimingHistogram {
+
+    private final long[] bucketUpperBoundsMillis;
+    private final long[] bucketCounts;
+    private final long count;
+    private final long totalMillis;
+    private final long maxMillis;
+
+    /**
+     * Construct histogram
+     *
+     * @param bucketUpperBoundsMillis inclusive upper bounds of the buckets, in ascending order
+     * @param bucketCounts number of durations in each bucket, with one more element than in the bounds
+     * @param totalMillis sum of all durations
+     * @param maxMillis longest duration
+     */
+    public TimingHistogram(long[] bucketUpperBoundsMillis, long[] bucketCounts, long totalMillis, long maxMillis) {
+        if (bucketCounts.length != bucketUpperBoundsMillis.length + 1) {
+            throw new IllegalArgumentException("Expecting one more bucket count than bucket bounds");
+        }
+        this.bucketUpperBoundsMillis = bucketUpperBoundsMillis.clone();
+        this.bucketCounts = bucketCounts.clone();
+        long count = 0;
+        for (long bucketCount : bucketCounts) {
+            count += bucketCount;
+        }
+        this.count = count;
+        this.totalMillis = totalMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Get number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get sum of recorded durations, in milliseconds
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * Get longest recorded duration, in milliseconds
+     */
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * Get average of recorded durations, in milliseconds. Zero when nothing has been recorded.
+     */
+    public double getAverageMillis() {
+        return count == 0 ? 0 : (double) totalMillis / count;
+    }
+
+    /**
+     * Get inclusive upper bounds of the buckets, in milliseconds
+     */
+    public long[] getBucketUpperBoundsMillis() {
+        return bucketUpperBoundsMillis.clone();
+    }
+
+    /**
+     * Get number of durations in each bucket. The last element counts durations above the highest bound.
+     */
+    public long[] getBucketCounts() {
+        return bucketCounts.clone();
+    }
+
+    /**
+     * Get estimate of the given percentile
+     *
+     * The estimate is the upper bound of the bucket containing the percentile, limited by the longest duration.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return estimated duration in milliseconds. Zero when nothing has been recorded.
+     */
+    public long getPercentileMillis(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile should be between 0 and 100");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long cumulative = 0;
+        for (int i = 0; i < bucketUpperBoundsMillis.length; i++) {
+            cumulative += bucketCounts[i];
+            if (cumulative >= rank) {
+                return Math.min(bucketUpperBoundsMillis[i], maxMillis);
+            }
+        }
+        return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, avg=%.1f ms, p50=%d ms, p95=%d ms, p99=%d ms, max=%d ms", count,
+                getAverageMillis(), getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99),
+                maxMillis);
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+
+/**
+ * Inter-transaction delay and response timeout of a single endpoint, adapted to the observed responses
+ *
+ * The response timeout follows the smoothed response latency and its deviation, in the same way as TCP computes the
+ * retransmission timeout. The timeout is doubled after each timed out transaction, until a transaction succeeds.
+ *
+ * The inter-transaction delay is decreased little by little while transactions succeed, and doubled on failures.
+ * After failures, the delay is kept until the smoothed error rate has decayed back below
+ * {@link #ERROR_RATE_THRESHOLD}.
+ *
+ * Both values are kept within the bounds given in {@link EndpointPoolConfiguration}.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class AdaptiveEndpointTiming {
+
+    /**
+     * Weight of a new sample in the smoothed latency
+     */
+    private static final double LATENCY_GAIN = 0.125;
+    /**
+     * Weight of a new sample in the smoothed latency deviation
+     */
+    private static final double DEVIATION_GAIN = 0.25;
+    /**
+     * Weight of a new sample in the smoothed error rate
+     */
+    private static final double ERROR_RATE_GAIN = 0.1;
+    /**
+     * Inter-transaction delay is decreased only while the smoothed error rate is below this
+     */
+    private static final double ERROR_RATE_THRESHOLD = 0.05;
+    /**
+     * Multiplier of the inter-transaction delay after each successful transaction
+     */
+    private static final double DELAY_DECREASE_FACTOR = 0.9;
+    /**
+     * Smallest inter-transaction delay used after a failure, in milliseconds
+     */
+    private static final long MIN_BACKOFF_DELAY_MILLIS = 10;
+    /**
+     * Response timeout is the smoothed latency plus this many deviations
+     */
+    private static final int TIMEOUT_DEVIATIONS = 4;
+    /**
+     * Largest multiplier of the response timeout after consecutive timeouts
+     */
+    private static final int MAX_TIMEOUT_BACKOFF = 64;
+
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final int minTimeoutMillis;
+    private final int maxTimeoutMillis;
+
+    private double delayMillis;
+    private double smoothedLatencyMillis = -1;
+    private double latencyDeviationMillis;
+    private double errorRate;
+    private int timeoutBackoff = 1;
+
+    /**
+     * Construct timing for an endpoint
+     *
+     * The configured inter-transaction delay is used as the initial delay. The maximum response timeout is used until
+     * the first response has been received.
+     *
+     * @param configuration configuration of the endpoint
+     */
+    public AdaptiveEndpointTiming(EndpointPoolConfiguration configuration) {
+        minDelayMillis = configuration.getMinInterTransactionDelayMillis();
+        maxDelayMillis = Math.max(minDelayMillis, configuration.getMaxInterTransactionDelayMillis());
+        minTimeoutMillis = configuration.getMinResponseTimeoutMillis();
+        maxTimeoutMillis = Math.max(minTimeoutMillis, configuration.getMaxResponseTimeoutMillis());
+        delayMillis = clamp(configuration.getInterTransactionDelayMillis(), minDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Record successful transaction
+     *
+     * @param latencyMillis time from sending the request to receiving the response
+     */
+    public synchronized void recordSuccess(long latencyMillis) {
+        if (smoothedLatencyMillis < 0) {
+            smoothedLatencyMillis = latencyMillis;
+            latencyDeviationMillis = latencyMillis / 2.0;
+        } else {
+            latencyDeviationMillis += DEVIATION_GAIN
+                    * (Math.abs(latencyMillis - smoothedLatencyMillis) - latencyDeviationMillis);
+            smoothedLatencyMillis += LATENCY_GAIN * (latencyMillis - smoothedLatencyMillis);
+        }
+        errorRate *= 1 - ERROR_RATE_GAIN;
+        timeoutBackoff = 1;
+        if (errorRate < ERROR_RATE_THRESHOLD) {
+            delayMillis = clamp(delayMillis * DELAY_DECREASE_FACTOR, minDelayMillis, maxDelayMillis);
+        }
+    }
+
+    /**
+     * Record failed transaction, e.g. I/O error or response timeout
+     *
+     * @param timeout whether the transaction failed since no response was received in time
+     */
+    public synchronized void recordFailure(boolean timeout) {
+        errorRate += ERROR_RATE_GAIN * (1 - errorRate);
+        delayMillis = clamp(Math.max(delayMillis * 2, MIN_BACKOFF_DELAY_MILLIS), minDelayMillis, maxDelayMillis);
+        if (timeout && timeoutBackoff < MAX_TIMEOUT_BACKOFF) {
+            timeoutBackoff *= 2;
+        }
+    }
+
+    /**
+     * Get current inter-transaction delay
+     *
+     * @return delay in milliseconds
+     */
+    public synchronized long getInterTransactionDelayMillis() {
+        return Math.round(delayMillis);
+    }
+
+    /**
+     * Get current response timeout
+     *
+     * @return timeout in milliseconds
+     */
+    public synchronized int getResponseTimeoutMillis() {
+        if (smoothedLatencyMillis < 0) {
+            return maxTimeoutMillis;
+        }
+        double timeout = (smoothedLatencyMillis + TIMEOUT_DEVIATIONS * latencyDeviationMillis) * timeoutBackoff;
+        return (int) clamp(Math.ceil(timeout), minTimeoutMillis, maxTimeoutMillis);
+    }
+
+    /**
+     * Get smoothed error rate
+     *
+     * @return error rate between 0 and 1
+     */
+    public synchronized double getErrorRate() {
+        return errorRate;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("{delay: %d ms, timeout: %d ms, latency: %.1f ms, error rate: %.3f}",
+                getInterTransactionDelayMillis(), getResponseTimeoutMillis(), smoothedLatencyMillis, errorRate);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.min(max, Math.max(min, value));
+    }
+}
@@ -42,15 +42,28 @@ public class AggregateStopWatch {
     /**
      * Time for actual the actual transaction (read/write to slave)
      */
-    final SimpleStopWatch transaction = new SimpleStopWatch();
+    final SimpleStopWatch transaction;
 
     /**
      * Time for calling calling the callback
      */
-    final SimpleStopWatch callback = new SimpleStopWatch();
+    final SimpleStopWatch callback;
 
     public AggregateStopWatch() {
         this.operationId = UUID.randomUUID().toString();
+        this.transaction = new SimpleStopWatch();
+        this.callback = new SimpleStopWatch();
+    }
+
+    /**
+     * Construct stop watch recording each transaction and callback in the endpoint metrics
+     *
+     * @param metrics metrics of the endpoint
+     */
+    public AggregateStopWatch(EndpointMetricsRecorder metrics) {
+        this.operationId = UUID.randomUUID().toString();
+        this.transaction = new SimpleStopWatch(metrics::recordTransaction);
+        this.callback = new SimpleStopWatch(metrics::recordCallback);
     }
 
     /**
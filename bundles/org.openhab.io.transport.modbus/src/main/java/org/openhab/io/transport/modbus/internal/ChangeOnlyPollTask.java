@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import org.apache.commons.lang.builder.StandardToStringStyle;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+
+/**
+ * Poll task calling the callback of a regular poll only when the polled data has changed
+ *
+ * The data of the last response passed to the callback is kept. Data equal to it is passed again only when the
+ * refresh interval of the task, {@link PollTask#getChangeOnlyRefreshMillis()}, has passed since. Errors are always
+ * passed to the callback, and the data following an error is passed regardless of changes.
+ *
+ * Changes are detected for the whole range read by the task: if any register or bit has changed, the callback gets
+ * the complete response, as it would without this filter. Callbacks interested in changes of parts of the range
+ * need to compare those themselves, or register polls of the individual parts, which can be merged into a single
+ * read again by coalescing polls.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ChangeOnlyPollTask implements PollTask {
+
+    private static StandardToStringStyle toStringStyle = new StandardToStringStyle();
+    static {
+        toStringStyle.setUseShortClassName(true);
+    }
+
+    private final PollTask task;
+    private final long refreshMillis;
+    private final @Nullable ModbusReadCallback callback;
+
+    /**
+     * Last data passed to the callback, two bytes per register or one byte per bit. Guarded by this.
+     */
+    private byte @Nullable [] lastData;
+    /**
+     * Data of the current response, swapped with {@link #lastData} when passed to the callback. Guarded by this.
+     */
+    private byte @Nullable [] currentData;
+    private int lastLength;
+    private long lastCallbackMillis;
+    private long suppressed;
+
+    /**
+     * Construct task filtering the responses of the given task
+     *
+     * @param task registered poll task
+     */
+    public ChangeOnlyPollTask(PollTask task) {
+        this.task = task;
+        this.refreshMillis = task.getChangeOnlyRefreshMillis();
+        this.callback = task.getCallback() == null ? null : new FilteringCallback();
+    }
+
+    /**
+     * Get the registered poll task
+     *
+     * @return task whose callback is called
+     */
+    public PollTask getTask() {
+        return task;
+    }
+
+    /**
+     * Get number of responses not passed to the callback since their data had not changed
+     *
+     * @return number of suppressed responses
+     */
+    public synchronized long getSuppressed() {
+        return suppressed;
+    }
+
+    @Override
+    public ModbusSlaveEndpoint getEndpoint() {
+        return task.getEndpoint();
+    }
+
+    @Override
+    public ModbusReadRequestBlueprint getRequest() {
+        return task.getRequest();
+    }
+
+    @Override
+    public @Nullable ModbusReadCallback getCallback() {
+        return callback;
+    }
+
+    @Override
+    public long getChangeOnlyRefreshMillis() {
+        return refreshMillis;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, toStringStyle).append("task", task).append("refreshMillis", refreshMillis)
+                .toString();
+    }
+
+    /**
+     * Compare data with the last data passed to the callback
+     *
+     * The data is stored as the last data if the callback should be called.
+     *
+     * @return whether callback should be called
+     */
+    private synchronized boolean update(ModbusRegisterArray registers) {
+        int length = registers.size() * 2;
+        byte[] current = currentData;
+        if (current == null || current.length < length) {
+            currentData = current = new byte[length];
+        }
+        // bulk copy of the backing data, without a register instance per register
+        registers.getBytes(current, 0);
+        byte[] data = lastData;
+        if (data != null && lastLength == length && equals(data, current, length) && !isRefreshDue()) {
+            suppressed++;
+            return false;
+        }
+        currentData = data;
+        lastData = current;
+        lastLength = length;
+        lastCallbackMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * @see #update(ModbusRegisterArray)
+     */
+    private synchronized boolean update(BitArray bits) {
+        int length = bits.size();
+        byte[] data = lastData;
+        if (data != null && lastLength == length && equals(data, bits) && !isRefreshDue()) {
+            suppressed++;
+            return false;
+        }
+        data = storage(length);
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (bits.getBit(i) ? 1 : 0);
+        }
+        lastCallbackMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    private static boolean equals(byte[] data, byte[] other, int length) {
+        for (int i = 0; i < length; i++) {
+            if (data[i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(byte[] data, BitArray bits) {
+        for (int i = 0; i < bits.size(); i++) {
+            if ((data[i] != 0) != bits.getBit(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void reset() {
+        lastLength = -1;
+    }
+
+    private boolean isRefreshDue() {
+        return refreshMillis > 0 && System.currentTimeMillis() - lastCallbackMillis >= refreshMillis;
+    }
+
+    /**
+     * Get array for storing data of the given length, reusing the previous array if large enough
+     */
+    private byte[] storage(int length) {
+        byte[] data = lastData;
+        if (data == null || data.length < length) {
+            lastData = data = new byte[length];
+        }
+        lastLength = length;
+        return data;
+    }
+
+    private class FilteringCallback implements ModbusReadCallback {
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+            ModbusReadCallback taskCallback = task.getCallback();
+            if (taskCallback != null && update(registers)) {
+                taskCallback.onRegisters(request, registers);
+            }
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+            ModbusReadCallback taskCallback = task.getCallback();
+            if (taskCallback != null && update(bits)) {
+                taskCallback.onBits(request, bits);
+            }
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+            ModbusReadCallback taskCallback = task.getCallback();
+            reset();
+            if (taskCallback != null) {
+                taskCallback.onError(request, error);
+            }
+        }
+    }
+}
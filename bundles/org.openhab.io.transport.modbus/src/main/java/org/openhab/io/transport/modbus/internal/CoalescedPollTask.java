@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.builder.StandardToStringStyle;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Poll task reading a single address range on behalf of several member poll tasks
+ *
+ * The response is sliced back to the range of each member, and the member callbacks are called with their original
+ * requests. Errors are reported to all members.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class CoalescedPollTask implements PollTask {
+
+    private static StandardToStringStyle toStringStyle = new StandardToStringStyle();
+    static {
+        toStringStyle.setUseShortClassName(true);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(CoalescedPollTask.class);
+
+    private final ModbusSlaveEndpoint endpoint;
+    private final ModbusReadRequestBlueprint request;
+    private final List<PollTask> members;
+    private final ModbusReadCallback callback = new SlicingCallback();
+
+    /**
+     * Construct task covering the given members
+     *
+     * @param members poll tasks sharing the endpoint, unit id and function code
+     * @param start first register or bit to read
+     * @param length number of registers or bits to read. The range must cover the ranges of all members.
+     */
+    public CoalescedPollTask(List<PollTask> members, int start, int length) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("Coalesced poll task needs at least one member");
+        }
+        PollTask first = members.get(0);
+        int maxTries = members.stream().mapToInt(PollTask::getMaxTries).max().getAsInt();
+        this.endpoint = first.getEndpoint();
+        this.request = new BasicModbusReadRequestBlueprint(first.getRequest().getUnitID(),
+                first.getRequest().getFunctionCode(), start, length, maxTries);
+        this.members = Collections.unmodifiableList(members);
+    }
+
+    /**
+     * Get the poll tasks that are read with this task
+     *
+     * @return member tasks
+     */
+    public List<PollTask> getMembers() {
+        return members;
+    }
+
+    @Override
+    public ModbusSlaveEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public ModbusReadRequestBlueprint getRequest() {
+        return request;
+    }
+
+    @Override
+    public ModbusReadCallback getCallback() {
+        return callback;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, toStringStyle).append("request", request).append("endpoint", endpoint)
+                .append("members", members.size()).toString();
+    }
+
+    private class SlicingCallback implements ModbusReadCallback {
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint coalescedRequest, ModbusRegisterArray registers) {
+            for (PollTask member : members) {
+                ModbusReadRequestBlueprint memberRequest = member.getRequest();
+                ModbusReadCallback memberCallback = member.getCallback();
+                if (memberCallback == null) {
+                    continue;
+                }
+                int offset = memberRequest.getReference() - request.getReference();
+                int length = memberRequest.getDataLength();
+                if (offset + length > registers.size()) {
+                    invokeError(member, memberCallback, shortResponse(registers.size()));
+                    continue;
+                }
+                try {
+                    memberCallback.onRegisters(memberRequest, registers.slice(offset, length));
+                } catch (RuntimeException e) {
+                    logCallbackError(member, e);
+                }
+            }
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint coalescedRequest, BitArray bits) {
+            for (PollTask member : members) {
+                ModbusReadRequestBlueprint memberRequest = member.getRequest();
+                ModbusReadCallback memberCallback = member.getCallback();
+                if (memberCallback == null) {
+                    continue;
+                }
+                int offset = memberRequest.getReference() - request.getReference();
+                int length = memberRequest.getDataLength();
+                if (offset + length > bits.size()) {
+                    invokeError(member, memberCallback, shortResponse(bits.size()));
+                    continue;
+                }
+                try {
+                    memberCallback.onBits(memberRequest, bits.slice(offset, length));
+                } catch (RuntimeException e) {
+                    logCallbackError(member, e);
+                }
+            }
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint coalescedRequest, Exception error) {
+            for (PollTask member : members) {
+                ModbusReadCallback memberCallback = member.getCallback();
+                if (memberCallback != null) {
+                    invokeError(member, memberCallback, error);
+                }
+            }
+        }
+
+        private Exception shortResponse(int size) {
+            return new ModbusSlaveIOExceptionImpl(new IOException(String.format(
+                    "Response to coalesced request %s contained only %d registers or bits", request, size)));
+        }
+
+        private void invokeError(PollTask member, ModbusReadCallback memberCallback, Exception error) {
+            try {
+                memberCallback.onError(member.getRequest(), error);
+            } catch (RuntimeException e) {
+                logCallbackError(member, e);
+            }
+        }
+
+        private void logCallbackError(PollTask member, RuntimeException e) {
+            // One failing callback should not prevent delivering the data to the other members
+            logger.error("Callback of poll task {} (coalesced to {}) failed", member, request, e);
+        }
+    }
+}
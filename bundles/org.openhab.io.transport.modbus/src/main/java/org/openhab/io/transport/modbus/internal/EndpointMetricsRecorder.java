@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.endpoint.EndpointMetrics;
+import org.openhab.io.transport.modbus.endpoint.TimingHistogram;
+
+/**
+ * Accumulates the metrics of a single endpoint
+ *
+ * Recording is thread-safe and does not block.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class EndpointMetricsRecorder {
+
+    /**
+     * Upper bounds of the histogram buckets, in milliseconds
+     */
+    static final long[] BUCKET_UPPER_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000,
+            10000 };
+
+    private static class HistogramRecorder {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MILLIS.length + 1);
+        private final LongAdder totalMillis = new LongAdder();
+        private final AtomicLong maxMillis = new AtomicLong();
+
+        void record(long millis) {
+            int bucket = 0;
+            while (bucket < BUCKET_UPPER_BOUNDS_MILLIS.length && millis > BUCKET_UPPER_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+            totalMillis.add(millis);
+            maxMillis.accumulateAndGet(millis, Math::max);
+        }
+
+        TimingHistogram snapshot() {
+            long[] snapshot = new long[counts.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = counts.get(i);
+            }
+            return new TimingHistogram(BUCKET_UPPER_BOUNDS_MILLIS, snapshot, totalMillis.sum(), maxMillis.get());
+        }
+    }
+
+    private final HistogramRecorder borrowWait = new HistogramRecorder();
+    private final HistogramRecorder connect = new HistogramRecorder();
+    private final HistogramRecorder transaction = new HistogramRecorder();
+    private final HistogramRecorder callback = new HistogramRecorder();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder transactionIdMismatches = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    /**
+     * Tells whether the error was caused by a timeout
+     *
+     * @param error error to check
+     * @return true if error or one of its causes is a timeout
+     */
+    public static boolean isTimeout(@Nullable Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedIOException) {
+                // includes SocketTimeoutException
+                return true;
+            }
+            String message = cause.getMessage();
+            if (message != null && message.toLowerCase().contains("timed out")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void recordBorrowWait(long millis) {
+        borrowWait.record(millis);
+    }
+
+    public void recordConnect(long millis) {
+        connect.record(millis);
+    }
+
+    public void recordTransaction(long millis) {
+        transaction.record(millis);
+    }
+
+    public void recordCallback(long millis) {
+        callback.record(millis);
+    }
+
+    public void recordOperation() {
+        operations.increment();
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void recordFailure() {
+        failures.increment();
+    }
+
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    public void recordTransactionIdMismatch() {
+        transactionIdMismatches.increment();
+    }
+
+    public void recordConnectFailure() {
+        connectFailures.increment();
+    }
+
+    public void recordDisconnect() {
+        disconnects.increment();
+    }
+
+    /**
+     * Take snapshot of the metrics
+     *
+     * @param idleConnections number of idle connections in the pool
+     * @param activeConnections number of connections borrowed from the pool
+     * @return snapshot of the metrics
+     */
+    public EndpointMetrics snapshot(int idleConnections, int activeConnections) {
+        return new EndpointMetrics(borrowWait.snapshot(), connect.snapshot(), transaction.snapshot(),
+                callback.snapshot(), operations.sum(), retries.sum(), failures.sum(), timeouts.sum(),
+                transactionIdMismatches.sum(), connectFailures.sum(), disconnects.sum(), idleConnections,
+                activeConnections);
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+import org.eclipse.smarthome.io.console.extensions.ConsoleCommandExtension;
+import org.openhab.io.transport.modbus.ModbusMetricsService;
+import org.openhab.io.transport.modbus.endpoint.EndpointMetrics;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Console commands for inspecting the Modbus transport
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@Component(service = ConsoleCommandExtension.class)
+@NonNullByDefault
+public class ModbusConsoleCommandExtension extends AbstractConsoleCommandExtension {
+
+    private static final String SUBCMD_METRICS = "metrics";
+    private static final String SUBCMD_RESET_METRICS = "resetMetrics";
+
+    private final ModbusMetricsService metricsService;
+
+    @Activate
+    public ModbusConsoleCommandExtension(final @Reference ModbusMetricsService metricsService) {
+        super("modbus", "Inspect the Modbus transport.");
+        this.metricsService = metricsService;
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        if (args.length == 0) {
+            printUsage(console);
+            return;
+        }
+        switch (args[0]) {
+            case SUBCMD_METRICS:
+                printMetrics(console, args.length > 1 ? args[1] : "");
+                break;
+            case SUBCMD_RESET_METRICS:
+                metricsService.resetMetrics();
+                console.println("Metrics reset");
+                break;
+            default:
+                console.println("Unknown command '" + args[0] + "'");
+                printUsage(console);
+                break;
+        }
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Arrays.asList(
+                buildCommandUsage(SUBCMD_METRICS + " [<filter>]",
+                        "shows metrics of the endpoints matching the filter, slowest transactions first"),
+                buildCommandUsage(SUBCMD_RESET_METRICS, "resets metrics of all endpoints"));
+    }
+
+    private void printMetrics(Console console, String filter) {
+        Map<ModbusSlaveEndpoint, EndpointMetrics> metrics = metricsService.getEndpointMetrics();
+        List<Entry<ModbusSlaveEndpoint, EndpointMetrics>> entries = metrics.entrySet().stream()
+                .filter(entry -> entry.getKey().toString().contains(filter))
+                .sorted(Comparator.comparingLong(
+                        (Entry<ModbusSlaveEndpoint, EndpointMetrics> entry) -> entry.getValue().getTransaction()
+                                .getPercentileMillis(95))
+                        .reversed())
+                .collect(Collectors.toList());
+        if (entries.isEmpty()) {
+            console.println("No metrics");
+            return;
+        }
+        for (Entry<ModbusSlaveEndpoint, EndpointMetrics> entry : entries) {
+            EndpointMetrics endpointMetrics = entry.getValue();
+            console.println(entry.getKey().toString());
+            console.println(String.format(
+                    "  operations: %d, retries: %d, failures: %d, timeouts: %d, transaction id mismatches: %d",
+                    endpointMetrics.getOperations(), endpointMetrics.getRetries(), endpointMetrics.getFailures(),
+                    endpointMetrics.getTimeouts(), endpointMetrics.getTransactionIdMismatches()));
+            console.println(String.format(
+                    "  connections: %d idle, %d active, connects: %d, connect failures: %d, disconnects: %d",
+                    endpointMetrics.getIdleConnections(), endpointMetrics.getActiveConnections(),
+                    endpointMetrics.getConnects(), endpointMetrics.getConnectFailures(),
+                    endpointMetrics.getDisconnects()));
+            console.println("  borrow wait: " + endpointMetrics.getBorrowWait());
+            console.println("  connect:     " + endpointMetrics.getConnect());
+            console.println("  transaction: " + endpointMetrics.getTransaction());
+            console.println("  callback:    " + endpointMetrics.getCallback());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.endpoint.EndpointQueueStatistics;
+
+/**
+ * Decides the order in which the tasks of a single endpoint get to execute
+ *
+ * Only one task executes at a time. Waiting tasks are served in priority order, and in arrival order within the same
+ * priority. Tasks can give up waiting after a maximum wait time, e.g. regular polls that would be stale by the time
+ * they get their turn.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusEndpointScheduler {
+
+    /**
+     * Priority lanes, in the order they are served
+     */
+    public static enum Priority {
+        /**
+         * Writes and one-off polls
+         */
+        HIGH,
+        /**
+         * Regular polls
+         */
+        LOW
+    }
+
+    private static class Waiter {
+        private final Priority priority;
+        private final long sequence;
+        private final long enqueuedMillis;
+
+        Waiter(Priority priority, long sequence, long enqueuedMillis) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedMillis = enqueuedMillis;
+        }
+    }
+
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+            Comparator.comparing((Waiter waiter) -> waiter.priority).thenComparingLong(waiter -> waiter.sequence));
+    private final int[] queueDepths = new int[Priority.values().length];
+    private boolean busy;
+    private long sequence;
+    private long droppedPolls;
+    private long lastWaitTimeMillis;
+
+    /**
+     * Wait for the turn to execute
+     *
+     * Caller must call {@link #release()} after execution, if this method returns true.
+     *
+     * @param priority priority of the task
+     * @param maxWaitMillis maximum time to wait, or negative to wait indefinitely
+     * @return true when it is the turn of the caller, false when maximum wait time was exceeded
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public synchronized boolean acquire(Priority priority, long maxWaitMillis) throws InterruptedException {
+        Waiter waiter = new Waiter(priority, sequence++, System.currentTimeMillis());
+        waiters.add(waiter);
+        queueDepths[priority.ordinal()]++;
+        try {
+            while (busy || waiters.peek() != waiter) {
+                if (maxWaitMillis < 0) {
+                    wait();
+                    continue;
+                }
+                long remaining = waiter.enqueuedMillis + maxWaitMillis - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    dequeue(waiter);
+                    droppedPolls++;
+                    return false;
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            dequeue(waiter);
+            throw e;
+        }
+        dequeue(waiter);
+        busy = true;
+        lastWaitTimeMillis = System.currentTimeMillis() - waiter.enqueuedMillis;
+        return true;
+    }
+
+    /**
+     * Release the turn, allowing the next task to execute
+     */
+    public synchronized void release() {
+        busy = false;
+        notifyAll();
+    }
+
+    /**
+     * Get current queue statistics
+     *
+     * @return statistics of the queue
+     */
+    public synchronized EndpointQueueStatistics getStatistics() {
+        return new EndpointQueueStatistics(queueDepths[Priority.HIGH.ordinal()], queueDepths[Priority.LOW.ordinal()],
+                lastWaitTimeMillis, droppedPolls);
+    }
+
+    private void dequeue(Waiter waiter) {
+        waiters.remove(waiter);
+        queueDepths[waiter.priority.ordinal()]--;
+        // head of the queue might have changed
+        notifyAll();
+    }
+}
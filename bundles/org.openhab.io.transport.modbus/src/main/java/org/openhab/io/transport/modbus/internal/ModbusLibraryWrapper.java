@@ -12,6 +12,7 @@
  */
 package org.openhab.io.transport.modbus.internal;
 
+import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
@@ -19,6 +20,8 @@ import java.util.stream.IntStream;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
 import org.openhab.io.transport.modbus.BitArray;
 import org.openhab.io.transport.modbus.ModbusReadCallback;
 import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
@@ -58,6 +61,7 @@ import net.wimpi.modbus.net.ModbusSlaveConnection;
 import net.wimpi.modbus.net.SerialConnection;
 import net.wimpi.modbus.net.TCPMasterConnection;
 import net.wimpi.modbus.net.UDPMasterConnection;
+import net.wimpi.modbus.procimg.InputRegister;
 import net.wimpi.modbus.procimg.Register;
 import net.wimpi.modbus.procimg.SimpleInputRegister;
 import net.wimpi.modbus.util.BitVector;
@@ -255,6 +259,43 @@ public class ModbusLibraryWrapper {
                 .collect(Collectors.toList()).toArray(new Register[0]);
     }
 
+    /**
+     * Convert {@link BitVector} to {@link BitArray}
+     *
+     * Bits are copied once, after which the array can be sliced without copying.
+     *
+     * @param bits bits to convert
+     * @param size number of bits to convert. jamod might report too large size for the bit vector.
+     * @return bit array with the same data
+     */
+    public static BitArray convertBits(BitVector bits, int size) {
+        BitSet bitSet = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (bits.getBit(i)) {
+                bitSet.set(i);
+            }
+        }
+        return new BasicBitArray(bitSet, size);
+    }
+
+    /**
+     * Convert array of {@link InputRegister} to {@link ModbusRegisterArray}
+     *
+     * Register data is copied to a single array, after which the array can be sliced without copying.
+     *
+     * @param registers registers to convert
+     * @return register array with the same data
+     */
+    public static ModbusRegisterArray convertRegisters(InputRegister[] registers) {
+        byte[] bytes = new byte[registers.length * 2];
+        for (int i = 0; i < registers.length; i++) {
+            int value = registers[i].toUnsignedShort();
+            bytes[2 * i] = (byte) (value >> 8);
+            bytes[2 * i + 1] = (byte) value;
+        }
+        return new BasicModbusRegisterArray(bytes);
+    }
+
     /**
      * Invoke callback with the data received
      *
@@ -273,18 +314,15 @@ public class ModbusLibraryWrapper {
             // with too many bits as size
             if (message.getFunctionCode() == ModbusReadFunctionCode.READ_COILS) {
                 BitVector bits = ((ReadCoilsResponse) response).getCoils();
-                callback.onBits(message,
-                        new BitArrayWrappingBitVector(bits, Math.min(bits.size(), message.getDataLength())));
+                callback.onBits(message, convertBits(bits, Math.min(bits.size(), message.getDataLength())));
             } else if (message.getFunctionCode() == ModbusReadFunctionCode.READ_INPUT_DISCRETES) {
                 BitVector bits = ((ReadInputDiscretesResponse) response).getDiscretes();
-                callback.onBits(message,
-                        new BitArrayWrappingBitVector(bits, Math.min(bits.size(), message.getDataLength())));
+                callback.onBits(message, convertBits(bits, Math.min(bits.size(), message.getDataLength())));
             } else if (message.getFunctionCode() == ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS) {
-                callback.onRegisters(message, new RegisterArrayWrappingInputRegister(
-                        ((ReadMultipleRegistersResponse) response).getRegisters()));
-            } else if (message.getFunctionCode() == ModbusReadFunctionCode.READ_INPUT_REGISTERS) {
                 callback.onRegisters(message,
-                        new RegisterArrayWrappingInputRegister(((ReadInputRegistersResponse) response).getRegisters()));
+                        convertRegisters(((ReadMultipleRegistersResponse) response).getRegisters()));
+            } else if (message.getFunctionCode() == ModbusReadFunctionCode.READ_INPUT_REGISTERS) {
+                callback.onRegisters(message, convertRegisters(((ReadInputRegistersResponse) response).getRegisters()));
             } else {
                 throw new IllegalArgumentException(
                         String.format("Unexpected function code %s", message.getFunctionCode()));
@@ -13,18 +13,28 @@
 package org.openhab.io.transport.modbus.internal;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import javax.imageio.IIOException;
 
@@ -39,6 +49,7 @@ import org.openhab.io.transport.modbus.ModbusCallback;
 import org.openhab.io.transport.modbus.ModbusConnectionException;
 import org.openhab.io.transport.modbus.ModbusManager;
 import org.openhab.io.transport.modbus.ModbusManagerListener;
+import org.openhab.io.transport.modbus.ModbusMetricsService;
 import org.openhab.io.transport.modbus.ModbusReadCallback;
 import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
 import org.openhab.io.transport.modbus.ModbusRequestBlueprint;
@@ -48,12 +59,16 @@ import org.openhab.io.transport.modbus.ModbusWriteRequestBlueprint;
 import org.openhab.io.transport.modbus.PollTask;
 import org.openhab.io.transport.modbus.TaskWithEndpoint;
 import org.openhab.io.transport.modbus.WriteTask;
+import org.openhab.io.transport.modbus.endpoint.EndpointMetrics;
 import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.EndpointQueueStatistics;
 import org.openhab.io.transport.modbus.endpoint.ModbusSerialSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpointVisitor;
 import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusUDPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointScheduler.Priority;
+import org.openhab.io.transport.modbus.internal.nio.ModbusNioTransport;
 import org.openhab.io.transport.modbus.internal.pooling.ModbusSlaveConnectionFactoryImpl;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -66,9 +81,11 @@ import net.wimpi.modbus.ModbusException;
 import net.wimpi.modbus.ModbusIOException;
 import net.wimpi.modbus.ModbusSlaveException;
 import net.wimpi.modbus.io.ModbusTransaction;
+import net.wimpi.modbus.msg.ExceptionResponse;
 import net.wimpi.modbus.msg.ModbusRequest;
 import net.wimpi.modbus.msg.ModbusResponse;
 import net.wimpi.modbus.net.ModbusSlaveConnection;
+import net.wimpi.modbus.net.TCPMasterConnection;
 
 /**
  * Main implementation of ModbusManager
@@ -77,11 +94,15 @@ import net.wimpi.modbus.net.ModbusSlaveConnection;
  * important with serial slaves but practice has shown that even many tcp slaves have limited
  * capability to handle many connections at the same time
  *
+ * TCP endpoints configured with {@link EndpointPoolConfiguration#getMaxInFlightTransactions()} above one are the
+ * exception: they share a single connection outside of the pool, with several transactions in flight at the same time.
+ *
  * @author Sami Salonen - Initial contribution
  */
-@Component(service = ModbusManager.class, immediate = true, configurationPid = "transport.modbus")
+@Component(service = { ModbusManager.class,
+        ModbusMetricsService.class }, immediate = true, configurationPid = "transport.modbus")
 @NonNullByDefault
-public class ModbusManagerImpl implements ModbusManager {
+public class ModbusManagerImpl implements ModbusManager, ModbusMetricsService {
 
     static class PollTaskUnregistered extends Exception {
         public PollTaskUnregistered(String msg) {
@@ -134,6 +155,29 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    /**
+     * Execute the request with the connection, either as a pipelined transaction or as a regular transaction
+     *
+     * @param timer aggregate stop watch for performance profiling
+     * @param endpoint endpoint of the request
+     * @param connection connection to use
+     * @param libRequest request to execute
+     * @return response received from the slave
+     * @throws ModbusException on IO errors and slave exception responses
+     */
+    private ModbusResponse executeTransaction(AggregateStopWatch timer, ModbusSlaveEndpoint endpoint,
+            ModbusSlaveConnection connection, ModbusRequest libRequest) throws ModbusException {
+        ModbusTCPPipeline pipeline = pipelines.get(endpoint);
+        if (pipeline != null && connection instanceof TCPMasterConnection && pipeline.owns(connection)) {
+            return timer.transaction.timeSupplierWithModbusException(
+                    () -> pipeline.execute((TCPMasterConnection) connection, libRequest));
+        }
+        ModbusTransaction transaction = ModbusLibraryWrapper.createTransactionForEndpoint(endpoint, connection);
+        transaction.setRequest(libRequest);
+        timer.transaction.timeRunnableWithModbusException(() -> transaction.execute());
+        return transaction.getResponse();
+    }
+
     /**
      * Implementation for the PollTask operation
      *
@@ -149,16 +193,13 @@ public class ModbusManagerImpl implements ModbusManager {
             ModbusReadCallback callback = task.getCallback();
             String operationId = timer.operationId;
 
-            ModbusTransaction transaction = ModbusLibraryWrapper.createTransactionForEndpoint(endpoint, connection);
             ModbusRequest libRequest = ModbusLibraryWrapper.createRequest(request);
-            transaction.setRequest(libRequest);
 
             logger.trace("Going execute transaction with request request (FC={}): {} [operation ID {}]",
                     request.getFunctionCode(), libRequest.getHexMessage(), operationId);
             // Might throw ModbusIOException (I/O error) or ModbusSlaveException (explicit exception response from
             // slave)
-            timer.transaction.timeRunnableWithModbusException(() -> transaction.execute());
-            ModbusResponse response = transaction.getResponse();
+            ModbusResponse response = executeTransaction(timer, endpoint, connection, libRequest);
             logger.trace("Response for read request (FC={}, transaction ID={}): {} [operation ID {}]",
                     response.getFunctionCode(), response.getTransactionID(), response.getHexMessage(), operationId);
             checkTransactionId(response, libRequest, task, operationId);
@@ -184,17 +225,14 @@ public class ModbusManagerImpl implements ModbusManager {
             ModbusWriteCallback callback = task.getCallback();
             String operationId = timer.operationId;
 
-            ModbusTransaction transaction = ModbusLibraryWrapper.createTransactionForEndpoint(endpoint, connection);
             ModbusRequest libRequest = ModbusLibraryWrapper.createRequest(request);
-            transaction.setRequest(libRequest);
 
             logger.trace("Going execute transaction with read request (FC={}): {} [operation ID {}]",
                     request.getFunctionCode(), libRequest.getHexMessage(), operationId);
 
             // Might throw ModbusIOException (I/O error) or ModbusSlaveException (explicit exception response from
             // slave)
-            timer.transaction.timeRunnableWithModbusException(() -> transaction.execute());
-            ModbusResponse response = transaction.getResponse();
+            ModbusResponse response = executeTransaction(timer, endpoint, connection, libRequest);
             logger.trace("Response for write request (FC={}, transaction ID={}): {} [operation ID {}]",
                     response.getFunctionCode(), response.getTransactionID(), response.getHexMessage(), operationId);
 
@@ -233,6 +271,10 @@ public class ModbusManagerImpl implements ModbusManager {
      * Thread naming for executing callbacks
      */
     private static final String MODBUS_POLLER_CALLBACK_THREAD_POOL_NAME = "modbusManagerCallbackThreadPool";
+    /**
+     * Thread naming for background keep-alive of connections, which may block while connecting
+     */
+    private static final String MODBUS_KEEP_ALIVE_THREAD_POOL_NAME = "modbusManagerKeepAliveThreadPool";
 
     /**
      * Log message with WARN level if the task queues exceed this limit.
@@ -248,6 +290,73 @@ public class ModbusManagerImpl implements ModbusManager {
      */
     private static final long WARN_QUEUE_SIZE = 500;
     private static final long MONITOR_QUEUE_INTERVAL_MILLIS = 10000;
+    /**
+     * How often to check whether keep-alive of some endpoint is due. Endpoints configure their own keep-alive
+     * interval.
+     */
+    private static final long KEEP_ALIVE_CHECK_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Configuration key to enable coalescing of regular polls. When enabled, regular polls of the same endpoint,
+     * unit id, function code and poll period are merged into as few transactions as possible.
+     */
+    public static final String CONFIG_COALESCE_POLLS = "coalescePolls";
+
+    /**
+     * Configuration key for the maximum number of unrequested registers or bits read between two coalesced polls.
+     * Note that some slaves respond with an error when reading addresses that do not exist.
+     */
+    public static final String CONFIG_COALESCE_MAX_GAP = "coalesceMaxGap";
+
+    /**
+     * Configuration key to enable the non-blocking transport for TCP endpoints. With the non-blocking transport, all
+     * TCP connections are driven by a single selector thread, and delays between transactions do not block threads.
+     */
+    public static final String CONFIG_NIO_TRANSPORT = "nioTransport";
+
+    /**
+     * Configuration key to enable adaptive timing for endpoints without explicit pool configuration. See
+     * {@link EndpointPoolConfiguration#isAdaptiveTiming()}.
+     */
+    public static final String CONFIG_ADAPTIVE_TIMING = "adaptiveTiming";
+
+    /**
+     * Regular polls of a single endpoint sharing the same poll period. The polls are executed in a single scheduled
+     * job, following the read plan of the group.
+     */
+    private class PollGroup {
+        private final ModbusSlaveEndpoint endpoint;
+        private final long pollPeriodMillis;
+        /** poll period and initial delay of the members, see {@link #groupKey(long, long)} */
+        private final List<Long> key;
+        private final Set<PollTask> members = new LinkedHashSet<>();
+        private volatile List<PollTask> plan = Collections.emptyList();
+        private @Nullable ScheduledFuture<?> future;
+
+        PollGroup(ModbusSlaveEndpoint endpoint, List<Long> key) {
+            this.endpoint = endpoint;
+            this.pollPeriodMillis = key.get(0);
+            this.key = key;
+        }
+
+        private void replan() {
+            plan = readPlanner.plan(members);
+            logger.debug("Poll group of endpoint {} with period {}ms: {} poll tasks read with {} transactions",
+                    endpoint, pollPeriodMillis, members.size(), plan.size());
+        }
+
+        private void run() {
+            long started = System.currentTimeMillis();
+            for (PollTask task : plan) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                executeOperation(task, false, pollOperation, pollPeriodMillis);
+            }
+            logger.debug("Execution of scheduled ({}ms) poll group of endpoint {} took {} millis", pollPeriodMillis,
+                    endpoint, System.currentTimeMillis() - started);
+        }
+    }
 
     private final PollOperation pollOperation = new PollOperation();
     private final WriteOperation writeOperation = new WriteOperation();
@@ -267,7 +376,42 @@ public class ModbusManagerImpl implements ModbusManager {
     private volatile KeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> connectionPool;
     @Nullable
     private volatile ModbusSlaveConnectionFactoryImpl connectionFactory;
+    /**
+     * Pipelines of the TCP endpoints configured with more than one transaction in flight. Pipelined endpoints share a
+     * single connection outside of the connection pool.
+     */
+    private final Map<ModbusSlaveEndpoint, ModbusTCPPipeline> pipelines = new ConcurrentHashMap<>();
     private volatile Map<PollTask, ScheduledFuture<?>> scheduledPollTasks = new ConcurrentHashMap<>();
+    /**
+     * Groups of coalesced regular polls, keyed by endpoint and {@link #groupKey(long, long)}. Guarded by this.
+     */
+    private final Map<ModbusSlaveEndpoint, Map<List<Long>, PollGroup>> pollGroups = new ConcurrentHashMap<>();
+    /**
+     * Tasks executed in place of the registered regular polls that pass only changed data to their callbacks
+     */
+    private final Map<PollTask, ChangeOnlyPollTask> changeOnlyPollTasks = new ConcurrentHashMap<>();
+    private volatile boolean coalescePolls;
+    private volatile boolean adaptiveTiming;
+    private volatile ModbusReadPlanner readPlanner = new ModbusReadPlanner(0);
+    @Nullable
+    private volatile ModbusNioTransport nioTransport;
+    /**
+     * Executor for callbacks of operations executed with the non-blocking transport
+     */
+    @Nullable
+    private volatile ExecutorService callbackThreadPool;
+    /**
+     * Regular polls executed with the non-blocking transport that have not completed yet
+     */
+    private final Set<TaskWithEndpoint<?, ?>> nonBlockingPollsInProgress = ConcurrentHashMap.newKeySet();
+    /**
+     * Order of execution for the tasks of each endpoint
+     */
+    private final Map<ModbusSlaveEndpoint, ModbusEndpointScheduler> endpointSchedulers = new ConcurrentHashMap<>();
+    /**
+     * Timing and error metrics of each endpoint
+     */
+    private final Map<ModbusSlaveEndpoint, EndpointMetricsRecorder> endpointMetrics = new ConcurrentHashMap<>();
     /**
      * Executor for requests
      */
@@ -276,6 +420,12 @@ public class ModbusManagerImpl implements ModbusManager {
     private volatile Collection<ModbusManagerListener> listeners = new CopyOnWriteArraySet<>();
     @Nullable
     private volatile ScheduledFuture<?> monitorFuture;
+    @Nullable
+    private volatile ScheduledFuture<?> keepAliveFuture;
+    /**
+     * Endpoints with keep-alive in progress
+     */
+    private final Set<ModbusSlaveEndpoint> keepAliveEndpoints = ConcurrentHashMap.newKeySet();
 
     private void constructConnectionPool() {
         ModbusSlaveConnectionFactoryImpl connectionFactory = new ModbusSlaveConnectionFactoryImpl();
@@ -287,6 +437,7 @@ public class ModbusManagerImpl implements ModbusManager {
                     EndpointPoolConfiguration endpointPoolConfig = new EndpointPoolConfiguration();
                     endpointPoolConfig.setInterTransactionDelayMillis(DEFAULT_TCP_INTER_TRANSACTION_DELAY_MILLIS);
                     endpointPoolConfig.setConnectMaxTries(Modbus.DEFAULT_RETRIES);
+                    endpointPoolConfig.setAdaptiveTiming(adaptiveTiming);
                     return endpointPoolConfig;
                 }
 
@@ -297,6 +448,7 @@ public class ModbusManagerImpl implements ModbusManager {
                     endpointPoolConfig.setReconnectAfterMillis(-1);
                     endpointPoolConfig.setInterTransactionDelayMillis(DEFAULT_SERIAL_INTER_TRANSACTION_DELAY_MILLIS);
                     endpointPoolConfig.setConnectMaxTries(Modbus.DEFAULT_RETRIES);
+                    endpointPoolConfig.setAdaptiveTiming(adaptiveTiming);
                     return endpointPoolConfig;
                 }
 
@@ -305,11 +457,29 @@ public class ModbusManagerImpl implements ModbusManager {
                     EndpointPoolConfiguration endpointPoolConfig = new EndpointPoolConfiguration();
                     endpointPoolConfig.setInterTransactionDelayMillis(DEFAULT_TCP_INTER_TRANSACTION_DELAY_MILLIS);
                     endpointPoolConfig.setConnectMaxTries(Modbus.DEFAULT_RETRIES);
+                    endpointPoolConfig.setAdaptiveTiming(adaptiveTiming);
                     return endpointPoolConfig;
                 }
             });
         });
 
+        connectionFactory.setConnectionListener(new ModbusSlaveConnectionFactoryImpl.ConnectionListener() {
+            @Override
+            public void onConnect(ModbusSlaveEndpoint endpoint, long connectMillis) {
+                getMetricsRecorder(endpoint).recordConnect(connectMillis);
+            }
+
+            @Override
+            public void onConnectFailure(ModbusSlaveEndpoint endpoint) {
+                getMetricsRecorder(endpoint).recordConnectFailure();
+            }
+
+            @Override
+            public void onDisconnect(ModbusSlaveEndpoint endpoint) {
+                getMetricsRecorder(endpoint).recordDisconnect();
+            }
+        });
+
         GenericKeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> genericKeyedObjectPool = new ModbusConnectionPool(
                 connectionFactory);
         genericKeyedObjectPool.setSwallowedExceptionListener(new SwallowedExceptionListener() {
@@ -328,12 +498,40 @@ public class ModbusManagerImpl implements ModbusManager {
         this.connectionFactory = connectionFactory;
     }
 
+    /**
+     * Get pipeline for the endpoint, creating one if necessary
+     *
+     * @param endpoint endpoint to get the pipeline for
+     * @return pipeline for the endpoint, or null if the endpoint is not configured to use pipelining
+     */
+    private @Nullable ModbusTCPPipeline getPipeline(ModbusSlaveEndpoint endpoint) {
+        ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+        if (connectionFactory == null || !(endpoint instanceof ModbusTCPSlaveEndpoint)) {
+            return null;
+        }
+        EndpointPoolConfiguration config = connectionFactory.getEndpointPoolConfiguration(endpoint);
+        if (config == null || config.getMaxInFlightTransactions() <= 1) {
+            return null;
+        }
+        return pipelines.computeIfAbsent(endpoint, key -> new ModbusTCPPipeline((ModbusTCPSlaveEndpoint) key,
+                config.getMaxInFlightTransactions(), connectionFactory));
+    }
+
     private Optional<ModbusSlaveConnection> borrowConnection(ModbusSlaveEndpoint endpoint) {
         Optional<ModbusSlaveConnection> connection = Optional.empty();
+        ModbusTCPPipeline pipeline = getPipeline(endpoint);
+        if (pipeline != null) {
+            return pipeline.getConnection();
+        }
         KeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> pool = connectionPool;
         if (pool == null) {
             return connection;
         }
+        ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+        if (connectionFactory != null && connectionFactory.isConnectSuspended(endpoint)) {
+            logger.debug("Connecting to endpoint {} failed recently, not waiting for another connect", endpoint);
+            return connection;
+        }
         long start = System.currentTimeMillis();
         try {
             connection = Optional.ofNullable(pool.borrowObject(endpoint));
@@ -361,7 +559,12 @@ public class ModbusManagerImpl implements ModbusManager {
             return;
         }
         long start = System.currentTimeMillis();
+        ModbusTCPPipeline pipeline = pipelines.get(endpoint);
         connection.ifPresent(con -> {
+            if (pipeline != null && pipeline.owns(con)) {
+                pipeline.invalidate(con);
+                return;
+            }
             try {
                 pool.invalidateObject(endpoint, con);
             } catch (Exception e) {
@@ -379,7 +582,12 @@ public class ModbusManagerImpl implements ModbusManager {
             return;
         }
         long start = System.currentTimeMillis();
+        ModbusTCPPipeline pipeline = pipelines.get(endpoint);
         connection.ifPresent(con -> {
+            if (pipeline != null && pipeline.owns(con)) {
+                // Shared connection of the pipeline, kept open
+                return;
+            }
             try {
                 pool.returnObject(endpoint, con);
                 logger.trace("returned connection to pool for endpoint {}", endpoint);
@@ -391,6 +599,74 @@ public class ModbusManagerImpl implements ModbusManager {
         logger.trace("returning connection for endpoint {} took {} ms", endpoint, System.currentTimeMillis() - start);
     }
 
+    /**
+     * Keep the idle connections of regularly polled endpoints connected, as configured with
+     * {@link EndpointPoolConfiguration#getKeepAliveIntervalMillis()}
+     *
+     * Reconnecting happens here, in the background, instead of when the next poll borrows the connection. Each
+     * endpoint is kept alive in the keep-alive pool, so that connecting to an unreachable endpoint neither delays
+     * the other endpoints nor occupies a poller thread.
+     */
+    private void keepAliveConnections() {
+        KeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> pool = connectionPool;
+        ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+        if (!(pool instanceof GenericKeyedObjectPool) || connectionFactory == null) {
+            return;
+        }
+        Set<ModbusSlaveEndpoint> endpoints = scheduledPollTasks.keySet().stream().map(PollTask::getEndpoint)
+                .collect(Collectors.toSet());
+        for (ModbusSlaveEndpoint endpoint : endpoints) {
+            if (pipelines.containsKey(endpoint) || (nioTransport != null && endpoint instanceof ModbusTCPSlaveEndpoint)
+                    || !connectionFactory.isKeepAliveDue(endpoint)) {
+                continue;
+            }
+            if (!keepAliveEndpoints.add(endpoint)) {
+                logger.trace("Keep-alive of endpoint {} still in progress", endpoint);
+                continue;
+            }
+            try {
+                ThreadPoolManager.getPool(MODBUS_KEEP_ALIVE_THREAD_POOL_NAME).execute(() -> {
+                    try {
+                        keepAlive((GenericKeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection>) pool,
+                                connectionFactory, endpoint);
+                    } finally {
+                        keepAliveEndpoints.remove(endpoint);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                keepAliveEndpoints.remove(endpoint);
+                logger.debug("Keep-alive of endpoint {} rejected: {}", endpoint, e.getMessage());
+            }
+        }
+    }
+
+    private void keepAlive(GenericKeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> pool,
+            ModbusSlaveConnectionFactoryImpl connectionFactory, ModbusSlaveEndpoint endpoint) {
+        // Second round replaces connection that is about to expire
+        for (int round = 0; round < 2; round++) {
+            ModbusSlaveConnection connection;
+            try {
+                // Do not wait: connection in use is known to be alive. Borrowing connects disconnected connection.
+                connection = pool.borrowObject(endpoint, 0);
+            } catch (NoSuchElementException e) {
+                logger.trace("Connection of endpoint {} in use, no need for keep-alive", endpoint);
+                return;
+            } catch (Exception e) {
+                logger.debug("Keep-alive of endpoint {} failed: {} {}", endpoint, e.getClass().getName(),
+                        e.getMessage());
+                return;
+            }
+            if (round == 0 && connection.isConnected() && connectionFactory.isAboutToExpire(endpoint)) {
+                logger.trace("Replacing connection of endpoint {} before it expires", endpoint);
+                invalidate(endpoint, Optional.of(connection));
+                continue;
+            }
+            logger.trace("Keep-alive of endpoint {}: connected {}", endpoint, connection.isConnected());
+            returnConnection(endpoint, Optional.of(connection));
+            return;
+        }
+    }
+
     /**
      * Establishes connection to the endpoint specified by the task
      *
@@ -420,14 +696,18 @@ public class ModbusManagerImpl implements ModbusManager {
 
         ModbusRequestBlueprint request = task.getRequest();
         Optional<ModbusSlaveConnection> connection = timer.connection.timeSupplier(() -> borrowConnection(endpoint));
+        long connectionBorrowMillis = System.currentTimeMillis() - connectionBorrowStart;
+        EndpointMetricsRecorder metrics = getMetricsRecorder(endpoint);
+        metrics.recordBorrowWait(connectionBorrowMillis);
         logger.trace("Executing task {} (oneOff={})! Connection received in {} ms [operation ID {}]", task, oneOffTask,
-                System.currentTimeMillis() - connectionBorrowStart, operationId);
+                connectionBorrowMillis, operationId);
         if (scheduledThreadPoolExecutor == null) {
             // manager deactivated
             timer.connection.timeRunnable(() -> invalidate(endpoint, connection));
             return Optional.empty();
         }
         if (!connection.isPresent()) {
+            metrics.recordFailure();
             logger.warn("Could not connect to endpoint {} -- aborting request {} [operation ID {}]", endpoint, request,
                     operationId);
             if (callback != null) {
@@ -469,13 +749,94 @@ public class ModbusManagerImpl implements ModbusManager {
     }
 
     private void verifyTaskIsRegistered(PollTask task) throws PollTaskUnregistered {
-        if (!this.scheduledPollTasks.containsKey(task)) {
+        boolean registered;
+        if (task instanceof CoalescedPollTask) {
+            registered = ((CoalescedPollTask) task).getMembers().stream().anyMatch(this::isRegistered);
+        } else {
+            registered = isRegistered(task);
+        }
+        if (!registered) {
             String msg = String.format("Poll task %s is unregistered", task);
             logger.debug(msg);
             throw new PollTaskUnregistered(msg);
         }
     }
 
+    private boolean isRegistered(PollTask task) {
+        if (task instanceof ChangeOnlyPollTask) {
+            return scheduledPollTasks.containsKey(((ChangeOnlyPollTask) task).getTask());
+        }
+        return scheduledPollTasks.containsKey(task);
+    }
+
+    /**
+     * Execute operation once it is its turn with the endpoint, waiting indefinitely
+     *
+     * @param task
+     * @param oneOffTask
+     * @param operation
+     */
+    private <R extends ModbusRequestBlueprint, C extends ModbusCallback, T extends TaskWithEndpoint<R, C>> void executeOperation(
+            @NonNull T task, boolean oneOffTask, ModbusOperation<T> operation) {
+        executeOperation(task, oneOffTask, operation, -1);
+    }
+
+    /**
+     * Execute operation once it is its turn with the endpoint
+     *
+     * Writes and one-off polls are executed before regular polls waiting for the same endpoint.
+     *
+     * @param task
+     * @param oneOffTask
+     * @param operation
+     * @param maxQueueMillis maximum time to wait for the turn, after which the operation is dropped. Negative means
+     *            waiting indefinitely.
+     */
+    private <R extends ModbusRequestBlueprint, C extends ModbusCallback, T extends TaskWithEndpoint<R, C>> void executeOperation(
+            @NonNull T task, boolean oneOffTask, ModbusOperation<T> operation, long maxQueueMillis) {
+        ModbusSlaveEndpoint endpoint = task.getEndpoint();
+        boolean pipelined = getPipeline(endpoint) != null;
+        ModbusNioTransport nioTransport = this.nioTransport;
+        if (nioTransport != null && endpoint instanceof ModbusTCPSlaveEndpoint && !pipelined) {
+            if (!oneOffTask && !nonBlockingPollsInProgress.add(task)) {
+                logger.debug("Previous execution of task {} has not completed yet, skipping", task);
+                return;
+            }
+            executeNonBlocking(nioTransport, task, oneOffTask, 1);
+            return;
+        } else if (pipelined) {
+            // Pipeline limits the transactions in flight itself
+            executeOperationWithRetries(task, oneOffTask, operation);
+            return;
+        }
+
+        ModbusEndpointScheduler scheduler = endpointSchedulers.computeIfAbsent(endpoint,
+                key -> new ModbusEndpointScheduler());
+        Priority priority = oneOffTask ? Priority.HIGH : Priority.LOW;
+        boolean acquired;
+        try {
+            acquired = scheduler.acquire(priority, maxQueueMillis);
+        } catch (InterruptedException e) {
+            logger.debug("Interrupted while waiting for turn with endpoint {}, aborting task {}", endpoint, task);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        EndpointQueueStatistics statistics = scheduler.getStatistics();
+        for (ModbusManagerListener listener : listeners) {
+            listener.onEndpointQueueStatistics(endpoint, statistics);
+        }
+        if (!acquired) {
+            logger.debug("Task {} waited over {} ms for endpoint {}, dropping it as stale", task, maxQueueMillis,
+                    endpoint);
+            return;
+        }
+        try {
+            executeOperationWithRetries(task, oneOffTask, operation);
+        } finally {
+            scheduler.release();
+        }
+    }
+
     /**
      * Execute operation using a retry mechanism.
      *
@@ -490,9 +851,10 @@ public class ModbusManagerImpl implements ModbusManager {
      * @param oneOffTask
      * @param operation
      */
-    private <R extends ModbusRequestBlueprint, C extends ModbusCallback, T extends TaskWithEndpoint<R, C>> void executeOperation(
+    private <R extends ModbusRequestBlueprint, C extends ModbusCallback, T extends TaskWithEndpoint<R, C>> void executeOperationWithRetries(
             @NonNull T task, boolean oneOffTask, ModbusOperation<T> operation) {
-        AggregateStopWatch timer = new AggregateStopWatch();
+        EndpointMetricsRecorder metrics = getMetricsRecorder(task.getEndpoint());
+        AggregateStopWatch timer = new AggregateStopWatch(metrics);
         timer.total.resume();
         String operationId = timer.operationId;
 
@@ -504,6 +866,7 @@ public class ModbusManagerImpl implements ModbusManager {
         }
 
         logTaskQueueInfo();
+        metrics.recordOperation();
         R request = task.getRequest();
         ModbusSlaveEndpoint endpoint = task.getEndpoint();
         @Nullable
@@ -511,7 +874,9 @@ public class ModbusManagerImpl implements ModbusManager {
         int maxTries = task.getMaxTries();
         AtomicReference<@Nullable Exception> lastError = new AtomicReference<>();
         long retryDelay = Optional.ofNullable(connectionFactory.getEndpointPoolConfiguration(endpoint))
-                .map(cfg -> cfg.getInterTransactionDelayMillis()).orElse(0L);
+                .map(cfg -> connectionFactory.getInterTransactionDelayMillis(endpoint, cfg)).orElse(0L);
+        @Nullable
+        AdaptiveEndpointTiming timing = connectionFactory.getAdaptiveTiming(endpoint);
 
         if (maxTries <= 0) {
             throw new IllegalArgumentException("maxTries should be positive");
@@ -571,13 +936,26 @@ public class ModbusManagerImpl implements ModbusManager {
 
                 boolean willRetry = false;
                 try {
+                    if (tryIndex > 0) {
+                        metrics.recordRetry();
+                    }
                     tryIndex++;
                     willRetry = tryIndex < maxTries;
+                    long transactionMillisBefore = timer.transaction.getTotalTimeMillis();
                     operation.accept(timer, task, connection.get());
                     lastError.set(null);
+                    if (timing != null) {
+                        timing.recordSuccess(timer.transaction.getTotalTimeMillis() - transactionMillisBefore);
+                    }
                     break;
                 } catch (IOException e) {
                     lastError.set(new ModbusSlaveIOExceptionImpl(e));
+                    if (EndpointMetricsRecorder.isTimeout(e)) {
+                        metrics.recordTimeout();
+                    }
+                    if (timing != null) {
+                        timing.recordFailure(EndpointMetricsRecorder.isTimeout(e));
+                    }
                     // IO exception occurred, we re-establish new connection hoping it would fix the issue (e.g.
                     // broken pipe on write)
                     if (willRetry) {
@@ -595,6 +973,12 @@ public class ModbusManagerImpl implements ModbusManager {
                     continue;
                 } catch (ModbusIOException e) {
                     lastError.set(new ModbusSlaveIOExceptionImpl(e));
+                    if (EndpointMetricsRecorder.isTimeout(e)) {
+                        metrics.recordTimeout();
+                    }
+                    if (timing != null) {
+                        timing.recordFailure(EndpointMetricsRecorder.isTimeout(e));
+                    }
                     // IO exception occurred, we re-establish new connection hoping it would fix the issue (e.g.
                     // broken pipe on write)
                     if (willRetry) {
@@ -625,6 +1009,11 @@ public class ModbusManagerImpl implements ModbusManager {
                     continue;
                 } catch (ModbusUnexpectedTransactionIdException e) {
                     lastError.set(e);
+                    metrics.recordTransactionIdMismatch();
+                    if (timing != null) {
+                        // most likely a late response to a previous request
+                        timing.recordFailure(true);
+                    }
                     // transaction error details already logged
                     if (willRetry) {
                         logger.warn(
@@ -667,6 +1056,7 @@ public class ModbusManagerImpl implements ModbusManager {
             Exception exception = lastError.get();
             if (exception != null) {
                 // All retries failed with some error
+                metrics.recordFailure();
                 if (callback != null) {
                     timer.callback.timeRunnable(() -> {
                         invokeCallbackWithError(request, callback, exception);
@@ -691,6 +1081,110 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    /**
+     * Execute operation using the non-blocking transport
+     *
+     * The method returns right away. The operation is retried, and callbacks are called, once the transport completes
+     * the request.
+     *
+     * @param nioTransport transport to use
+     * @param task task to execute
+     * @param oneOffTask whether this is one-off, or execution of previously scheduled poll
+     * @param tryNumber number of this try, starting from one
+     */
+    private void executeNonBlocking(ModbusNioTransport nioTransport,
+            TaskWithEndpoint<? extends ModbusRequestBlueprint, ? extends ModbusCallback> task, boolean oneOffTask,
+            int tryNumber) {
+        ModbusRequestBlueprint request = task.getRequest();
+        ModbusCallback callback = task.getCallback();
+        int maxTries = task.getMaxTries();
+        if (maxTries <= 0) {
+            throw new IllegalArgumentException("maxTries should be positive");
+        }
+        if (scheduledThreadPoolExecutor == null) {
+            logger.debug("Manager has been shut down, aborting processing request {}", request);
+            nonBlockingPollsInProgress.remove(task);
+            return;
+        }
+        if (!oneOffTask && task instanceof PollTask) {
+            try {
+                verifyTaskIsRegistered((PollTask) task);
+            } catch (PollTaskUnregistered e) {
+                nonBlockingPollsInProgress.remove(task);
+                return;
+            }
+        }
+        ModbusRequest libRequest = request instanceof ModbusReadRequestBlueprint
+                ? ModbusLibraryWrapper.createRequest((ModbusReadRequestBlueprint) request)
+                : ModbusLibraryWrapper.createRequest((ModbusWriteRequestBlueprint) request);
+        EndpointMetricsRecorder metrics = getMetricsRecorder(task.getEndpoint());
+        if (tryNumber == 1) {
+            metrics.recordOperation();
+        } else {
+            metrics.recordRetry();
+        }
+        logger.trace("Submitting request {} (try {} out of {}) to non-blocking transport", request, tryNumber,
+                maxTries);
+        long submitted = System.currentTimeMillis();
+        CompletableFuture<ModbusResponse> future = nioTransport.submit((ModbusTCPSlaveEndpoint) task.getEndpoint(),
+                libRequest, oneOffTask);
+        future.whenComplete((response, error) -> {
+            // includes the time waiting for the turn, and possibly the time to connect
+            metrics.recordTransaction(System.currentTimeMillis() - submitted);
+            if (EndpointMetricsRecorder.isTimeout(error)) {
+                metrics.recordTimeout();
+            }
+            Exception exception;
+            if (error == null && !(response instanceof ExceptionResponse)) {
+                nonBlockingPollsInProgress.remove(task);
+                if (callback != null) {
+                    invokeCallbackAsync(() -> {
+                        if (request instanceof ModbusReadRequestBlueprint) {
+                            ModbusLibraryWrapper.invokeCallbackWithResponse((ModbusReadRequestBlueprint) request,
+                                    (ModbusReadCallback) callback, response);
+                        } else {
+                            invokeCallbackWithResponse((ModbusWriteRequestBlueprint) request,
+                                    (ModbusWriteCallback) callback, new ModbusResponseImpl(response));
+                        }
+                    });
+                }
+                return;
+            } else if (error == null) {
+                exception = new ModbusSlaveErrorResponseExceptionImpl(
+                        new ModbusSlaveException(((ExceptionResponse) response).getExceptionCode()));
+            } else if (error instanceof ModbusIOException) {
+                exception = new ModbusSlaveIOExceptionImpl((ModbusIOException) error);
+            } else if (error instanceof Exception) {
+                exception = (Exception) error;
+            } else {
+                exception = new IllegalStateException(error);
+            }
+
+            if (tryNumber < maxTries && !(exception instanceof ModbusConnectionException)) {
+                logger.warn("Try {} out of {} failed when executing request ({}). Will try again soon. Error was: {}",
+                        tryNumber, maxTries, request, exception.getMessage());
+                executeNonBlocking(nioTransport, task, oneOffTask, tryNumber + 1);
+                return;
+            }
+            logger.error("Last try {} failed when executing request ({}). Aborting. Error was: {}", tryNumber, request,
+                    exception.getMessage());
+            metrics.recordFailure();
+            nonBlockingPollsInProgress.remove(task);
+            if (callback != null) {
+                invokeCallbackAsync(() -> invokeCallbackWithError(request, callback, exception));
+            }
+        });
+    }
+
+    private void invokeCallbackAsync(Runnable action) {
+        ExecutorService callbackThreadPool = this.callbackThreadPool;
+        if (callbackThreadPool == null) {
+            logger.debug("Manager has been shut down, not calling the callback");
+            return;
+        }
+        callbackThreadPool.execute(action);
+    }
+
     @Override
     public ScheduledFuture<?> submitOneTimePoll(PollTask task) {
         ScheduledExecutorService executor = scheduledThreadPoolExecutor;
@@ -717,11 +1211,34 @@ public class ModbusManagerImpl implements ModbusManager {
                 logger.trace("Unregistering previous poll task (possibly with different period)");
                 unregisterRegularPoll(task);
             }
+            PollTask scheduledTask = task;
+            if (task.getChangeOnlyRefreshMillis() >= 0) {
+                ChangeOnlyPollTask changeOnlyTask = new ChangeOnlyPollTask(task);
+                changeOnlyPollTasks.put(task, changeOnlyTask);
+                scheduledTask = changeOnlyTask;
+            }
+            if (coalescePolls) {
+                PollGroup group = pollGroups.computeIfAbsent(task.getEndpoint(), endpoint -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(groupKey(pollPeriodMillis, initialDelayMillis),
+                                key -> new PollGroup(task.getEndpoint(), key));
+                group.members.add(scheduledTask);
+                group.replan();
+                ScheduledFuture<?> future = group.future;
+                if (future == null) {
+                    group.future = future = executor.scheduleWithFixedDelay(group::run, initialDelayMillis,
+                            pollPeriodMillis, TimeUnit.MILLISECONDS);
+                }
+                scheduledPollTasks.put(task, future);
+                logger.trace("Registered poll task {} to poll group with period {} and initial delay {}", task,
+                        pollPeriodMillis, initialDelayMillis);
+                return;
+            }
+            PollTask executedTask = scheduledTask;
             ScheduledFuture<?> future = executor.scheduleWithFixedDelay(() -> {
                 long started = System.currentTimeMillis();
                 logger.debug("Executing scheduled ({}ms) poll task {}. Current millis: {}", pollPeriodMillis, task,
                         started);
-                executeOperation(task, false, pollOperation);
+                executeOperation(executedTask, false, pollOperation, pollPeriodMillis);
                 long finished = System.currentTimeMillis();
                 logger.debug(
                         "Execution of scheduled ({}ms) poll task {} finished at {}. Was started at millis: {} (=duration of {} millis)",
@@ -757,7 +1274,10 @@ public class ModbusManagerImpl implements ModbusManager {
             // is usually pretty soon as transactions should be relatively short-lived)
             factory.disconnectOnReturn(task.getEndpoint(), System.currentTimeMillis());
 
-            future.cancel(true);
+            ChangeOnlyPollTask changeOnlyTask = changeOnlyPollTasks.remove(task);
+            if (removeFromPollGroup(changeOnlyTask == null ? task : changeOnlyTask)) {
+                future.cancel(true);
+            }
 
             logger.info("Poll task {} canceled", task);
 
@@ -776,6 +1296,43 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    /**
+     * Key of the poll group of regular polls. Polls are only coalesced with polls registered with the same period
+     * and the same initial delay, so that callers staggering their polls with the initial delay keep doing so.
+     * A poll joining an existing group is executed on the schedule of the group.
+     */
+    private static List<Long> groupKey(long pollPeriodMillis, long initialDelayMillis) {
+        return Arrays.asList(pollPeriodMillis, initialDelayMillis);
+    }
+
+    /**
+     * Remove task from its poll group, if any
+     *
+     * @param task poll task to remove
+     * @return whether the scheduled job executing the task should be canceled, i.e. the task was not part of a poll
+     *         group, or it was the last member of the group
+     */
+    private boolean removeFromPollGroup(PollTask task) {
+        Map<List<Long>, PollGroup> groups = pollGroups.get(task.getEndpoint());
+        if (groups == null) {
+            return true;
+        }
+        for (PollGroup group : groups.values()) {
+            if (group.members.remove(task)) {
+                if (group.members.isEmpty()) {
+                    groups.remove(group.key);
+                    if (groups.isEmpty()) {
+                        pollGroups.remove(task.getEndpoint());
+                    }
+                    return true;
+                }
+                group.replan();
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public ScheduledFuture<?> submitOneTimeWrite(WriteTask task) {
         ScheduledExecutorService scheduledThreadPoolExecutor = this.scheduledThreadPoolExecutor;
@@ -796,6 +1353,11 @@ public class ModbusManagerImpl implements ModbusManager {
             @Nullable EndpointPoolConfiguration configuration) {
         Objects.requireNonNull(connectionFactory, "Not activated!");
         connectionFactory.setEndpointPoolConfiguration(endpoint, configuration);
+        // Pipeline is re-created with the new configuration when needed
+        ModbusTCPPipeline pipeline = pipelines.remove(endpoint);
+        if (pipeline != null) {
+            pipeline.close();
+        }
         for (ModbusManagerListener listener : listeners) {
             listener.onEndpointPoolConfigurationSet(endpoint, configuration);
         }
@@ -822,10 +1384,50 @@ public class ModbusManagerImpl implements ModbusManager {
         return this.scheduledPollTasks.keySet();
     }
 
+    @Override
+    public Map<ModbusSlaveEndpoint, EndpointMetrics> getEndpointMetrics() {
+        Map<ModbusSlaveEndpoint, EndpointMetrics> metrics = new HashMap<>();
+        endpointMetrics.forEach((endpoint, recorder) -> metrics.put(endpoint, snapshotMetrics(endpoint, recorder)));
+        return metrics;
+    }
+
+    @Override
+    public @Nullable EndpointMetrics getEndpointMetrics(ModbusSlaveEndpoint endpoint) {
+        EndpointMetricsRecorder recorder = endpointMetrics.get(endpoint);
+        return recorder == null ? null : snapshotMetrics(endpoint, recorder);
+    }
+
+    @Override
+    public void resetMetrics() {
+        endpointMetrics.clear();
+    }
+
+    private EndpointMetricsRecorder getMetricsRecorder(ModbusSlaveEndpoint endpoint) {
+        return endpointMetrics.computeIfAbsent(endpoint, key -> new EndpointMetricsRecorder());
+    }
+
+    private EndpointMetrics snapshotMetrics(ModbusSlaveEndpoint endpoint, EndpointMetricsRecorder recorder) {
+        KeyedObjectPool<ModbusSlaveEndpoint, ModbusSlaveConnection> pool = connectionPool;
+        int idle = pool == null ? 0 : pool.getNumIdle(endpoint);
+        int active = pool == null ? 0 : pool.getNumActive(endpoint);
+        return recorder.snapshot(idle, active);
+    }
+
     @Activate
     protected void activate(Map<String, Object> configProperties) {
         synchronized (this) {
             logger.info("Modbus manager activated");
+            Object coalesce = configProperties.get(CONFIG_COALESCE_POLLS);
+            coalescePolls = coalesce != null && Boolean.parseBoolean(coalesce.toString());
+            Object adaptive = configProperties.get(CONFIG_ADAPTIVE_TIMING);
+            adaptiveTiming = adaptive != null && Boolean.parseBoolean(adaptive.toString());
+            Object maxGap = configProperties.get(CONFIG_COALESCE_MAX_GAP);
+            try {
+                readPlanner = new ModbusReadPlanner(maxGap == null ? 0 : Integer.parseInt(maxGap.toString()));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid {} '{}', only coalescing adjacent polls", CONFIG_COALESCE_MAX_GAP, maxGap);
+                readPlanner = new ModbusReadPlanner(0);
+            }
             if (connectionPool == null) {
                 constructConnectionPool();
             }
@@ -840,6 +1442,21 @@ public class ModbusManagerImpl implements ModbusManager {
             }
             monitorFuture = scheduledThreadPoolExecutor.scheduleWithFixedDelay(this::logTaskQueueInfo, 0,
                     MONITOR_QUEUE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            keepAliveFuture = scheduledThreadPoolExecutor.scheduleWithFixedDelay(this::keepAliveConnections,
+                    KEEP_ALIVE_CHECK_INTERVAL_MILLIS, KEEP_ALIVE_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            Object nio = configProperties.get(CONFIG_NIO_TRANSPORT);
+            if (nio != null && Boolean.parseBoolean(nio.toString()) && nioTransport == null) {
+                ModbusSlaveConnectionFactoryImpl connectionFactory = this.connectionFactory;
+                Objects.requireNonNull(connectionFactory, "Not activated!");
+                try {
+                    nioTransport = new ModbusNioTransport(scheduledThreadPoolExecutor,
+                            connectionFactory::getEndpointPoolConfiguration);
+                    callbackThreadPool = ThreadPoolManager.getPool(MODBUS_POLLER_CALLBACK_THREAD_POOL_NAME);
+                } catch (IOException e) {
+                    logger.error("Could not start non-blocking transport, using blocking transport instead: {}",
+                            e.getMessage());
+                }
+            }
         }
     }
 
@@ -852,6 +1469,11 @@ public class ModbusManagerImpl implements ModbusManager {
                 for (PollTask task : polls) {
                     unregisterRegularPoll(task);
                 }
+                pollGroups.clear();
+                changeOnlyPollTasks.clear();
+                pipelines.values().forEach(ModbusTCPPipeline::close);
+                pipelines.clear();
+                endpointSchedulers.clear();
 
                 connectionPool.close();
                 this.connectionPool = connectionPool = null;
@@ -861,6 +1483,18 @@ public class ModbusManagerImpl implements ModbusManager {
                 monitorFuture.cancel(true);
                 monitorFuture = null;
             }
+            ScheduledFuture<?> keepAliveFuture = this.keepAliveFuture;
+            if (keepAliveFuture != null) {
+                keepAliveFuture.cancel(true);
+                this.keepAliveFuture = null;
+            }
+            ModbusNioTransport nioTransport = this.nioTransport;
+            if (nioTransport != null) {
+                nioTransport.close();
+                this.nioTransport = null;
+            }
+            callbackThreadPool = null;
+            nonBlockingPollsInProgress.clear();
             // Note that it is not allowed to shutdown the executor, since they will be reused when
             // when pool is received from ThreadPoolManager is called
             scheduledThreadPoolExecutor = null;
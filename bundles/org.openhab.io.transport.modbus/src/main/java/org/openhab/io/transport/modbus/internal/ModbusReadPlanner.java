@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+
+/**
+ * Plans the read transactions for a set of poll tasks that are executed together
+ *
+ * Tasks are grouped by endpoint, unit id and function code. Within each group, tasks with overlapping or
+ * nearly-adjacent address ranges are merged into a single {@link CoalescedPollTask}, as long as the merged range stays
+ * within the protocol limit of a single read (125 registers, or 2000 coils/discrete inputs).
+ *
+ * Tasks that cannot be merged with any other task are returned as is.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusReadPlanner {
+
+    /**
+     * Maximum number of registers in a single read request (function codes 3 and 4)
+     */
+    public static final int MAX_REGISTERS_PER_READ = 125;
+
+    /**
+     * Maximum number of coils or discrete inputs in a single read request (function codes 1 and 2)
+     */
+    public static final int MAX_BITS_PER_READ = 2000;
+
+    private static class GroupKey {
+        private final ModbusSlaveEndpoint endpoint;
+        private final int unitId;
+        private final ModbusReadFunctionCode functionCode;
+
+        GroupKey(PollTask task) {
+            this.endpoint = task.getEndpoint();
+            this.unitId = task.getRequest().getUnitID();
+            this.functionCode = task.getRequest().getFunctionCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, unitId, functionCode);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            GroupKey other = (GroupKey) obj;
+            return endpoint.equals(other.endpoint) && unitId == other.unitId && functionCode == other.functionCode;
+        }
+    }
+
+    private final int maxGap;
+
+    /**
+     * Construct planner
+     *
+     * @param maxGap maximum number of unrequested registers or bits that may be read in between two tasks to merge
+     *            them. With zero, only overlapping and directly adjacent ranges are merged.
+     */
+    public ModbusReadPlanner(int maxGap) {
+        if (maxGap < 0) {
+            throw new IllegalArgumentException("maxGap should be non-negative");
+        }
+        this.maxGap = maxGap;
+    }
+
+    /**
+     * Get maximum number of registers or bits that can be read with single request of the given function code
+     *
+     * @param functionCode read function code
+     * @return maximum data length
+     */
+    public static int getMaxDataLength(ModbusReadFunctionCode functionCode) {
+        switch (functionCode) {
+            case READ_COILS:
+            case READ_INPUT_DISCRETES:
+                return MAX_BITS_PER_READ;
+            default:
+                return MAX_REGISTERS_PER_READ;
+        }
+    }
+
+    /**
+     * Plan the reads for the given tasks
+     *
+     * @param tasks poll tasks to execute
+     * @return tasks to execute instead, each of them either one of the original tasks or a {@link CoalescedPollTask}
+     *         covering several of them
+     */
+    public List<PollTask> plan(Collection<PollTask> tasks) {
+        Map<GroupKey, List<PollTask>> groups = new LinkedHashMap<>();
+        for (PollTask task : tasks) {
+            groups.computeIfAbsent(new GroupKey(task), key -> new ArrayList<>()).add(task);
+        }
+
+        List<PollTask> plan = new ArrayList<>(tasks.size());
+        for (List<PollTask> group : groups.values()) {
+            group.sort(Comparator.comparingInt((PollTask task) -> task.getRequest().getReference())
+                    .thenComparingInt(task -> task.getRequest().getDataLength()));
+            int maxLength = getMaxDataLength(group.get(0).getRequest().getFunctionCode());
+
+            List<PollTask> block = new ArrayList<>();
+            int blockStart = 0;
+            int blockEnd = 0;
+            for (PollTask task : group) {
+                ModbusReadRequestBlueprint request = task.getRequest();
+                int start = request.getReference();
+                int end = start + request.getDataLength();
+                if (!block.isEmpty() && start - blockEnd <= maxGap
+                        && Math.max(end, blockEnd) - blockStart <= maxLength) {
+                    block.add(task);
+                    blockEnd = Math.max(end, blockEnd);
+                    continue;
+                }
+                addBlock(plan, block, blockStart, blockEnd);
+                block = new ArrayList<>();
+                block.add(task);
+                blockStart = start;
+                blockEnd = end;
+            }
+            addBlock(plan, block, blockStart, blockEnd);
+        }
+        return plan;
+    }
+
+    private static void addBlock(List<PollTask> plan, List<PollTask> block, int start, int end) {
+        if (block.isEmpty()) {
+            return;
+        } else if (block.size() == 1) {
+            plan.add(block.get(0));
+        } else {
+            plan.add(new CoalescedPollTask(block, start, end - start));
+        }
+    }
+}
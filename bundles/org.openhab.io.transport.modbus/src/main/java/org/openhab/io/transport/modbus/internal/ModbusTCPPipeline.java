@@ -0,0 +1,286 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.pool2.PooledObject;
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.pooling.ModbusSlaveConnectionFactoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.wimpi.modbus.ModbusException;
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.ModbusSlaveException;
+import net.wimpi.modbus.io.ModbusTransport;
+import net.wimpi.modbus.msg.ExceptionResponse;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ModbusResponse;
+import net.wimpi.modbus.net.ModbusSlaveConnection;
+import net.wimpi.modbus.net.TCPMasterConnection;
+
+/**
+ * Pipelined execution of Modbus/TCP transactions
+ *
+ * Several requests can be in flight on a single connection at the same time. The responses are matched to the
+ * requests using the transaction id, in whatever order the slave (or gateway) responds. Each calling thread writes
+ * its request and then takes turns reading responses from the connection until its own response has arrived.
+ *
+ * The connection is not borrowed from the connection pool since it is shared by all the callers. It is created using
+ * the same connection factory as the pool, respecting the connection settings of the endpoint.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusTCPPipeline {
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusTCPPipeline.class);
+
+    private final ModbusTCPSlaveEndpoint endpoint;
+    private final ModbusSlaveConnectionFactoryImpl connectionFactory;
+    private final int maxInFlight;
+    private final Semaphore inFlightPermits;
+    private final Map<Integer, CompletableFuture<ModbusResponse>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger nextTransactionId = new AtomicInteger(1);
+    private final Object writeLock = new Object();
+    private final ReentrantLock readLock = new ReentrantLock(true);
+
+    private @Nullable PooledObject<ModbusSlaveConnection> connection;
+    private volatile boolean closed;
+
+    public ModbusTCPPipeline(ModbusTCPSlaveEndpoint endpoint, int maxInFlight,
+            ModbusSlaveConnectionFactoryImpl connectionFactory) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight should be positive");
+        }
+        this.endpoint = endpoint;
+        this.maxInFlight = maxInFlight;
+        this.inFlightPermits = new Semaphore(maxInFlight, true);
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Get the connection shared by all transactions of this pipeline, connecting it if necessary
+     *
+     * @return connected connection, or empty {@link Optional} when connection cannot be established
+     */
+    public synchronized Optional<ModbusSlaveConnection> getConnection() {
+        if (closed) {
+            return Optional.empty();
+        }
+        PooledObject<ModbusSlaveConnection> pooled = connection;
+        try {
+            if (pooled == null) {
+                connection = pooled = connectionFactory.makeObject(endpoint);
+            }
+            ModbusSlaveConnection slaveConnection = pooled.getObject();
+            if (slaveConnection == null) {
+                connection = null;
+                return Optional.empty();
+            }
+            if (!slaveConnection.isConnected()) {
+                connectionFactory.activateObject(endpoint, pooled);
+            }
+            return slaveConnection.isConnected() ? Optional.of(slaveConnection) : Optional.empty();
+        } catch (Exception e) {
+            logger.warn("Error connecting pipelined connection for endpoint {}. Error was: {} {}", endpoint,
+                    e.getClass().getName(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Tells whether the given connection is the connection shared by this pipeline
+     *
+     * @param slaveConnection connection to check
+     * @return whether the connection is owned by this pipeline
+     */
+    public synchronized boolean owns(ModbusSlaveConnection slaveConnection) {
+        PooledObject<ModbusSlaveConnection> pooled = connection;
+        return pooled != null && pooled.getObject() == slaveConnection;
+    }
+
+    /**
+     * Close the given connection, if it is the connection shared by this pipeline. Transactions in flight are failed.
+     * New connection is established on next {@link #getConnection()}.
+     *
+     * @param slaveConnection connection to invalidate
+     */
+    public synchronized void invalidate(ModbusSlaveConnection slaveConnection) {
+        PooledObject<ModbusSlaveConnection> pooled = connection;
+        if (pooled == null || pooled.getObject() != slaveConnection) {
+            return;
+        }
+        connection = null;
+        connectionFactory.destroyObject(endpoint, pooled);
+        failAll(new ModbusIOException("Connection was reset"));
+    }
+
+    /**
+     * Close the pipeline and its connection
+     */
+    public void close() {
+        @Nullable
+        ModbusSlaveConnection slaveConnection;
+        synchronized (this) {
+            closed = true;
+            PooledObject<ModbusSlaveConnection> pooled = connection;
+            slaveConnection = pooled == null ? null : pooled.getObject();
+        }
+        if (slaveConnection != null) {
+            invalidate(slaveConnection);
+        }
+        failAll(new ModbusIOException("Pipeline closed"));
+    }
+
+    /**
+     * Get number of transactions currently waiting for response
+     *
+     * @return number of transactions in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Execute the request, blocking until the response has been received
+     *
+     * The transaction id of the request is overwritten with a transaction id unique within the pipeline.
+     *
+     * @param slaveConnection connection to use, as returned by {@link #getConnection()}
+     * @param request request to execute
+     * @return response matching the request
+     * @throws ModbusIOException on I/O errors, or when interrupted
+     * @throws ModbusSlaveException when slave responded with an exception response
+     */
+    public ModbusResponse execute(TCPMasterConnection slaveConnection, ModbusRequest request) throws ModbusException {
+        try {
+            inFlightPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModbusIOException("Interrupted while waiting for transactions in flight");
+        }
+        try {
+            CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+            int transactionId = register(future);
+            request.setTransactionID(transactionId);
+            ModbusTransport transport = slaveConnection.getModbusTransport();
+            synchronized (writeLock) {
+                try {
+                    transport.writeMessage(request);
+                } catch (ModbusIOException e) {
+                    inFlight.remove(transactionId);
+                    failAll(e);
+                    throw e;
+                }
+            }
+            logger.trace("Wrote pipelined request with transaction id {} to endpoint {}, {} transactions in flight",
+                    transactionId, endpoint, inFlight.size());
+
+            while (!future.isDone()) {
+                try {
+                    readLock.lockInterruptibly();
+                } catch (InterruptedException e) {
+                    inFlight.remove(transactionId);
+                    Thread.currentThread().interrupt();
+                    throw new ModbusIOException("Interrupted while waiting for response");
+                }
+                try {
+                    if (!future.isDone()) {
+                        readNext(transport);
+                    }
+                } finally {
+                    readLock.unlock();
+                }
+            }
+            return getResponse(future);
+        } finally {
+            inFlightPermits.release();
+        }
+    }
+
+    private int register(CompletableFuture<ModbusResponse> future) {
+        while (true) {
+            int transactionId = nextTransactionId.getAndIncrement() & 0xFFFF;
+            if (transactionId != 0 && inFlight.putIfAbsent(transactionId, future) == null) {
+                return transactionId;
+            }
+        }
+    }
+
+    private void readNext(ModbusTransport transport) {
+        ModbusResponse response;
+        try {
+            response = transport.readResponse();
+        } catch (ModbusIOException e) {
+            // We cannot know which response was lost, all transactions on the connection need to fail
+            failAll(e);
+            return;
+        }
+        CompletableFuture<ModbusResponse> future = inFlight.remove(response.getTransactionID());
+        if (future == null) {
+            logger.warn("Ignoring response with unknown transaction id {} from endpoint {}",
+                    response.getTransactionID(), endpoint);
+        } else {
+            future.complete(response);
+        }
+    }
+
+    private void failAll(ModbusIOException error) {
+        List<Integer> transactionIds = new ArrayList<>(inFlight.keySet());
+        for (Integer transactionId : transactionIds) {
+            CompletableFuture<ModbusResponse> future = inFlight.remove(transactionId);
+            if (future != null) {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    private ModbusResponse getResponse(CompletableFuture<ModbusResponse> future) throws ModbusException {
+        ModbusResponse response;
+        try {
+            response = future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ModbusException) {
+                throw (ModbusException) cause;
+            }
+            throw new ModbusIOException(String.valueOf(cause));
+        } catch (InterruptedException e) {
+            // not reached, the future is done already
+            Thread.currentThread().interrupt();
+            throw new ModbusIOException("Interrupted while waiting for response");
+        }
+        if (response instanceof ExceptionResponse) {
+            throw new ModbusSlaveException(((ExceptionResponse) response).getExceptionCode());
+        }
+        return response;
+    }
+}
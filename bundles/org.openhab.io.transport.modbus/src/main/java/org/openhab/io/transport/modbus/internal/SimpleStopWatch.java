@@ -13,6 +13,7 @@
 package org.openhab.io.transport.modbus.internal;
 
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -31,12 +32,32 @@ public class SimpleStopWatch {
 
     private volatile long totalMillis;
     private volatile long resumed;
+    private final LongConsumer lapListener;
+
+    public SimpleStopWatch() {
+        this(lap -> {
+        });
+    }
+
+    /**
+     * Construct stop watch
+     *
+     * @param lapListener called with the running time in milliseconds every time the stop watch is suspended
+     */
+    public SimpleStopWatch(LongConsumer lapListener) {
+        this.lapListener = lapListener;
+    }
 
     @FunctionalInterface
     public abstract interface SupplierWithPollTaskUnregisteredException<T> {
         public abstract T get() throws ModbusManagerImpl.PollTaskUnregistered;
     }
 
+    @FunctionalInterface
+    public abstract interface SupplierWithModbusException<T> {
+        public abstract T get() throws ModbusException;
+    }
+
     @FunctionalInterface
     public abstract interface RunnableWithModbusException {
         public abstract void run() throws ModbusException;
@@ -59,12 +80,17 @@ public class SimpleStopWatch {
      *
      * @throws IllegalStateException if stop watch has not been resumed
      */
-    public synchronized void suspend() {
-        if (!isRunning()) {
-            throw new IllegalStateException("Cannot suspend non-running StopWatch");
+    public void suspend() {
+        long lap;
+        synchronized (this) {
+            if (!isRunning()) {
+                throw new IllegalStateException("Cannot suspend non-running StopWatch");
+            }
+            lap = System.currentTimeMillis() - resumed;
+            totalMillis += lap;
+            resumed = 0;
         }
-        totalMillis += System.currentTimeMillis() - resumed;
-        resumed = 0;
+        lapListener.accept(lap);
     }
 
     /**
@@ -121,6 +147,24 @@ public class SimpleStopWatch {
         }
     }
 
+    /**
+     * Time single action using this StopWatch
+     *
+     * First StopWatch is resumed, then action is applied. Finally the StopWatch is suspended.
+     *
+     * @param supplier action to time
+     * @return return value from supplier
+     * @throws ModbusException when original supplier throws the exception
+     */
+    public <R> R timeSupplierWithModbusException(SupplierWithModbusException<R> supplier) throws ModbusException {
+        try {
+            this.resume();
+            return supplier.get();
+        } finally {
+            this.suspend();
+        }
+    }
+
     /**
      * Time single action using this StopWatch
      *
@@ -0,0 +1,422 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal.nio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.ModbusConnectionException;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.AdaptiveEndpointTiming;
+import org.openhab.io.transport.modbus.internal.EndpointMetricsRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.wimpi.modbus.Modbus;
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ModbusResponse;
+
+/**
+ * State of a single endpoint of the {@link ModbusNioTransport}
+ *
+ * All methods are called from the selector thread.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+class ModbusNioEndpoint {
+
+    /**
+     * Size of MBAP header up to and including the length field
+     */
+    private static final int HEADER_LENGTH = 6;
+
+    /**
+     * Maximum Modbus/TCP frame is 260 bytes, leave room for extra data sent by misbehaving slaves
+     */
+    private static final int READ_BUFFER_SIZE = 512;
+
+    private static class Transaction {
+        private final ModbusRequest request;
+        private final CompletableFuture<ModbusResponse> future;
+        private @Nullable ScheduledFuture<?> timeout;
+        private long sentMillis;
+
+        Transaction(ModbusRequest request, CompletableFuture<ModbusResponse> future) {
+            this.request = request;
+            this.future = future;
+        }
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusNioEndpoint.class);
+
+    private final ModbusNioTransport transport;
+    private final ModbusTCPSlaveEndpoint endpoint;
+    /**
+     * Writes and one-off polls, executed before the regular polls in {@link #queue}
+     */
+    private final Deque<Transaction> highPriorityQueue = new ArrayDeque<>();
+    private final Deque<Transaction> queue = new ArrayDeque<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(0);
+
+    private @Nullable Transaction current;
+    private @Nullable SocketChannel channel;
+    private @Nullable SelectionKey key;
+    private boolean connected;
+    private int connectTries;
+    private long connectedMillis;
+    private long lastConnectAttemptMillis;
+    private long lastTransactionEndMillis;
+    private int nextTransactionId = 1;
+    private @Nullable ScheduledFuture<?> wakeup;
+    private @Nullable ScheduledFuture<?> connectTimeout;
+    private @Nullable AdaptiveEndpointTiming timing;
+    private @Nullable EndpointPoolConfiguration timingConfig;
+
+    ModbusNioEndpoint(ModbusNioTransport transport, ModbusTCPSlaveEndpoint endpoint) {
+        this.transport = transport;
+        this.endpoint = endpoint;
+    }
+
+    void enqueue(ModbusRequest request, CompletableFuture<ModbusResponse> future, boolean highPriority) {
+        (highPriority ? highPriorityQueue : queue).add(new Transaction(request, future));
+        process();
+    }
+
+    /**
+     * Fail current and queued transactions, and close the connection
+     */
+    void close(Exception error) {
+        closeChannel();
+        ScheduledFuture<?> wakeup = this.wakeup;
+        if (wakeup != null) {
+            wakeup.cancel(false);
+            this.wakeup = null;
+        }
+        Transaction transaction = current;
+        current = null;
+        if (transaction != null) {
+            cancelTimeout(transaction);
+            transaction.future.completeExceptionally(error);
+        }
+        failQueued(error);
+    }
+
+    void handle(SelectionKey key) {
+        SocketChannel channel = this.channel;
+        if (!key.isValid() || key != this.key || channel == null) {
+            return;
+        }
+        try {
+            if (key.isConnectable()) {
+                if (channel.finishConnect()) {
+                    onConnected();
+                }
+            } else if (key.isWritable()) {
+                channel.write(writeBuffer);
+                if (!writeBuffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } else if (key.isReadable()) {
+                if (channel.read(readBuffer) < 0) {
+                    throw new EOFException("Connection closed by slave");
+                }
+                parseResponses();
+            }
+        } catch (IOException e) {
+            if (connected) {
+                fail(new ModbusIOException(String.format("I/O error: %s %s", e.getClass().getName(), e.getMessage())));
+            } else {
+                connectFailed(e);
+            }
+        }
+    }
+
+    /**
+     * Start next transaction, connecting first if necessary
+     */
+    private void process() {
+        if (current != null || (highPriorityQueue.isEmpty() && queue.isEmpty()) || wakeup != null) {
+            return;
+        }
+        EndpointPoolConfiguration config = transport.getConfiguration(endpoint);
+        long now = System.currentTimeMillis();
+        if (channel == null) {
+            connect(config, now);
+            return;
+        } else if (!connected) {
+            // connection in progress
+            return;
+        }
+        long delay = lastTransactionEndMillis + getInterTransactionDelayMillis(config) - now;
+        if (lastTransactionEndMillis > 0 && delay > 0) {
+            scheduleWakeup(delay);
+            return;
+        }
+        Transaction next = highPriorityQueue.isEmpty() ? queue.poll() : highPriorityQueue.poll();
+        if (next != null) {
+            send(next);
+        }
+    }
+
+    private void scheduleWakeup(long delayMillis) {
+        wakeup = transport.schedule(() -> {
+            wakeup = null;
+            process();
+        }, delayMillis);
+    }
+
+    private void connect(EndpointPoolConfiguration config, long now) {
+        long delay = lastConnectAttemptMillis
+                + Math.max(config.getInterConnectDelayMillis(), getInterTransactionDelayMillis(config)) - now;
+        if (lastConnectAttemptMillis > 0 && delay > 0) {
+            scheduleWakeup(delay);
+            return;
+        }
+        lastConnectAttemptMillis = now;
+        try {
+            SocketChannel channel = SocketChannel.open();
+            this.channel = channel;
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            key = channel.register(transport.getSelector(), SelectionKey.OP_CONNECT, this);
+            logger.trace("Connecting to endpoint {}", endpoint);
+            if (channel.connect(new InetSocketAddress(endpoint.getAddress(), endpoint.getPort()))) {
+                onConnected();
+            } else {
+                int timeoutMillis = config.getConnectTimeoutMillis() > 0 ? config.getConnectTimeoutMillis()
+                        : Modbus.DEFAULT_TIMEOUT;
+                SocketChannel connecting = channel;
+                connectTimeout = transport.schedule(() -> {
+                    if (this.channel == connecting && !connected) {
+                        connectFailed(new IOException("Connect timed out"));
+                    }
+                }, timeoutMillis);
+            }
+        } catch (IOException e) {
+            connectFailed(e);
+        }
+    }
+
+    private void onConnected() {
+        logger.trace("Connected to endpoint {}", endpoint);
+        cancelConnectTimeout();
+        connected = true;
+        connectTries = 0;
+        connectedMillis = System.currentTimeMillis();
+        SelectionKey key = this.key;
+        if (key != null) {
+            key.interestOps(0);
+        }
+        process();
+    }
+
+    private void connectFailed(IOException error) {
+        closeChannel();
+        connectTries++;
+        int maxTries = transport.getConfiguration(endpoint).getConnectMaxTries();
+        logger.debug("connect try {}/{} error: {}. Endpoint {}", connectTries, maxTries, error.getMessage(), endpoint);
+        if (connectTries >= maxTries) {
+            logger.warn("Could not connect to endpoint {}: {}", endpoint, error.getMessage());
+            connectTries = 0;
+            failQueued(new ModbusConnectionException(endpoint));
+        }
+        process();
+    }
+
+    private void send(Transaction transaction) {
+        current = transaction;
+        ModbusRequest request = transaction.request;
+        request.setTransactionID(nextTransactionId);
+        nextTransactionId = nextTransactionId % 0xFFFF + 1;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_LENGTH + request.getDataLength());
+            request.writeTo(new DataOutputStream(bytes));
+            writeBuffer = ByteBuffer.wrap(bytes.toByteArray());
+        } catch (IOException e) {
+            fail(new ModbusIOException(String.format("Could not serialize request: %s", e.getMessage())));
+            return;
+        }
+        readBuffer.clear();
+        AdaptiveEndpointTiming timing = getAdaptiveTiming(transport.getConfiguration(endpoint));
+        transaction.sentMillis = System.currentTimeMillis();
+        transaction.timeout = transport.schedule(() -> {
+            if (current == transaction) {
+                fail(new ModbusIOException("Response timed out"));
+            }
+        }, timing == null ? Modbus.DEFAULT_TIMEOUT : timing.getResponseTimeoutMillis());
+        SelectionKey key = this.key;
+        if (key != null) {
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void parseResponses() {
+        while (readBuffer.position() >= HEADER_LENGTH) {
+            int frameLength = HEADER_LENGTH + (((readBuffer.get(4) & 0xff) << 8) | (readBuffer.get(5) & 0xff));
+            if (frameLength > readBuffer.capacity()) {
+                fail(new ModbusIOException(String.format("Invalid frame length %d", frameLength)));
+                return;
+            } else if (readBuffer.position() < frameLength) {
+                return;
+            }
+            byte[] frame = Arrays.copyOf(readBuffer.array(), frameLength);
+            readBuffer.flip();
+            readBuffer.position(frameLength);
+            readBuffer.compact();
+
+            ModbusResponse response;
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+                response = ModbusResponse.createModbusResponse(frame[HEADER_LENGTH + 1] & 0xff);
+                response.readFrom(in);
+            } catch (IOException | RuntimeException e) {
+                fail(new ModbusIOException(String.format("Could not parse response: %s", e.getMessage())));
+                return;
+            }
+            Transaction transaction = current;
+            if (transaction == null || response.getTransactionID() != transaction.request.getTransactionID()) {
+                logger.debug("Ignoring unexpected response with transaction id {} from endpoint {}",
+                        response.getTransactionID(), endpoint);
+                continue;
+            }
+            complete(transaction, response);
+            return;
+        }
+    }
+
+    private void complete(Transaction transaction, ModbusResponse response) {
+        cancelTimeout(transaction);
+        current = null;
+        long now = System.currentTimeMillis();
+        lastTransactionEndMillis = now;
+        AdaptiveEndpointTiming timing = this.timing;
+        if (timing != null) {
+            timing.recordSuccess(now - transaction.sentMillis);
+        }
+        SelectionKey key = this.key;
+        if (key != null && key.isValid()) {
+            key.interestOps(0);
+        }
+        int reconnectAfterMillis = transport.getConfiguration(endpoint).getReconnectAfterMillis();
+        if (reconnectAfterMillis == 0 || (reconnectAfterMillis > 0 && now - connectedMillis > reconnectAfterMillis)) {
+            closeChannel();
+        }
+        transaction.future.complete(response);
+        process();
+    }
+
+    private void fail(ModbusIOException error) {
+        Transaction transaction = current;
+        current = null;
+        // Late responses would be confused with the next transaction, start from a fresh connection
+        closeChannel();
+        lastTransactionEndMillis = System.currentTimeMillis();
+        if (transaction != null) {
+            cancelTimeout(transaction);
+            AdaptiveEndpointTiming timing = this.timing;
+            if (timing != null) {
+                timing.recordFailure(EndpointMetricsRecorder.isTimeout(error));
+            }
+            transaction.future.completeExceptionally(error);
+        }
+        process();
+    }
+
+    /**
+     * Get adaptive timing, starting over when the configuration has changed
+     *
+     * @return adaptive timing, or null if adaptive timing is not enabled
+     */
+    private @Nullable AdaptiveEndpointTiming getAdaptiveTiming(EndpointPoolConfiguration config) {
+        if (!config.isAdaptiveTiming()) {
+            timing = null;
+            return null;
+        }
+        AdaptiveEndpointTiming timing = this.timing;
+        if (timing == null || !config.equals(timingConfig)) {
+            this.timing = timing = new AdaptiveEndpointTiming(config);
+            timingConfig = config;
+        }
+        return timing;
+    }
+
+    private long getInterTransactionDelayMillis(EndpointPoolConfiguration config) {
+        AdaptiveEndpointTiming timing = getAdaptiveTiming(config);
+        return timing == null ? config.getInterTransactionDelayMillis() : timing.getInterTransactionDelayMillis();
+    }
+
+    private void failQueued(Exception error) {
+        Transaction transaction;
+        while ((transaction = highPriorityQueue.poll()) != null) {
+            transaction.future.completeExceptionally(error);
+        }
+        while ((transaction = queue.poll()) != null) {
+            transaction.future.completeExceptionally(error);
+        }
+    }
+
+    private void closeChannel() {
+        cancelConnectTimeout();
+        SelectionKey key = this.key;
+        if (key != null) {
+            key.cancel();
+        }
+        SocketChannel channel = this.channel;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Error closing connection to endpoint {}: {}", endpoint, e.getMessage());
+            }
+        }
+        this.key = null;
+        this.channel = null;
+        connected = false;
+    }
+
+    private void cancelConnectTimeout() {
+        ScheduledFuture<?> connectTimeout = this.connectTimeout;
+        if (connectTimeout != null) {
+            connectTimeout.cancel(false);
+            this.connectTimeout = null;
+        }
+    }
+
+    private void cancelTimeout(Transaction transaction) {
+        ScheduledFuture<?> timeout = transaction.timeout;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+    }
+}
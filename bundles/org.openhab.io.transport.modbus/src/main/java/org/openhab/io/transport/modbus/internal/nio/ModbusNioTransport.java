@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal.nio;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ModbusResponse;
+
+/**
+ * Non-blocking Modbus/TCP transport
+ *
+ * A single selector thread drives the connections of all endpoints. Requests of each endpoint are queued and
+ * executed one at a time, as with the blocking transport. Inter-transaction and inter-connect delays, as well as
+ * connect and response timeouts, are implemented with timer events instead of sleeping threads.
+ *
+ * The returned futures are completed in the selector thread, and the completion handlers should therefore return
+ * quickly.
+ *
+ * @author Sami Salonen - Initial contribution
+ *
+ */
+@NonNullByDefault
+public class ModbusNioTransport {
+
+    private static final String SELECTOR_THREAD_NAME = "modbusManagerNioSelector";
+
+    private final Logger logger = LoggerFactory.getLogger(ModbusNioTransport.class);
+
+    private final ScheduledExecutorService timer;
+    private final Function<ModbusSlaveEndpoint, @Nullable EndpointPoolConfiguration> configurationProvider;
+    private final Selector selector;
+    private final Thread selectorThread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    /**
+     * Endpoint states, accessed only from the selector thread
+     */
+    private final Map<ModbusTCPSlaveEndpoint, ModbusNioEndpoint> endpoints = new HashMap<>();
+    private volatile boolean running = true;
+    /**
+     * Whether the selector thread has stopped. Tasks executed from then on are not run, and submitted requests fail.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Construct transport and start the selector thread
+     *
+     * @param timer executor used for the timer events. The scheduled actions are short and only hand over the work
+     *            to the selector thread.
+     * @param configurationProvider provider of the connection settings of each endpoint
+     * @throws IOException when selector cannot be opened
+     */
+    public ModbusNioTransport(ScheduledExecutorService timer,
+            Function<ModbusSlaveEndpoint, @Nullable EndpointPoolConfiguration> configurationProvider)
+            throws IOException {
+        this.timer = timer;
+        this.configurationProvider = configurationProvider;
+        this.selector = Selector.open();
+        this.selectorThread = new NamedThreadFactory(SELECTOR_THREAD_NAME, true).newThread(this::run);
+        selectorThread.start();
+    }
+
+    /**
+     * Submit request for execution
+     *
+     * The future completes with the response (possibly an exception response from the slave), or exceptionally with
+     * {@link ModbusIOException} on I/O errors and timeouts, or with
+     * {@link org.openhab.io.transport.modbus.ModbusConnectionException} when connection cannot be established.
+     *
+     * @param endpoint endpoint to send the request to
+     * @param request request to send. The transaction id of the request is overwritten.
+     * @return future of the response
+     */
+    public CompletableFuture<ModbusResponse> submit(ModbusTCPSlaveEndpoint endpoint, ModbusRequest request) {
+        return submit(endpoint, request, false);
+    }
+
+    /**
+     * Submit request for execution
+     *
+     * @param endpoint endpoint to send the request to
+     * @param request request to send. The transaction id of the request is overwritten.
+     * @param highPriority whether the request should be executed before the queued normal priority requests, e.g.
+     *            writes
+     * @return future of the response
+     * @see #submit(ModbusTCPSlaveEndpoint, ModbusRequest)
+     */
+    public CompletableFuture<ModbusResponse> submit(ModbusTCPSlaveEndpoint endpoint, ModbusRequest request,
+            boolean highPriority) {
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new ModbusIOException("Transport closed"));
+            return future;
+        }
+        execute(new Submission(endpoint, request, future, highPriority));
+        return future;
+    }
+
+    /**
+     * Request submitted for execution, failed instead if the selector thread has stopped meanwhile
+     */
+    private class Submission implements Runnable {
+        private final ModbusTCPSlaveEndpoint endpoint;
+        private final ModbusRequest request;
+        private final CompletableFuture<ModbusResponse> future;
+        private final boolean highPriority;
+
+        Submission(ModbusTCPSlaveEndpoint endpoint, ModbusRequest request, CompletableFuture<ModbusResponse> future,
+                boolean highPriority) {
+            this.endpoint = endpoint;
+            this.request = request;
+            this.future = future;
+            this.highPriority = highPriority;
+        }
+
+        @Override
+        public void run() {
+            endpoints.computeIfAbsent(endpoint, key -> new ModbusNioEndpoint(ModbusNioTransport.this, key))
+                    .enqueue(request, future, highPriority);
+        }
+    }
+
+    /**
+     * Close the transport. Requests not yet completed are failed.
+     */
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Execute the task in the selector thread
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (stopped) {
+            // the selector thread might have drained the tasks for the last time before the task was added
+            failTasks();
+        } else {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Execute the task in the selector thread after the given delay
+     */
+    ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return timer.schedule(() -> execute(task), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    EndpointPoolConfiguration getConfiguration(ModbusTCPSlaveEndpoint endpoint) {
+        EndpointPoolConfiguration configuration = configurationProvider.apply(endpoint);
+        return configuration == null ? new EndpointPoolConfiguration() : configuration;
+    }
+
+    private void run() {
+        logger.debug("Modbus NIO selector thread started");
+        try {
+            while (running) {
+                selector.select();
+                runTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        ((ModbusNioEndpoint) key.attachment()).handle(key);
+                    } catch (RuntimeException e) {
+                        logger.error("Unexpected error handling I/O event", e);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            logger.error("Modbus NIO selector failed: {}", e.getMessage(), e);
+        } finally {
+            running = false;
+            runTasks();
+            ModbusIOException error = new ModbusIOException("Transport closed");
+            endpoints.values().forEach(endpoint -> endpoint.close(error));
+            endpoints.clear();
+            stopped = true;
+            failTasks();
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.debug("Error closing selector: {}", e.getMessage());
+            }
+            logger.debug("Modbus NIO selector thread stopped");
+        }
+    }
+
+    /**
+     * Drop the tasks left after the selector thread has stopped, failing the submitted requests
+     */
+    private void failTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            if (task instanceof Submission) {
+                ((Submission) task).future.completeExceptionally(new ModbusIOException("Transport closed"));
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in Modbus NIO task", e);
+            }
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpointVisitor;
 import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusUDPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.AdaptiveEndpointTiming;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,12 +79,47 @@ public class ModbusSlaveConnectionFactoryImpl
 
     }
 
+    /**
+     * Listener for connection lifecycle events, e.g. for tracking connection churn
+     */
+    public interface ConnectionListener {
+        /**
+         * Called when connection has been established
+         *
+         * @param endpoint endpoint of the connection
+         * @param connectMillis time it took to connect, in milliseconds
+         */
+        default void onConnect(ModbusSlaveEndpoint endpoint, long connectMillis) {
+        }
+
+        /**
+         * Called when connection could not be established, after all tries
+         *
+         * @param endpoint endpoint of the connection
+         */
+        default void onConnectFailure(ModbusSlaveEndpoint endpoint) {
+        }
+
+        /**
+         * Called when connected connection is closed
+         *
+         * @param endpoint endpoint of the connection
+         */
+        default void onDisconnect(ModbusSlaveEndpoint endpoint) {
+        }
+    }
+
     private final Logger logger = LoggerFactory.getLogger(ModbusSlaveConnectionFactoryImpl.class);
     private volatile Map<ModbusSlaveEndpoint, @Nullable EndpointPoolConfiguration> endpointPoolConfigs = new ConcurrentHashMap<>();
     private volatile Map<ModbusSlaveEndpoint, Long> lastPassivateMillis = new ConcurrentHashMap<>();
     private volatile Map<ModbusSlaveEndpoint, Long> lastConnectMillis = new ConcurrentHashMap<>();
     private volatile Map<ModbusSlaveEndpoint, Long> disconnectIfConnectedBefore = new ConcurrentHashMap<>();
+    private final Map<ModbusSlaveEndpoint, AdaptiveEndpointTiming> adaptiveTimings = new ConcurrentHashMap<>();
+    private final Map<ModbusSlaveEndpoint, Long> connectFailedMillis = new ConcurrentHashMap<>();
+    private final Map<ModbusSlaveEndpoint, Long> lastKeepAliveMillis = new ConcurrentHashMap<>();
     private volatile Function<ModbusSlaveEndpoint, @Nullable EndpointPoolConfiguration> defaultPoolConfigurationFactory = endpoint -> null;
+    private volatile ConnectionListener connectionListener = new ConnectionListener() {
+    };
 
     private @Nullable InetAddress getInetAddress(ModbusIPSlaveEndpoint key) {
         try {
@@ -149,7 +185,7 @@ public class ModbusSlaveConnectionFactoryImpl
         if (obj.getObject() == null) {
             return;
         }
-        obj.getObject().resetConnection();
+        disconnect(endpoint, obj.getObject());
     }
 
     @Override
@@ -170,16 +206,19 @@ public class ModbusSlaveConnectionFactoryImpl
             }
 
             if (config != null) {
-                long waited = waitAtleast(lastPassivateMillis.get(endpoint), config.getInterTransactionDelayMillis());
+                long interTransactionDelayMillis = getInterTransactionDelayMillis(endpoint, config);
+                long waited = waitAtleast(lastPassivateMillis.get(endpoint), interTransactionDelayMillis);
                 logger.trace(
                         "Waited {}ms (interTransactionDelayMillis {}ms) before giving returning connection {} for endpoint {}, to ensure delay between transactions.",
-                        waited, config.getInterTransactionDelayMillis(), obj.getObject(), endpoint);
+                        waited, interTransactionDelayMillis, obj.getObject(), endpoint);
+            }
+            AdaptiveEndpointTiming timing = getAdaptiveTiming(endpoint);
+            if (timing != null && connection.isConnected()) {
+                setResponseTimeout(connection, timing.getResponseTimeoutMillis());
             }
         } catch (InterruptedException e) {
             // Someone wants to cancel us, reset the connection and abort
-            if (connection.isConnected()) {
-                connection.resetConnection();
-            }
+            disconnect(endpoint, connection);
         } catch (Exception e) {
             logger.error("Error connecting connection {} for endpoint {}: {}", obj.getObject(), endpoint,
                     e.getMessage());
@@ -211,7 +250,7 @@ public class ModbusSlaveConnectionFactoryImpl
                     "(passivate) Connection {} (endpoint {}) age {}ms is over the reconnectAfterMillis={}ms limit or has been connection time ({}) is after the \"disconnectBeforeConnectedMillis\"={} -> disconnecting.",
                     connection, endpoint, connectionAgeMillis, reconnectAfterMillis, connected,
                     disconnectIfConnectedBeforeMillis);
-            connection.resetConnection();
+            disconnect(endpoint, connection);
         } else {
             logger.trace(
                     "(passivate) Connection {} (endpoint {}) age ({}ms) is below the reconnectAfterMillis ({}ms) limit and connection time ({}) is after the \"disconnectBeforeConnectedMillis\"={}. Keep the connection open.",
@@ -240,6 +279,8 @@ public class ModbusSlaveConnectionFactoryImpl
         } else {
             endpointPoolConfigs.put(endpoint, config);
         }
+        // start adapting from the new configuration
+        adaptiveTimings.remove(endpoint);
     }
 
     /**
@@ -258,6 +299,32 @@ public class ModbusSlaveConnectionFactoryImpl
         return config;
     }
 
+    /**
+     * Get adaptive timing of a given endpoint
+     *
+     * @param endpoint endpoint to query
+     * @return adaptive timing of the endpoint, or null if adaptive timing is not enabled for the endpoint
+     */
+    public @Nullable AdaptiveEndpointTiming getAdaptiveTiming(ModbusSlaveEndpoint endpoint) {
+        EndpointPoolConfiguration config = getEndpointPoolConfiguration(endpoint);
+        if (config == null || !config.isAdaptiveTiming()) {
+            return null;
+        }
+        return adaptiveTimings.computeIfAbsent(endpoint, key -> new AdaptiveEndpointTiming(config));
+    }
+
+    /**
+     * Get the current inter-transaction delay of a given endpoint
+     *
+     * @param endpoint endpoint to query
+     * @param config configuration of the endpoint
+     * @return adaptive delay if adaptive timing is enabled, otherwise the configured delay. In milliseconds.
+     */
+    public long getInterTransactionDelayMillis(ModbusSlaveEndpoint endpoint, EndpointPoolConfiguration config) {
+        AdaptiveEndpointTiming timing = config.isAdaptiveTiming() ? getAdaptiveTiming(endpoint) : null;
+        return timing == null ? config.getInterTransactionDelayMillis() : timing.getInterTransactionDelayMillis();
+    }
+
     /**
      * Set default factory for {@link EndpointPoolConfiguration}
      *
@@ -268,6 +335,86 @@ public class ModbusSlaveConnectionFactoryImpl
         this.defaultPoolConfigurationFactory = defaultPoolConfigurationFactory;
     }
 
+    /**
+     * Set listener for connection lifecycle events
+     *
+     * @param connectionListener listener to call
+     */
+    public void setConnectionListener(ConnectionListener connectionListener) {
+        this.connectionListener = connectionListener;
+    }
+
+    /**
+     * Tells whether borrowers should fail right away instead of connecting
+     *
+     * While the endpoint is kept alive in the background, connecting is suspended for one keep-alive interval after
+     * a failed connect. This avoids every queued operation waiting for its own connect attempts to time out, e.g.
+     * after a network blip, as keep-alive keeps trying to connect in the meanwhile. Endpoints not kept alive, e.g.
+     * without regular polls, are never suspended, since nothing else would reconnect them.
+     *
+     * @param endpoint endpoint to query
+     * @return whether connecting is suspended
+     */
+    public boolean isConnectSuspended(ModbusSlaveEndpoint endpoint) {
+        EndpointPoolConfiguration config = getEndpointPoolConfiguration(endpoint);
+        Long failed = connectFailedMillis.get(endpoint);
+        Long keptAlive = lastKeepAliveMillis.get(endpoint);
+        if (config == null || failed == null || keptAlive == null || !isKeepAliveEnabled(config)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long interval = config.getKeepAliveIntervalMillis();
+        // keep-alive is due once per interval, allow for the time the last one took
+        return now - keptAlive <= 2 * interval && now - failed < interval;
+    }
+
+    private static boolean isKeepAliveEnabled(EndpointPoolConfiguration config) {
+        return config.getKeepAliveIntervalMillis() > 0 && config.getReconnectAfterMillis() != 0;
+    }
+
+    /**
+     * Tells whether the idle connection of the endpoint should be checked in the background now
+     *
+     * Keep-alive is due once per keep-alive interval, for endpoints that keep their connections open between
+     * transactions.
+     *
+     * @param endpoint endpoint to query
+     * @return whether keep-alive is due. Calling this method starts a new interval when returning true.
+     */
+    public boolean isKeepAliveDue(ModbusSlaveEndpoint endpoint) {
+        EndpointPoolConfiguration config = getEndpointPoolConfiguration(endpoint);
+        if (config == null || !isKeepAliveEnabled(config)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        Long last = lastKeepAliveMillis.get(endpoint);
+        if (last != null && now - last < config.getKeepAliveIntervalMillis()) {
+            return false;
+        }
+        lastKeepAliveMillis.put(endpoint, now);
+        return true;
+    }
+
+    /**
+     * Tells whether the connection of the endpoint will be over the reconnectAfterMillis limit before the next
+     * keep-alive, and should therefore be replaced already
+     *
+     * @param endpoint endpoint to query
+     * @return whether connection is about to expire
+     */
+    public boolean isAboutToExpire(ModbusSlaveEndpoint endpoint) {
+        EndpointPoolConfiguration config = getEndpointPoolConfiguration(endpoint);
+        Long connected = lastConnectMillis.get(endpoint);
+        if (config == null || connected == null || config.getReconnectAfterMillis() <= 0) {
+            return false;
+        }
+        long reconnectAfterMillis = config.getReconnectAfterMillis();
+        // renew at latest half way, so that short limits do not lead to reconnecting on every keep-alive
+        long renewAfterMillis = Math.max(reconnectAfterMillis - config.getKeepAliveIntervalMillis(),
+                reconnectAfterMillis / 2);
+        return System.currentTimeMillis() - connected > renewAfterMillis;
+    }
+
     private void tryConnect(ModbusSlaveEndpoint endpoint, PooledObject<ModbusSlaveConnection> obj,
             ModbusSlaveConnection connection, @Nullable EndpointPoolConfiguration config) throws Exception {
         if (connection.isConnected()) {
@@ -279,8 +426,8 @@ public class ModbusSlaveConnectionFactoryImpl
         do {
             try {
                 if (config != null) {
-                    long waited = waitAtleast(lastConnect,
-                            Math.max(config.getInterConnectDelayMillis(), config.getInterTransactionDelayMillis()));
+                    long waited = waitAtleast(lastConnect, Math.max(config.getInterConnectDelayMillis(),
+                            getInterTransactionDelayMillis(endpoint, config)));
                     if (waited > 0) {
                         logger.trace(
                                 "Waited {}ms (interConnectDelayMillis {}ms, interTransactionDelayMillis {}ms) before "
@@ -290,10 +437,13 @@ public class ModbusSlaveConnectionFactoryImpl
                                 obj.getObject(), endpoint);
                     }
                 }
+                long connectStart = System.currentTimeMillis();
                 connection.connect();
                 long curTime = System.currentTimeMillis();
                 ((PooledConnection) obj).setLastConnected(curTime);
                 lastConnectMillis.put(endpoint, curTime);
+                connectFailedMillis.remove(endpoint);
+                connectionListener.onConnect(endpoint, curTime - connectStart);
                 break;
             } catch (InterruptedException e) {
                 logger.error("connect try {}/{} error: {}. Aborting since interrupted. Connection {}. Endpoint {}.",
@@ -306,6 +456,8 @@ public class ModbusSlaveConnectionFactoryImpl
                 if (tryIndex >= maxTries) {
                     logger.error("re-connect reached max tries {}, throwing last error: {}. Connection {}. Endpoint {}",
                             maxTries, e.getMessage(), connection, endpoint);
+                    connectFailedMillis.put(endpoint, System.currentTimeMillis());
+                    connectionListener.onConnectFailure(endpoint);
                     throw e;
                 }
                 lastConnect = System.currentTimeMillis();
@@ -313,6 +465,23 @@ public class ModbusSlaveConnectionFactoryImpl
         } while (true);
     }
 
+    private void disconnect(ModbusSlaveEndpoint endpoint, ModbusSlaveConnection connection) {
+        boolean connected = connection.isConnected();
+        connection.resetConnection();
+        if (connected) {
+            connectionListener.onDisconnect(endpoint);
+        }
+    }
+
+    private void setResponseTimeout(ModbusSlaveConnection connection, int timeoutMillis) {
+        if (connection instanceof TCPMasterConnection) {
+            ((TCPMasterConnection) connection).setTimeout(timeoutMillis);
+        } else if (connection instanceof UDPMasterConnection) {
+            ((UDPMasterConnection) connection).setTimeout(timeoutMillis);
+        }
+        // serial response timeout is part of the serial parameters of the endpoint
+    }
+
     /**
      * Sleep until <code>waitMillis</code> has passed from <code>lastOperation</code>
      *
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.number.OrderingComparison.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.internal.AdaptiveEndpointTiming;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class AdaptiveEndpointTimingTest {
+
+    private EndpointPoolConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        configuration = new EndpointPoolConfiguration();
+        configuration.setAdaptiveTiming(true);
+        configuration.setInterTransactionDelayMillis(60);
+        configuration.setMinInterTransactionDelayMillis(5);
+        configuration.setMaxInterTransactionDelayMillis(500);
+        configuration.setMinResponseTimeoutMillis(50);
+        configuration.setMaxResponseTimeoutMillis(3000);
+    }
+
+    @Test
+    public void testInitialValues() {
+        AdaptiveEndpointTiming timing = new AdaptiveEndpointTiming(configuration);
+
+        assertThat(timing.getInterTransactionDelayMillis(), is(equalTo(60L)));
+        assertThat(timing.getResponseTimeoutMillis(), is(equalTo(3000)));
+    }
+
+    @Test
+    public void testFastSlaveConvergesToLowerBounds() {
+        AdaptiveEndpointTiming timing = new AdaptiveEndpointTiming(configuration);
+        for (int i = 0; i < 100; i++) {
+            timing.recordSuccess(2);
+        }
+
+        assertThat(timing.getInterTransactionDelayMillis(), is(equalTo(5L)));
+        assertThat(timing.getResponseTimeoutMillis(), is(equalTo(50)));
+    }
+
+    @Test
+    public void testResponseTimeoutFollowsLatency() {
+        AdaptiveEndpointTiming timing = new AdaptiveEndpointTiming(configuration);
+        for (int i = 0; i < 100; i++) {
+            timing.recordSuccess(200);
+        }
+
+        assertThat(timing.getResponseTimeoutMillis(), is(greaterThanOrEqualTo(200)));
+        assertThat(timing.getResponseTimeoutMillis(), is(lessThan(300)));
+    }
+
+    @Test
+    public void testFailuresBackOff() {
+        AdaptiveEndpointTiming timing = new AdaptiveEndpointTiming(configuration);
+        for (int i = 0; i < 100; i++) {
+            timing.recordSuccess(100);
+        }
+        long delay = timing.getInterTransactionDelayMillis();
+        int timeout = timing.getResponseTimeoutMillis();
+
+        timing.recordFailure(true);
+
+        assertThat(timing.getInterTransactionDelayMillis(), is(greaterThan(delay)));
+        assertThat(timing.getResponseTimeoutMillis(), is(greaterThan(timeout)));
+        assertThat(timing.getResponseTimeoutMillis(), is(lessThanOrEqualTo(2 * timeout)));
+
+        for (int i = 0; i < 20; i++) {
+            timing.recordFailure(true);
+        }
+        assertThat(timing.getInterTransactionDelayMillis(), is(equalTo(500L)));
+        assertThat(timing.getResponseTimeoutMillis(), is(equalTo(3000)));
+    }
+
+    @Test
+    public void testDelayIsKeptUntilErrorRateHasDecayed() {
+        AdaptiveEndpointTiming timing = new AdaptiveEndpointTiming(configuration);
+        timing.recordFailure(false);
+        long delay = timing.getInterTransactionDelayMillis();
+
+        timing.recordSuccess(10);
+
+        assertThat(timing.getInterTransactionDelayMillis(), is(equalTo(delay)));
+
+        for (int i = 0; i < 50; i++) {
+            timing.recordSuccess(10);
+        }
+        assertThat(timing.getInterTransactionDelayMillis(), is(lessThan(delay)));
+    }
+}
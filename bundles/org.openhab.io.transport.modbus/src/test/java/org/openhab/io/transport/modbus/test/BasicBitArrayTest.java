@@ -83,4 +83,24 @@ public class BasicBitArrayTest {
         BasicBitArray data1 = new BasicBitArray(3);
         data1.getBit(-1);
     }
+
+    @Test
+    public void testSliceSharesData() {
+        BasicBitArray data1 = new BasicBitArray(true, false, true, true, false);
+        BasicBitArray slice = data1.slice(1, 3);
+        assertThat(slice.size(), is(equalTo(3)));
+        assertThat(slice.getBit(0), is(equalTo(false)));
+        assertThat(slice.getBit(1), is(equalTo(true)));
+        assertThat(slice.getBit(2), is(equalTo(true)));
+
+        slice.setBit(0, true);
+        assertThat(data1.getBit(1), is(equalTo(true)));
+        assertThat(data1.slice(1, 3).slice(1, 1).getBit(0), is(equalTo(true)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSliceOutOfBounds() {
+        BasicBitArray data1 = new BasicBitArray(true, false, true);
+        data1.slice(1, 2).getBit(2);
+    }
 }
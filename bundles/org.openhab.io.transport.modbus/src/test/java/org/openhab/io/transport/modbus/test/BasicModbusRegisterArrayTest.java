@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.Optional;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusRegister;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusBitUtilities;
+import org.openhab.io.transport.modbus.ModbusConstants.ValueType;
+import org.openhab.io.transport.modbus.ModbusRegister;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class BasicModbusRegisterArrayTest {
+
+    @Test
+    public void testConstructors() {
+        ModbusRegisterArray fromValues = new BasicModbusRegisterArray(0x1234, 0xfffe);
+        ModbusRegisterArray fromRegisters = new BasicModbusRegisterArray(
+                new ModbusRegister[] { new BasicModbusRegister(0x1234), new BasicModbusRegister(0xfffe) });
+        ModbusRegisterArray fromBytes = new BasicModbusRegisterArray(
+                new byte[] { 0x12, 0x34, (byte) 0xff, (byte) 0xfe });
+
+        for (ModbusRegisterArray registers : new ModbusRegisterArray[] { fromValues, fromRegisters, fromBytes }) {
+            assertThat(registers.size(), is(equalTo(2)));
+            assertThat(registers.getRegister(0).getValue(), is(equalTo(0x1234)));
+            assertThat(registers.getRegister(1).getValue(), is(equalTo(0xfffe)));
+            assertThat(registers.toHexString(), is(equalTo("12 34 ff fe")));
+        }
+    }
+
+    @Test
+    public void testSlice() {
+        ModbusRegisterArray registers = new BasicModbusRegisterArray(1, 2, 3, 4, 5);
+
+        ModbusRegisterArray slice = registers.slice(1, 3).slice(1, 2);
+
+        assertThat(slice.size(), is(equalTo(2)));
+        assertThat(slice.getRegister(0).getValue(), is(equalTo(3)));
+        assertThat(slice.getRegister(1).getValue(), is(equalTo(4)));
+        assertThat(ModbusBitUtilities.extractStateFromRegisters(slice, 0, ValueType.UINT32),
+                is(equalTo(Optional.of(new DecimalType(0x30004)))));
+    }
+
+    @Test
+    public void testGetBytesOfSlice() {
+        byte[] bytes = new byte[6];
+
+        new BasicModbusRegisterArray(0x0102, 0x0304, 0x0506).slice(1, 2).getBytes(bytes, 1);
+
+        assertThat(bytes, is(equalTo(new byte[] { 0, 3, 4, 5, 6, 0 })));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSliceOutOfBounds() {
+        new BasicModbusRegisterArray(1, 2, 3).slice(2, 2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetRegisterOutOfSliceBounds() {
+        new BasicModbusRegisterArray(1, 2, 3).slice(0, 2).getRegister(2);
+    }
+}
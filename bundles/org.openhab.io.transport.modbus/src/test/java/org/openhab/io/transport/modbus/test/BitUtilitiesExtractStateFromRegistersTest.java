@@ -401,4 +401,25 @@ public class BitUtilitiesExtractStateFromRegistersTest {
         assertThat(String.format("registers=%s, index=%d, type=%s", registers, index, type), actualState,
                 is(equalTo(expectedStateWrapped)));
     }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test
+    public void testExtractRawValueFromBytes() {
+        if (expectedResult instanceof Class && Exception.class.isAssignableFrom((Class) expectedResult)) {
+            shouldThrow.expect((Class) expectedResult);
+        }
+        byte[] bytes = new byte[registers.size() * 2];
+        for (int i = 0; i < registers.size(); i++) {
+            bytes[2 * i] = registers.getRegister(i).getBytes()[0];
+            bytes[2 * i + 1] = registers.getRegister(i).getBytes()[1];
+        }
+
+        Optional<@NonNull DecimalType> actualState = ModbusBitUtilities
+                .rawValueToState(ModbusBitUtilities.extractRawValue(bytes, this.index, this.type), this.type);
+        Optional<@NonNull DecimalType> expectedStateWrapped = expectedResult instanceof DecimalType
+                ? Optional.of((DecimalType) expectedResult)
+                : (Optional<@NonNull DecimalType>) expectedResult;
+        assertThat(String.format("registers=%s, index=%d, type=%s", registers, index, type), actualState,
+                is(equalTo(expectedStateWrapped)));
+    }
 }
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.number.OrderingComparison.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ChangeOnlyPollTask;
+import org.openhab.io.transport.modbus.test.IntegrationTestSupport.NonOSGIModbusManager;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ChangeOnlyPollTaskTest {
+
+    private final List<Object> calls = new CopyOnWriteArrayList<>();
+
+    private final ModbusReadCallback callback = new ModbusReadCallback() {
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+            calls.add(registers);
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+            calls.add(bits);
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+            calls.add(error);
+        }
+    };
+
+    private ChangeOnlyPollTask task(ModbusReadFunctionCode functionCode, long refreshMillis) {
+        return new ChangeOnlyPollTask(new BasicPollTaskImpl(new ModbusTCPSlaveEndpoint("localhost", 502),
+                new BasicModbusReadRequestBlueprint(1, functionCode, 0, 2, 1), callback, refreshMillis));
+    }
+
+    @Test
+    public void testUnchangedRegistersAreSuppressed() {
+        ChangeOnlyPollTask task = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0);
+
+        task.getCallback().onRegisters(task.getRequest(), new BasicModbusRegisterArray(1, 2));
+        task.getCallback().onRegisters(task.getRequest(), new BasicModbusRegisterArray(1, 2));
+        task.getCallback().onRegisters(task.getRequest(), new BasicModbusRegisterArray(1, 3));
+
+        assertThat(calls.size(), is(equalTo(2)));
+        assertThat(task.getSuppressed(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testUnchangedBitsAreSuppressed() {
+        ChangeOnlyPollTask task = task(ModbusReadFunctionCode.READ_COILS, 0);
+
+        task.getCallback().onBits(task.getRequest(), new BasicBitArray(true, false));
+        task.getCallback().onBits(task.getRequest(), new BasicBitArray(true, false));
+        task.getCallback().onBits(task.getRequest(), new BasicBitArray(false, false));
+
+        assertThat(calls.size(), is(equalTo(2)));
+        assertThat(task.getSuppressed(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testDataAfterErrorIsPassed() {
+        ChangeOnlyPollTask task = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0);
+
+        task.getCallback().onRegisters(task.getRequest(), new BasicModbusRegisterArray(1, 2));
+        task.getCallback().onError(task.getRequest(), new Exception("test"));
+        task.getCallback().onRegisters(task.getRequest(), new BasicModbusRegisterArray(1, 2));
+
+        assertThat(calls.size(), is(equalTo(3)));
+        assertThat(calls.get(1), is(instanceOf(Exception.class)));
+    }
+
+    @Test
+    public void testUnchangedDataIsRefreshed() throws InterruptedException {
+        ChangeOnlyPollTask task = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 50);
+
+        task.getCallback().onRegisters(task.getRequest(), new BasicModbusRegisterArray(1, 2));
+        task.getCallback().onRegisters(task.getRequest(), new BasicModbusRegisterArray(1, 2));
+        assertThat(calls.size(), is(equalTo(1)));
+
+        Thread.sleep(60);
+        task.getCallback().onRegisters(task.getRequest(), new BasicModbusRegisterArray(1, 2));
+        assertThat(calls.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testRegularPollPassesOnlyChanges() throws Exception {
+        try (ModbusSlaveSimulator slave = new ModbusSlaveSimulator(ModbusSlaveSimulator.Protocol.TCP);
+                NonOSGIModbusManager manager = new NonOSGIModbusManager()) {
+            ModbusSlaveEndpoint endpoint = slave.getEndpoint();
+            EndpointPoolConfiguration configuration = new EndpointPoolConfiguration();
+            configuration.setInterTransactionDelayMillis(0);
+            manager.setEndpointPoolConfiguration(endpoint, configuration);
+            BasicPollTaskImpl task = new BasicPollTaskImpl(endpoint,
+                    new BasicModbusReadRequestBlueprint(1, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0, 2, 1),
+                    callback, 0);
+
+            manager.registerRegularPoll(task, 20, 0);
+            Thread.sleep(300);
+            slave.setHoldingRegister(1, 5);
+            Thread.sleep(300);
+            manager.unregisterRegularPoll(task);
+
+            assertThat(slave.getRequests(), is(greaterThan(10L)));
+            assertThat(calls.size(), is(equalTo(2)));
+            assertThat(((ModbusRegisterArray) calls.get(1)).getRegister(1).toUnsignedShort(), is(equalTo(5)));
+        }
+    }
+}
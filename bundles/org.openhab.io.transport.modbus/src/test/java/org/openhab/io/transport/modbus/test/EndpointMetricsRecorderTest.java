@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.endpoint.EndpointMetrics;
+import org.openhab.io.transport.modbus.endpoint.TimingHistogram;
+import org.openhab.io.transport.modbus.internal.EndpointMetricsRecorder;
+
+import net.wimpi.modbus.ModbusIOException;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class EndpointMetricsRecorderTest {
+
+    @Test
+    public void testTransactionHistogram() {
+        EndpointMetricsRecorder recorder = new EndpointMetricsRecorder();
+        for (int i = 0; i < 98; i++) {
+            recorder.recordTransaction(4);
+        }
+        recorder.recordTransaction(150);
+        recorder.recordTransaction(30000);
+
+        TimingHistogram histogram = recorder.snapshot(0, 0).getTransaction();
+
+        assertThat(histogram.getCount(), is(equalTo(100L)));
+        assertThat(histogram.getTotalMillis(), is(equalTo(98 * 4L + 150 + 30000)));
+        assertThat(histogram.getMaxMillis(), is(equalTo(30000L)));
+        // 4 ms falls into the bucket with upper bound of 5 ms
+        assertThat(histogram.getPercentileMillis(50), is(equalTo(5L)));
+        assertThat(histogram.getPercentileMillis(99), is(equalTo(200L)));
+        assertThat(histogram.getPercentileMillis(100), is(equalTo(30000L)));
+        long[] counts = histogram.getBucketCounts();
+        assertThat(counts[counts.length - 1], is(equalTo(1L)));
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        TimingHistogram histogram = new EndpointMetricsRecorder().snapshot(0, 0).getCallback();
+
+        assertThat(histogram.getCount(), is(equalTo(0L)));
+        assertThat(histogram.getAverageMillis(), is(equalTo(0.0)));
+        assertThat(histogram.getPercentileMillis(95), is(equalTo(0L)));
+    }
+
+    @Test
+    public void testCounters() {
+        EndpointMetricsRecorder recorder = new EndpointMetricsRecorder();
+        recorder.recordOperation();
+        recorder.recordOperation();
+        recorder.recordRetry();
+        recorder.recordTimeout();
+        recorder.recordFailure();
+        recorder.recordTransactionIdMismatch();
+
+        EndpointMetrics metrics = recorder.snapshot(1, 2);
+
+        assertThat(metrics.getOperations(), is(equalTo(2L)));
+        assertThat(metrics.getRetries(), is(equalTo(1L)));
+        assertThat(metrics.getTimeouts(), is(equalTo(1L)));
+        assertThat(metrics.getFailures(), is(equalTo(1L)));
+        assertThat(metrics.getTransactionIdMismatches(), is(equalTo(1L)));
+        assertThat(metrics.getIdleConnections(), is(equalTo(1)));
+        assertThat(metrics.getActiveConnections(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testIsTimeout() {
+        assertTrue(EndpointMetricsRecorder.isTimeout(new SocketTimeoutException("Read timed out")));
+        assertTrue(EndpointMetricsRecorder.isTimeout(new IOException(new SocketTimeoutException())));
+        assertTrue(EndpointMetricsRecorder.isTimeout(new ModbusIOException("Response timed out")));
+        assertFalse(EndpointMetricsRecorder.isTimeout(new IOException("Connection reset")));
+        assertFalse(EndpointMetricsRecorder.isTimeout(null));
+    }
+}
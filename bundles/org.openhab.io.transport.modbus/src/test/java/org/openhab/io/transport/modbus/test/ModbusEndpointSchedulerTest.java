@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.endpoint.EndpointQueueStatistics;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointScheduler;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointScheduler.Priority;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusEndpointSchedulerTest {
+
+    private ModbusEndpointScheduler scheduler;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        scheduler = new ModbusEndpointScheduler();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void waitForQueueDepth(int high, int low) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            EndpointQueueStatistics statistics = scheduler.getStatistics();
+            if (statistics.getHighPriorityQueueDepth() == high && statistics.getLowPriorityQueueDepth() == low) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Queue depth not reached: " + scheduler.getStatistics());
+    }
+
+    private void submit(String name, Priority priority, List<String> executed, CountDownLatch done) {
+        executor.submit(() -> {
+            if (scheduler.acquire(priority, -1)) {
+                try {
+                    executed.add(name);
+                } finally {
+                    scheduler.release();
+                    done.countDown();
+                }
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void testHighPriorityIsServedFirst() throws Exception {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(4);
+        assertTrue(scheduler.acquire(Priority.LOW, -1));
+
+        submit("poll1", Priority.LOW, executed, done);
+        waitForQueueDepth(0, 1);
+        submit("poll2", Priority.LOW, executed, done);
+        waitForQueueDepth(0, 2);
+        submit("write1", Priority.HIGH, executed, done);
+        waitForQueueDepth(1, 2);
+        submit("write2", Priority.HIGH, executed, done);
+        waitForQueueDepth(2, 2);
+
+        scheduler.release();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertThat(executed, is(equalTo(Arrays.asList("write1", "write2", "poll1", "poll2"))));
+    }
+
+    @Test
+    public void testStalePollIsDropped() throws Exception {
+        assertTrue(scheduler.acquire(Priority.HIGH, -1));
+        long start = System.currentTimeMillis();
+
+        assertFalse(scheduler.acquire(Priority.LOW, 100));
+
+        assertTrue(System.currentTimeMillis() - start >= 90);
+        EndpointQueueStatistics statistics = scheduler.getStatistics();
+        assertThat(statistics.getDroppedPolls(), is(equalTo(1L)));
+        assertThat(statistics.getLowPriorityQueueDepth(), is(equalTo(0)));
+
+        scheduler.release();
+        assertTrue(scheduler.acquire(Priority.LOW, 100));
+        scheduler.release();
+    }
+
+    @Test
+    public void testWaitTimeIsRecorded() throws Exception {
+        assertTrue(scheduler.acquire(Priority.LOW, -1));
+        CountDownLatch done = new CountDownLatch(1);
+        submit("write", Priority.HIGH, new CopyOnWriteArrayList<>(), done);
+        waitForQueueDepth(1, 0);
+        Thread.sleep(100);
+
+        scheduler.release();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertTrue(scheduler.getStatistics().getWaitTimeMillis() >= 90);
+    }
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicModbusWriteRegisterRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BasicWriteTask;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusResponse;
+import org.openhab.io.transport.modbus.ModbusSlaveErrorResponseException;
+import org.openhab.io.transport.modbus.ModbusWriteCallback;
+import org.openhab.io.transport.modbus.ModbusWriteRequestBlueprint;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.EndpointMetrics;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusManagerImpl;
+
+/**
+ * Load and soak test harness for {@link ModbusManagerImpl}
+ *
+ * The harness starts {@link ModbusSlaveSimulator}s and registers a regular poll for each of them many times over.
+ * In addition, one-time polls and writes are submitted at a fixed rate, and their latency is measured from
+ * submission to callback. At the end, throughput, latency percentiles and allocation rate are reported, together
+ * with the per-endpoint metrics of the manager.
+ *
+ * Allocation rate is the sum of bytes allocated by all live threads, as reported by the JVM, and is therefore
+ * approximate: allocations of threads terminated during the run are not counted.
+ *
+ * Run from the command line with optional key=value arguments matching the fields of {@link Configuration}, e.g.
+ * {@code protocol=UDP endpoints=4 durationMillis=600000} for a ten minute soak test.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusLoadHarness {
+
+    /**
+     * Largest number of latency samples kept, further samples are ignored
+     */
+    private static final int MAX_LATENCY_SAMPLES = 1 << 20;
+
+    public static class Configuration {
+        public ModbusSlaveSimulator.Protocol protocol = ModbusSlaveSimulator.Protocol.TCP;
+        public int endpoints = 2;
+        public int pollsPerEndpoint = 1000;
+        public long pollPeriodMillis = 1000;
+        public int registersPerPoll = 10;
+        public int oneTimeOperationsPerSecond = 50;
+        public long durationMillis = 10000;
+        public long latencyMillis = 1;
+        public long jitterMillis = 1;
+        public double exceptionRate;
+        public double dropRate;
+        public long interTransactionDelayMillis;
+        /**
+         * Connect timeout, and upper bound of the response timeout with adaptive timing
+         */
+        public int responseTimeoutMillis = 500;
+        public Map<String, Object> managerConfiguration = new HashMap<>();
+
+        /**
+         * Set field from a key=value argument. Unknown keys are passed to the manager as configuration, e.g.
+         * {@code nioTransport=true}.
+         *
+         * @throws IllegalArgumentException when argument is malformed
+         */
+        public void set(String argument) {
+            String[] keyValue = argument.split("=", 2);
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got " + argument);
+            }
+            String value = keyValue[1];
+            switch (keyValue[0]) {
+                case "protocol":
+                    protocol = ModbusSlaveSimulator.Protocol.valueOf(value);
+                    break;
+                case "endpoints":
+                    endpoints = Integer.parseInt(value);
+                    break;
+                case "pollsPerEndpoint":
+                    pollsPerEndpoint = Integer.parseInt(value);
+                    break;
+                case "pollPeriodMillis":
+                    pollPeriodMillis = Long.parseLong(value);
+                    break;
+                case "registersPerPoll":
+                    registersPerPoll = Integer.parseInt(value);
+                    break;
+                case "oneTimeOperationsPerSecond":
+                    oneTimeOperationsPerSecond = Integer.parseInt(value);
+                    break;
+                case "durationMillis":
+                    durationMillis = Long.parseLong(value);
+                    break;
+                case "latencyMillis":
+                    latencyMillis = Long.parseLong(value);
+                    break;
+                case "jitterMillis":
+                    jitterMillis = Long.parseLong(value);
+                    break;
+                case "exceptionRate":
+                    exceptionRate = Double.parseDouble(value);
+                    break;
+                case "dropRate":
+                    dropRate = Double.parseDouble(value);
+                    break;
+                case "interTransactionDelayMillis":
+                    interTransactionDelayMillis = Long.parseLong(value);
+                    break;
+                case "responseTimeoutMillis":
+                    responseTimeoutMillis = Integer.parseInt(value);
+                    break;
+                default:
+                    managerConfiguration.put(keyValue[0], value);
+            }
+        }
+    }
+
+    public static class Result {
+        public long regularPolls;
+        public long oneTimeOperations;
+        public long failures;
+        public double throughputPerSecond;
+        public long p50LatencyMillis;
+        public long p99LatencyMillis;
+        public long maxLatencyMillis;
+        public double allocatedMegabytesPerSecond = -1;
+        public Map<ModbusSlaveEndpoint, EndpointMetrics> endpointMetrics = new HashMap<>();
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format(
+                    "regular polls: %d, one-time operations: %d, failures: %d, throughput: %.1f/s%n"
+                            + "one-time latency: p50 %d ms, p99 %d ms, max %d ms%n" + "allocation rate: %s%n",
+                    regularPolls, oneTimeOperations, failures, throughputPerSecond, p50LatencyMillis,
+                    p99LatencyMillis, maxLatencyMillis, allocatedMegabytesPerSecond < 0 ? "not available"
+                            : String.format("%.1f MB/s", allocatedMegabytesPerSecond)));
+            endpointMetrics.forEach((endpoint, metrics) -> builder.append(endpoint).append(": ").append(metrics)
+                    .append(System.lineSeparator()));
+            return builder.toString();
+        }
+    }
+
+    private static class HarnessModbusManager extends ModbusManagerImpl implements AutoCloseable {
+        public HarnessModbusManager(Map<String, Object> configuration) {
+            activate(configuration);
+        }
+
+        @Override
+        public void close() {
+            deactivate();
+        }
+    }
+
+    private final Configuration configuration;
+    private final AtomicLong regularPolls = new AtomicLong();
+    private final AtomicLong oneTimeOperations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final long[] latencies = new long[MAX_LATENCY_SAMPLES];
+    private final AtomicInteger latencyCount = new AtomicInteger();
+
+    public ModbusLoadHarness(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Run the load test
+     *
+     * @return measured results
+     * @throws Exception when slaves cannot be started
+     */
+    public Result run() throws Exception {
+        List<ModbusSlaveSimulator> slaves = new ArrayList<>();
+        try (HarnessModbusManager manager = new HarnessModbusManager(configuration.managerConfiguration)) {
+            List<PollTask> regularPollTasks = new ArrayList<>();
+            List<ModbusSlaveEndpoint> endpoints = new ArrayList<>();
+            for (int i = 0; i < configuration.endpoints; i++) {
+                ModbusSlaveSimulator slave = new ModbusSlaveSimulator(configuration.protocol);
+                slaves.add(slave);
+                slave.fillWithAddresses();
+                slave.setLatency(configuration.latencyMillis, configuration.jitterMillis);
+                slave.setExceptionRate(configuration.exceptionRate,
+                        ModbusSlaveErrorResponseException.SLAVE_DEVICE_BUSY);
+                slave.setDropRate(configuration.dropRate);
+                ModbusSlaveEndpoint endpoint = slave.getEndpoint();
+                endpoints.add(endpoint);
+                manager.setEndpointPoolConfiguration(endpoint, poolConfiguration());
+            }
+
+            long start = System.nanoTime();
+            long allocatedAtStart = allocatedBytes();
+            for (ModbusSlaveEndpoint endpoint : endpoints) {
+                for (int i = 0; i < configuration.pollsPerEndpoint; i++) {
+                    PollTask task = new BasicPollTaskImpl(endpoint, readRequest(i), regularPollCallback());
+                    regularPollTasks.add(task);
+                    manager.registerRegularPoll(task, configuration.pollPeriodMillis,
+                            i * configuration.pollPeriodMillis / Math.max(1, configuration.pollsPerEndpoint));
+                }
+            }
+
+            long intervalNanos = configuration.oneTimeOperationsPerSecond > 0
+                    ? TimeUnit.SECONDS.toNanos(1) / configuration.oneTimeOperationsPerSecond
+                    : Long.MAX_VALUE;
+            long end = start + TimeUnit.MILLISECONDS.toNanos(configuration.durationMillis);
+            long next = start;
+            int submitted = 0;
+            while (System.nanoTime() < end) {
+                long now = System.nanoTime();
+                if (now >= next) {
+                    ModbusSlaveEndpoint endpoint = endpoints.get(submitted % endpoints.size());
+                    if (submitted % 2 == 0) {
+                        manager.submitOneTimePoll(
+                                new BasicPollTaskImpl(endpoint, readRequest(submitted), oneTimePollCallback(now)));
+                    } else {
+                        manager.submitOneTimeWrite(new BasicWriteTask(endpoint, writeRequest(submitted),
+                                writeCallback(now)));
+                    }
+                    submitted++;
+                    next += intervalNanos;
+                } else {
+                    TimeUnit.NANOSECONDS.sleep(Math.min(next - now, end - now));
+                }
+            }
+            regularPollTasks.forEach(manager::unregisterRegularPoll);
+            long elapsedNanos = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedAtStart;
+
+            Result result = new Result();
+            result.regularPolls = regularPolls.get();
+            result.oneTimeOperations = oneTimeOperations.get();
+            result.failures = failures.get();
+            double elapsedSeconds = elapsedNanos / 1e9;
+            result.throughputPerSecond = (result.regularPolls + result.oneTimeOperations) / elapsedSeconds;
+            long[] sorted = Arrays.copyOf(latencies, Math.min(latencyCount.get(), MAX_LATENCY_SAMPLES));
+            Arrays.sort(sorted);
+            result.p50LatencyMillis = percentile(sorted, 0.5);
+            result.p99LatencyMillis = percentile(sorted, 0.99);
+            result.maxLatencyMillis = sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+            if (allocatedAtStart >= 0) {
+                result.allocatedMegabytesPerSecond = allocated / 1e6 / elapsedSeconds;
+            }
+            result.endpointMetrics = manager.getEndpointMetrics();
+            return result;
+        } finally {
+            slaves.forEach(ModbusSlaveSimulator::close);
+        }
+    }
+
+    private EndpointPoolConfiguration poolConfiguration() {
+        EndpointPoolConfiguration poolConfiguration = new EndpointPoolConfiguration();
+        poolConfiguration.setInterTransactionDelayMillis(configuration.interTransactionDelayMillis);
+        poolConfiguration.setConnectTimeoutMillis(configuration.responseTimeoutMillis);
+        poolConfiguration.setMaxResponseTimeoutMillis(configuration.responseTimeoutMillis);
+        poolConfiguration.setReconnectAfterMillis(-1);
+        return poolConfiguration;
+    }
+
+    private BasicModbusReadRequestBlueprint readRequest(int index) {
+        ModbusReadFunctionCode functionCode = ModbusReadFunctionCode.values()[index
+                % ModbusReadFunctionCode.values().length];
+        return new BasicModbusReadRequestBlueprint(1, functionCode, (index * configuration.registersPerPoll) % 10000,
+                configuration.registersPerPoll, 1);
+    }
+
+    private BasicModbusWriteRegisterRequestBlueprint writeRequest(int index) {
+        return new BasicModbusWriteRegisterRequestBlueprint(1, 20000 + index % 1000,
+                new BasicModbusRegisterArray(index & 0xffff), false, 1);
+    }
+
+    private void recordLatency(long submittedNanos) {
+        int index = latencyCount.getAndIncrement();
+        if (index < MAX_LATENCY_SAMPLES) {
+            latencies[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submittedNanos);
+        }
+    }
+
+    private ModbusReadCallback regularPollCallback() {
+        return new ModbusReadCallback() {
+            @Override
+            public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+                regularPolls.incrementAndGet();
+            }
+
+            @Override
+            public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+                regularPolls.incrementAndGet();
+            }
+
+            @Override
+            public void onError(ModbusReadRequestBlueprint request, Exception error) {
+                failures.incrementAndGet();
+            }
+        };
+    }
+
+    private ModbusReadCallback oneTimePollCallback(long submittedNanos) {
+        return new ModbusReadCallback() {
+            @Override
+            public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+                oneTimeOperations.incrementAndGet();
+                recordLatency(submittedNanos);
+            }
+
+            @Override
+            public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+                oneTimeOperations.incrementAndGet();
+                recordLatency(submittedNanos);
+            }
+
+            @Override
+            public void onError(ModbusReadRequestBlueprint request, Exception error) {
+                failures.incrementAndGet();
+            }
+        };
+    }
+
+    private ModbusWriteCallback writeCallback(long submittedNanos) {
+        return new ModbusWriteCallback() {
+            @Override
+            public void onWriteResponse(ModbusWriteRequestBlueprint request, ModbusResponse response) {
+                oneTimeOperations.incrementAndGet();
+                recordLatency(submittedNanos);
+            }
+
+            @Override
+            public void onError(ModbusWriteRequestBlueprint request, Exception error) {
+                failures.incrementAndGet();
+            }
+        };
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Get bytes allocated by all live threads
+     *
+     * @return allocated bytes, or -1 if not supported by the JVM
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported() || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : allocationBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuration configuration = new Configuration();
+        for (String argument : args) {
+            configuration.set(argument);
+        }
+        System.out.println(new ModbusLoadHarness(configuration).run());
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.ModbusConnectionException;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.nio.ModbusNioTransport;
+
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.msg.ModbusResponse;
+import net.wimpi.modbus.msg.ReadMultipleRegistersRequest;
+import net.wimpi.modbus.msg.ReadMultipleRegistersResponse;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusNioTransportTest {
+
+    private ServerSocket serverSocket;
+    private ExecutorService slaveExecutor;
+    private ScheduledExecutorService timer;
+    private ModbusNioTransport transport;
+    private EndpointPoolConfiguration configuration;
+    private final List<Long> requestTimes = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        slaveExecutor = Executors.newCachedThreadPool();
+        timer = Executors.newSingleThreadScheduledExecutor();
+        configuration = new EndpointPoolConfiguration();
+        configuration.setReconnectAfterMillis(-1);
+        transport = new ModbusNioTransport(timer, endpoint -> configuration);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        transport.close();
+        timer.shutdownNow();
+        slaveExecutor.shutdownNow();
+        serverSocket.close();
+    }
+
+    /**
+     * Slave responding to read holding registers requests with register values equal to their addresses
+     *
+     * @param respond whether to respond at all
+     */
+    private void startSlave(boolean respond) {
+        slaveExecutor.submit(() -> {
+            try (Socket socket = serverSocket.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                while (true) {
+                    int transactionId = in.readUnsignedShort();
+                    in.readUnsignedShort(); // protocol id
+                    in.readUnsignedShort(); // length
+                    int unitId = in.readUnsignedByte();
+                    in.readUnsignedByte(); // function code
+                    int reference = in.readUnsignedShort();
+                    in.readUnsignedShort(); // count, always one register
+                    requestTimes.add(System.currentTimeMillis());
+                    if (!respond) {
+                        continue;
+                    }
+                    out.writeShort(transactionId);
+                    out.writeShort(0);
+                    out.writeShort(5);
+                    out.writeByte(unitId);
+                    out.writeByte(3);
+                    out.writeByte(2);
+                    out.writeShort(reference);
+                    out.flush();
+                }
+            } catch (EOFException e) {
+                // master disconnected
+            }
+            return null;
+        });
+    }
+
+    private CompletableFuture<ModbusResponse> read(int port, int reference) {
+        ReadMultipleRegistersRequest request = new ReadMultipleRegistersRequest(reference, 1);
+        request.setUnitID(1);
+        return transport.submit(new ModbusTCPSlaveEndpoint("127.0.0.1", port), request);
+    }
+
+    @Test
+    public void testRequestsAreExecutedWithInterTransactionDelay() throws Exception {
+        configuration.setInterTransactionDelayMillis(100);
+        startSlave(true);
+
+        CompletableFuture<ModbusResponse> first = read(serverSocket.getLocalPort(), 5);
+        CompletableFuture<ModbusResponse> second = read(serverSocket.getLocalPort(), 7);
+
+        ReadMultipleRegistersResponse firstResponse = (ReadMultipleRegistersResponse) first.get(5, TimeUnit.SECONDS);
+        ReadMultipleRegistersResponse secondResponse = (ReadMultipleRegistersResponse) second.get(5,
+                TimeUnit.SECONDS);
+        assertThat(firstResponse.getRegisterValue(0), is(equalTo(5)));
+        assertThat(secondResponse.getRegisterValue(0), is(equalTo(7)));
+        assertThat(requestTimes.size(), is(equalTo(2)));
+        // allow some slack for timer granularity
+        assertTrue(requestTimes.get(1) - requestTimes.get(0) >= 90);
+    }
+
+    @Test
+    public void testConnectionFailure() throws Exception {
+        int port = serverSocket.getLocalPort();
+        serverSocket.close();
+
+        try {
+            read(port, 5).get(10, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(ModbusConnectionException.class)));
+        }
+    }
+
+    @Test
+    public void testRequestsSubmittedWhileClosingComplete() throws Exception {
+        int port = serverSocket.getLocalPort();
+        List<CompletableFuture<ModbusResponse>> futures = new CopyOnWriteArrayList<>();
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                submitters.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        futures.add(read(port, j));
+                    }
+                });
+            }
+            Thread.sleep(5);
+            transport.close();
+        } finally {
+            submitters.shutdown();
+            assertTrue(submitters.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        for (CompletableFuture<ModbusResponse> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("Expected failure");
+            } catch (ExecutionException e) {
+                // failed by closing, or connection failure before
+            }
+        }
+    }
+
+    @Test
+    public void testResponseTimeout() throws Exception {
+        startSlave(false);
+
+        try {
+            read(serverSocket.getLocalPort(), 5).get(10, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(ModbusIOException.class)));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.CoalescedPollTask;
+import org.openhab.io.transport.modbus.internal.ModbusReadPlanner;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusReadPlannerTest {
+
+    private static class CapturingCallback implements ModbusReadCallback {
+        private final List<Object> results = new ArrayList<>();
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+            results.add(registers);
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+            results.add(bits);
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+            results.add(error);
+        }
+    }
+
+    private final ModbusSlaveEndpoint endpoint = new ModbusTCPSlaveEndpoint("127.0.0.1", 502);
+
+    private PollTask task(ModbusSlaveEndpoint endpoint, int unitId, ModbusReadFunctionCode functionCode, int start,
+            int length, ModbusReadCallback callback) {
+        return new BasicPollTaskImpl(endpoint,
+                new BasicModbusReadRequestBlueprint(unitId, functionCode, start, length, 3), callback);
+    }
+
+    private PollTask registers(int start, int length, ModbusReadCallback callback) {
+        return task(endpoint, 1, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, start, length, callback);
+    }
+
+    @Test
+    public void testAdjacentAndOverlappingRangesAreMerged() {
+        List<PollTask> plan = new ModbusReadPlanner(0).plan(Arrays.asList(registers(10, 2, new CapturingCallback()),
+                registers(0, 5, new CapturingCallback()), registers(5, 5, new CapturingCallback()),
+                registers(3, 4, new CapturingCallback())));
+
+        assertThat(plan.size(), is(equalTo(1)));
+        assertThat(plan.get(0), is(instanceOf(CoalescedPollTask.class)));
+        assertThat(plan.get(0).getRequest().getReference(), is(equalTo(0)));
+        assertThat(plan.get(0).getRequest().getDataLength(), is(equalTo(12)));
+        assertThat(((CoalescedPollTask) plan.get(0)).getMembers().size(), is(equalTo(4)));
+    }
+
+    @Test
+    public void testGapLimitsMerging() {
+        List<PollTask> tasks = Arrays.asList(registers(0, 2, new CapturingCallback()),
+                registers(5, 2, new CapturingCallback()));
+
+        assertThat(new ModbusReadPlanner(0).plan(tasks), is(equalTo(tasks)));
+
+        List<PollTask> plan = new ModbusReadPlanner(3).plan(tasks);
+        assertThat(plan.size(), is(equalTo(1)));
+        assertThat(plan.get(0).getRequest().getDataLength(), is(equalTo(7)));
+    }
+
+    @Test
+    public void testDifferentUnitFunctionCodeAndEndpointAreNotMerged() {
+        CapturingCallback callback = new CapturingCallback();
+        List<PollTask> tasks = Arrays.asList(registers(0, 2, callback),
+                task(endpoint, 2, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 2, 2, callback),
+                task(endpoint, 1, ModbusReadFunctionCode.READ_INPUT_REGISTERS, 2, 2, callback),
+                task(new ModbusTCPSlaveEndpoint("127.0.0.2", 502), 1, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 2,
+                        2, callback));
+
+        assertThat(new ModbusReadPlanner(10).plan(tasks).size(), is(equalTo(4)));
+    }
+
+    @Test
+    public void testProtocolLimits() {
+        List<PollTask> plan = new ModbusReadPlanner(0).plan(Arrays.asList(registers(0, 100, new CapturingCallback()),
+                registers(100, 25, new CapturingCallback()), registers(125, 1, new CapturingCallback())));
+        assertThat(plan.size(), is(equalTo(2)));
+        assertThat(plan.get(0).getRequest().getDataLength(), is(equalTo(125)));
+        assertThat(plan.get(1).getRequest().getReference(), is(equalTo(125)));
+
+        plan = new ModbusReadPlanner(0).plan(Arrays.asList(
+                task(endpoint, 1, ModbusReadFunctionCode.READ_COILS, 0, 1000, new CapturingCallback()),
+                task(endpoint, 1, ModbusReadFunctionCode.READ_COILS, 1000, 1000, new CapturingCallback())));
+        assertThat(plan.size(), is(equalTo(1)));
+        assertThat(plan.get(0).getRequest().getDataLength(), is(equalTo(2000)));
+    }
+
+    @Test
+    public void testRegistersAreSlicedToMembers() {
+        CapturingCallback first = new CapturingCallback();
+        CapturingCallback second = new CapturingCallback();
+        List<PollTask> plan = new ModbusReadPlanner(1)
+                .plan(Arrays.asList(registers(100, 2, first), registers(103, 1, second)));
+        assertThat(plan.size(), is(equalTo(1)));
+
+        plan.get(0).getCallback().onRegisters(plan.get(0).getRequest(), new BasicModbusRegisterArray(1, 2, 3, 4));
+
+        assertThat(first.results.size(), is(equalTo(1)));
+        ModbusRegisterArray firstRegisters = (ModbusRegisterArray) first.results.get(0);
+        assertThat(firstRegisters.size(), is(equalTo(2)));
+        assertThat(firstRegisters.getRegister(0).getValue(), is(equalTo(1)));
+        assertThat(firstRegisters.getRegister(1).getValue(), is(equalTo(2)));
+        ModbusRegisterArray secondRegisters = (ModbusRegisterArray) second.results.get(0);
+        assertThat(secondRegisters.size(), is(equalTo(1)));
+        assertThat(secondRegisters.getRegister(0).getValue(), is(equalTo(4)));
+    }
+
+    @Test
+    public void testBitsAreSlicedToMembers() {
+        CapturingCallback first = new CapturingCallback();
+        CapturingCallback second = new CapturingCallback();
+        List<PollTask> plan = new ModbusReadPlanner(0)
+                .plan(Arrays.asList(task(endpoint, 1, ModbusReadFunctionCode.READ_COILS, 0, 2, first),
+                        task(endpoint, 1, ModbusReadFunctionCode.READ_COILS, 2, 3, second)));
+
+        plan.get(0).getCallback().onBits(plan.get(0).getRequest(), new BasicBitArray(true, false, false, true, true));
+
+        assertThat(first.results.get(0), is(equalTo(new BasicBitArray(true, false))));
+        assertThat(second.results.get(0), is(equalTo(new BasicBitArray(false, true, true))));
+    }
+
+    @Test
+    public void testErrorsAndShortResponsesAreReportedToMembers() {
+        CapturingCallback first = new CapturingCallback();
+        CapturingCallback second = new CapturingCallback();
+        List<PollTask> plan = new ModbusReadPlanner(0)
+                .plan(Arrays.asList(registers(0, 2, first), registers(2, 2, second)));
+
+        Exception error = new Exception("dummy");
+        plan.get(0).getCallback().onError(plan.get(0).getRequest(), error);
+        assertThat(first.results.get(0), is(sameInstance(error)));
+        assertThat(second.results.get(0), is(sameInstance(error)));
+
+        plan.get(0).getCallback().onRegisters(plan.get(0).getRequest(), new BasicModbusRegisterArray(1, 2, 3));
+        assertThat(first.results.get(1), is(instanceOf(ModbusRegisterArray.class)));
+        assertThat(second.results.get(1), is(instanceOf(Exception.class)));
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.pool2.PooledObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.pooling.ModbusSlaveConnectionFactoryImpl;
+
+import net.wimpi.modbus.net.ModbusSlaveConnection;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusSlaveConnectionFactoryKeepAliveTest {
+
+    private final AtomicInteger connects = new AtomicInteger();
+    private final AtomicInteger connectFailures = new AtomicInteger();
+    private final AtomicInteger disconnects = new AtomicInteger();
+
+    private ServerSocket serverSocket;
+    private ModbusSlaveConnectionFactoryImpl factory;
+    private EndpointPoolConfiguration configuration;
+
+    @Before
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        configuration = new EndpointPoolConfiguration();
+        configuration.setConnectMaxTries(1);
+        configuration.setReconnectAfterMillis(-1);
+        configuration.setKeepAliveIntervalMillis(10000);
+        factory = new ModbusSlaveConnectionFactoryImpl();
+        factory.setConnectionListener(new ModbusSlaveConnectionFactoryImpl.ConnectionListener() {
+            @Override
+            public void onConnect(ModbusSlaveEndpoint endpoint, long connectMillis) {
+                connects.incrementAndGet();
+            }
+
+            @Override
+            public void onConnectFailure(ModbusSlaveEndpoint endpoint) {
+                connectFailures.incrementAndGet();
+            }
+
+            @Override
+            public void onDisconnect(ModbusSlaveEndpoint endpoint) {
+                disconnects.incrementAndGet();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        serverSocket.close();
+    }
+
+    private ModbusTCPSlaveEndpoint endpoint() {
+        ModbusTCPSlaveEndpoint endpoint = new ModbusTCPSlaveEndpoint("127.0.0.1", serverSocket.getLocalPort());
+        factory.setEndpointPoolConfiguration(endpoint, configuration);
+        return endpoint;
+    }
+
+    @Test
+    public void testConnectAndDisconnectAreReported() throws Exception {
+        ModbusTCPSlaveEndpoint endpoint = endpoint();
+        PooledObject<ModbusSlaveConnection> pooled = factory.makeObject(endpoint);
+
+        factory.activateObject(endpoint, pooled);
+        assertTrue(pooled.getObject().isConnected());
+        factory.destroyObject(endpoint, pooled);
+
+        assertThat(connects.get(), is(equalTo(1)));
+        assertThat(disconnects.get(), is(equalTo(1)));
+        assertThat(connectFailures.get(), is(equalTo(0)));
+        assertFalse(factory.isConnectSuspended(endpoint));
+    }
+
+    @Test
+    public void testConnectIsSuspendedAfterFailure() throws Exception {
+        ModbusTCPSlaveEndpoint endpoint = endpoint();
+        assertTrue(factory.isKeepAliveDue(endpoint));
+        serverSocket.close();
+        PooledObject<ModbusSlaveConnection> pooled = factory.makeObject(endpoint);
+
+        factory.activateObject(endpoint, pooled);
+
+        assertFalse(pooled.getObject().isConnected());
+        assertThat(connectFailures.get(), is(equalTo(1)));
+        assertTrue(factory.isConnectSuspended(endpoint));
+    }
+
+    @Test
+    public void testConnectIsNotSuspendedWithoutKeepAlive() throws Exception {
+        configuration.setKeepAliveIntervalMillis(0);
+        ModbusTCPSlaveEndpoint endpoint = endpoint();
+        serverSocket.close();
+
+        factory.activateObject(endpoint, factory.makeObject(endpoint));
+
+        assertThat(connectFailures.get(), is(equalTo(1)));
+        assertFalse(factory.isConnectSuspended(endpoint));
+    }
+
+    @Test
+    public void testConnectIsNotSuspendedWhenNotKeptAlive() throws Exception {
+        ModbusTCPSlaveEndpoint endpoint = endpoint();
+        serverSocket.close();
+
+        factory.activateObject(endpoint, factory.makeObject(endpoint));
+
+        assertThat(connectFailures.get(), is(equalTo(1)));
+        assertFalse(factory.isConnectSuspended(endpoint));
+    }
+
+    @Test
+    public void testConnectIsNotSuspendedWhenReconnectingAfterEveryTransaction() throws Exception {
+        configuration.setReconnectAfterMillis(0);
+        ModbusTCPSlaveEndpoint endpoint = endpoint();
+        factory.isKeepAliveDue(endpoint);
+        serverSocket.close();
+
+        factory.activateObject(endpoint, factory.makeObject(endpoint));
+
+        assertFalse(factory.isConnectSuspended(endpoint));
+    }
+
+    @Test
+    public void testKeepAliveIsDueOncePerInterval() {
+        ModbusTCPSlaveEndpoint endpoint = endpoint();
+
+        assertTrue(factory.isKeepAliveDue(endpoint));
+        assertFalse(factory.isKeepAliveDue(endpoint));
+    }
+
+    @Test
+    public void testNoKeepAliveWhenReconnectingAfterEveryTransaction() {
+        configuration.setReconnectAfterMillis(0);
+        ModbusTCPSlaveEndpoint endpoint = endpoint();
+
+        assertFalse(factory.isKeepAliveDue(endpoint));
+    }
+
+    @Test
+    public void testConnectionIsAboutToExpire() throws Exception {
+        configuration.setReconnectAfterMillis(100);
+        configuration.setKeepAliveIntervalMillis(60);
+        ModbusTCPSlaveEndpoint endpoint = endpoint();
+        PooledObject<ModbusSlaveConnection> pooled = factory.makeObject(endpoint);
+
+        factory.activateObject(endpoint, pooled);
+        assertFalse(factory.isAboutToExpire(endpoint));
+
+        // renewed half way, since keep-alive interval is long compared to the reconnect limit
+        Thread.sleep(100);
+        assertTrue(factory.isAboutToExpire(endpoint));
+        factory.destroyObject(endpoint, pooled);
+    }
+}
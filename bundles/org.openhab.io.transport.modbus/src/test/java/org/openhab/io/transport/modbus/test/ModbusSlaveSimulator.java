@@ -0,0 +1,411 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.io.transport.modbus.ModbusSlaveErrorResponseException;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusUDPSlaveEndpoint;
+
+/**
+ * In-process Modbus slave for tests and load testing
+ *
+ * The slave serves all unit ids from a single register map with 65536 addresses of each type. Supported functions
+ * are read coils, discrete inputs, holding and input registers, and write single and multiple coils and registers.
+ *
+ * Latency, jitter, exception responses and unanswered requests can be injected to mimic real devices. TCP
+ * connections are served concurrently, each in its own thread, while requests of a single connection are served one
+ * at a time. UDP requests are served one at a time.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusSlaveSimulator implements AutoCloseable {
+
+    public enum Protocol {
+        TCP,
+        UDP
+    }
+
+    private static final int ADDRESS_COUNT = 0x10000;
+    private static final int MAX_READ_BITS = 2000;
+    private static final int MAX_READ_REGISTERS = 125;
+    private static final int MAX_FRAME_LENGTH = 260;
+
+    private final Protocol protocol;
+    private final AtomicIntegerArray holdingRegisters = new AtomicIntegerArray(ADDRESS_COUNT);
+    private final AtomicIntegerArray inputRegisters = new AtomicIntegerArray(ADDRESS_COUNT);
+    private final BitSet coils = new BitSet(ADDRESS_COUNT);
+    private final BitSet discreteInputs = new BitSet(ADDRESS_COUNT);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong exceptionResponses = new AtomicLong();
+    private final AtomicLong droppedRequests = new AtomicLong();
+    private final AtomicLong acceptedConnections = new AtomicLong();
+
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double exceptionRate;
+    private volatile int exceptionCode = ModbusSlaveErrorResponseException.SLAVE_DEVICE_BUSY;
+    private volatile double dropRate;
+
+    private final ServerSocket serverSocket;
+    private final DatagramSocket datagramSocket;
+
+    /**
+     * Start slave listening on a free port of the loopback interface
+     *
+     * @param protocol protocol to serve
+     * @throws IOException when socket cannot be opened
+     */
+    public ModbusSlaveSimulator(Protocol protocol) throws IOException {
+        this.protocol = protocol;
+        if (protocol == Protocol.TCP) {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            datagramSocket = null;
+            executor.execute(this::acceptConnections);
+        } else {
+            serverSocket = null;
+            datagramSocket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            executor.execute(this::serveDatagrams);
+        }
+    }
+
+    public int getPort() {
+        return protocol == Protocol.TCP ? serverSocket.getLocalPort() : datagramSocket.getLocalPort();
+    }
+
+    /**
+     * Get endpoint for connecting to this slave
+     */
+    public ModbusSlaveEndpoint getEndpoint() {
+        String address = InetAddress.getLoopbackAddress().getHostAddress();
+        return protocol == Protocol.TCP ? new ModbusTCPSlaveEndpoint(address, getPort())
+                : new ModbusUDPSlaveEndpoint(address, getPort());
+    }
+
+    /**
+     * Set time to wait before responding
+     *
+     * @param latencyMillis average latency in milliseconds
+     * @param jitterMillis maximum deviation from the average latency, in milliseconds
+     */
+    public void setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+    }
+
+    /**
+     * Set share of requests answered with an exception response
+     *
+     * @param exceptionRate share between 0 and 1
+     * @param exceptionCode exception code to respond with, e.g.
+     *            {@link ModbusSlaveErrorResponseException#SLAVE_DEVICE_BUSY}
+     */
+    public void setExceptionRate(double exceptionRate, int exceptionCode) {
+        this.exceptionRate = exceptionRate;
+        this.exceptionCode = exceptionCode;
+    }
+
+    /**
+     * Set share of requests left unanswered, leading to response timeouts in the master
+     *
+     * @param dropRate share between 0 and 1
+     */
+    public void setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    public void setHoldingRegister(int address, int value) {
+        holdingRegisters.set(address, value & 0xffff);
+    }
+
+    public int getHoldingRegister(int address) {
+        return holdingRegisters.get(address);
+    }
+
+    public void setInputRegister(int address, int value) {
+        inputRegisters.set(address, value & 0xffff);
+    }
+
+    public synchronized void setCoil(int address, boolean value) {
+        coils.set(address, value);
+    }
+
+    public synchronized boolean getCoil(int address) {
+        return coils.get(address);
+    }
+
+    public synchronized void setDiscreteInput(int address, boolean value) {
+        discreteInputs.set(address, value);
+    }
+
+    /**
+     * Fill holding and input registers with values equal to their addresses, and every other coil and discrete input
+     * with true
+     */
+    public void fillWithAddresses() {
+        for (int address = 0; address < ADDRESS_COUNT; address++) {
+            setHoldingRegister(address, address);
+            setInputRegister(address, address);
+            setCoil(address, address % 2 == 0);
+            setDiscreteInput(address, address % 2 == 0);
+        }
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getExceptionResponses() {
+        return exceptionResponses.get();
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests.get();
+    }
+
+    public long getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+            if (datagramSocket != null) {
+                datagramSocket.close();
+            }
+            for (Socket socket : connections) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // closing anyway
+        }
+        executor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                acceptedConnections.incrementAndGet();
+                executor.execute(() -> serveConnection(socket));
+            } catch (IOException e) {
+                // server socket closed
+            }
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            byte[] header = new byte[7];
+            while (true) {
+                in.readFully(header);
+                int length = ((header[4] & 0xff) << 8) | (header[5] & 0xff);
+                if (length < 2 || length > MAX_FRAME_LENGTH) {
+                    break;
+                }
+                byte[] pdu = new byte[length - 1];
+                in.readFully(pdu);
+                byte[] response = respond(pdu);
+                if (response != null) {
+                    out.write(frame(header, response));
+                    out.flush();
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // master disconnected, or slave closed
+        } catch (IOException e) {
+            // connection broken
+        } finally {
+            connections.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+    private void serveDatagrams() {
+        byte[] buffer = new byte[MAX_FRAME_LENGTH];
+        while (!datagramSocket.isClosed()) {
+            try {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                datagramSocket.receive(packet);
+                if (packet.getLength() < 8) {
+                    continue;
+                }
+                byte[] header = Arrays.copyOf(buffer, 7);
+                byte[] response = respond(Arrays.copyOfRange(buffer, 7, packet.getLength()));
+                if (response != null) {
+                    byte[] frame = frame(header, response);
+                    datagramSocket.send(new DatagramPacket(frame, frame.length, packet.getSocketAddress()));
+                }
+            } catch (IOException e) {
+                // socket closed
+            }
+        }
+    }
+
+    /**
+     * Wrap response PDU into MBAP frame, using transaction id and unit id of the request
+     */
+    private static byte[] frame(byte[] requestHeader, byte[] pdu) {
+        byte[] frame = new byte[7 + pdu.length];
+        System.arraycopy(requestHeader, 0, frame, 0, 7);
+        frame[2] = 0;
+        frame[3] = 0;
+        frame[4] = (byte) ((pdu.length + 1) >> 8);
+        frame[5] = (byte) (pdu.length + 1);
+        System.arraycopy(pdu, 0, frame, 7, pdu.length);
+        return frame;
+    }
+
+    /**
+     * Produce response to the request, after the configured latency
+     *
+     * @return response PDU, or null when the request is dropped
+     */
+    private byte[] respond(byte[] pdu) {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long jitter = jitterMillis;
+        long delay = latencyMillis + (jitter > 0 ? random.nextLong(-jitter, jitter + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        if (random.nextDouble() < dropRate) {
+            droppedRequests.incrementAndGet();
+            return null;
+        }
+        if (random.nextDouble() < exceptionRate) {
+            return exception(pdu[0], exceptionCode);
+        }
+        return execute(pdu);
+    }
+
+    private byte[] exception(int functionCode, int code) {
+        exceptionResponses.incrementAndGet();
+        return new byte[] { (byte) (functionCode | 0x80), (byte) code };
+    }
+
+    private byte[] execute(byte[] pdu) {
+        int functionCode = pdu[0] & 0xff;
+        if (pdu.length < 5) {
+            return exception(functionCode, ModbusSlaveErrorResponseException.ILLEGAL_DATA_VALUE);
+        }
+        int address = uint16(pdu, 1);
+        int count = uint16(pdu, 3);
+        switch (functionCode) {
+            case 1:
+            case 2:
+                if (count < 1 || count > MAX_READ_BITS) {
+                    return exception(functionCode, ModbusSlaveErrorResponseException.ILLEGAL_DATA_VALUE);
+                } else if (address + count > ADDRESS_COUNT) {
+                    return exception(functionCode, ModbusSlaveErrorResponseException.ILLEGAL_DATA_ACCESS);
+                }
+                return readBits(functionCode, functionCode == 1 ? coils : discreteInputs, address, count);
+            case 3:
+            case 4:
+                if (count < 1 || count > MAX_READ_REGISTERS) {
+                    return exception(functionCode, ModbusSlaveErrorResponseException.ILLEGAL_DATA_VALUE);
+                } else if (address + count > ADDRESS_COUNT) {
+                    return exception(functionCode, ModbusSlaveErrorResponseException.ILLEGAL_DATA_ACCESS);
+                }
+                AtomicIntegerArray registers = functionCode == 3 ? holdingRegisters : inputRegisters;
+                byte[] response = new byte[2 + 2 * count];
+                response[0] = (byte) functionCode;
+                response[1] = (byte) (2 * count);
+                for (int i = 0; i < count; i++) {
+                    int value = registers.get(address + i);
+                    response[2 + 2 * i] = (byte) (value >> 8);
+                    response[3 + 2 * i] = (byte) value;
+                }
+                return response;
+            case 5:
+                // count is the value, 0xFF00 for on
+                setCoil(address, count == 0xFF00);
+                return Arrays.copyOf(pdu, 5);
+            case 6:
+                setHoldingRegister(address, count);
+                return Arrays.copyOf(pdu, 5);
+            case 15:
+                if (address + count > ADDRESS_COUNT || pdu.length < 6 + (count + 7) / 8) {
+                    return exception(functionCode, ModbusSlaveErrorResponseException.ILLEGAL_DATA_ACCESS);
+                }
+                for (int i = 0; i < count; i++) {
+                    setCoil(address + i, (pdu[6 + i / 8] & (1 << (i % 8))) != 0);
+                }
+                return Arrays.copyOf(pdu, 5);
+            case 16:
+                if (address + count > ADDRESS_COUNT || pdu.length < 6 + 2 * count) {
+                    return exception(functionCode, ModbusSlaveErrorResponseException.ILLEGAL_DATA_ACCESS);
+                }
+                for (int i = 0; i < count; i++) {
+                    setHoldingRegister(address + i, uint16(pdu, 6 + 2 * i));
+                }
+                return Arrays.copyOf(pdu, 5);
+            default:
+                return exception(functionCode, ModbusSlaveErrorResponseException.ILLEGAL_FUNCTION);
+        }
+    }
+
+    private synchronized byte[] readBits(int functionCode, BitSet bits, int address, int count) {
+        byte[] response = new byte[2 + (count + 7) / 8];
+        response[0] = (byte) functionCode;
+        response[1] = (byte) ((count + 7) / 8);
+        for (int i = 0; i < count; i++) {
+            if (bits.get(address + i)) {
+                response[2 + i / 8] |= 1 << (i % 8);
+            }
+        }
+        return response;
+    }
+
+    private static int uint16(byte[] bytes, int index) {
+        return ((bytes[index] & 0xff) << 8) | (bytes[index + 1] & 0xff);
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.number.OrderingComparison.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicModbusWriteRegisterRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BasicWriteTask;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusResponse;
+import org.openhab.io.transport.modbus.ModbusSlaveErrorResponseException;
+import org.openhab.io.transport.modbus.ModbusWriteCallback;
+import org.openhab.io.transport.modbus.ModbusWriteRequestBlueprint;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusSlaveSimulatorTest {
+
+    private ModbusSlaveSimulator slave;
+    private IntegrationTestSupport.NonOSGIModbusManager manager;
+
+    private ModbusSlaveEndpoint start(ModbusSlaveSimulator.Protocol protocol) throws Exception {
+        slave = new ModbusSlaveSimulator(protocol);
+        manager = new IntegrationTestSupport.NonOSGIModbusManager();
+        ModbusSlaveEndpoint endpoint = slave.getEndpoint();
+        EndpointPoolConfiguration configuration = new EndpointPoolConfiguration();
+        configuration.setInterTransactionDelayMillis(0);
+        configuration.setAdaptiveTiming(true);
+        configuration.setMinInterTransactionDelayMillis(0);
+        configuration.setMaxInterTransactionDelayMillis(0);
+        configuration.setMaxResponseTimeoutMillis(200);
+        manager.setEndpointPoolConfiguration(endpoint, configuration);
+        return endpoint;
+    }
+
+    @After
+    public void tearDown() {
+        if (manager != null) {
+            manager.close();
+        }
+        if (slave != null) {
+            slave.close();
+        }
+    }
+
+    private Object read(ModbusSlaveEndpoint endpoint, ModbusReadFunctionCode functionCode, int start, int length)
+            throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        manager.submitOneTimePoll(new BasicPollTaskImpl(endpoint,
+                new BasicModbusReadRequestBlueprint(1, functionCode, start, length, 1), new ModbusReadCallback() {
+                    @Override
+                    public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+                        result.complete(registers);
+                    }
+
+                    @Override
+                    public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+                        result.complete(bits);
+                    }
+
+                    @Override
+                    public void onError(ModbusReadRequestBlueprint request, Exception error) {
+                        result.complete(error);
+                    }
+                }));
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    private Object write(ModbusSlaveEndpoint endpoint, int reference, int... values) throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        manager.submitOneTimeWrite(new BasicWriteTask(endpoint, new BasicModbusWriteRegisterRequestBlueprint(1,
+                reference, new BasicModbusRegisterArray(values), true, 1), new ModbusWriteCallback() {
+                    @Override
+                    public void onWriteResponse(ModbusWriteRequestBlueprint request, ModbusResponse response) {
+                        result.complete(response);
+                    }
+
+                    @Override
+                    public void onError(ModbusWriteRequestBlueprint request, Exception error) {
+                        result.complete(error);
+                    }
+                }));
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testReadRegistersAndBits() throws Exception {
+        ModbusSlaveEndpoint endpoint = start(ModbusSlaveSimulator.Protocol.TCP);
+        slave.setHoldingRegister(10, 1234);
+        slave.setInputRegister(11, 0xffff);
+        slave.setCoil(3, true);
+        slave.setDiscreteInput(4, true);
+
+        ModbusRegisterArray holding = (ModbusRegisterArray) read(endpoint,
+                ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 10, 2);
+        assertThat(holding.getRegister(0).toUnsignedShort(), is(equalTo(1234)));
+        assertThat(holding.getRegister(1).toUnsignedShort(), is(equalTo(0)));
+
+        ModbusRegisterArray input = (ModbusRegisterArray) read(endpoint, ModbusReadFunctionCode.READ_INPUT_REGISTERS,
+                11, 1);
+        assertThat(input.getRegister(0).toUnsignedShort(), is(equalTo(0xffff)));
+
+        BitArray coils = (BitArray) read(endpoint, ModbusReadFunctionCode.READ_COILS, 0, 10);
+        assertThat(coils.getBit(3), is(equalTo(true)));
+        assertThat(coils.getBit(2), is(equalTo(false)));
+
+        BitArray discreteInputs = (BitArray) read(endpoint, ModbusReadFunctionCode.READ_INPUT_DISCRETES, 4, 1);
+        assertThat(discreteInputs.getBit(0), is(equalTo(true)));
+    }
+
+    @Test
+    public void testWriteRegistersOverUdp() throws Exception {
+        ModbusSlaveEndpoint endpoint = start(ModbusSlaveSimulator.Protocol.UDP);
+
+        Object response = write(endpoint, 100, 5, 6);
+
+        assertThat(response, is(instanceOf(ModbusResponse.class)));
+        assertThat(slave.getHoldingRegister(100), is(equalTo(5)));
+        assertThat(slave.getHoldingRegister(101), is(equalTo(6)));
+    }
+
+    @Test
+    public void testInjectedExceptionResponse() throws Exception {
+        ModbusSlaveEndpoint endpoint = start(ModbusSlaveSimulator.Protocol.TCP);
+        slave.setExceptionRate(1, ModbusSlaveErrorResponseException.SLAVE_DEVICE_BUSY);
+
+        Object error = read(endpoint, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0, 1);
+
+        assertThat(error, is(instanceOf(ModbusSlaveErrorResponseException.class)));
+        assertThat(((ModbusSlaveErrorResponseException) error).getExceptionCode(),
+                is(equalTo(ModbusSlaveErrorResponseException.SLAVE_DEVICE_BUSY)));
+        assertThat(slave.getExceptionResponses(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testDroppedRequestTimesOut() throws Exception {
+        ModbusSlaveEndpoint endpoint = start(ModbusSlaveSimulator.Protocol.TCP);
+        slave.setDropRate(1);
+
+        Object error = read(endpoint, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0, 1);
+
+        assertThat(error, is(instanceOf(Exception.class)));
+        assertThat(slave.getDroppedRequests(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testLoadHarness() throws Exception {
+        ModbusLoadHarness.Configuration configuration = new ModbusLoadHarness.Configuration();
+        configuration.endpoints = 2;
+        configuration.pollsPerEndpoint = 20;
+        configuration.pollPeriodMillis = 200;
+        configuration.oneTimeOperationsPerSecond = 20;
+        configuration.durationMillis = 1500;
+        configuration.latencyMillis = 0;
+        configuration.jitterMillis = 0;
+
+        ModbusLoadHarness.Result result = new ModbusLoadHarness(configuration).run();
+
+        assertThat(result.regularPolls, is(greaterThan(0L)));
+        assertThat(result.oneTimeOperations, is(greaterThan(0L)));
+        assertThat(result.failures, is(equalTo(0L)));
+        assertThat(result.p99LatencyMillis, is(greaterThanOrEqualTo(result.p50LatencyMillis)));
+        assertThat(result.endpointMetrics.size(), is(equalTo(2)));
+    }
+}
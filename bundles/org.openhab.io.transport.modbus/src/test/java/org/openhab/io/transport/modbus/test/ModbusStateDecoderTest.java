@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Optional;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusConstants.ValueType;
+import org.openhab.io.transport.modbus.ModbusStateDecoder;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusStateDecoderTest {
+
+    @Test
+    public void testStateIsReusedWhileValueIsUnchanged() {
+        ModbusStateDecoder decoder = new ModbusStateDecoder(1, ValueType.INT32);
+
+        Optional<DecimalType> first = decoder.decode(new BasicModbusRegisterArray(0, 0xffff, 0xfffe));
+        Optional<DecimalType> second = decoder.decode(new BasicModbusRegisterArray(5, 0xffff, 0xfffe));
+        Optional<DecimalType> third = decoder.decode(new BasicModbusRegisterArray(5, 0, 3));
+
+        assertThat(first, is(equalTo(Optional.of(new DecimalType(-2)))));
+        assertThat(second, is(sameInstance(first)));
+        assertThat(third, is(equalTo(Optional.of(new DecimalType(3)))));
+    }
+
+    @Test
+    public void testDecodeFromBytes() {
+        ModbusStateDecoder decoder = new ModbusStateDecoder(0, ValueType.FLOAT32_SWAP);
+
+        // 1.5f is 0x3FC00000
+        Optional<DecimalType> state = decoder.decode(new byte[] { 0x00, 0x00, 0x3f, (byte) 0xc0 });
+        Optional<DecimalType> nan = decoder.decode(new byte[] { 0x00, 0x00, 0x7f, (byte) 0xc0 });
+
+        assertThat(state, is(equalTo(Optional.of(new DecimalType(1.5)))));
+        assertThat(nan, is(equalTo(Optional.empty())));
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusTCPPipeline;
+import org.openhab.io.transport.modbus.internal.pooling.ModbusSlaveConnectionFactoryImpl;
+
+import net.wimpi.modbus.ModbusIOException;
+import net.wimpi.modbus.msg.ReadMultipleRegistersRequest;
+import net.wimpi.modbus.msg.ReadMultipleRegistersResponse;
+import net.wimpi.modbus.net.TCPMasterConnection;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ModbusTCPPipelineTest {
+
+    private static class Frame {
+        final int transactionId;
+        final int unitId;
+        final int reference;
+
+        Frame(int transactionId, int unitId, int reference) {
+            this.transactionId = transactionId;
+            this.unitId = unitId;
+            this.reference = reference;
+        }
+    }
+
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        serverSocket.close();
+    }
+
+    /**
+     * Slave reading the given number of read holding registers requests before responding to them in reverse order.
+     * Each register value equals its address.
+     */
+    private void startReversingSlave(int requestsToCollect) {
+        executor.submit(() -> {
+            try (Socket socket = serverSocket.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                List<Frame> frames = new ArrayList<>();
+                for (int i = 0; i < requestsToCollect; i++) {
+                    int transactionId = in.readUnsignedShort();
+                    in.readUnsignedShort(); // protocol id
+                    in.readUnsignedShort(); // length
+                    int unitId = in.readUnsignedByte();
+                    in.readUnsignedByte(); // function code
+                    int reference = in.readUnsignedShort();
+                    in.readUnsignedShort(); // count, always one register
+                    frames.add(new Frame(transactionId, unitId, reference));
+                }
+                for (int i = frames.size() - 1; i >= 0; i--) {
+                    Frame frame = frames.get(i);
+                    out.writeShort(frame.transactionId);
+                    out.writeShort(0);
+                    out.writeShort(5);
+                    out.writeByte(frame.unitId);
+                    out.writeByte(3);
+                    out.writeByte(2);
+                    out.writeShort(frame.reference);
+                }
+                out.flush();
+                // keep connection open until test finishes
+                in.read();
+            }
+            return null;
+        });
+    }
+
+    private ModbusTCPPipeline createPipeline(int maxInFlight) {
+        return new ModbusTCPPipeline(new ModbusTCPSlaveEndpoint("127.0.0.1", serverSocket.getLocalPort()), maxInFlight,
+                new ModbusSlaveConnectionFactoryImpl());
+    }
+
+    private Future<Integer> read(ModbusTCPPipeline pipeline, int reference) {
+        return executor.submit(() -> {
+            TCPMasterConnection connection = (TCPMasterConnection) pipeline.getConnection().get();
+            ReadMultipleRegistersRequest request = new ReadMultipleRegistersRequest(reference, 1);
+            request.setUnitID(1);
+            ReadMultipleRegistersResponse response = (ReadMultipleRegistersResponse) pipeline.execute(connection,
+                    request);
+            assertThat(response.getTransactionID(), is(equalTo(request.getTransactionID())));
+            return response.getRegisterValue(0);
+        });
+    }
+
+    @Test
+    public void testResponsesOutOfOrderAreMatchedByTransactionId() throws Exception {
+        startReversingSlave(3);
+        ModbusTCPPipeline pipeline = createPipeline(3);
+        try {
+            Future<Integer> first = read(pipeline, 10);
+            Future<Integer> second = read(pipeline, 20);
+            Future<Integer> third = read(pipeline, 30);
+
+            assertThat(first.get(5, TimeUnit.SECONDS), is(equalTo(10)));
+            assertThat(second.get(5, TimeUnit.SECONDS), is(equalTo(20)));
+            assertThat(third.get(5, TimeUnit.SECONDS), is(equalTo(30)));
+            assertThat(pipeline.getInFlightCount(), is(equalTo(0)));
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void testCloseFailsTransactionsInFlight() throws Exception {
+        // slave never responds since it waits for two requests
+        startReversingSlave(2);
+        ModbusTCPPipeline pipeline = createPipeline(2);
+        Future<Integer> pending = read(pipeline, 10);
+        while (pipeline.getInFlightCount() == 0) {
+            Thread.sleep(10);
+        }
+        pipeline.close();
+        try {
+            pending.get(5, TimeUnit.SECONDS);
+            fail("Expected failure");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(ModbusIOException.class)));
+        }
+        assertFalse(pipeline.getConnection().isPresent());
+    }
+}
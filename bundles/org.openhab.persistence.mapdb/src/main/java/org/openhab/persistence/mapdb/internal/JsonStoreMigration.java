@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.types.State;
+import org.mapdb.DB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Migrates the item store written with the former Gson/{@link StateTypeAdapter} JSON format into the binary format
+ * of {@link StateSerializer}. The legacy collection is deleted in the same transaction the migrated records are
+ * committed in, so an interrupted migration is simply repeated on the next start.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+class JsonStoreMigration {
+
+    private final Logger logger = LoggerFactory.getLogger(JsonStoreMigration.class);
+
+    private final Gson mapper = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
+            .create();
+
+    private final DB db;
+    private final StateSerializer serializer;
+
+    JsonStoreMigration(DB db, StateSerializer serializer) {
+        this.db = db;
+        this.serializer = serializer;
+    }
+
+    /**
+     * Moves the latest item states from the legacy JSON collection into the binary one.
+     *
+     * @param legacyName name of the legacy collection, holding {@link MapDbItem}s as JSON strings
+     * @param target the binary collection, holding {@link StateSerializer#serialize(MapDbItem)} records
+     */
+    void migrateItems(String legacyName, Map<String, byte[]> target) {
+        if (!db.exists(legacyName)) {
+            return;
+        }
+        Map<String, String> legacy = db.getTreeMap(legacyName);
+        logger.info("Migrating {} MapDB records of '{}' to the binary format", legacy.size(), legacyName);
+        int failed = 0;
+        for (Entry<String, String> entry : legacy.entrySet()) {
+            MapDbItem item;
+            try {
+                item = mapper.fromJson(entry.getValue(), MapDbItem.class);
+            } catch (RuntimeException e) {
+                // a malformed record must not block the activation, the legacy store is dropped afterwards
+                logger.debug("Couldn't migrate MapDB record '{}': {}", entry.getKey(), e.getMessage());
+                failed++;
+                continue;
+            }
+            if (item == null || !item.isValid()) {
+                failed++;
+                continue;
+            }
+            target.put(entry.getKey(), serializer.serialize(item));
+        }
+        finish(legacyName, failed);
+    }
+
+    private void finish(String legacyName, int failed) {
+        if (failed > 0) {
+            logger.warn("{} records of '{}' could not be migrated and have been dropped", failed, legacyName);
+        }
+        db.delete(legacyName);
+        db.commit();
+    }
+}
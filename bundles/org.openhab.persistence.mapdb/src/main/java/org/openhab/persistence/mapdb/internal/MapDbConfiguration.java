@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+/**
+ * Configuration of the MapDB persistence service, read from the <code>org.openhab.mapdb</code> PID
+ * (<code>services/mapdb.cfg</code>).
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class MapDbConfiguration {
+
+    /**
+     * When enabled, every stored state is additionally kept in a time-series store keyed by (item, timestamp),
+     * so that queries can answer date ranges, ordering and paging. When disabled, only the latest state of every
+     * item is kept.
+     */
+    public boolean historyEnabled = false;
+
+    /**
+     * Number of buffered writes that triggers a group commit.
+     */
+    public int commitBatchSize = 100;
+
+    /**
+     * Maximum time in milliseconds a stored state is buffered before it is committed.
+     */
+    public long commitIntervalMillis = 500;
+
+    /**
+     * Whether the database file is accessed through memory mapped file volumes instead of random access file I/O.
+     * Only takes effect on 64bit JVMs.
+     */
+    public boolean mmapEnabled = false;
+
+    /**
+     * Whether records are written to the store asynchronously by a background thread.
+     */
+    public boolean asyncWriteEnabled = false;
+
+    /**
+     * The instance cache of the database: <code>hash</code> (fixed size hash table), <code>lru</code> (least
+     * recently used) or <code>none</code>.
+     */
+    public String cacheType = MapDbFactory.CACHE_TYPE_HASH;
+
+    /**
+     * Maximum number of records held by the instance cache.
+     */
+    public int cacheSize = 32768;
+
+    /**
+     * Maximum number of items whose latest decoded state is kept in memory to answer queries without reading the
+     * database.
+     */
+    public int readCacheSize = 10000;
+
+    /**
+     * Number of days raw samples are kept in history mode before they are only available as rollups, 0 to keep
+     * them forever. Can be overridden per item with <code>retention.&lt;item name&gt;=&lt;days&gt;</code>.
+     */
+    public int rawRetentionDays = 0;
+
+    /**
+     * Number of days 1-minute rollups are kept, 0 to keep them forever.
+     */
+    public int minuteRetentionDays = 7;
+
+    /**
+     * Number of days 1-hour rollups are kept, 0 to keep them forever.
+     */
+    public int hourRetentionDays = 90;
+
+    /**
+     * Number of days 1-day rollups are kept, 0 to keep them forever.
+     */
+    public int dayRetentionDays = 0;
+
+    /**
+     * Interval in minutes between two compaction runs, which roll up and expire history.
+     */
+    public int compactionIntervalMinutes = 10;
+
+    /**
+     * Number of history records a single compaction run processes at most.
+     */
+    public int compactionBatchSize = 10000;
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.mapdb.BTreeKeySerializer;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.DB.BTreeMapMaker;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens the MapDB database file with the storage options of the {@link MapDbConfiguration}.
+ *
+ * After opening, a self-check touches the first and last record of every collection. If opening or the self-check
+ * fails, MapDB could not replay its transaction journal onto a consistent store. The corrupt files are then moved
+ * aside and every record that can still be read from them is copied into a fresh store, so the service starts
+ * with as much of its data as possible instead of failing.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbFactory {
+
+    static final String CACHE_TYPE_HASH = "hash";
+    static final String CACHE_TYPE_LRU = "lru";
+    static final String CACHE_TYPE_NONE = "none";
+
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+
+    private final Logger logger = LoggerFactory.getLogger(MapDbFactory.class);
+
+    private final MapDbConfiguration configuration;
+
+    public MapDbFactory(MapDbConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Opens the database, recovering it from a corrupt store if necessary.
+     *
+     * @param dbFile the database file
+     * @return the opened database
+     */
+    public DB open(File dbFile) {
+        DB db = null;
+        try {
+            db = maker(dbFile).make();
+            selfCheck(db);
+            return db;
+        } catch (RuntimeException e) {
+            logger.warn("MapDB database '{}' is corrupt, trying to recover it: {}", dbFile, e.getMessage());
+            if (db != null) {
+                closeQuietly(db);
+            }
+        }
+        return recover(dbFile);
+    }
+
+    private DBMaker<?> maker(File dbFile) {
+        DBMaker<?> maker = DBMaker.newFileDB(dbFile).closeOnJvmShutdown();
+        if (configuration.mmapEnabled) {
+            maker = maker.mmapFileEnableIfSupported();
+        }
+        if (configuration.asyncWriteEnabled) {
+            maker = maker.asyncWriteEnable();
+        }
+        switch (configuration.cacheType.toLowerCase()) {
+            case CACHE_TYPE_NONE:
+                maker = maker.cacheDisable();
+                break;
+            case CACHE_TYPE_LRU:
+                maker = maker.cacheLRUEnable().cacheSize(configuration.cacheSize);
+                break;
+            case CACHE_TYPE_HASH:
+                maker = maker.cacheSize(configuration.cacheSize);
+                break;
+            default:
+                logger.warn("Unknown MapDB cache type '{}', using '{}'", configuration.cacheType, CACHE_TYPE_HASH);
+                maker = maker.cacheSize(configuration.cacheSize);
+                break;
+        }
+        return maker;
+    }
+
+    /**
+     * Reads the catalog and the boundary records of all collections, which fails on a corrupt store.
+     */
+    private void selfCheck(DB db) {
+        for (Entry<String, Object> entry : db.getAll().entrySet()) {
+            if (entry.getValue() instanceof NavigableMap) {
+                NavigableMap<?, ?> collection = (NavigableMap<?, ?>) entry.getValue();
+                collection.firstEntry();
+                collection.lastEntry();
+            }
+        }
+    }
+
+    private DB recover(File dbFile) {
+        long now = System.currentTimeMillis();
+        File corruptFile = new File(dbFile.getParentFile(), dbFile.getName() + CORRUPT_SUFFIX + now);
+        File[] files = dbFile.getParentFile().listFiles((dir, name) -> name.startsWith(dbFile.getName())
+                && !name.contains(CORRUPT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                File target = new File(file.getParentFile(),
+                        corruptFile.getName() + file.getName().substring(dbFile.getName().length()));
+                if (!file.renameTo(target)) {
+                    logger.warn("Failed to move corrupt MapDB file '{}' aside", file);
+                }
+            }
+        }
+
+        DB db = maker(dbFile).make();
+        DB corrupt = null;
+        try {
+            corrupt = DBMaker.newFileDB(corruptFile).readOnly().make();
+            salvage(corrupt, db);
+        } catch (RuntimeException e) {
+            logger.warn("No records could be recovered from the corrupt MapDB database: {}", e.getMessage());
+        } finally {
+            if (corrupt != null) {
+                closeQuietly(corrupt);
+            }
+        }
+        db.commit();
+        logger.info("Recovered MapDB database '{}', the corrupt files have been kept as '{}'", dbFile, corruptFile);
+        return db;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void salvage(DB source, DB target) {
+        Map<String, Object> catalog = source.getCatalog();
+        for (Entry<String, Object> entry : source.getAll().entrySet()) {
+            String name = entry.getKey();
+            if (!(entry.getValue() instanceof BTreeMap)) {
+                continue;
+            }
+            BTreeMapMaker maker = target.createTreeMap(name);
+            Object keySerializer = catalog.get(name + ".keySerializer");
+            if (keySerializer instanceof BTreeKeySerializer) {
+                maker = maker.keySerializer((BTreeKeySerializer) keySerializer);
+            }
+            Object valueSerializer = catalog.get(name + ".valueSerializer");
+            if (valueSerializer instanceof Serializer) {
+                maker = maker.valueSerializer((Serializer) valueSerializer);
+            }
+            Map<Object, Object> copy = maker.makeOrGet();
+            int recovered = copyReadable((BTreeMap<Object, Object>) entry.getValue(), copy);
+            logger.info("Recovered {} records of '{}'", recovered, name);
+        }
+    }
+
+    private int copyReadable(BTreeMap<Object, Object> source, Map<Object, Object> target) {
+        int count = 0;
+        Object key = null;
+        while (true) {
+            Entry<Object, Object> entry;
+            try {
+                entry = key == null ? source.firstEntry() : source.higherEntry(key);
+            } catch (RuntimeException e) {
+                // the remainder of this collection is unreadable
+                break;
+            }
+            if (entry == null) {
+                break;
+            }
+            key = entry.getKey();
+            target.put(entry.getKey(), entry.getValue());
+            count++;
+        }
+        return count;
+    }
+
+    private void closeQuietly(DB db) {
+        try {
+            db.close();
+        } catch (RuntimeException e) {
+            logger.debug("Failed to close MapDB database: {}", e.getMessage());
+        }
+    }
+}
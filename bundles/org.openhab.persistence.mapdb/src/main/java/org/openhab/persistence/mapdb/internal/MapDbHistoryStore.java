@@ -0,0 +1,457 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.types.State;
+import org.mapdb.BTreeKeySerializer;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.Fun;
+import org.mapdb.Fun.Tuple2;
+import org.mapdb.Serializer;
+
+/**
+ * Time-series store of item states. Every state is kept under a composite (item name, timestamp) key in a
+ * {@link BTreeMap}, so that a {@link FilterCriteria} can be answered by seeking the key range of a single item
+ * instead of deserializing the whole store.
+ *
+ * Items with a finite raw retention in the {@link MapDbRetentionPolicy} are additionally rolled up into
+ * min/max/avg/last buckets of each {@link MapDbResolution} by {@link #compact(int)}, and expired history is removed.
+ * For such items, queries transparently pick the coarsest resolution that still covers the requested range with
+ * enough points, and answer the part of the range not rolled up yet from the finer resolutions.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbHistoryStore {
+
+    private static final String HISTORY_STORE_NAME = "stateHistory";
+
+    /** name of the store holding up to which timestamp the history of an item has been rolled up */
+    private static final String WATERMARK_STORE_NAME = "stateHistoryWatermarks";
+
+    /** minimum number of points a coarser resolution has to provide for a range to be chosen */
+    private static final int MIN_POINTS = 100;
+
+    private final BTreeMap<Tuple2<String, Long>, byte[]> history;
+    private final Map<MapDbResolution, BTreeMap<Tuple2<String, Long>, byte[]>> stores = new EnumMap<>(
+            MapDbResolution.class);
+    private final Map<Tuple2<String, Integer>, Long> watermarks;
+
+    private final StateSerializer serializer;
+    private final MapDbRetentionPolicy policy;
+    private final LongSupplier clock;
+    private final long rollupDelayMillis;
+
+    public MapDbHistoryStore(DB db, StateSerializer serializer) {
+        this(db, serializer, new MapDbRetentionPolicy(new MapDbConfiguration(), Collections.emptyMap()),
+                System::currentTimeMillis, 0);
+    }
+
+    /**
+     * @param rollupDelayMillis time a bucket is left alone after it has ended, so that samples recorded before its
+     *            end but written later (e.g. buffered by the {@link MapDbWriteQueue}) are still rolled up into it
+     */
+    public MapDbHistoryStore(DB db, StateSerializer serializer, MapDbRetentionPolicy policy, LongSupplier clock,
+            long rollupDelayMillis) {
+        this.serializer = serializer;
+        this.policy = policy;
+        this.clock = clock;
+        this.rollupDelayMillis = Math.max(0, rollupDelayMillis);
+        // the tuple key serializer delta-compresses the item names, which are shared by all keys of a node
+        history = db.createTreeMap(HISTORY_STORE_NAME).keySerializer(BTreeKeySerializer.TUPLE2)
+                .valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+        stores.put(MapDbResolution.RAW, history);
+        for (MapDbResolution resolution : MapDbResolution.values()) {
+            if (resolution != MapDbResolution.RAW) {
+                stores.put(resolution,
+                        db.createTreeMap(HISTORY_STORE_NAME + resolution.getSuffix())
+                                .keySerializer(BTreeKeySerializer.TUPLE2).valueSerializer(Serializer.BYTE_ARRAY)
+                                .makeOrGet());
+            }
+        }
+        watermarks = db.createTreeMap(WATERMARK_STORE_NAME).makeOrGet();
+    }
+
+    /**
+     * Adds a state to the history of the given item.
+     *
+     * @param name the item name (or alias) the state belongs to
+     * @param timestamp the time the state was recorded
+     * @param state the state to store
+     */
+    public void put(String name, Date timestamp, State state) {
+        history.put(Fun.t2(name, timestamp.getTime()), serializer.serialize(state));
+    }
+
+    /**
+     * Returns the states of a single item matching the given filter. The item name is mandatory, begin and end
+     * date are inclusive bounds of the seeked key range, and ordering and paging are applied while iterating
+     * that range, so only the requested page is deserialized.
+     *
+     * @param filter the filter to apply
+     * @return the matching states, in the requested order
+     */
+    public List<HistoricItem> query(FilterCriteria filter) {
+        String name = filter.getItemName();
+        if (name == null) {
+            return Collections.emptyList();
+        }
+
+        Date begin = filter.getBeginDate();
+        Date end = filter.getEndDate();
+        long from = begin == null ? Long.MIN_VALUE : begin.getTime();
+        long to = end == null ? Long.MAX_VALUE : end.getTime();
+        if (from > to) {
+            return Collections.emptyList();
+        }
+
+        MapDbResolution resolution = policy.isRolledUp(name) ? selectResolution(name, from, to)
+                : MapDbResolution.RAW;
+        List<Segment> segments = new ArrayList<>();
+        collect(resolution, name, from, to, segments);
+        boolean descending = filter.getOrdering() == Ordering.DESCENDING;
+        if (descending) {
+            // the newest samples are in the finest resolution
+            Collections.reverse(segments);
+        }
+        return page(iterate(name, segments, descending), filter);
+    }
+
+    /**
+     * A key range of the history of an item at one resolution
+     */
+    private static class Segment {
+        private final MapDbResolution resolution;
+        private final long from;
+        private final long to;
+
+        private Segment(MapDbResolution resolution, long from, long to) {
+            this.resolution = resolution;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Returns the states of the segments one after another. Every segment is seeked and deserialized only when the
+     * previous one has been consumed, so a page taken from the beginning does not touch the later segments.
+     */
+    private Iterator<MapDbItem> iterate(String name, List<Segment> segments, boolean descending) {
+        Iterator<Segment> remaining = segments.iterator();
+        return new Iterator<MapDbItem>() {
+            private Iterator<MapDbItem> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && remaining.hasNext()) {
+                    current = iterate(name, remaining.next(), descending);
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public MapDbItem next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    private Iterator<MapDbItem> iterate(String name, Segment segment, boolean descending) {
+        NavigableMap<Tuple2<String, Long>, byte[]> range = stores.get(segment.resolution)
+                .subMap(Fun.t2(name, segment.from), true, Fun.t2(name, segment.to), true);
+        if (descending) {
+            range = range.descendingMap();
+        }
+        boolean raw = segment.resolution == MapDbResolution.RAW;
+        return range.entrySet().stream().map(entry -> {
+            @Nullable State state;
+            if (raw) {
+                state = serializer.deserialize(entry.getValue());
+            } else {
+                MapDbRollup rollup = MapDbRollup.deserialize(serializer, entry.getValue());
+                state = rollup == null ? null : rollup.getState();
+            }
+            return toItem(name, entry.getKey().b, state);
+        }).filter(Objects::nonNull).iterator();
+    }
+
+    private List<HistoricItem> page(Iterator<MapDbItem> items, FilterCriteria filter) {
+        int pageSize = filter.getPageSize();
+        long skip = (long) filter.getPageNumber() * pageSize;
+        List<HistoricItem> result = new ArrayList<>();
+        while (result.size() < pageSize && items.hasNext()) {
+            MapDbItem item = items.next();
+            if (!matches(item.getState(), filter)) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static @Nullable MapDbItem toItem(String name, long timestamp, @Nullable State state) {
+        if (state == null) {
+            return null;
+        }
+        MapDbItem item = new MapDbItem();
+        item.setName(name);
+        item.setState(state);
+        item.setTimestamp(new Date(timestamp));
+        return item;
+    }
+
+    /**
+     * Selects the finest resolution still holding the history at the beginning of the range, and coarsens it as
+     * long as the range spans at least {@link #MIN_POINTS} buckets.
+     */
+    private MapDbResolution selectResolution(String name, long from, long to) {
+        long now = clock.getAsLong();
+        MapDbResolution selected = MapDbResolution.DAY;
+        for (MapDbResolution resolution : MapDbResolution.values()) {
+            if (policy.getOldestTimestamp(name, resolution, now) <= from) {
+                selected = resolution;
+                break;
+            }
+        }
+        long span = from == Long.MIN_VALUE ? Long.MAX_VALUE : Math.min(to, now) - from;
+        MapDbResolution coarser = selected.coarser();
+        while (coarser != null && span / MIN_POINTS >= coarser.getBucketMillis()) {
+            selected = coarser;
+            coarser = selected.coarser();
+        }
+        return selected;
+    }
+
+    /**
+     * Collects the segments of the history of an item in ascending order: the part rolled up at the given
+     * resolution, the remainder at the finer resolutions. Only the watermarks are read.
+     */
+    private void collect(MapDbResolution resolution, String name, long from, long to, List<Segment> segments) {
+        MapDbResolution finer = resolution.finer();
+        if (finer == null) {
+            segments.add(new Segment(resolution, from, to));
+            return;
+        }
+
+        long watermark = getWatermark(name, resolution);
+        if (from < watermark) {
+            segments.add(new Segment(resolution, from, Math.min(to, watermark - 1)));
+        }
+        if (to >= watermark) {
+            collect(finer, name, Math.max(from, watermark), to, segments);
+        }
+    }
+
+    /**
+     * Rolls up the history of all items with a finite raw retention into the coarser resolutions, and removes
+     * history that has expired and has been rolled up. Work is split into chunks of whole buckets: once the
+     * given number of records has been processed, the method returns and the next call continues from there.
+     *
+     * @param maxRecords number of records to process at most (give or take one bucket)
+     * @return number of records processed
+     */
+    public int compact(int maxRecords) {
+        long now = clock.getAsLong();
+        int processed = 0;
+        for (MapDbResolution resolution : MapDbResolution.values()) {
+            MapDbResolution finer = resolution.finer();
+            if (finer == null) {
+                continue;
+            }
+            for (String name : names(stores.get(finer))) {
+                if (policy.isRolledUp(name)) {
+                    processed += rollup(name, finer, resolution, now, maxRecords - processed);
+                    if (processed >= maxRecords) {
+                        return processed;
+                    }
+                }
+            }
+        }
+        for (MapDbResolution resolution : MapDbResolution.values()) {
+            for (String name : names(stores.get(resolution))) {
+                if (policy.isRolledUp(name)) {
+                    processed += expire(name, resolution, now, maxRecords - processed);
+                    if (processed >= maxRecords) {
+                        return processed;
+                    }
+                }
+            }
+        }
+        return processed;
+    }
+
+    private int rollup(String name, MapDbResolution source, MapDbResolution target, long now, int maxRecords) {
+        // only complete buckets are rolled up, i.e. buckets that have ended and are fully rolled up at the source.
+        // Samples below the watermark are never rolled up, so wait for samples that are still on their way.
+        long end = target.bucketStart(now - rollupDelayMillis);
+        if (source != MapDbResolution.RAW) {
+            end = Math.min(end, target.bucketStart(getWatermark(name, source)));
+        }
+        long start = getWatermark(name, target);
+        if (start >= end) {
+            return 0;
+        }
+
+        BTreeMap<Tuple2<String, Long>, byte[]> targetStore = stores.get(target);
+        int count = 0;
+        MapDbRollup bucket = null;
+        long bucketStart = 0;
+        for (Entry<Tuple2<String, Long>, byte[]> entry : stores.get(source)
+                .subMap(Fun.t2(name, start), true, Fun.t2(name, end), false).entrySet()) {
+            long timestamp = target.bucketStart(entry.getKey().b);
+            if (bucket != null && timestamp != bucketStart) {
+                putRollup(targetStore, name, bucketStart, bucket);
+                bucket = null;
+                if (count >= maxRecords) {
+                    setWatermark(name, target, timestamp);
+                    return count;
+                }
+            }
+            MapDbRollup sample;
+            if (source == MapDbResolution.RAW) {
+                State state = serializer.deserialize(entry.getValue());
+                sample = state == null ? null : MapDbRollup.of(state);
+            } else {
+                sample = MapDbRollup.deserialize(serializer, entry.getValue());
+            }
+            count++;
+            if (sample != null) {
+                bucket = bucket == null ? sample : bucket.merge(sample);
+                bucketStart = timestamp;
+            }
+        }
+        if (bucket != null) {
+            putRollup(targetStore, name, bucketStart, bucket);
+        }
+        setWatermark(name, target, end);
+        return count;
+    }
+
+    private void putRollup(BTreeMap<Tuple2<String, Long>, byte[]> store, String name, long bucketStart,
+            MapDbRollup bucket) {
+        Tuple2<String, Long> key = Fun.t2(name, bucketStart);
+        byte[] existing = store.get(key);
+        MapDbRollup earlier = existing == null ? null : MapDbRollup.deserialize(serializer, existing);
+        store.put(key, (earlier == null ? bucket : earlier.merge(bucket)).serialize(serializer));
+    }
+
+    private int expire(String name, MapDbResolution resolution, long now, int maxRecords) {
+        long cutoff = policy.getOldestTimestamp(name, resolution, now);
+        MapDbResolution coarser = resolution.coarser();
+        if (coarser != null) {
+            // never remove history that has not been rolled up yet
+            cutoff = Math.min(cutoff, getWatermark(name, coarser));
+        }
+        if (cutoff == Long.MIN_VALUE) {
+            return 0;
+        }
+
+        NavigableMap<Tuple2<String, Long>, byte[]> expired = stores.get(resolution)
+                .subMap(Fun.t2(name, Long.MIN_VALUE), true, Fun.t2(name, cutoff), false);
+        List<Tuple2<String, Long>> keys = new ArrayList<>();
+        for (Tuple2<String, Long> key : expired.keySet()) {
+            if (keys.size() >= maxRecords) {
+                break;
+            }
+            keys.add(key);
+        }
+        for (Tuple2<String, Long> key : keys) {
+            expired.remove(key);
+        }
+        return keys.size();
+    }
+
+    private long getWatermark(String name, MapDbResolution resolution) {
+        Long watermark = watermarks.get(Fun.t2(name, resolution.ordinal()));
+        return watermark == null ? Long.MIN_VALUE : watermark;
+    }
+
+    private void setWatermark(String name, MapDbResolution resolution, long watermark) {
+        watermarks.put(Fun.t2(name, resolution.ordinal()), watermark);
+    }
+
+    /**
+     * Returns the distinct item names of a store, skipping over the history of every item with a single seek.
+     */
+    private static List<String> names(BTreeMap<Tuple2<String, Long>, byte[]> store) {
+        List<String> names = new ArrayList<>();
+        Tuple2<String, Long> key = store.isEmpty() ? null : store.firstKey();
+        while (key != null) {
+            names.add(key.a);
+            key = store.higherKey(Fun.t2(key.a, Long.MAX_VALUE));
+        }
+        return names;
+    }
+
+    /**
+     * Checks a state against the state and operator of the filter. Ordering comparisons are only defined for
+     * numeric states.
+     */
+    static boolean matches(State state, FilterCriteria filter) {
+        State expected = filter.getState();
+        if (expected == null) {
+            return true;
+        }
+        switch (filter.getOperator()) {
+            case EQ:
+                return state.equals(expected);
+            case NEQ:
+                return !state.equals(expected);
+            default:
+                break;
+        }
+        if (!(state instanceof DecimalType) || !(expected instanceof DecimalType)) {
+            return false;
+        }
+        int comparison = ((DecimalType) state).compareTo((DecimalType) expected);
+        switch (filter.getOperator()) {
+            case GT:
+                return comparison > 0;
+            case GTE:
+                return comparison >= 0;
+            case LT:
+                return comparison < 0;
+            case LTE:
+                return comparison <= 0;
+            default:
+                return false;
+        }
+    }
+}
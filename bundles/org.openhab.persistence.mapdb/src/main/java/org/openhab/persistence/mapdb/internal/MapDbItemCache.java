@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Lock-free cache of the latest decoded {@link MapDbItem} of every item, kept write-through by the persistence
+ * service. It is bounded by item count: once the bound is reached, items not cached yet are no longer added.
+ *
+ * As long as no item has been rejected after the cache was filled from the store, the cache is complete, i.e. it
+ * knows every stored item and a miss means the item has never been stored.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbItemCache {
+
+    private final Map<String, MapDbItem> items = new ConcurrentHashMap<>();
+    private final int maxItems;
+
+    private volatile boolean complete;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MapDbItemCache(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Adds or replaces the latest item, if the bound allows it.
+     */
+    public void put(MapDbItem item) {
+        if (items.size() >= maxItems && !items.containsKey(item.getName())) {
+            complete = false;
+            return;
+        }
+        items.put(item.getName(), item);
+    }
+
+    /**
+     * Returns the latest cached item and counts the hit or miss.
+     */
+    public @Nullable MapDbItem get(String name) {
+        MapDbItem item = items.get(name);
+        if (item != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return item;
+    }
+
+    /**
+     * Marks the cache as holding every stored item. Must only be called after all stored items have been put,
+     * and is revoked as soon as an item is rejected by the bound.
+     */
+    public void markComplete() {
+        complete = items.size() <= maxItems;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public Collection<MapDbItem> getItems() {
+        return items.values();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
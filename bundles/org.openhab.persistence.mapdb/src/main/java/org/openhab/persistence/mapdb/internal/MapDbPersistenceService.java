@@ -15,20 +15,25 @@ package org.openhab.persistence.mapdb.internal;
 import java.io.File;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.eclipse.smarthome.config.core.Configuration;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
 import org.eclipse.smarthome.core.persistence.HistoricItem;
 import org.eclipse.smarthome.core.persistence.PersistenceItemInfo;
 import org.eclipse.smarthome.core.persistence.PersistenceService;
@@ -36,14 +41,13 @@ import org.eclipse.smarthome.core.persistence.QueryablePersistenceService;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
 import org.mapdb.DB;
-import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-
 /**
  * This is the implementation of the MapDB {@link PersistenceService}. To learn
  * more about MapDB please visit their <a
@@ -53,7 +57,8 @@ import com.google.gson.GsonBuilder;
  * @author Martin Kühl - Port to Eclipse SmartHome
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class, QueryablePersistenceService.class })
+@Component(service = { PersistenceService.class,
+        QueryablePersistenceService.class }, configurationPid = "org.openhab.mapdb")
 public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String SERVICE_NAME = "mapdb";
@@ -62,25 +67,47 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String DB_FILE_NAME = "storage.mapdb";
 
+    private static final String ITEM_STORE_NAME = "itemStates";
+
+    private static final long COMPACTION_CHUNK_PAUSE_MILLIS = 1000;
+
+    /** name of the item store holding JSON encoded {@link MapDbItem}s */
+    private static final String LEGACY_ITEM_STORE_NAME = "itemStore";
+
     private final Logger logger = LoggerFactory.getLogger(MapDbPersistenceService.class);
 
     @NonNullByDefault({})
-    private ExecutorService threadPool;
+    private ScheduledExecutorService scheduler;
 
     /** holds the local instance of the MapDB database */
     @NonNullByDefault({})
     private DB db;
     @NonNullByDefault({})
-    private Map<String, String> map;
+    private Map<String, byte[]> map;
+
+    /** holds the time-series store of item states, if history mode is enabled */
+    private @Nullable MapDbHistoryStore historyStore;
+
+    /** buffers stored items for group commits */
+    @NonNullByDefault({})
+    private MapDbWriteQueue writeQueue;
+
+    /** rolls up and expires the history in the background, if retention is configured */
+    private @Nullable ScheduledFuture<?> compactionJob;
+
+    /** holds the latest decoded state of the stored items */
+    @NonNullByDefault({})
+    private MapDbItemCache cache;
 
-    private transient Gson mapper = new GsonBuilder()
-            .registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
-            .create();
+    private final StateSerializer serializer = new StateSerializer();
 
-    public void activate() {
+    @Activate
+    public void activate(Map<String, Object> config) {
         logger.debug("MapDB persistence service is being activated");
 
-        threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
+        MapDbConfiguration configuration = new Configuration(config).as(MapDbConfiguration.class);
+
+        scheduler = ThreadPoolManager.getScheduledPool(getClass().getSimpleName());
 
         File folder = new File(DB_FOLDER_NAME);
         if (!folder.exists()) {
@@ -92,17 +119,50 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         }
 
         File dbFile = new File(DB_FOLDER_NAME, DB_FILE_NAME);
-        db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
-        map = db.createTreeMap("itemStore").makeOrGet();
-        logger.debug("MapDB persistence service is now activated");
+        db = new MapDbFactory(configuration).open(dbFile);
+        map = db.createTreeMap(ITEM_STORE_NAME).valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+        new JsonStoreMigration(db, serializer).migrateItems(LEGACY_ITEM_STORE_NAME, map);
+        if (configuration.historyEnabled) {
+            MapDbRetentionPolicy policy = new MapDbRetentionPolicy(configuration, config);
+            MapDbHistoryStore historyStore = new MapDbHistoryStore(db, serializer, policy, System::currentTimeMillis,
+                    configuration.commitIntervalMillis);
+            this.historyStore = historyStore;
+            if (policy.isEnabled()) {
+                int batchSize = Math.max(1, configuration.compactionBatchSize);
+                long interval = Math.max(1, configuration.compactionIntervalMinutes);
+                compactionJob = scheduler.scheduleWithFixedDelay(() -> compact(historyStore, batchSize), interval,
+                        interval, TimeUnit.MINUTES);
+            }
+        }
+        cache = new MapDbItemCache(configuration.readCacheSize);
+        fillCache(configuration.readCacheSize);
+        writeQueue = new MapDbWriteQueue(db, map, historyStore, serializer, scheduler, configuration.commitBatchSize,
+                configuration.commitIntervalMillis);
+        logger.debug("MapDB persistence service is now activated (history mode {})",
+                configuration.historyEnabled ? "enabled" : "disabled");
     }
 
+    @Deactivate
     public void deactivate() {
         logger.debug("MapDB persistence service deactivated");
+        ScheduledFuture<?> compactionJob = this.compactionJob;
+        if (compactionJob != null) {
+            compactionJob.cancel(false);
+            this.compactionJob = null;
+        }
+        if (writeQueue != null) {
+            writeQueue.close();
+            logger.debug("MapDB persistence service wrote {} records in {} commits, average commit latency {} ms, "
+                    + "{} failed commits", writeQueue.getCommittedItemCount(), writeQueue.getCommitCount(),
+                    writeQueue.getAverageCommitLatencyMillis(), writeQueue.getFailedCommitCount());
+        }
+        if (cache != null) {
+            logger.debug("MapDB persistence service read cache had {} hits and {} misses", cache.getHitCount(),
+                    cache.getMissCount());
+        }
         if (db != null) {
             db.close();
         }
-        threadPool.shutdown();
     }
 
     @Override
@@ -117,10 +177,18 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
-        return map.values().stream()
-                .map(this::deserialize)
+        if (cache.isComplete()) {
+            return new HashSet<PersistenceItemInfo>(cache.getItems());
+        }
+        Map<String, MapDbItem> items = map.entrySet().stream()
+                .map(entry -> deserialize(entry.getKey(), entry.getValue()))
                 .flatMap(MapDbPersistenceService::streamOptional)
-                .collect(Collectors.<PersistenceItemInfo>toSet());
+                .collect(Collectors.toMap(MapDbItem::getName, item -> item));
+        // items waiting for the next commit are newer than the stored ones
+        for (MapDbItem item : writeQueue.getPendingItems()) {
+            items.put(item.getName(), item);
+        }
+        return new HashSet<PersistenceItemInfo>(items.values());
     }
 
     @Override
@@ -145,42 +213,117 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         mItem.setName(alias);
         mItem.setState(state);
         mItem.setTimestamp(new Date());
-        String json = serialize(mItem);
-        map.put(alias, json);
-        commit();
-        logger.debug("Stored '{}' with state '{}' in MapDB database", alias, state.toString());
+        cache.put(mItem);
+        writeQueue.add(mItem);
+        logger.debug("Queued '{}' with state '{}' for MapDB database, {} records queued", alias, state.toString(),
+                writeQueue.getQueueDepth());
     }
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
-        String json = map.get(filter.getItemName());
-        if (json == null) {
+        String name = filter.getItemName();
+        MapDbHistoryStore historyStore = this.historyStore;
+        if (historyStore != null) {
+            MapDbItem cached = name == null ? null : cache.get(name);
+            if (cached != null && isLatestStateQuery(filter, cached)) {
+                return Collections.singletonList(cached);
+            }
+            if (writeQueue.hasPendingHistory()) {
+                writeQueue.flush();
+            }
+            return historyStore.query(filter);
+        }
+        if (name == null) {
+            return Collections.emptyList();
+        }
+        MapDbItem cached = cache.get(name);
+        if (cached != null) {
+            return Collections.singletonList(cached);
+        }
+        if (cache.isComplete()) {
+            // the item has never been stored
+            return Collections.emptyList();
+        }
+        MapDbItem pending = writeQueue.getPending(name);
+        if (pending != null) {
+            return Collections.singletonList(pending);
+        }
+        byte[] data = map.get(name);
+        if (data == null) {
             return Collections.emptyList();
         }
-        Optional<MapDbItem> item = deserialize(json);
+        Optional<MapDbItem> item = deserialize(name, data);
         if (!item.isPresent()) {
             return Collections.emptyList();
         }
+        cache.put(item.get());
         return Collections.singletonList(item.get());
     }
 
-    private String serialize(MapDbItem item) {
-        return mapper.toJson(item);
+    /**
+     * Checks whether a history query asks for nothing but the latest state, which the cache holds.
+     */
+    private static boolean isLatestStateQuery(FilterCriteria filter, MapDbItem latest) {
+        Date begin = filter.getBeginDate();
+        Date end = filter.getEndDate();
+        return filter.getPageSize() == 1 && filter.getPageNumber() == 0 && filter.getOrdering() == Ordering.DESCENDING
+                && filter.getState() == null && (begin == null || !begin.after(latest.getTimestamp()))
+                && (end == null || !end.before(latest.getTimestamp()));
     }
 
-    private Optional<MapDbItem> deserialize(String json) {
-        MapDbItem item = mapper.<MapDbItem>fromJson(json, MapDbItem.class);
+    /**
+     * Runs one chunk of the history compaction. Chunks are repeated with a short pause until the backlog is done,
+     * so that a large backlog does not block the pool. Buffered samples are written first, so they are rolled up.
+     */
+    private void compact(MapDbHistoryStore historyStore, int batchSize) {
+        try {
+            long start = System.nanoTime();
+            int processed = writeQueue.flushAndRun(() -> {
+                try {
+                    int count = historyStore.compact(batchSize);
+                    if (count > 0) {
+                        db.commit();
+                    }
+                    return count;
+                } catch (RuntimeException e) {
+                    db.rollback();
+                    throw e;
+                }
+            });
+            if (processed > 0) {
+                logger.debug("Compacted {} history records of the MapDB database in {} ms", processed,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            if (processed >= batchSize && compactionJob != null) {
+                scheduler.schedule(() -> compact(historyStore, batchSize), COMPACTION_CHUNK_PAUSE_MILLIS,
+                        TimeUnit.MILLISECONDS);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to compact the history of the MapDB database: {}", e.getMessage(), e);
+        }
+    }
+
+    private void fillCache(int maxItems) {
+        int size = map.size();
+        if (size > maxItems) {
+            logger.debug("MapDB store holds {} items, read cache is limited to {}", size, maxItems);
+            return;
+        }
+        for (Map.Entry<String, byte[]> entry : map.entrySet()) {
+            deserialize(entry.getKey(), entry.getValue()).ifPresent(cache::put);
+        }
+        cache.markComplete();
+    }
+
+    private Optional<MapDbItem> deserialize(String name, byte[] data) {
+        MapDbItem item = serializer.deserialize(name, data);
         if (item == null || !item.isValid()) {
-            logger.warn("Deserialized invalid item: {}", item);
+            logger.warn("Deserialized invalid item: {}", name);
             return Optional.empty();
         }
         return Optional.of(item);
     }
 
-    private void commit() {
-        threadPool.submit(() -> db.commit());
-    }
-
     private static <T> Stream<T> streamOptional(Optional<T> opt) {
         if (!opt.isPresent()) {
             return Stream.empty();
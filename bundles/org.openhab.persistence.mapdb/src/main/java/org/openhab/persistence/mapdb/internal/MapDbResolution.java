@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Resolutions of the item history: raw samples and min/max/avg/last rollups into fixed size buckets.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public enum MapDbResolution {
+    RAW(0, ""),
+    MINUTE(TimeUnit.MINUTES.toMillis(1), "1m"),
+    HOUR(TimeUnit.HOURS.toMillis(1), "1h"),
+    DAY(TimeUnit.DAYS.toMillis(1), "1d");
+
+    private final long bucketMillis;
+    private final String suffix;
+
+    private MapDbResolution(long bucketMillis, String suffix) {
+        this.bucketMillis = bucketMillis;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Returns the width of a bucket in milliseconds, 0 for raw samples.
+     */
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * Returns the suffix of the store names holding this resolution.
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Returns the start of the bucket containing the given timestamp.
+     */
+    public long bucketStart(long timestamp) {
+        return bucketMillis == 0 ? timestamp : timestamp - Math.floorMod(timestamp, bucketMillis);
+    }
+
+    /**
+     * Returns the next finer resolution, or null for raw samples.
+     */
+    public @Nullable MapDbResolution finer() {
+        return ordinal() == 0 ? null : values()[ordinal() - 1];
+    }
+
+    /**
+     * Returns the next coarser resolution, or null for the coarsest one.
+     */
+    public @Nullable MapDbResolution coarser() {
+        return ordinal() == values().length - 1 ? null : values()[ordinal() + 1];
+    }
+}
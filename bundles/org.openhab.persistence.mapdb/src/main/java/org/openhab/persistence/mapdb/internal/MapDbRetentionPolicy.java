@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retention of the item history per {@link MapDbResolution}. Raw samples are kept for the configured number of
+ * days, which can be overridden per item with <code>retention.&lt;item name&gt;=&lt;days&gt;</code> properties.
+ * Items whose raw samples are kept forever (0 days) are not rolled up at all.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbRetentionPolicy {
+
+    /** prefix of the configuration properties overriding the raw retention of single items */
+    static final String ITEM_RETENTION_PREFIX = "retention.";
+
+    /** marks history that is kept forever */
+    public static final long FOREVER = Long.MAX_VALUE;
+
+    private final Logger logger = LoggerFactory.getLogger(MapDbRetentionPolicy.class);
+
+    private final int rawRetentionDays;
+    private final int minuteRetentionDays;
+    private final int hourRetentionDays;
+    private final int dayRetentionDays;
+    private final Map<String, Integer> itemRetentionDays = new HashMap<>();
+
+    public MapDbRetentionPolicy(MapDbConfiguration configuration, Map<String, Object> properties) {
+        rawRetentionDays = configuration.rawRetentionDays;
+        minuteRetentionDays = configuration.minuteRetentionDays;
+        hourRetentionDays = configuration.hourRetentionDays;
+        dayRetentionDays = configuration.dayRetentionDays;
+        for (Entry<String, Object> property : properties.entrySet()) {
+            if (property.getKey().startsWith(ITEM_RETENTION_PREFIX)) {
+                String name = property.getKey().substring(ITEM_RETENTION_PREFIX.length());
+                try {
+                    itemRetentionDays.put(name, Integer.valueOf(property.getValue().toString().trim()));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring invalid retention '{}' of item '{}'", property.getValue(), name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether any item is rolled up.
+     */
+    public boolean isEnabled() {
+        return rawRetentionDays > 0 || itemRetentionDays.values().stream().anyMatch(days -> days > 0);
+    }
+
+    /**
+     * Returns whether the raw samples of the item expire and are therefore rolled up.
+     */
+    public boolean isRolledUp(String name) {
+        return getRetentionMillis(name, MapDbResolution.RAW) != FOREVER;
+    }
+
+    /**
+     * Returns how long the history of an item is kept at a resolution, or {@link #FOREVER}.
+     */
+    public long getRetentionMillis(String name, MapDbResolution resolution) {
+        int days;
+        switch (resolution) {
+            case RAW:
+                days = itemRetentionDays.getOrDefault(name, rawRetentionDays);
+                break;
+            case MINUTE:
+                days = minuteRetentionDays;
+                break;
+            case HOUR:
+                days = hourRetentionDays;
+                break;
+            default:
+                days = dayRetentionDays;
+                break;
+        }
+        return days <= 0 ? FOREVER : TimeUnit.DAYS.toMillis(days);
+    }
+
+    /**
+     * Returns the oldest timestamp still kept for an item at a resolution.
+     */
+    public long getOldestTimestamp(String name, MapDbResolution resolution, long now) {
+        long retention = getRetentionMillis(name, resolution);
+        return retention == FOREVER ? Long.MIN_VALUE : now - retention;
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import javax.measure.Quantity;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.QuantityType;
+import org.eclipse.smarthome.core.types.State;
+
+/**
+ * Aggregate of the states of one item within a bucket of a {@link MapDbResolution}: sample count, and min, max,
+ * sum for numeric states, and the last state. Non-numeric states only keep the last state.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbRollup {
+
+    private long count;
+    private boolean numeric;
+    private double min;
+    private double max;
+    private double sum;
+    private State last;
+
+    private MapDbRollup(long count, boolean numeric, double min, double max, double sum, State last) {
+        this.count = count;
+        this.numeric = numeric;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.last = last;
+    }
+
+    /**
+     * Creates the rollup of a single sample.
+     */
+    public static MapDbRollup of(State state) {
+        if (isNumeric(state)) {
+            double value = ((Number) state).doubleValue();
+            return new MapDbRollup(1, true, value, value, value, state);
+        }
+        return new MapDbRollup(1, false, 0, 0, 0, state);
+    }
+
+    private static boolean isNumeric(State state) {
+        return (state instanceof DecimalType && !(state instanceof HSBType)) || state instanceof QuantityType;
+    }
+
+    /**
+     * Adds a later rollup of the same item to this one.
+     */
+    public MapDbRollup merge(MapDbRollup later) {
+        if (numeric && later.numeric) {
+            min = Math.min(min, later.min);
+            max = Math.max(max, later.max);
+            sum += later.sum;
+        } else {
+            numeric = false;
+        }
+        count += later.count;
+        last = later.last;
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return sum / count;
+    }
+
+    public State getLast() {
+        return last;
+    }
+
+    /**
+     * Returns the state representing the bucket: the average for numeric states, of the same type as the samples,
+     * or the last state otherwise.
+     */
+    public State getState() {
+        if (!numeric) {
+            return last;
+        }
+        BigDecimal average = BigDecimal.valueOf(getAverage());
+        if (last instanceof QuantityType) {
+            return withValue((QuantityType<?>) last, average);
+        } else if (last instanceof PercentType) {
+            return new PercentType(average);
+        }
+        return new DecimalType(average);
+    }
+
+    private static <T extends Quantity<T>> QuantityType<T> withValue(QuantityType<T> quantity, BigDecimal value) {
+        return new QuantityType<>(value, quantity.getUnit());
+    }
+
+    public byte[] serialize(StateSerializer serializer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(StateSerializer.VERSION);
+            out.writeLong(count);
+            out.writeBoolean(numeric);
+            if (numeric) {
+                out.writeDouble(min);
+                out.writeDouble(max);
+                out.writeDouble(sum);
+            }
+            serializer.write(out, last);
+        } catch (IOException e) {
+            // cannot happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes a rollup written by {@link #serialize(StateSerializer)}.
+     *
+     * @return the rollup, or null if the data could not be read
+     */
+    public static @Nullable MapDbRollup deserialize(StateSerializer serializer, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (!serializer.checkVersion(version)) {
+                return null;
+            }
+            long count = in.readLong();
+            boolean numeric = in.readBoolean();
+            double min = 0;
+            double max = 0;
+            double sum = 0;
+            if (numeric) {
+                min = in.readDouble();
+                max = in.readDouble();
+                sum = in.readDouble();
+            }
+            State last = serializer.read(in, version);
+            return last == null ? null : new MapDbRollup(count, numeric, min, max, sum, last);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
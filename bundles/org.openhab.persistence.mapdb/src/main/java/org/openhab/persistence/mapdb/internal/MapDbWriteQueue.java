@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.mapdb.DB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Group-commit stage in front of the MapDB stores. Stored items are buffered and written together with a single
+ * {@link DB#commit()} once either the configured batch size is reached or the oldest buffered item has waited
+ * for the configured latency. Writes of the latest state of the same item are coalesced, history samples are
+ * kept in order. Buffered items are only dropped from the buffer once their commit succeeded; a failed commit is
+ * rolled back and retried with the next commit.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public class MapDbWriteQueue {
+
+    private final Logger logger = LoggerFactory.getLogger(MapDbWriteQueue.class);
+
+    private final DB db;
+    private final Map<String, byte[]> map;
+    private final @Nullable MapDbHistoryStore historyStore;
+    private final StateSerializer serializer;
+    private final ScheduledExecutorService scheduler;
+    private final int batchSize;
+    private final long maxLatencyMillis;
+
+    /** latest state per item, waiting to be written */
+    private final Map<String, MapDbItem> pendingItems = new ConcurrentHashMap<>();
+    /** history samples waiting to be written, only used in history mode */
+    private final Queue<MapDbItem> pendingHistory = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingHistorySize = new AtomicInteger();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean immediateFlushScheduled = new AtomicBoolean();
+    private volatile @Nullable ScheduledFuture<?> scheduledFlush;
+    private volatile @Nullable Future<?> immediateFlush;
+    private boolean closed;
+
+    private final AtomicLong commitCount = new AtomicLong();
+    private final AtomicLong committedItemCount = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private final AtomicLong failedCommitCount = new AtomicLong();
+    private volatile long lastCommitNanos;
+
+    public MapDbWriteQueue(DB db, Map<String, byte[]> map, @Nullable MapDbHistoryStore historyStore,
+            StateSerializer serializer, ScheduledExecutorService scheduler, int batchSize, long maxLatencyMillis) {
+        this.db = db;
+        this.map = map;
+        this.historyStore = historyStore;
+        this.serializer = serializer;
+        this.scheduler = scheduler;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxLatencyMillis = Math.max(0, maxLatencyMillis);
+    }
+
+    /**
+     * Buffers an item for the next group commit.
+     */
+    public void add(MapDbItem item) {
+        pendingItems.put(item.getName(), item);
+        if (historyStore != null) {
+            pendingHistory.add(item);
+            pendingHistorySize.incrementAndGet();
+        }
+
+        if (getQueueDepth() >= batchSize) {
+            if (immediateFlushScheduled.compareAndSet(false, true)) {
+                immediateFlush = scheduler.submit(this::flush);
+            }
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduledFlush = scheduler.schedule(this::flush, maxLatencyMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the buffered latest state of an item, if it has not been written yet.
+     */
+    public @Nullable MapDbItem getPending(String name) {
+        return pendingItems.get(name);
+    }
+
+    /**
+     * Returns the buffered latest states of all items that have not been written yet.
+     */
+    public Collection<MapDbItem> getPendingItems() {
+        return pendingItems.values();
+    }
+
+    /**
+     * Returns whether history samples are waiting to be written.
+     */
+    public boolean hasPendingHistory() {
+        return pendingHistorySize.get() > 0;
+    }
+
+    /**
+     * Writes all buffered items and commits them in one transaction. Does nothing once the queue is closed.
+     */
+    public synchronized void flush() {
+        // re-arm first, so that items added while flushing schedule the next commit
+        flushScheduled.set(false);
+        immediateFlushScheduled.set(false);
+
+        if (closed || (pendingItems.isEmpty() && pendingHistorySize.get() == 0)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Map<String, MapDbItem> items = new HashMap<>(pendingItems);
+        // only this method takes samples from the queue, so the first ones counted are still there after the commit
+        List<MapDbItem> samples = new ArrayList<>();
+        MapDbHistoryStore historyStore = this.historyStore;
+        if (historyStore != null) {
+            Iterator<MapDbItem> iterator = pendingHistory.iterator();
+            for (int i = pendingHistorySize.get(); i > 0 && iterator.hasNext(); i--) {
+                samples.add(iterator.next());
+            }
+        }
+        int count = items.size() + samples.size();
+        try {
+            for (Map.Entry<String, MapDbItem> entry : items.entrySet()) {
+                map.put(entry.getKey(), serializer.serialize(entry.getValue()));
+            }
+            if (historyStore != null) {
+                for (MapDbItem item : samples) {
+                    historyStore.put(item.getName(), item.getTimestamp(), item.getState());
+                }
+            }
+            db.commit();
+        } catch (RuntimeException e) {
+            failedCommitCount.incrementAndGet();
+            logger.warn("Failed to commit {} records to the MapDB database, retrying with the next commit: {}", count,
+                    e.getMessage());
+            try {
+                db.rollback();
+            } catch (RuntimeException rollbackException) {
+                logger.warn("Failed to roll back the MapDB database: {}", rollbackException.getMessage());
+            }
+            scheduleFlush();
+            return;
+        }
+
+        // keep newer states that were added in the meantime for the next commit
+        for (Map.Entry<String, MapDbItem> entry : items.entrySet()) {
+            pendingItems.remove(entry.getKey(), entry.getValue());
+        }
+        for (int i = samples.size(); i > 0; i--) {
+            pendingHistory.poll();
+            pendingHistorySize.decrementAndGet();
+        }
+
+        long duration = System.nanoTime() - start;
+        lastCommitNanos = duration;
+        totalCommitNanos.addAndGet(duration);
+        commitCount.incrementAndGet();
+        committedItemCount.addAndGet(count);
+        logger.debug("Committed {} records to the MapDB database in {} ms, {} records queued", count,
+                TimeUnit.NANOSECONDS.toMillis(duration), getQueueDepth());
+    }
+
+    /**
+     * Writes all buffered items, then runs a task that commits the same database itself, e.g. the history
+     * compaction. No group commit runs meanwhile, so the task neither commits half-written buffered items nor
+     * gets rolled back by a failed group commit.
+     *
+     * @param task the task to run
+     * @return the result of the task
+     */
+    public synchronized <T> T flushAndRun(Supplier<T> task) {
+        flush();
+        return task.get();
+    }
+
+    /**
+     * Cancels the scheduled commits and writes all buffered items. Commits that are already running are waited
+     * for, commits submitted but not started yet do nothing afterwards, so the database can be closed safely.
+     */
+    public void close() {
+        ScheduledFuture<?> scheduledFlush = this.scheduledFlush;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        Future<?> immediateFlush = this.immediateFlush;
+        if (immediateFlush != null) {
+            immediateFlush.cancel(false);
+        }
+        synchronized (this) {
+            flush();
+            closed = true;
+        }
+    }
+
+    /**
+     * Returns the number of buffered writes, i.e. coalesced latest states plus history samples.
+     */
+    public int getQueueDepth() {
+        return pendingItems.size() + pendingHistorySize.get();
+    }
+
+    /**
+     * Returns the number of group commits done so far.
+     */
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    /**
+     * Returns the number of records written by all group commits so far.
+     */
+    public long getCommittedItemCount() {
+        return committedItemCount.get();
+    }
+
+    /**
+     * Returns the number of group commits that failed and have been rolled back.
+     */
+    public long getFailedCommitCount() {
+        return failedCommitCount.get();
+    }
+
+    /**
+     * Returns the duration of the last group commit in milliseconds.
+     */
+    public double getLastCommitLatencyMillis() {
+        return lastCommitNanos / 1_000_000d;
+    }
+
+    /**
+     * Returns the average duration of a group commit in milliseconds.
+     */
+    public double getAverageCommitLatencyMillis() {
+        long commits = commitCount.get();
+        return commits == 0 ? 0 : totalCommitNanos.get() / 1_000_000d / commits;
+    }
+}
@@ -0,0 +1,310 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.library.types.UpDownType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.TypeParser;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A versioned binary serializer for Eclipse SmartHome State values. Every state is written as a type tag followed
+ * by a primitive payload: nothing for enum types, scale and unscaled value for decimals, UTF-8 bytes for strings.
+ * Types without a dedicated tag fall back to their class name and full string representation.
+ *
+ * Values are stored in MapDB as plain byte arrays: custom serializers would be recorded in the MapDB catalog and
+ * have to be class loaded by MapDB on reopen, which does not work reliably inside an OSGi container.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public class StateSerializer {
+
+    static final byte VERSION = 2;
+
+    /** format version writing the length of large unscaled decimal values as a single byte, still readable */
+    static final byte VERSION_BYTE_DECIMAL_LENGTH = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_UNDEF = 1;
+    private static final byte TAG_ON = 2;
+    private static final byte TAG_OFF = 3;
+    private static final byte TAG_OPEN = 4;
+    private static final byte TAG_CLOSED = 5;
+    private static final byte TAG_UP = 6;
+    private static final byte TAG_DOWN = 7;
+    private static final byte TAG_DECIMAL = 8;
+    private static final byte TAG_PERCENT = 9;
+    private static final byte TAG_HSB = 10;
+    private static final byte TAG_STRING = 11;
+    private static final byte TAG_GENERIC = 127;
+
+    /** marks a decimal whose unscaled value fits into a long */
+    private static final byte LONG_UNSCALED = 0;
+
+    /** marks a decimal whose unscaled value is written as a length prefixed byte array */
+    private static final byte BIG_UNSCALED = 1;
+
+    private final Logger logger = LoggerFactory.getLogger(StateSerializer.class);
+
+    /**
+     * Serializes a state, prefixed with the format version.
+     */
+    public byte[] serialize(State state) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            write(out, state);
+        } catch (IOException e) {
+            // cannot happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Serializes a persisted item. The name is not part of the payload, it is the key of the record.
+     */
+    public byte[] serialize(MapDbItem item) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(item.getTimestamp().getTime());
+            write(out, item.getState());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes a state written by {@link #serialize(State)}.
+     *
+     * @return the state, or null if the data could not be read
+     */
+    public @Nullable State deserialize(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (!checkVersion(version)) {
+                return null;
+            }
+            return read(in, version);
+        } catch (IOException e) {
+            logger.warn("Couldn't deserialize state: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Deserializes a persisted item written by {@link #serialize(MapDbItem)}.
+     *
+     * @param name the key the item was stored with
+     * @return the item, or null if the data could not be read
+     */
+    public @Nullable MapDbItem deserialize(String name, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (!checkVersion(version)) {
+                return null;
+            }
+            long timestamp = in.readLong();
+            State state = read(in, version);
+            if (state == null) {
+                return null;
+            }
+            MapDbItem item = new MapDbItem();
+            item.setName(name);
+            item.setTimestamp(new Date(timestamp));
+            item.setState(state);
+            return item;
+        } catch (IOException e) {
+            logger.warn("Couldn't deserialize item '{}': {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether data written in the given format version can be read, and logs a warning if not.
+     */
+    boolean checkVersion(byte version) {
+        if (version != VERSION && version != VERSION_BYTE_DECIMAL_LENGTH) {
+            logger.warn("Unsupported serialization format version {}", version);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the type tag and payload of a state.
+     */
+    public void write(DataOutput out, State state) throws IOException {
+        if (state == UnDefType.NULL) {
+            out.writeByte(TAG_NULL);
+        } else if (state == UnDefType.UNDEF) {
+            out.writeByte(TAG_UNDEF);
+        } else if (state instanceof OnOffType) {
+            out.writeByte(state == OnOffType.ON ? TAG_ON : TAG_OFF);
+        } else if (state instanceof OpenClosedType) {
+            out.writeByte(state == OpenClosedType.OPEN ? TAG_OPEN : TAG_CLOSED);
+        } else if (state instanceof UpDownType) {
+            out.writeByte(state == UpDownType.UP ? TAG_UP : TAG_DOWN);
+        } else if (state instanceof HSBType) {
+            HSBType hsb = (HSBType) state;
+            out.writeByte(TAG_HSB);
+            writeDecimal(out, hsb.getHue().toBigDecimal());
+            writeDecimal(out, hsb.getSaturation().toBigDecimal());
+            writeDecimal(out, hsb.getBrightness().toBigDecimal());
+        } else if (state instanceof PercentType) {
+            out.writeByte(TAG_PERCENT);
+            writeDecimal(out, ((PercentType) state).toBigDecimal());
+        } else if (state.getClass() == DecimalType.class) {
+            out.writeByte(TAG_DECIMAL);
+            writeDecimal(out, ((DecimalType) state).toBigDecimal());
+        } else if (state instanceof StringType) {
+            out.writeByte(TAG_STRING);
+            writeString(out, state.toFullString());
+        } else {
+            out.writeByte(TAG_GENERIC);
+            writeString(out, state.getClass().getName());
+            writeString(out, state.toFullString());
+        }
+    }
+
+    /**
+     * Reads a state written by {@link #write(DataOutput, State)}.
+     *
+     * @return the state, or null if it is of an unknown type or could not be parsed
+     */
+    public @Nullable State read(DataInput in) throws IOException {
+        return read(in, VERSION);
+    }
+
+    /**
+     * Reads a state written by {@link #write(DataOutput, State)} in the given format version.
+     *
+     * @return the state, or null if it is of an unknown type or could not be parsed
+     */
+    public @Nullable State read(DataInput in, byte version) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return UnDefType.NULL;
+            case TAG_UNDEF:
+                return UnDefType.UNDEF;
+            case TAG_ON:
+                return OnOffType.ON;
+            case TAG_OFF:
+                return OnOffType.OFF;
+            case TAG_OPEN:
+                return OpenClosedType.OPEN;
+            case TAG_CLOSED:
+                return OpenClosedType.CLOSED;
+            case TAG_UP:
+                return UpDownType.UP;
+            case TAG_DOWN:
+                return UpDownType.DOWN;
+            case TAG_DECIMAL:
+                return new DecimalType(readDecimal(in, version));
+            case TAG_PERCENT:
+                return new PercentType(readDecimal(in, version));
+            case TAG_HSB:
+                DecimalType hue = new DecimalType(readDecimal(in, version));
+                PercentType saturation = new PercentType(readDecimal(in, version));
+                PercentType brightness = new PercentType(readDecimal(in, version));
+                return new HSBType(hue, saturation, brightness);
+            case TAG_STRING:
+                return new StringType(readString(in));
+            case TAG_GENERIC:
+                return readGeneric(readString(in), readString(in));
+            default:
+                logger.warn("Couldn't deserialize state with unknown type tag {}", tag);
+                return null;
+        }
+    }
+
+    private @Nullable State readGeneric(String valueTypeName, String valueAsString) {
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends State> valueType = (Class<? extends State>) Class.forName(valueTypeName);
+            List<Class<? extends State>> types = Collections.singletonList(valueType);
+            return TypeParser.parseState(types, valueAsString);
+        } catch (Exception e) {
+            logger.warn("Couldn't deserialize state '{}' of type {}: {}", valueAsString, valueTypeName,
+                    e.getMessage());
+        }
+        return null;
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        BigInteger unscaled = value.unscaledValue();
+        out.writeInt(value.scale());
+        if (unscaled.bitLength() < Long.SIZE) {
+            out.writeByte(LONG_UNSCALED);
+            out.writeLong(unscaled.longValue());
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            out.writeByte(BIG_UNSCALED);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInput in, byte version) throws IOException {
+        int scale = in.readInt();
+        int marker = in.readUnsignedByte();
+        if (marker == LONG_UNSCALED) {
+            return BigDecimal.valueOf(in.readLong(), scale);
+        }
+        // version 1 wrote the length in place of the marker
+        int length = version == VERSION_BYTE_DECIMAL_LENGTH ? marker : in.readInt();
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mapdb.DB;
+import org.openhab.persistence.mapdb.internal.MapDbConfiguration;
+import org.openhab.persistence.mapdb.internal.MapDbFactory;
+
+/**
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class MapDbFactoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storageOptionsShouldKeepTheDataAcrossRestarts() throws IOException {
+        MapDbConfiguration configuration = new MapDbConfiguration();
+        configuration.mmapEnabled = true;
+        configuration.cacheType = "lru";
+        configuration.cacheSize = 16;
+        File dbFile = new File(folder.getRoot(), "storage.mapdb");
+
+        DB db = new MapDbFactory(configuration).open(dbFile);
+        Map<String, String> map = db.createTreeMap("test").makeOrGet();
+        map.put("key", "value");
+        db.commit();
+        db.close();
+
+        db = new MapDbFactory(configuration).open(dbFile);
+        map = db.createTreeMap("test").makeOrGet();
+        assertThat(map.get("key"), is(equalTo("value")));
+        db.close();
+    }
+
+    @Test
+    public void corruptStoresShouldBeMovedAsideInsteadOfFailing() throws IOException {
+        MapDbConfiguration configuration = new MapDbConfiguration();
+        File dbFile = new File(folder.getRoot(), "storage.mapdb");
+
+        DB db = new MapDbFactory(configuration).open(dbFile);
+        Map<String, String> map = db.createTreeMap("test").makeOrGet();
+        map.put("key", "value");
+        db.commit();
+        db.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(dbFile, "rw")) {
+            file.seek(0);
+            file.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        }
+
+        db = new MapDbFactory(configuration).open(dbFile);
+        map = db.createTreeMap("test").makeOrGet();
+        map.put("other", "value");
+        db.commit();
+        db.close();
+
+        assertThat(folder.getRoot().list((dir, name) -> name.contains(".corrupt")).length, is(not(0)));
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Operator;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.openhab.persistence.mapdb.internal.MapDbHistoryStore;
+import org.openhab.persistence.mapdb.internal.StateSerializer;
+
+/**
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class MapDbHistoryStoreTest {
+    private DB db;
+    private MapDbHistoryStore store;
+
+    @Before
+    public void setUp() {
+        db = DBMaker.newMemoryDB().make();
+        store = new MapDbHistoryStore(db, new StateSerializer());
+        for (int i = 0; i < 10; i++) {
+            store.put("number", new Date(1000L * i), new DecimalType(i));
+            store.put("other", new Date(1000L * i), new DecimalType(100 + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void queryShouldReturnTheWholeHistoryOfTheItemNewestFirst() {
+        FilterCriteria filter = new FilterCriteria().setItemName("number");
+
+        assertThat(values(store.query(filter)), is(equalTo(range(9, 0))));
+    }
+
+    @Test
+    public void queryShouldRespectBeginAndEndDateInclusively() {
+        FilterCriteria filter = new FilterCriteria().setItemName("number").setBeginDate(new Date(3000))
+                .setEndDate(new Date(6000)).setOrdering(Ordering.ASCENDING);
+
+        List<HistoricItem> result = store.query(filter);
+
+        assertThat(values(result), is(equalTo(range(3, 6))));
+        assertThat(result.get(0).getName(), is(equalTo("number")));
+        assertThat(result.get(0).getTimestamp(), is(equalTo(new Date(3000))));
+    }
+
+    @Test
+    public void queryShouldReturnTheRequestedPage() {
+        FilterCriteria filter = new FilterCriteria().setItemName("number").setOrdering(Ordering.ASCENDING)
+                .setPageSize(3).setPageNumber(2);
+
+        assertThat(values(store.query(filter)), is(equalTo(range(6, 8))));
+    }
+
+    @Test
+    public void queryShouldFilterByState() {
+        FilterCriteria filter = new FilterCriteria().setItemName("number").setOrdering(Ordering.ASCENDING)
+                .setOperator(Operator.GTE).setState(new DecimalType(7));
+
+        assertThat(values(store.query(filter)), is(equalTo(range(7, 9))));
+    }
+
+    @Test
+    public void queryShouldReturnNothingForUnknownItems() {
+        FilterCriteria filter = new FilterCriteria().setItemName("unknown");
+
+        assertThat(store.query(filter).isEmpty(), is(true));
+    }
+
+    private static List<Integer> values(List<HistoricItem> items) {
+        List<Integer> values = new ArrayList<>();
+        for (HistoricItem item : items) {
+            values.add(((DecimalType) item.getState()).intValue());
+        }
+        return values;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        int step = from <= to ? 1 : -1;
+        for (int i = from; i != to + step; i += step) {
+            values.add(i);
+        }
+        return values;
+    }
+}
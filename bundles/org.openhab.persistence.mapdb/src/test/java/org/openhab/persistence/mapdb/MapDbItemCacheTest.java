@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Date;
+
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbItemCache;
+
+/**
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class MapDbItemCacheTest {
+
+    @Test
+    public void cacheShouldCountHitsAndMisses() {
+        MapDbItemCache cache = new MapDbItemCache(10);
+        cache.put(item("switch"));
+
+        assertThat(cache.get("switch").getName(), is(equalTo("switch")));
+        assertThat(cache.get("unknown"), is(nullValue()));
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void cacheShouldStayCompleteWhileWithinItsBound() {
+        MapDbItemCache cache = new MapDbItemCache(2);
+        cache.put(item("switch1"));
+        cache.markComplete();
+        cache.put(item("switch2"));
+        cache.put(item("switch2"));
+
+        assertThat(cache.isComplete(), is(true));
+        assertThat(cache.size(), is(2));
+    }
+
+    @Test
+    public void rejectedItemsShouldMakeTheCacheIncomplete() {
+        MapDbItemCache cache = new MapDbItemCache(1);
+        cache.put(item("switch1"));
+        cache.markComplete();
+        cache.put(item("switch2"));
+
+        assertThat(cache.isComplete(), is(false));
+        assertThat(cache.get("switch2"), is(nullValue()));
+    }
+
+    private static MapDbItem item(String name) {
+        MapDbItem item = new MapDbItem();
+        item.setName(name);
+        item.setState(OnOffType.ON);
+        item.setTimestamp(new Date());
+        return item;
+    }
+}
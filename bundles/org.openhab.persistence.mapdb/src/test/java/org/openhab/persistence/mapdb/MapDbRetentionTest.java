@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.openhab.persistence.mapdb.internal.MapDbConfiguration;
+import org.openhab.persistence.mapdb.internal.MapDbHistoryStore;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbRetentionPolicy;
+import org.openhab.persistence.mapdb.internal.MapDbRollup;
+import org.openhab.persistence.mapdb.internal.MapDbWriteQueue;
+import org.openhab.persistence.mapdb.internal.StateSerializer;
+
+/**
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class MapDbRetentionTest {
+    private static final long NOW = TimeUnit.DAYS.toMillis(3);
+    private static final long SAMPLE_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    private DB db;
+    private MapDbRetentionPolicy policy;
+    private MapDbHistoryStore store;
+
+    @Before
+    public void setUp() {
+        MapDbConfiguration configuration = new MapDbConfiguration();
+        configuration.rawRetentionDays = 1;
+        configuration.minuteRetentionDays = 2;
+        configuration.hourRetentionDays = 0;
+        policy = new MapDbRetentionPolicy(configuration, Collections.singletonMap("retention.forever", "0"));
+
+        db = DBMaker.newMemoryDB().make();
+        store = new MapDbHistoryStore(db, new StateSerializer(), policy, () -> NOW, 0);
+        for (int i = 0; i * SAMPLE_INTERVAL < NOW; i++) {
+            store.put("number", new Date(i * SAMPLE_INTERVAL), new DecimalType(i % 10));
+            store.put("forever", new Date(i * SAMPLE_INTERVAL), new DecimalType(i % 10));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void rollupShouldAggregateMinMaxAverageAndLast() {
+        MapDbRollup rollup = MapDbRollup.of(new DecimalType(1)).merge(MapDbRollup.of(new DecimalType(5)))
+                .merge(MapDbRollup.of(new DecimalType(3)));
+
+        assertThat(rollup.getCount(), is(3L));
+        assertThat(rollup.getMin(), is(1d));
+        assertThat(rollup.getMax(), is(5d));
+        assertThat(rollup.getAverage(), is(3d));
+        assertThat(rollup.getLast(), is(equalTo(new DecimalType(3))));
+        assertThat(MapDbRollup.of(OnOffType.ON).merge(MapDbRollup.of(OnOffType.OFF)).getState(),
+                is(equalTo(OnOffType.OFF)));
+    }
+
+    @Test
+    public void recentRangesShouldBeAnsweredFromRawSamples() {
+        compactAll();
+
+        assertThat(query("number", NOW - TimeUnit.HOURS.toMillis(1)).size(), is(120));
+    }
+
+    @Test
+    public void olderRangesShouldBeAnsweredFromMinuteRollups() {
+        compactAll();
+
+        List<HistoricItem> result = query("number", NOW - TimeUnit.HOURS.toMillis(36));
+
+        assertThat(result.size(), is(36 * 60));
+    }
+
+    @Test
+    public void longRangesShouldBeAnsweredFromHourRollups() {
+        compactAll();
+
+        List<HistoricItem> result = query("number", 0);
+
+        assertThat(result.size(), is(72));
+        assertThat(result.get(0).getTimestamp(), is(equalTo(new Date(0))));
+        assertThat(result.get(0).getState(), is(equalTo(new DecimalType(4.5))));
+    }
+
+    @Test
+    public void itemsKeptForeverShouldNotBeRolledUp() {
+        compactAll();
+
+        assertThat(query("forever", 0).size(), is((int) (NOW / SAMPLE_INTERVAL)));
+    }
+
+    @Test
+    public void compactionShouldBeIncremental() {
+        assertTrue(store.compact(100) >= 100);
+
+        compactAll();
+
+        assertThat(query("number", 0).size(), is(72));
+        assertThat(query("number", NOW - TimeUnit.HOURS.toMillis(1)).size(), is(120));
+    }
+
+    @Test
+    public void bufferedSamplesShouldBeRolledUpIntoTheirBucket() {
+        final long boundary = TimeUnit.DAYS.toMillis(10);
+        AtomicLong clock = new AtomicLong(boundary + 100);
+        StateSerializer serializer = new StateSerializer();
+        MapDbHistoryStore delayedStore = new MapDbHistoryStore(db, serializer, policy, clock::get, 500);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            MapDbWriteQueue queue = new MapDbWriteQueue(db,
+                    db.createTreeMap("itemStates").valueSerializer(Serializer.BYTE_ARRAY).makeOrGet(), delayedStore,
+                    serializer, scheduler, 100, 60000);
+            delayedStore.put("late", new Date(boundary - 60000), new DecimalType(1));
+            // recorded before the end of the minute, but still buffered when the compaction runs
+            queue.add(item("late", boundary - 200, 3));
+
+            compactAll(delayedStore);
+            queue.flush();
+            clock.set(boundary + TimeUnit.DAYS.toMillis(1) + TimeUnit.HOURS.toMillis(1));
+            compactAll(delayedStore);
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+        List<HistoricItem> result = delayedStore.query(new FilterCriteria().setItemName("late")
+                .setBeginDate(new Date(boundary - 60000)).setEndDate(new Date(boundary - 1)));
+        assertThat(result.size(), is(1));
+        assertThat(result.get(0).getState(), is(equalTo(new DecimalType(2))));
+    }
+
+    @Test
+    public void latestStateQueryShouldNotReadOlderBuckets() throws IOException {
+        compactAll();
+        StateSerializer serializer = spy(new StateSerializer());
+        MapDbHistoryStore spiedStore = new MapDbHistoryStore(db, serializer, policy, () -> NOW, 0);
+
+        List<HistoricItem> result = spiedStore.query(new FilterCriteria().setItemName("number")
+                .setEndDate(new Date(NOW)).setOrdering(Ordering.DESCENDING).setPageSize(1));
+
+        assertThat(result.size(), is(1));
+        // the newest bucket, whichever resolution was chosen
+        assertTrue(result.get(0).getTimestamp().getTime() >= NOW - TimeUnit.DAYS.toMillis(1));
+        verify(serializer, times(1)).read(any(), anyByte());
+    }
+
+    private static MapDbItem item(String name, long timestamp, int value) {
+        MapDbItem item = new MapDbItem();
+        item.setName(name);
+        item.setTimestamp(new Date(timestamp));
+        item.setState(new DecimalType(value));
+        return item;
+    }
+
+    private void compactAll() {
+        compactAll(store);
+    }
+
+    private static void compactAll(MapDbHistoryStore store) {
+        while (store.compact(1000) > 0) {
+            // continue with the next chunk
+        }
+    }
+
+    private List<HistoricItem> query(String name, long begin) {
+        return store.query(new FilterCriteria().setItemName(name).setBeginDate(new Date(begin))
+                .setOrdering(Ordering.ASCENDING));
+    }
+}
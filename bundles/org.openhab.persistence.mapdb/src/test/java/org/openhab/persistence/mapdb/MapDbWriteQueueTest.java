@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.openhab.persistence.mapdb.internal.MapDbHistoryStore;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.MapDbWriteQueue;
+import org.openhab.persistence.mapdb.internal.StateSerializer;
+
+/**
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class MapDbWriteQueueTest {
+    private final StateSerializer serializer = new StateSerializer();
+    private ScheduledExecutorService scheduler;
+    private DB db;
+    private Map<String, byte[]> map;
+    private MapDbHistoryStore historyStore;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        db = DBMaker.newMemoryDB().make();
+        map = db.createTreeMap("itemStates").valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+        historyStore = new MapDbHistoryStore(db, serializer);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        db.close();
+    }
+
+    @Test
+    public void writesOfTheSameItemShouldBeCoalesced() {
+        MapDbWriteQueue queue = new MapDbWriteQueue(db, map, null, serializer, scheduler, 100, 60000);
+
+        queue.add(item("number", 1, 1));
+        queue.add(item("number", 2, 2));
+        queue.add(item("other", 3, 3));
+
+        assertThat(queue.getQueueDepth(), is(2));
+        assertThat(queue.getPending("number").getState(), is(equalTo(new DecimalType(2))));
+        assertThat(map.isEmpty(), is(true));
+
+        queue.flush();
+
+        assertThat(queue.getQueueDepth(), is(0));
+        assertThat(queue.getCommitCount(), is(1L));
+        assertThat(queue.getCommittedItemCount(), is(2L));
+        assertThat(serializer.deserialize("number", map.get("number")).getState(),
+                is(equalTo((State) new DecimalType(2))));
+    }
+
+    @Test
+    public void historySamplesShouldNotBeCoalesced() {
+        MapDbWriteQueue queue = new MapDbWriteQueue(db, map, historyStore, serializer, scheduler, 100, 60000);
+
+        queue.add(item("number", 1, 1));
+        queue.add(item("number", 2, 2));
+        assertThat(queue.hasPendingHistory(), is(true));
+
+        queue.close();
+
+        assertThat(queue.hasPendingHistory(), is(false));
+        assertThat(historyStore.query(new FilterCriteria().setItemName("number")).size(), is(2));
+    }
+
+    @Test
+    public void reachingTheBatchSizeShouldTriggerACommit() throws InterruptedException {
+        MapDbWriteQueue queue = new MapDbWriteQueue(db, map, null, serializer, scheduler, 2, 60000);
+
+        queue.add(item("number", 1, 1));
+        queue.add(item("other", 2, 2));
+
+        waitForCommit(queue);
+        assertThat(map.size(), is(2));
+    }
+
+    @Test
+    public void reachingTheLatencyShouldTriggerACommit() throws InterruptedException {
+        MapDbWriteQueue queue = new MapDbWriteQueue(db, map, null, serializer, scheduler, 100, 10);
+
+        queue.add(item("number", 1, 1));
+
+        waitForCommit(queue);
+        assertThat(map.size(), is(1));
+    }
+
+    @Test
+    public void failedCommitShouldKeepItemsForTheNextCommit() {
+        DB failingDb = spy(db);
+        doThrow(new IllegalStateException("disk full")).doCallRealMethod().when(failingDb).commit();
+        MapDbWriteQueue queue = new MapDbWriteQueue(failingDb, map, historyStore, serializer, scheduler, 100, 60000);
+
+        queue.add(item("number", 1, 1));
+        queue.flush();
+
+        verify(failingDb).rollback();
+        assertThat(queue.getFailedCommitCount(), is(1L));
+        assertThat(queue.getQueueDepth(), is(2));
+        assertThat(queue.hasPendingHistory(), is(true));
+
+        queue.flush();
+
+        assertThat(queue.getQueueDepth(), is(0));
+        assertThat(queue.getCommitCount(), is(1L));
+        assertThat(map.containsKey("number"), is(true));
+        assertThat(historyStore.query(new FilterCriteria().setItemName("number")).size(), is(1));
+    }
+
+    @Test
+    public void flushAfterCloseShouldNotTouchTheDatabase() {
+        MapDbWriteQueue queue = new MapDbWriteQueue(db, map, null, serializer, scheduler, 100, 60000);
+        queue.add(item("number", 1, 1));
+        queue.close();
+        assertThat(queue.getCommitCount(), is(1L));
+
+        queue.add(item("number", 2, 2));
+        queue.flush();
+
+        assertThat(queue.getCommitCount(), is(1L));
+    }
+
+    private static void waitForCommit(MapDbWriteQueue queue) throws InterruptedException {
+        for (int i = 0; i < 100 && queue.getCommitCount() == 0; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(queue.getCommitCount(), is(1L));
+    }
+
+    private static MapDbItem item(String name, long timestamp, int value) {
+        MapDbItem item = new MapDbItem();
+        item.setName(name);
+        item.setTimestamp(new Date(timestamp));
+        item.setState(new DecimalType(value));
+        return item;
+    }
+}
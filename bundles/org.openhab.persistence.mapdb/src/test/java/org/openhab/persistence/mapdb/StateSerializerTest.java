@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.StateSerializer;
+
+/**
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class StateSerializerTest {
+    StateSerializer serializer = new StateSerializer();
+
+    @Test
+    public void readWriteRoundtripShouldRecreateTheWrittenState() {
+        assertThat(roundtrip(OnOffType.ON), is(equalTo(OnOffType.ON)));
+        assertThat(roundtrip(OpenClosedType.CLOSED), is(equalTo(OpenClosedType.CLOSED)));
+        assertThat(roundtrip(PercentType.HUNDRED), is(equalTo(PercentType.HUNDRED)));
+        assertThat(roundtrip(HSBType.GREEN), is(equalTo(HSBType.GREEN)));
+        assertThat(roundtrip(new DecimalType("-12.345")), is(equalTo(new DecimalType("-12.345"))));
+        assertThat(roundtrip(new DecimalType(new BigDecimal("123456789012345678901234567890.5"))),
+                is(equalTo(new DecimalType(new BigDecimal("123456789012345678901234567890.5")))));
+        assertThat(roundtrip(StringType.valueOf("test äöü")), is(equalTo(StringType.valueOf("test äöü"))));
+    }
+
+    @Test
+    public void typesWithoutTagShouldBeSerializedByTheirStringRepresentation() {
+        DateTimeType dateTime = new DateTimeType("2020-02-01T12:34:56.000+0100");
+
+        assertThat(roundtrip(dateTime).toFullString(), is(equalTo(dateTime.toFullString())));
+    }
+
+    @Test
+    public void itemRoundtripShouldRecreateTheWrittenItem() {
+        MapDbItem item = new MapDbItem();
+        item.setName("ignored");
+        item.setState(PercentType.HUNDRED);
+        item.setTimestamp(new Date(1234567890L));
+
+        MapDbItem result = serializer.deserialize("name", serializer.serialize(item));
+
+        assertThat(result.getName(), is(equalTo("name")));
+        assertThat(result.getState(), is(equalTo(PercentType.HUNDRED)));
+        assertThat(result.getTimestamp(), is(equalTo(new Date(1234567890L))));
+    }
+
+    @Test
+    public void unknownVersionsShouldNotBeDeserialized() {
+        byte[] data = serializer.serialize(OnOffType.ON);
+        data[0] = 42;
+
+        assertThat(serializer.deserialize(data), is(nullValue()));
+    }
+
+    @Test
+    public void decimalsOfAnyLengthShouldBeRoundtripped() {
+        StringBuilder digits = new StringBuilder("1");
+        for (int i = 0; i < 700; i++) {
+            digits.append(i % 10);
+        }
+        DecimalType huge = new DecimalType(new BigDecimal(digits.toString() + ".5"));
+
+        assertThat(roundtrip(huge), is(equalTo(huge)));
+    }
+
+    @Test
+    public void decimalsOfTheFirstVersionShouldBeReadable() throws IOException {
+        BigInteger unscaled = new BigInteger("1234567890123456789012345");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(1); // format version
+            out.writeByte(8); // decimal tag
+            out.writeInt(2); // scale
+            byte[] unscaledBytes = unscaled.toByteArray();
+            out.writeByte(unscaledBytes.length);
+            out.write(unscaledBytes);
+        }
+
+        assertThat(serializer.deserialize(bytes.toByteArray()),
+                is(equalTo(new DecimalType(new BigDecimal(unscaled, 2)))));
+    }
+
+    private State roundtrip(State state) {
+        return serializer.deserialize(serializer.serialize(state));
+    }
+}
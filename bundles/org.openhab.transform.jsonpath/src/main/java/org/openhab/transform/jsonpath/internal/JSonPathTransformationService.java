@@ -12,7 +12,11 @@
  */
 package org.openhab.transform.jsonpath.internal;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -24,6 +28,7 @@ import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
@@ -33,6 +38,13 @@ import com.jayway.jsonpath.PathNotFoundException;
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by JSonPath Expressions.
  *
+ * <p>
+ * Expressions are compiled once and reused for later transformations with the same expression.
+ *
+ * <p>
+ * The most recently parsed documents are kept as well. When several expressions are evaluated against the same
+ * source in a row, e.g. by channels reading different fields of one MQTT message, the source is parsed only once.
+ *
  * @author Gaël L'hopital
  * @author Sebastian Janzen
  *
@@ -41,8 +53,44 @@ import com.jayway.jsonpath.PathNotFoundException;
 @Component(immediate = true, property = { "smarthome.transform=JSONPATH" })
 public class JSonPathTransformationService implements TransformationService {
 
+    private static final int MAX_COMPILED_EXPRESSIONS = 1000;
+
+    /**
+     * Number of recently parsed documents kept
+     */
+    private static final int PARSED_DOCUMENTS = 8;
+
     private final Logger logger = LoggerFactory.getLogger(JSonPathTransformationService.class);
 
+    /**
+     * Compiled paths in access order, the least recently used one is evicted when full. Guarded by itself.
+     */
+    private final Map<String, JsonPath> compiledExpressions = new LinkedHashMap<String, JsonPath>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JsonPath> eldest) {
+            return size() > MAX_COMPILED_EXPRESSIONS;
+        }
+    };
+
+    /**
+     * Recently parsed sources and their documents, replaced round-robin
+     */
+    private final AtomicReferenceArray<@Nullable ParsedDocument> parsedDocuments = new AtomicReferenceArray<>(
+            PARSED_DOCUMENTS);
+    private final AtomicInteger nextParsed = new AtomicInteger();
+
+    private static class ParsedDocument {
+        private final String source;
+        private final DocumentContext document;
+
+        private ParsedDocument(String source, DocumentContext document) {
+            this.source = source;
+            this.document = document;
+        }
+    }
+
     /**
      * Transforms the input <code>source</code> by JSonPath expression.
      *
@@ -60,7 +108,8 @@ public class JSonPathTransformationService implements TransformationService {
         logger.debug("about to transform '{}' by the function '{}'", source, jsonPathExpression);
 
         try {
-            Object transformationResult = JsonPath.read(source, jsonPathExpression);
+            JsonPath jsonPath = compile(jsonPathExpression);
+            Object transformationResult = parse(source).read(jsonPath);
             logger.debug("transformation resulted in '{}'", transformationResult);
             if (transformationResult == null) {
                 return null;
@@ -76,6 +125,45 @@ public class JSonPathTransformationService implements TransformationService {
         }
     }
 
+    private JsonPath compile(String jsonPathExpression) {
+        JsonPath jsonPath;
+        synchronized (compiledExpressions) {
+            jsonPath = compiledExpressions.get(jsonPathExpression);
+        }
+        if (jsonPath == null) {
+            jsonPath = JsonPath.compile(jsonPathExpression);
+            synchronized (compiledExpressions) {
+                compiledExpressions.put(jsonPathExpression, jsonPath);
+            }
+        }
+        return jsonPath;
+    }
+
+    /**
+     * Parse the source, or get the document parsed earlier from an equal source
+     *
+     * Channels of the same message pass the same string instance, which is found by identity first. Comparing the
+     * content is only needed for equal sources passed as different strings.
+     */
+    private DocumentContext parse(String source) {
+        for (int i = 0; i < PARSED_DOCUMENTS; i++) {
+            ParsedDocument parsed = parsedDocuments.get(i);
+            if (parsed != null && parsed.source == source) {
+                return parsed.document;
+            }
+        }
+        for (int i = 0; i < PARSED_DOCUMENTS; i++) {
+            ParsedDocument parsed = parsedDocuments.get(i);
+            if (parsed != null && parsed.source.length() == source.length() && parsed.source.equals(source)) {
+                return parsed.document;
+            }
+        }
+        DocumentContext document = JsonPath.parse(source);
+        parsedDocuments.set(Math.floorMod(nextParsed.getAndIncrement(), PARSED_DOCUMENTS),
+                new ParsedDocument(source, document));
+        return document;
+    }
+
     private String flattenList(List<?> list) {
         if (list.size() == 1) {
             return list.get(0).toString();
@@ -129,4 +129,17 @@ public class JSonPathTransformationServiceTest {
         String transformedResponse = processor.transform("$.data", json);
         assertEquals(list, transformedResponse);
     }
+
+    @Test
+    public void testReusedPath() throws TransformationException {
+        assertEquals("bob", processor.transform("$[0].name", jsonArray));
+        assertEquals("carol", processor.transform("$[0].name", "[{ \"name\":\"carol\" }]"));
+    }
+
+    @Test
+    public void testPathsOnSharedSource() throws TransformationException {
+        assertEquals("bob", processor.transform("$[0].name", jsonArray));
+        assertEquals("2", processor.transform("$[1].id", jsonArray));
+        assertEquals("alice", processor.transform("$[1].name", new String(jsonArray)));
+    }
 }
@@ -79,4 +79,17 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("varX=12 varY=54 ", transformedResponse);
     }
+
+    @Test
+    public void testTransformByRegex_reusedExpression() throws TransformationException {
+        // method under test
+        String first = processor.transform("s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "X12,Y54");
+        String second = processor.transform("s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "Z7");
+        String extracted = processor.transform("temp=(.*)C", "temp=21C");
+
+        // Asserts
+        assertEquals("varX=12 varY=54 ", first);
+        assertEquals("varZ=7 ", second);
+        assertEquals("21", extracted);
+    }
 }
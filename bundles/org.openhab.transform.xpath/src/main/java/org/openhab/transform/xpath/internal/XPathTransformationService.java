@@ -13,12 +13,15 @@
 package org.openhab.transform.xpath.internal;
 
 import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -35,14 +38,44 @@ import org.xml.sax.InputSource;
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XPath Expressions.
  *
+ * <p>
+ * Expressions are compiled once per thread and reused for later transformations with the same expression in that
+ * thread. Compiled expressions are not thread-safe, and sharing one between threads would serialize all channels
+ * using it.
+ *
  * @author Thomas.Eichstaedt-Engelen
  */
 @NonNullByDefault
 @Component(immediate = true, property = { "smarthome.transform=XPATH" })
 public class XPathTransformationService implements TransformationService {
 
+    /**
+     * Maximum number of compiled expressions kept by each thread
+     */
+    private static final int MAX_COMPILED_EXPRESSIONS = 100;
+
     private final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+    private final DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+    private final XPathFactory xpathFactory = XPathFactory.newInstance();
+    /**
+     * Compiled expressions of the calling thread, the least recently used one is dropped when full
+     */
+    private final ThreadLocal<Map<String, XPathExpression>> compiledExpressions = ThreadLocal
+            .withInitial(() -> new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                    return size() > MAX_COMPILED_EXPRESSIONS;
+                }
+            });
+
+    public XPathTransformationService() {
+        domFactory.setNamespaceAware(true);
+        domFactory.setValidating(false);
+    }
+
     @Override
     public @Nullable String transform(String xpathExpression, String source) throws TransformationException {
         if (xpathExpression == null || source == null) {
@@ -54,10 +87,7 @@ public class XPathTransformationService implements TransformationService {
         StringReader stringReader = null;
 
         try {
-            DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-            domFactory.setNamespaceAware(true);
-            domFactory.setValidating(false);
-            DocumentBuilder builder = domFactory.newDocumentBuilder();
+            DocumentBuilder builder = newDocumentBuilder();
 
             stringReader = new StringReader(source);
             InputSource inputSource = new InputSource(stringReader);
@@ -65,8 +95,7 @@ public class XPathTransformationService implements TransformationService {
 
             Document doc = builder.parse(inputSource);
 
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression expr = xpath.compile(xpathExpression);
+            XPathExpression expr = compile(xpathExpression);
 
             String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
 
@@ -82,4 +111,22 @@ public class XPathTransformationService implements TransformationService {
         }
     }
 
+    private DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+        synchronized (domFactory) {
+            return domFactory.newDocumentBuilder();
+        }
+    }
+
+    private XPathExpression compile(String xpathExpression) throws XPathExpressionException {
+        Map<String, XPathExpression> expressions = compiledExpressions.get();
+        XPathExpression expr = expressions.get(xpathExpression);
+        if (expr == null) {
+            synchronized (xpathFactory) {
+                expr = xpathFactory.newXPath().compile(xpathExpression);
+            }
+            expressions.put(xpathExpression, expr);
+        }
+        return expr;
+    }
+
 }